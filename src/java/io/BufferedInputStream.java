@@ -149,6 +149,13 @@ class BufferedInputStream extends FilterInputStream {
      */
     protected int marklimit;
 
+    /**
+     * True if this stream was created by {@link #unsynchronized} and so is
+     * owned by a single thread; its read methods then do not lock the
+     * stream.
+     */
+    private final boolean unsynchronized;
+
     /**
      * Check to make sure that underlying input stream has not been
      * nulled out due to close; if not return it;
@@ -196,17 +203,46 @@ class BufferedInputStream extends FilterInputStream {
      * @exception IllegalArgumentException if {@code size <= 0}.
      */
     public BufferedInputStream(InputStream in, int size) {
+        this(in, size, false);
+    }
+
+    private BufferedInputStream(InputStream in, int size,
+                                boolean unsynchronized) {
         super(in);
         if (size <= 0) {
             throw new IllegalArgumentException("Buffer size <= 0");
         }
         buf = new byte[size];
+        this.unsynchronized = unsynchronized;
+    }
+
+    /**
+     * Creates a <code>BufferedInputStream</code> with the specified buffer
+     * size whose read methods do not synchronize on the stream.
+     *
+     * <p> The <code>read</code> methods of the returned stream do not
+     * acquire the stream's monitor, so the stream must not be used by more
+     * than one thread at a time without external synchronization.  This
+     * suits a stream owned by a single thread, such as one read by a
+     * parser.  The <code>skip</code>, <code>available</code>,
+     * <code>mark</code> and <code>reset</code> methods still synchronize,
+     * as they do in an unsynchronized <code>BufferedReader</code>.
+     *
+     * @param   in     the underlying input stream.
+     * @param   size   the buffer size.
+     * @return  a new unsynchronized buffered input stream.
+     * @exception IllegalArgumentException if {@code size <= 0}.
+     * @since 1.8
+     */
+    public static BufferedInputStream unsynchronized(InputStream in, int size) {
+        return new BufferedInputStream(in, size, true);
     }
 
     /**
      * Fills the buffer with more data, taking into account
      * shuffling and other tricks for dealing with marks.
-     * Assumes that it is being called by a synchronized method.
+     * Assumes that it is being called by a synchronized method, or by a
+     * read method of an unsynchronized stream.
      * This method also assumes that all data has already been read in,
      * hence pos > count.
      */
@@ -260,7 +296,17 @@ class BufferedInputStream extends FilterInputStream {
      *                          or an I/O error occurs.
      * @see        java.io.FilterInputStream#in
      */
-    public synchronized int read() throws IOException {
+    public int read() throws IOException {
+        if (unsynchronized) {
+            return implRead();
+        } else {
+            synchronized (this) {
+                return implRead();
+            }
+        }
+    }
+
+    private int implRead() throws IOException {
         if (pos >= count) {
             fill();
             if (pos >= count)
@@ -330,9 +376,19 @@ class BufferedInputStream extends FilterInputStream {
      *                          invoking its {@link #close()} method,
      *                          or an I/O error occurs.
      */
-    public synchronized int read(byte b[], int off, int len)
+    public int read(byte b[], int off, int len)
         throws IOException
     {
+        if (unsynchronized) {
+            return implRead(b, off, len);
+        } else {
+            synchronized (this) {
+                return implRead(b, off, len);
+            }
+        }
+    }
+
+    private int implRead(byte b[], int off, int len) throws IOException {
         getBufIfOpen(); // Check for closed stream
         if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
             throw new IndexOutOfBoundsException();
@@ -49,6 +49,13 @@ class BufferedOutputStream extends FilterOutputStream {
      */
     protected int count;
 
+    /**
+     * True if this stream was created by {@link #unsynchronized} and so is
+     * owned by a single thread; its write and flush methods then do not lock
+     * the stream.
+     */
+    private final boolean unsynchronized;
+
     /**
      * Creates a new buffered output stream to write data to the
      * specified underlying output stream.
@@ -69,11 +76,37 @@ class BufferedOutputStream extends FilterOutputStream {
      * @exception IllegalArgumentException if size &lt;= 0.
      */
     public BufferedOutputStream(OutputStream out, int size) {
+        this(out, size, false);
+    }
+
+    private BufferedOutputStream(OutputStream out, int size,
+                                 boolean unsynchronized) {
         super(out);
         if (size <= 0) {
             throw new IllegalArgumentException("Buffer size <= 0");
         }
         buf = new byte[size];
+        this.unsynchronized = unsynchronized;
+    }
+
+    /**
+     * Creates a new buffered output stream with the specified buffer size
+     * whose write methods do not synchronize on the stream.
+     *
+     * <p> The <code>write</code> and <code>flush</code> methods of the
+     * returned stream do not acquire the stream's monitor, so the stream
+     * must not be used by more than one thread at a time without external
+     * synchronization.  This suits a stream owned by a single thread, such
+     * as one written by a serializer.
+     *
+     * @param   out    the underlying output stream.
+     * @param   size   the buffer size.
+     * @return  a new unsynchronized buffered output stream.
+     * @exception IllegalArgumentException if size &lt;= 0.
+     * @since 1.8
+     */
+    public static BufferedOutputStream unsynchronized(OutputStream out, int size) {
+        return new BufferedOutputStream(out, size, true);
     }
 
     /** Flush the internal buffer */
@@ -90,7 +123,17 @@ class BufferedOutputStream extends FilterOutputStream {
      * @param      b   the byte to be written.
      * @exception  IOException  if an I/O error occurs.
      */
-    public synchronized void write(int b) throws IOException {
+    public void write(int b) throws IOException {
+        if (unsynchronized) {
+            implWrite(b);
+        } else {
+            synchronized (this) {
+                implWrite(b);
+            }
+        }
+    }
+
+    private void implWrite(int b) throws IOException {
         if (count >= buf.length) {
             flushBuffer();
         }
@@ -113,7 +156,17 @@ class BufferedOutputStream extends FilterOutputStream {
      * @param      len   the number of bytes to write.
      * @exception  IOException  if an I/O error occurs.
      */
-    public synchronized void write(byte b[], int off, int len) throws IOException {
+    public void write(byte b[], int off, int len) throws IOException {
+        if (unsynchronized) {
+            implWrite(b, off, len);
+        } else {
+            synchronized (this) {
+                implWrite(b, off, len);
+            }
+        }
+    }
+
+    private void implWrite(byte b[], int off, int len) throws IOException {
         if (len >= buf.length) {
             /* If the request length exceeds the size of the output buffer,
                flush the output buffer and then write the data directly.
@@ -136,7 +189,17 @@ class BufferedOutputStream extends FilterOutputStream {
      * @exception  IOException  if an I/O error occurs.
      * @see        java.io.FilterOutputStream#out
      */
-    public synchronized void flush() throws IOException {
+    public void flush() throws IOException {
+        if (unsynchronized) {
+            implFlush();
+        } else {
+            synchronized (this) {
+                implFlush();
+            }
+        }
+    }
+
+    private void implFlush() throws IOException {
         flushBuffer();
         out.flush();
     }
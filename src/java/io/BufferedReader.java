@@ -85,6 +85,12 @@ public class BufferedReader extends Reader {
     /** The skipLF flag when the mark was set */
     private boolean markedSkipLF = false;
 
+    /**
+     * True if this reader was created by {@link #unsynchronized}; its read
+     * methods then do not lock on {@link #lock}.
+     */
+    private final boolean unsynchronized;
+
     private static int defaultCharBufferSize = 8192;
     private static int defaultExpectedLineLength = 80;
 
@@ -98,12 +104,38 @@ public class BufferedReader extends Reader {
      * @exception  IllegalArgumentException  If {@code sz <= 0}
      */
     public BufferedReader(Reader in, int sz) {
+        this(in, sz, false);
+    }
+
+    private BufferedReader(Reader in, int sz, boolean unsynchronized) {
         super(in);
         if (sz <= 0)
             throw new IllegalArgumentException("Buffer size <= 0");
         this.in = in;
         cb = new char[sz];
         nextChar = nChars = 0;
+        this.unsynchronized = unsynchronized;
+    }
+
+    /**
+     * Creates a buffering character-input stream, using an input buffer of
+     * the specified size, whose read methods do not synchronize.
+     *
+     * <p> The <code>read</code> and <code>readLine</code> methods of the
+     * returned reader do not acquire the reader's {@link #lock}, so the
+     * reader must not be used by more than one thread at a time without
+     * external synchronization.  This suits a reader owned by a single
+     * thread, such as one that parses a file line by line.
+     *
+     * @param  in   A Reader
+     * @param  sz   Input-buffer size
+     * @return A new unsynchronized buffered reader
+     *
+     * @exception  IllegalArgumentException  If {@code sz <= 0}
+     * @since 1.8
+     */
+    public static BufferedReader unsynchronized(Reader in, int sz) {
+        return new BufferedReader(in, sz, true);
     }
 
     /**
@@ -175,23 +207,31 @@ public class BufferedReader extends Reader {
      * @exception  IOException  If an I/O error occurs
      */
     public int read() throws IOException {
-        synchronized (lock) {
-            ensureOpen();
-            for (;;) {
-                if (nextChar >= nChars) {
-                    fill();
-                    if (nextChar >= nChars)
-                        return -1;
-                }
-                if (skipLF) {
-                    skipLF = false;
-                    if (cb[nextChar] == '\n') {
-                        nextChar++;
-                        continue;
-                    }
+        if (unsynchronized) {
+            return implRead();
+        } else {
+            synchronized (lock) {
+                return implRead();
+            }
+        }
+    }
+
+    private int implRead() throws IOException {
+        ensureOpen();
+        for (;;) {
+            if (nextChar >= nChars) {
+                fill();
+                if (nextChar >= nChars)
+                    return -1;
+            }
+            if (skipLF) {
+                skipLF = false;
+                if (cb[nextChar] == '\n') {
+                    nextChar++;
+                    continue;
                 }
-                return cb[nextChar++];
             }
+            return cb[nextChar++];
         }
     }
 
@@ -274,24 +314,32 @@ public class BufferedReader extends Reader {
      * @exception  IOException  If an I/O error occurs
      */
     public int read(char cbuf[], int off, int len) throws IOException {
-        synchronized (lock) {
-            ensureOpen();
-            if ((off < 0) || (off > cbuf.length) || (len < 0) ||
-                ((off + len) > cbuf.length) || ((off + len) < 0)) {
-                throw new IndexOutOfBoundsException();
-            } else if (len == 0) {
-                return 0;
+        if (unsynchronized) {
+            return implRead(cbuf, off, len);
+        } else {
+            synchronized (lock) {
+                return implRead(cbuf, off, len);
             }
+        }
+    }
 
-            int n = read1(cbuf, off, len);
-            if (n <= 0) return n;
-            while ((n < len) && in.ready()) {
-                int n1 = read1(cbuf, off + n, len - n);
-                if (n1 <= 0) break;
-                n += n1;
-            }
-            return n;
+    private int implRead(char cbuf[], int off, int len) throws IOException {
+        ensureOpen();
+        if ((off < 0) || (off > cbuf.length) || (len < 0) ||
+            ((off + len) > cbuf.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
         }
+
+        int n = read1(cbuf, off, len);
+        if (n <= 0) return n;
+        while ((n < len) && in.ready()) {
+            int n1 = read1(cbuf, off + n, len - n);
+            if (n1 <= 0) break;
+            n += n1;
+        }
+        return n;
     }
 
     /**
@@ -310,65 +358,73 @@ public class BufferedReader extends Reader {
      * @exception  IOException  If an I/O error occurs
      */
     String readLine(boolean ignoreLF) throws IOException {
-        StringBuffer s = null;
+        if (unsynchronized) {
+            return implReadLine(ignoreLF);
+        } else {
+            synchronized (lock) {
+                return implReadLine(ignoreLF);
+            }
+        }
+    }
+
+    private String implReadLine(boolean ignoreLF) throws IOException {
+        StringBuilder s = null;
         int startChar;
 
-        synchronized (lock) {
-            ensureOpen();
-            boolean omitLF = ignoreLF || skipLF;
+        ensureOpen();
+        boolean omitLF = ignoreLF || skipLF;
 
-        bufferLoop:
-            for (;;) {
+    bufferLoop:
+        for (;;) {
 
-                if (nextChar >= nChars)
-                    fill();
-                if (nextChar >= nChars) { /* EOF */
-                    if (s != null && s.length() > 0)
-                        return s.toString();
-                    else
-                        return null;
-                }
-                boolean eol = false;
-                char c = 0;
-                int i;
+            if (nextChar >= nChars)
+                fill();
+            if (nextChar >= nChars) { /* EOF */
+                if (s != null && s.length() > 0)
+                    return s.toString();
+                else
+                    return null;
+            }
+            boolean eol = false;
+            char c = 0;
+            int i;
 
-                /* Skip a leftover '\n', if necessary */
-                if (omitLF && (cb[nextChar] == '\n'))
-                    nextChar++;
-                skipLF = false;
-                omitLF = false;
-
-            charLoop:
-                for (i = nextChar; i < nChars; i++) {
-                    c = cb[i];
-                    if ((c == '\n') || (c == '\r')) {
-                        eol = true;
-                        break charLoop;
-                    }
+            /* Skip a leftover '\n', if necessary */
+            if (omitLF && (cb[nextChar] == '\n'))
+                nextChar++;
+            skipLF = false;
+            omitLF = false;
+
+        charLoop:
+            for (i = nextChar; i < nChars; i++) {
+                c = cb[i];
+                if ((c == '\n') || (c == '\r')) {
+                    eol = true;
+                    break charLoop;
                 }
+            }
 
-                startChar = nextChar;
-                nextChar = i;
+            startChar = nextChar;
+            nextChar = i;
 
-                if (eol) {
-                    String str;
-                    if (s == null) {
-                        str = new String(cb, startChar, i - startChar);
-                    } else {
-                        s.append(cb, startChar, i - startChar);
-                        str = s.toString();
-                    }
-                    nextChar++;
-                    if (c == '\r') {
-                        skipLF = true;
-                    }
-                    return str;
+            if (eol) {
+                String str;
+                if (s == null) {
+                    str = new String(cb, startChar, i - startChar);
+                } else {
+                    s.append(cb, startChar, i - startChar);
+                    str = s.toString();
                 }
-
-                if (s == null)
-                    s = new StringBuffer(defaultExpectedLineLength);
-                s.append(cb, startChar, i - startChar);
+                nextChar++;
+                if (c == '\r') {
+                    skipLF = true;
+                }
+                return str;
             }
+
+            if (s == null)
+                s = new StringBuilder(defaultExpectedLineLength);
+            s.append(cb, startChar, i - startChar);
         }
     }
 
@@ -389,6 +445,93 @@ public class BufferedReader extends Reader {
         return readLine(false);
     }
 
+    /**
+     * Reads a line of text, appending it to the given builder.  A line is
+     * considered to be terminated by any one of a line feed ('\n'), a
+     * carriage return ('\r'), or a carriage return followed immediately by a
+     * linefeed.
+     *
+     * <p> Unlike {@link #readLine()}, this method does not create a new
+     * <code>String</code> for every line: characters are copied from this
+     * reader's buffer directly into <code>sb</code>, so a caller that reuses
+     * one builder for every line reads a file without allocating per line.
+     *
+     * @param      sb  The builder to which the line is appended; the
+     *                 line-termination characters are not appended
+     *
+     * @return     The number of characters appended, or -1 if the end of the
+     *             stream has been reached before any character was read
+     *
+     * @exception  NullPointerException  If <code>sb</code> is null
+     * @exception  IOException  If an I/O error occurs
+     *
+     * @since 1.8
+     */
+    public int readLine(StringBuilder sb) throws IOException {
+        return readLine(sb, false);
+    }
+
+    /**
+     * Reads a line of text into <code>sb</code>.
+     *
+     * @param      ignoreLF  If true, the next '\n' will be skipped
+     *
+     * @see        java.io.LineNumberReader#readLine(StringBuilder)
+     */
+    int readLine(StringBuilder sb, boolean ignoreLF) throws IOException {
+        if (sb == null)
+            throw new NullPointerException();
+        if (unsynchronized) {
+            return implReadLine(sb, ignoreLF);
+        } else {
+            synchronized (lock) {
+                return implReadLine(sb, ignoreLF);
+            }
+        }
+    }
+
+    private int implReadLine(StringBuilder sb, boolean ignoreLF)
+        throws IOException
+    {
+        ensureOpen();
+        boolean omitLF = ignoreLF || skipLF;
+        int n = 0;
+
+        for (;;) {
+            if (nextChar >= nChars)
+                fill();
+            if (nextChar >= nChars) /* EOF */
+                return (n > 0) ? n : -1;
+
+            /* Skip a leftover '\n', if necessary */
+            if (omitLF && (cb[nextChar] == '\n'))
+                nextChar++;
+            skipLF = false;
+            omitLF = false;
+            if (nextChar >= nChars)
+                continue;
+
+            int i;
+            char c = 0;
+            for (i = nextChar; i < nChars; i++) {
+                c = cb[i];
+                if ((c == '\n') || (c == '\r'))
+                    break;
+            }
+
+            sb.append(cb, nextChar, i - nextChar);
+            n += i - nextChar;
+            nextChar = i;
+
+            if (i < nChars) {
+                nextChar++;
+                if (c == '\r')
+                    skipLF = true;
+                return n;
+            }
+        }
+    }
+
     /**
      * Skips characters.
      *
@@ -70,6 +70,12 @@ public class BufferedWriter extends Writer {
     private char cb[];
     private int nChars, nextChar;
 
+    /**
+     * True if this writer was created by {@link #unsynchronized}; its write
+     * methods then do not lock on {@link #lock}.
+     */
+    private final boolean unsynchronized;
+
     private static int defaultCharBufferSize = 8192;
 
     /**
@@ -98,6 +104,10 @@ public class BufferedWriter extends Writer {
      * @exception  IllegalArgumentException  If {@code sz <= 0}
      */
     public BufferedWriter(Writer out, int sz) {
+        this(out, sz, false);
+    }
+
+    private BufferedWriter(Writer out, int sz, boolean unsynchronized) {
         super(out);
         if (sz <= 0)
             throw new IllegalArgumentException("Buffer size <= 0");
@@ -108,6 +118,27 @@ public class BufferedWriter extends Writer {
 
         lineSeparator = java.security.AccessController.doPrivileged(
             new sun.security.action.GetPropertyAction("line.separator"));
+        this.unsynchronized = unsynchronized;
+    }
+
+    /**
+     * Creates a buffered character-output stream, using an output buffer of
+     * the given size, whose write methods do not synchronize.
+     *
+     * <p> The <code>write</code> and <code>flush</code> methods of the
+     * returned writer do not acquire the writer's {@link #lock}, so the
+     * writer must not be used by more than one thread at a time without
+     * external synchronization.
+     *
+     * @param  out  A Writer
+     * @param  sz   Output-buffer size, a positive integer
+     * @return A new unsynchronized buffered writer
+     *
+     * @exception  IllegalArgumentException  If {@code sz <= 0}
+     * @since 1.8
+     */
+    public static BufferedWriter unsynchronized(Writer out, int sz) {
+        return new BufferedWriter(out, sz, true);
     }
 
     /** Checks to make sure that the stream has not been closed */
@@ -122,29 +153,45 @@ public class BufferedWriter extends Writer {
      * may be invoked by PrintStream.
      */
     void flushBuffer() throws IOException {
-        synchronized (lock) {
-            ensureOpen();
-            if (nextChar == 0)
-                return;
-            out.write(cb, 0, nextChar);
-            nextChar = 0;
+        if (unsynchronized) {
+            implFlushBuffer();
+        } else {
+            synchronized (lock) {
+                implFlushBuffer();
+            }
         }
     }
 
+    private void implFlushBuffer() throws IOException {
+        ensureOpen();
+        if (nextChar == 0)
+            return;
+        out.write(cb, 0, nextChar);
+        nextChar = 0;
+    }
+
     /**
      * Writes a single character.
      *
      * @exception  IOException  If an I/O error occurs
      */
     public void write(int c) throws IOException {
-        synchronized (lock) {
-            ensureOpen();
-            if (nextChar >= nChars)
-                flushBuffer();
-            cb[nextChar++] = (char) c;
+        if (unsynchronized) {
+            implWrite(c);
+        } else {
+            synchronized (lock) {
+                implWrite(c);
+            }
         }
     }
 
+    private void implWrite(int c) throws IOException {
+        ensureOpen();
+        if (nextChar >= nChars)
+            implFlushBuffer();
+        cb[nextChar++] = (char) c;
+    }
+
     /**
      * Our own little min method, to avoid loading java.lang.Math if we've run
      * out of file descriptors and we're trying to print a stack trace.
@@ -171,33 +218,41 @@ public class BufferedWriter extends Writer {
      * @exception  IOException  If an I/O error occurs
      */
     public void write(char cbuf[], int off, int len) throws IOException {
-        synchronized (lock) {
-            ensureOpen();
-            if ((off < 0) || (off > cbuf.length) || (len < 0) ||
-                ((off + len) > cbuf.length) || ((off + len) < 0)) {
-                throw new IndexOutOfBoundsException();
-            } else if (len == 0) {
-                return;
+        if (unsynchronized) {
+            implWrite(cbuf, off, len);
+        } else {
+            synchronized (lock) {
+                implWrite(cbuf, off, len);
             }
+        }
+    }
 
-            if (len >= nChars) {
-                /* If the request length exceeds the size of the output buffer,
-                   flush the buffer and then write the data directly.  In this
-                   way buffered streams will cascade harmlessly. */
-                flushBuffer();
-                out.write(cbuf, off, len);
-                return;
-            }
+    private void implWrite(char cbuf[], int off, int len) throws IOException {
+        ensureOpen();
+        if ((off < 0) || (off > cbuf.length) || (len < 0) ||
+            ((off + len) > cbuf.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return;
+        }
 
-            int b = off, t = off + len;
-            while (b < t) {
-                int d = min(nChars - nextChar, t - b);
-                System.arraycopy(cbuf, b, cb, nextChar, d);
-                b += d;
-                nextChar += d;
-                if (nextChar >= nChars)
-                    flushBuffer();
-            }
+        if (len >= nChars) {
+            /* If the request length exceeds the size of the output buffer,
+               flush the buffer and then write the data directly.  In this
+               way buffered streams will cascade harmlessly. */
+            implFlushBuffer();
+            out.write(cbuf, off, len);
+            return;
+        }
+
+        int b = off, t = off + len;
+        while (b < t) {
+            int d = min(nChars - nextChar, t - b);
+            System.arraycopy(cbuf, b, cb, nextChar, d);
+            b += d;
+            nextChar += d;
+            if (nextChar >= nChars)
+                implFlushBuffer();
         }
     }
 
@@ -217,21 +272,29 @@ public class BufferedWriter extends Writer {
      * @exception  IOException  If an I/O error occurs
      */
     public void write(String s, int off, int len) throws IOException {
-        synchronized (lock) {
-            ensureOpen();
-
-            int b = off, t = off + len;
-            while (b < t) {
-                int d = min(nChars - nextChar, t - b);
-                s.getChars(b, b + d, cb, nextChar);
-                b += d;
-                nextChar += d;
-                if (nextChar >= nChars)
-                    flushBuffer();
+        if (unsynchronized) {
+            implWrite(s, off, len);
+        } else {
+            synchronized (lock) {
+                implWrite(s, off, len);
             }
         }
     }
 
+    private void implWrite(String s, int off, int len) throws IOException {
+        ensureOpen();
+
+        int b = off, t = off + len;
+        while (b < t) {
+            int d = min(nChars - nextChar, t - b);
+            s.getChars(b, b + d, cb, nextChar);
+            b += d;
+            nextChar += d;
+            if (nextChar >= nChars)
+                implFlushBuffer();
+        }
+    }
+
     /**
      * Writes a line separator.  The line separator string is defined by the
      * system property <tt>line.separator</tt>, and is not necessarily a single
@@ -249,12 +312,20 @@ public class BufferedWriter extends Writer {
      * @exception  IOException  If an I/O error occurs
      */
     public void flush() throws IOException {
-        synchronized (lock) {
-            flushBuffer();
-            out.flush();
+        if (unsynchronized) {
+            implFlush();
+        } else {
+            synchronized (lock) {
+                implFlush();
+            }
         }
     }
 
+    private void implFlush() throws IOException {
+        implFlushBuffer();
+        out.flush();
+    }
+
     @SuppressWarnings("try")
     public void close() throws IOException {
         synchronized (lock) {
@@ -262,7 +333,7 @@ public class BufferedWriter extends Writer {
                 return;
             }
             try (Writer w = out) {
-                flushBuffer();
+                implFlushBuffer();
             } finally {
                 out = null;
                 cb = null;
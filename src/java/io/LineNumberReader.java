@@ -206,6 +206,33 @@ public class LineNumberReader extends BufferedReader {
         }
     }
 
+    /**
+     * Read a line of text, appending it to the given builder.  Whenever a
+     * <a href="#lt">line terminator</a> is read the current line number is
+     * incremented.
+     *
+     * @param  sb
+     *         The builder to which the line is appended, not including any
+     *         <a href="#lt">line termination characters</a>
+     *
+     * @return  The number of characters appended, or -1 if the end of the
+     *          stream has been reached
+     *
+     * @throws  IOException
+     *          If an I/O error occurs
+     *
+     * @since 1.8
+     */
+    public int readLine(StringBuilder sb) throws IOException {
+        synchronized (lock) {
+            int n = super.readLine(sb, skipLF);
+            skipLF = false;
+            if (n >= 0)
+                lineNumber++;
+            return n;
+        }
+    }
+
     /** Maximum skip-buffer size */
     private static final int maxSkipBufferSize = 8192;
 
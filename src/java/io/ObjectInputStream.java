@@ -309,6 +309,23 @@ public class ObjectInputStream
     private final boolean enableOverride;
     /** if true, invoke resolveObject() */
     private boolean enableResolve;
+    /** if true, resets retain class descriptors */
+    private boolean messageFraming;
+
+    /**
+     * Interner for strings returned by readUTF, or null.  Value of the
+     * "sun.io.serialization.internStrings" property, which lets streams of
+     * records that repeat the same names and values share one instance of
+     * each.
+     */
+    private static final sun.misc.StringInterner utfInterner =
+        java.security.AccessController.doPrivileged(
+            new sun.security.action.GetBooleanAction(
+                "sun.io.serialization.internStrings")).booleanValue() ?
+        sun.misc.StringInterner.shared() : null;
+
+    /** longest string that readUTF interns */
+    private static final int MAX_INTERNED_UTF_LENGTH = 256;
 
     /**
      * Context during upcalls to class-defined readObject methods; holds
@@ -609,6 +626,30 @@ public class ObjectInputStream
         return getField;
     }
 
+    /**
+     * Enables or disables message-framing mode, matching
+     * {@link ObjectOutputStream#useMessageFraming}.
+     *
+     * <p>In message-framing mode, a reset written by the sending stream
+     * discards the handles of objects read since the previous reset but
+     * retains those of class descriptors, which later messages may refer
+     * back to instead of sending them again.  This method must be invoked
+     * at the point of the stream at which the sending side enabled or
+     * disabled the mode, normally right after the streams are created.
+     *
+     * @param   enable <code>true</code> to retain class descriptors across
+     *          resets, <code>false</code> to discard them
+     * @throws  IllegalStateException if called while an object is being
+     *          deserialized
+     * @since   1.8
+     */
+    public void useMessageFraming(boolean enable) {
+        if (depth != 0) {
+            throw new IllegalStateException("stream active");
+        }
+        messageFraming = enable;
+    }
+
     /**
      * Register an object to be validated before the graph is returned.  While
      * similar to resolveObject these validations are called after the entire
@@ -1127,7 +1168,11 @@ public class ObjectInputStream
      *          modified UTF-8 encoding of a string
      */
     public String readUTF() throws IOException {
-        return bin.readUTF();
+        String str = bin.readUTF();
+        if (utfInterner != null && str.length() <= MAX_INTERNED_UTF_LENGTH) {
+            str = utfInterner.intern(str);
+        }
+        return str;
     }
 
     /**
@@ -1776,6 +1821,9 @@ public class ObjectInputStream
 
         ObjectStreamClass desc = new ObjectStreamClass();
         int descHandle = handles.assign(unshared ? unsharedMarker : desc);
+        if (!unshared) {
+            handles.markClassDesc(descHandle);
+        }
         passHandle = NULL_HANDLE;
 
         int numIfaces = bin.readInt();
@@ -1845,6 +1893,9 @@ public class ObjectInputStream
 
         ObjectStreamClass desc = new ObjectStreamClass();
         int descHandle = handles.assign(unshared ? unsharedMarker : desc);
+        if (!unshared) {
+            handles.markClassDesc(descHandle);
+        }
         passHandle = NULL_HANDLE;
 
         ObjectStreamClass readDesc = null;
@@ -2306,14 +2357,20 @@ public class ObjectInputStream
     /**
      * If recursion depth is 0, clears internal data structures; otherwise,
      * throws a StreamCorruptedException.  This method is called when a
-     * TC_RESET typecode is encountered.
+     * TC_RESET typecode is encountered.  In message-framing mode, class
+     * descriptors are kept in the handle table.
      */
     private void handleReset() throws StreamCorruptedException {
         if (depth > 0) {
             throw new StreamCorruptedException(
                 "unexpected reset; recursion depth: " + depth);
         }
-        clear();
+        if (messageFraming) {
+            handles.retainClassDescs();
+            vlist.clear();
+        } else {
+            clear();
+        }
     }
 
     /**
@@ -3615,6 +3672,8 @@ public class ObjectInputStream
         int lowDep = -1;
         /** number of handles in table */
         int size = 0;
+        /** handles of shared class descriptors, in ascending order */
+        final HandleList classDescs = new HandleList();
 
         /**
          * Creates handle table with the given initial capacity.
@@ -3810,6 +3869,37 @@ public class ObjectInputStream
             Arrays.fill(deps, 0, size, null);
             lowDep = -1;
             size = 0;
+            classDescs.clear();
+        }
+
+        /**
+         * Records that the given handle was assigned to a shared class
+         * descriptor.  A descriptor whose class could not be resolved is
+         * held in exception status, so its entry alone does not identify it.
+         */
+        void markClassDesc(int handle) {
+            classDescs.add(handle);
+        }
+
+        /**
+         * Removes all handles except those of shared class descriptors,
+         * which are renumbered from 0 in the order in which they were
+         * assigned, keeping their status.  Mirrors ObjectOutputStream's
+         * HandleTable.retainClassDescs, so that handles agree on both sides.
+         */
+        void retainClassDescs() {
+            int n = classDescs.size();
+            for (int i = 0; i < n; i++) {
+                int handle = classDescs.get(i);
+                status[i] = status[handle];
+                entries[i] = entries[handle];
+                classDescs.set(i, i);
+            }
+            Arrays.fill(status, n, size, (byte) 0);
+            Arrays.fill(entries, n, size, null);
+            Arrays.fill(deps, 0, size, null);
+            lowDep = -1;
+            size = n;
         }
 
         /**
@@ -3864,9 +3954,20 @@ public class ObjectInputStream
                 return list[index];
             }
 
+            public void set(int index, int handle) {
+                if (index >= size) {
+                    throw new ArrayIndexOutOfBoundsException();
+                }
+                list[index] = handle;
+            }
+
             public int size() {
                 return size;
             }
+
+            public void clear() {
+                size = 0;
+            }
         }
     }
 
@@ -191,6 +191,8 @@ public class ObjectOutputStream
     private final boolean enableOverride;
     /** if true, invoke replaceObject() */
     private boolean enableReplace;
+    /** if true, reset() retains class descriptors */
+    private boolean messageFraming;
 
     // values below valid only during upcalls to writeObject()/writeExternal()
     /**
@@ -318,6 +320,38 @@ public class ObjectOutputStream
         }
     }
 
+    /**
+     * Enables or disables message-framing mode.
+     *
+     * <p>A stream that carries a sequence of independent messages must call
+     * {@link #reset()} between them so that objects are not shared across
+     * messages.  Ordinarily a reset also discards class descriptors, which
+     * are then written out again in full by the next message.  In
+     * message-framing mode, <code>reset</code> discards the handles of
+     * objects written since the last reset but retains those of class
+     * descriptors, so that later messages refer back to them.  The stream's
+     * buffers and handle tables are reused across messages.
+     *
+     * <p>The reading side must enable message-framing mode at the same point
+     * of the stream with {@link ObjectInputStream#useMessageFraming}, or it
+     * will fail to resolve the retained class descriptors after the first
+     * reset.  The mode is normally enabled right after the streams are
+     * created.
+     *
+     * @param   enable <code>true</code> to retain class descriptors across
+     *          resets, <code>false</code> to discard them
+     * @throws  IllegalStateException if called while an object is being
+     *          serialized
+     * @see     #reset()
+     * @since   1.8
+     */
+    public void useMessageFraming(boolean enable) {
+        if (depth != 0) {
+            throw new IllegalStateException("stream active");
+        }
+        messageFraming = enable;
+    }
+
     /**
      * Write the specified object to the ObjectOutputStream.  The class of the
      * object, the signature of the class, and the values of the non-transient
@@ -491,7 +525,11 @@ public class ObjectOutputStream
      * written to the stream will not be referred to as already being in the
      * stream.  They will be written to the stream again.
      *
+     * <p>In message-framing mode, class descriptors already written to the
+     * stream are retained and are not written again.
+     *
      * @throws  IOException if reset() is invoked while serializing an object.
+     * @see     #useMessageFraming(boolean)
      */
     public void reset() throws IOException {
         if (depth != 0) {
@@ -499,7 +537,12 @@ public class ObjectOutputStream
         }
         bout.setBlockDataMode(false);
         bout.writeByte(TC_RESET);
-        clear();
+        if (messageFraming) {
+            subs.clear();
+            handles.retainClassDescs();
+        } else {
+            clear();
+        }
         bout.setBlockDataMode(true);
     }
 
@@ -2308,6 +2351,25 @@ public class ObjectOutputStream
             size = 0;
         }
 
+        /**
+         * Removes all mappings except those for class descriptors, which are
+         * renumbered from 0 in the order in which they were assigned.  The
+         * ObjectInputStream handle table compacts itself the same way, so
+         * handles of retained descriptors agree on both sides.
+         */
+        void retainClassDescs() {
+            Arrays.fill(spine, -1);
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                Object obj = objs[i];
+                if (obj instanceof ObjectStreamClass) {
+                    insert(obj, n++);
+                }
+            }
+            Arrays.fill(objs, n, size, null);
+            size = n;
+        }
+
         /**
          * Returns the number of mappings currently in table.
          */
@@ -53,6 +53,9 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import jdk.internal.org.objectweb.asm.ClassWriter;
+import jdk.internal.org.objectweb.asm.MethodVisitor;
+import jdk.internal.org.objectweb.asm.Opcodes;
 import sun.misc.JavaSecurityAccess;
 import sun.misc.SharedSecrets;
 import sun.misc.Unsafe;
@@ -1996,12 +1999,13 @@ public class ObjectStreamClass implements Serializable {
 
     /**
      * Class for setting and retrieving serializable field values in batch.
+     * When the "sun.io.serialization.generatedFieldReflectors" property is
+     * set, getReflector specializes instances with FieldReflectorGenerator.
      */
-    // REMIND: dynamically generate these?
     private static class FieldReflector {
 
         /** handle for performing unsafe operations */
-        private static final Unsafe unsafe = Unsafe.getUnsafe();
+        static final Unsafe unsafe = Unsafe.getUnsafe();
 
         /** fields to operate on */
         private final ObjectStreamField[] fields;
@@ -2220,18 +2224,7 @@ public class ObjectStreamClass implements Serializable {
                     case 'L':
                     case '[':
                         Object val = vals[offsets[i]];
-                        if (val != null &&
-                            !types[i - numPrimFields].isInstance(val))
-                        {
-                            Field f = fields[i].getField();
-                            throw new ClassCastException(
-                                "cannot assign instance of " +
-                                val.getClass().getName() + " to field " +
-                                f.getDeclaringClass().getName() + "." +
-                                f.getName() + " of type " +
-                                f.getType().getName() + " in instance of " +
-                                obj.getClass().getName());
-                        }
+                        checkObjFieldValue(obj, i, val);
                         unsafe.putObject(obj, key, val);
                         break;
 
@@ -2240,6 +2233,267 @@ public class ObjectStreamClass implements Serializable {
                 }
             }
         }
+
+        /**
+         * Throws ClassCastException if val may not be assigned to the object
+         * field at index i of this reflector's fields.
+         */
+        void checkObjFieldValue(Object obj, int i, Object val) {
+            if (val != null && !types[i - numPrimFields].isInstance(val)) {
+                Field f = fields[i].getField();
+                throw new ClassCastException(
+                    "cannot assign instance of " +
+                    val.getClass().getName() + " to field " +
+                    f.getDeclaringClass().getName() + "." +
+                    f.getName() + " of type " +
+                    f.getType().getName() + " in instance of " +
+                    obj.getClass().getName());
+            }
+        }
+    }
+
+    /**
+     * Spins FieldReflector subclasses specialized for a single field layout.
+     * The generated accessors use constant field offsets and no type switch,
+     * so defaultReadFields and defaultWriteFields reduce to straight-line
+     * loads and stores once compiled.  Generated reflectors are cached in
+     * Caches.reflectors in place of the generic ones they were built from,
+     * and read and write exactly the same data.
+     */
+    private static class FieldReflectorGenerator implements Opcodes {
+
+        /** true if generated reflectors are enabled */
+        static final boolean enabled =
+            java.security.AccessController.doPrivileged(
+                new sun.security.action.GetBooleanAction(
+                    "sun.io.serialization.generatedFieldReflectors")).booleanValue();
+
+        /** layouts with more fields than this are left unspecialized */
+        private static final int MAX_FIELDS = 256;
+
+        private static final String SUPER_NAME =
+            "java/io/ObjectStreamClass$FieldReflector";
+        private static final String CLASS_NAME =
+            "java/io/ObjectStreamClass$GeneratedFieldReflector";
+        private static final String UNSAFE = "sun/misc/Unsafe";
+        private static final String UNSAFE_SIG = "Lsun/misc/Unsafe;";
+        private static final String BITS = "java/io/Bits";
+        private static final String OBJ = "Ljava/lang/Object;";
+
+        /**
+         * Returns a reflector operating on the same fields as refl whose
+         * accessors are specialized for them, or refl itself if generation
+         * is disabled, not worthwhile or fails.
+         */
+        static FieldReflector specialize(FieldReflector refl) {
+            ObjectStreamField[] fields = refl.getFields();
+            if (!enabled || fields.length == 0 || fields.length > MAX_FIELDS) {
+                return refl;
+            }
+            try {
+                Class<?> cl = FieldReflector.unsafe.defineAnonymousClass(
+                    ObjectStreamClass.class, generate(refl), null);
+                Constructor<?> cons =
+                    cl.getDeclaredConstructor(ObjectStreamField[].class);
+                return (FieldReflector) cons.newInstance((Object) fields);
+            } catch (VirtualMachineError err) {
+                throw err;
+            } catch (Throwable ex) {
+                // any failure to generate, define or instantiate the class,
+                // including one thrown by the class writer, leaves the
+                // generic reflector in use
+                return refl;
+            }
+        }
+
+        private static byte[] generate(FieldReflector refl) {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC,
+                     CLASS_NAME, null, SUPER_NAME, null);
+
+            MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>",
+                "([Ljava/io/ObjectStreamField;)V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "<init>",
+                "([Ljava/io/ObjectStreamField;)V", false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            generateGetPrimFieldValues(cw, refl);
+            generateSetPrimFieldValues(cw, refl);
+            generateGetObjFieldValues(cw, refl);
+            generateSetObjFieldValues(cw, refl);
+
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+
+        /**
+         * Emits: for each primitive field with a valid read key,
+         * Bits.putX(buf, off, unsafe.getX(obj, key)).
+         */
+        private static void generateGetPrimFieldValues(ClassWriter cw,
+                                                       FieldReflector refl)
+        {
+            MethodVisitor mv = beginMethod(cw, "getPrimFieldValues", "[B");
+            for (int i = 0; i < refl.numPrimFields; i++) {
+                long key = refl.readKeys[i];
+                if (key == Unsafe.INVALID_FIELD_OFFSET) {
+                    continue;           // filler, leave default value
+                }
+                char tc = refl.typeCodes[i];
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitLdcInsn(refl.offsets[i]);
+                mv.visitFieldInsn(GETSTATIC, SUPER_NAME, "unsafe", UNSAFE_SIG);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitLdcInsn(key);
+                mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "get" + typeName(tc),
+                    "(" + OBJ + "J)" + tc, false);
+                if (tc == 'B') {
+                    mv.visitInsn(BASTORE);
+                } else {
+                    mv.visitMethodInsn(INVOKESTATIC, BITS, "put" + typeName(tc),
+                        "([BI" + tc + ")V", false);
+                }
+            }
+            endMethod(mv);
+        }
+
+        /**
+         * Emits: for each primitive field with a valid write key,
+         * unsafe.putX(obj, key, Bits.getX(buf, off)).
+         */
+        private static void generateSetPrimFieldValues(ClassWriter cw,
+                                                       FieldReflector refl)
+        {
+            MethodVisitor mv = beginMethod(cw, "setPrimFieldValues", "[B");
+            for (int i = 0; i < refl.numPrimFields; i++) {
+                long key = refl.writeKeys[i];
+                if (key == Unsafe.INVALID_FIELD_OFFSET) {
+                    continue;           // discard value
+                }
+                char tc = refl.typeCodes[i];
+                mv.visitFieldInsn(GETSTATIC, SUPER_NAME, "unsafe", UNSAFE_SIG);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitLdcInsn(key);
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitLdcInsn(refl.offsets[i]);
+                if (tc == 'B') {
+                    mv.visitInsn(BALOAD);
+                } else {
+                    mv.visitMethodInsn(INVOKESTATIC, BITS, "get" + typeName(tc),
+                        "([BI)" + tc, false);
+                }
+                mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "put" + typeName(tc),
+                    "(" + OBJ + "J" + tc + ")V", false);
+            }
+            endMethod(mv);
+        }
+
+        /**
+         * Emits: for each object field with a valid read key,
+         * vals[off] = unsafe.getObject(obj, key).
+         */
+        private static void generateGetObjFieldValues(ClassWriter cw,
+                                                      FieldReflector refl)
+        {
+            MethodVisitor mv = beginMethod(cw, "getObjFieldValues",
+                                           "[" + OBJ);
+            for (int i = refl.numPrimFields; i < refl.fields.length; i++) {
+                long key = refl.readKeys[i];
+                if (key == Unsafe.INVALID_FIELD_OFFSET) {
+                    continue;           // filler, leave default value
+                }
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitLdcInsn(refl.offsets[i]);
+                mv.visitFieldInsn(GETSTATIC, SUPER_NAME, "unsafe", UNSAFE_SIG);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitLdcInsn(key);
+                mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "getObject",
+                    "(" + OBJ + "J)" + OBJ, false);
+                mv.visitInsn(AASTORE);
+            }
+            endMethod(mv);
+        }
+
+        /**
+         * Emits: for each object field with a valid write key,
+         * val = vals[off]; checkObjFieldValue(obj, i, val);
+         * unsafe.putObject(obj, key, val).
+         */
+        private static void generateSetObjFieldValues(ClassWriter cw,
+                                                      FieldReflector refl)
+        {
+            MethodVisitor mv = beginMethod(cw, "setObjFieldValues",
+                                           "[" + OBJ);
+            for (int i = refl.numPrimFields; i < refl.fields.length; i++) {
+                long key = refl.writeKeys[i];
+                if (key == Unsafe.INVALID_FIELD_OFFSET) {
+                    continue;           // discard value
+                }
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitLdcInsn(refl.offsets[i]);
+                mv.visitInsn(AALOAD);
+                mv.visitVarInsn(ASTORE, 3);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitLdcInsn(i);
+                mv.visitVarInsn(ALOAD, 3);
+                mv.visitMethodInsn(INVOKEVIRTUAL, SUPER_NAME,
+                    "checkObjFieldValue", "(" + OBJ + "I" + OBJ + ")V", false);
+                mv.visitFieldInsn(GETSTATIC, SUPER_NAME, "unsafe", UNSAFE_SIG);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitLdcInsn(key);
+                mv.visitVarInsn(ALOAD, 3);
+                mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "putObject",
+                    "(" + OBJ + "J" + OBJ + ")V", false);
+            }
+            endMethod(mv);
+        }
+
+        /**
+         * Starts an accessor taking (Object obj, <arrayDesc> buf), which
+         * throws NullPointerException if obj is null.
+         */
+        private static MethodVisitor beginMethod(ClassWriter cw, String name,
+                                                 String arrayDesc)
+        {
+            MethodVisitor mv = cw.visitMethod(0, name,
+                "(" + OBJ + arrayDesc + ")V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKESTATIC, "java/util/Objects",
+                "requireNonNull", "(" + OBJ + ")" + OBJ, false);
+            mv.visitInsn(POP);
+            return mv;
+        }
+
+        private static void endMethod(MethodVisitor mv) {
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        /**
+         * Returns the Unsafe and Bits accessor suffix for a primitive type
+         * code.
+         */
+        private static String typeName(char tc) {
+            switch (tc) {
+                case 'Z': return "Boolean";
+                case 'B': return "Byte";
+                case 'C': return "Char";
+                case 'S': return "Short";
+                case 'I': return "Int";
+                case 'F': return "Float";
+                case 'J': return "Long";
+                case 'D': return "Double";
+                default:  throw new InternalError();
+            }
+        }
     }
 
     /**
@@ -2290,7 +2544,8 @@ public class ObjectStreamClass implements Serializable {
             entry = ((EntryFuture) entry).get();
         } else if (entry == null) {
             try {
-                entry = new FieldReflector(matchFields(fields, localDesc));
+                entry = FieldReflectorGenerator.specialize(
+                    new FieldReflector(matchFields(fields, localDesc)));
             } catch (Throwable th) {
                 entry = th;
             }
@@ -62,6 +62,12 @@ public class PrintStream extends FilterOutputStream
     private boolean trouble = false;
     private Formatter formatter;
 
+    /**
+     * True if this stream was created by {@link #unsynchronized}; its write,
+     * print, println, format and flush methods then do not lock the stream.
+     */
+    private final boolean unsynchronized;
+
     /**
      * Track both the text- and character-output streams, so that their buffers
      * can be flushed without flushing the entire stream.
@@ -99,15 +105,24 @@ public class PrintStream extends FilterOutputStream
 
     /* Private constructors */
     private PrintStream(boolean autoFlush, OutputStream out) {
+        this(autoFlush, out, false);
+    }
+
+    private PrintStream(boolean autoFlush, OutputStream out,
+                        boolean unsynchronized) {
         super(out);
         this.autoFlush = autoFlush;
+        this.unsynchronized = unsynchronized;
         this.charOut = new OutputStreamWriter(this);
-        this.textOut = new BufferedWriter(charOut);
+        this.textOut = unsynchronized
+            ? BufferedWriter.unsynchronized(charOut, 8192)
+            : new BufferedWriter(charOut);
     }
 
     private PrintStream(boolean autoFlush, OutputStream out, Charset charset) {
         super(out);
         this.autoFlush = autoFlush;
+        this.unsynchronized = false;
         this.charOut = new OutputStreamWriter(this, charset);
         this.textOut = new BufferedWriter(charOut);
     }
@@ -151,6 +166,33 @@ public class PrintStream extends FilterOutputStream
         this(autoFlush, requireNonNull(out, "Null output stream"));
     }
 
+    /**
+     * Creates a new print stream, using the default charset, whose output
+     * methods do not synchronize on the stream.
+     *
+     * <p> The <code>write</code>, <code>print</code>, <code>println</code>,
+     * <code>printf</code>, <code>format</code>, <code>append</code> and
+     * <code>flush</code> methods of the returned stream do not acquire the
+     * stream's monitor, so the stream must not be used by more than one
+     * thread at a time without external synchronization.  This suits a
+     * stream owned by a single thread, such as a log file written by one
+     * logger thread.  Characters are still encoded by an
+     * <code>OutputStreamWriter</code>, which locks the stream itself.
+     *
+     * @param  out        The output stream to which values and objects will be
+     *                    printed
+     * @param  autoFlush  A boolean; if true, the output buffer will be flushed
+     *                    whenever a byte array is written, one of the
+     *                    <code>println</code> methods is invoked, or a newline
+     *                    character or byte (<code>'\n'</code>) is written
+     * @return A new unsynchronized print stream
+     * @since 1.8
+     */
+    public static PrintStream unsynchronized(OutputStream out, boolean autoFlush) {
+        return new PrintStream(autoFlush,
+                               requireNonNull(out, "Null output stream"), true);
+    }
+
     /**
      * Creates a new print stream.
      *
@@ -332,17 +374,25 @@ public class PrintStream extends FilterOutputStream
      * @see        java.io.OutputStream#flush()
      */
     public void flush() {
-        synchronized (this) {
-            try {
-                ensureOpen();
-                out.flush();
-            }
-            catch (IOException x) {
-                trouble = true;
+        if (unsynchronized) {
+            implFlush();
+        } else {
+            synchronized (this) {
+                implFlush();
             }
         }
     }
 
+    private void implFlush() {
+        try {
+            ensureOpen();
+            out.flush();
+        }
+        catch (IOException x) {
+            trouble = true;
+        }
+    }
+
     private boolean closing = false; /* To avoid recursive closing */
 
     /**
@@ -444,11 +494,12 @@ public class PrintStream extends FilterOutputStream
      */
     public void write(int b) {
         try {
-            synchronized (this) {
-                ensureOpen();
-                out.write(b);
-                if ((b == '\n') && autoFlush)
-                    out.flush();
+            if (unsynchronized) {
+                implWrite(b);
+            } else {
+                synchronized (this) {
+                    implWrite(b);
+                }
             }
         }
         catch (InterruptedIOException x) {
@@ -459,6 +510,13 @@ public class PrintStream extends FilterOutputStream
         }
     }
 
+    private void implWrite(int b) throws IOException {
+        ensureOpen();
+        out.write(b);
+        if ((b == '\n') && autoFlush)
+            out.flush();
+    }
+
     /**
      * Writes <code>len</code> bytes from the specified byte array starting at
      * offset <code>off</code> to this stream.  If automatic flushing is
@@ -475,11 +533,12 @@ public class PrintStream extends FilterOutputStream
      */
     public void write(byte buf[], int off, int len) {
         try {
-            synchronized (this) {
-                ensureOpen();
-                out.write(buf, off, len);
-                if (autoFlush)
-                    out.flush();
+            if (unsynchronized) {
+                implWrite(buf, off, len);
+            } else {
+                synchronized (this) {
+                    implWrite(buf, off, len);
+                }
             }
         }
         catch (InterruptedIOException x) {
@@ -490,6 +549,13 @@ public class PrintStream extends FilterOutputStream
         }
     }
 
+    private void implWrite(byte buf[], int off, int len) throws IOException {
+        ensureOpen();
+        out.write(buf, off, len);
+        if (autoFlush)
+            out.flush();
+    }
+
     /*
      * The following private methods on the text- and character-output streams
      * always flush the stream buffers, so that writes to the underlying byte
@@ -498,15 +564,11 @@ public class PrintStream extends FilterOutputStream
 
     private void write(char buf[]) {
         try {
-            synchronized (this) {
-                ensureOpen();
-                textOut.write(buf);
-                textOut.flushBuffer();
-                charOut.flushBuffer();
-                if (autoFlush) {
-                    for (int i = 0; i < buf.length; i++)
-                        if (buf[i] == '\n')
-                            out.flush();
+            if (unsynchronized) {
+                implWrite(buf);
+            } else {
+                synchronized (this) {
+                    implWrite(buf);
                 }
             }
         }
@@ -518,15 +580,26 @@ public class PrintStream extends FilterOutputStream
         }
     }
 
+    private void implWrite(char buf[]) throws IOException {
+        ensureOpen();
+        textOut.write(buf);
+        textOut.flushBuffer();
+        charOut.flushBuffer();
+        if (autoFlush) {
+            for (int i = 0; i < buf.length; i++)
+                if (buf[i] == '\n')
+                    out.flush();
+        }
+    }
+
     private void write(String s) {
         try {
-            synchronized (this) {
-                ensureOpen();
-                textOut.write(s);
-                textOut.flushBuffer();
-                charOut.flushBuffer();
-                if (autoFlush && (s.indexOf('\n') >= 0))
-                    out.flush();
+            if (unsynchronized) {
+                implWrite(s);
+            } else {
+                synchronized (this) {
+                    implWrite(s);
+                }
             }
         }
         catch (InterruptedIOException x) {
@@ -537,15 +610,23 @@ public class PrintStream extends FilterOutputStream
         }
     }
 
+    private void implWrite(String s) throws IOException {
+        ensureOpen();
+        textOut.write(s);
+        textOut.flushBuffer();
+        charOut.flushBuffer();
+        if (autoFlush && (s.indexOf('\n') >= 0))
+            out.flush();
+    }
+
     private void newLine() {
         try {
-            synchronized (this) {
-                ensureOpen();
-                textOut.newLine();
-                textOut.flushBuffer();
-                charOut.flushBuffer();
-                if (autoFlush)
-                    out.flush();
+            if (unsynchronized) {
+                implNewLine();
+            } else {
+                synchronized (this) {
+                    implNewLine();
+                }
             }
         }
         catch (InterruptedIOException x) {
@@ -556,6 +637,15 @@ public class PrintStream extends FilterOutputStream
         }
     }
 
+    private void implNewLine() throws IOException {
+        ensureOpen();
+        textOut.newLine();
+        textOut.flushBuffer();
+        charOut.flushBuffer();
+        if (autoFlush)
+            out.flush();
+    }
+
     /* Methods that do not terminate lines */
 
     /**
@@ -704,9 +794,14 @@ public class PrintStream extends FilterOutputStream
      * @param x  The <code>boolean</code> to be printed
      */
     public void println(boolean x) {
-        synchronized (this) {
+        if (unsynchronized) {
             print(x);
             newLine();
+        } else {
+            synchronized (this) {
+                print(x);
+                newLine();
+            }
         }
     }
 
@@ -718,9 +813,14 @@ public class PrintStream extends FilterOutputStream
      * @param x  The <code>char</code> to be printed.
      */
     public void println(char x) {
-        synchronized (this) {
+        if (unsynchronized) {
             print(x);
             newLine();
+        } else {
+            synchronized (this) {
+                print(x);
+                newLine();
+            }
         }
     }
 
@@ -732,9 +832,14 @@ public class PrintStream extends FilterOutputStream
      * @param x  The <code>int</code> to be printed.
      */
     public void println(int x) {
-        synchronized (this) {
+        if (unsynchronized) {
             print(x);
             newLine();
+        } else {
+            synchronized (this) {
+                print(x);
+                newLine();
+            }
         }
     }
 
@@ -746,9 +851,14 @@ public class PrintStream extends FilterOutputStream
      * @param x  a The <code>long</code> to be printed.
      */
     public void println(long x) {
-        synchronized (this) {
+        if (unsynchronized) {
             print(x);
             newLine();
+        } else {
+            synchronized (this) {
+                print(x);
+                newLine();
+            }
         }
     }
 
@@ -760,9 +870,14 @@ public class PrintStream extends FilterOutputStream
      * @param x  The <code>float</code> to be printed.
      */
     public void println(float x) {
-        synchronized (this) {
+        if (unsynchronized) {
             print(x);
             newLine();
+        } else {
+            synchronized (this) {
+                print(x);
+                newLine();
+            }
         }
     }
 
@@ -774,9 +889,14 @@ public class PrintStream extends FilterOutputStream
      * @param x  The <code>double</code> to be printed.
      */
     public void println(double x) {
-        synchronized (this) {
+        if (unsynchronized) {
             print(x);
             newLine();
+        } else {
+            synchronized (this) {
+                print(x);
+                newLine();
+            }
         }
     }
 
@@ -788,9 +908,14 @@ public class PrintStream extends FilterOutputStream
      * @param x  an array of chars to print.
      */
     public void println(char x[]) {
-        synchronized (this) {
+        if (unsynchronized) {
             print(x);
             newLine();
+        } else {
+            synchronized (this) {
+                print(x);
+                newLine();
+            }
         }
     }
 
@@ -802,9 +927,14 @@ public class PrintStream extends FilterOutputStream
      * @param x  The <code>String</code> to be printed.
      */
     public void println(String x) {
-        synchronized (this) {
+        if (unsynchronized) {
             print(x);
             newLine();
+        } else {
+            synchronized (this) {
+                print(x);
+                newLine();
+            }
         }
     }
 
@@ -819,9 +949,14 @@ public class PrintStream extends FilterOutputStream
      */
     public void println(Object x) {
         String s = String.valueOf(x);
-        synchronized (this) {
+        if (unsynchronized) {
             print(s);
             newLine();
+        } else {
+            synchronized (this) {
+                print(s);
+                newLine();
+            }
         }
     }
 
@@ -962,12 +1097,12 @@ public class PrintStream extends FilterOutputStream
      */
     public PrintStream format(String format, Object ... args) {
         try {
-            synchronized (this) {
-                ensureOpen();
-                if ((formatter == null)
-                    || (formatter.locale() != Locale.getDefault()))
-                    formatter = new Formatter((Appendable) this);
-                formatter.format(Locale.getDefault(), format, args);
+            if (unsynchronized) {
+                implFormat(format, args);
+            } else {
+                synchronized (this) {
+                    implFormat(format, args);
+                }
             }
         } catch (InterruptedIOException x) {
             Thread.currentThread().interrupt();
@@ -977,6 +1112,14 @@ public class PrintStream extends FilterOutputStream
         return this;
     }
 
+    private void implFormat(String format, Object[] args) throws IOException {
+        ensureOpen();
+        if ((formatter == null)
+            || (formatter.locale() != Locale.getDefault()))
+            formatter = new Formatter((Appendable) this);
+        formatter.format(Locale.getDefault(), format, args);
+    }
+
     /**
      * Writes a formatted string to this output stream using the specified
      * format string and arguments.
@@ -1019,12 +1162,12 @@ public class PrintStream extends FilterOutputStream
      */
     public PrintStream format(Locale l, String format, Object ... args) {
         try {
-            synchronized (this) {
-                ensureOpen();
-                if ((formatter == null)
-                    || (formatter.locale() != l))
-                    formatter = new Formatter(this, l);
-                formatter.format(l, format, args);
+            if (unsynchronized) {
+                implFormat(l, format, args);
+            } else {
+                synchronized (this) {
+                    implFormat(l, format, args);
+                }
             }
         } catch (InterruptedIOException x) {
             Thread.currentThread().interrupt();
@@ -1034,6 +1177,16 @@ public class PrintStream extends FilterOutputStream
         return this;
     }
 
+    private void implFormat(Locale l, String format, Object[] args)
+        throws IOException
+    {
+        ensureOpen();
+        if ((formatter == null)
+            || (formatter.locale() != l))
+            formatter = new Formatter(this, l);
+        formatter.format(l, format, args);
+    }
+
     /**
      * Appends the specified character sequence to this output stream.
      *
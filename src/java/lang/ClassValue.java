@@ -407,7 +407,7 @@ public abstract class ClassValue<T> {
         private Entry<?>[] cacheArray;
         private int cacheLoad, cacheLoadLimit;
 
-        /** Number of entries initially allocated to each type when first used with any ClassValue.
+        /** Number of entries allocated to each type when first used with a second ClassValue.
          *  It would be pointless to make this much smaller than the Class and ClassValueMap objects themselves.
          *  Must be a power of 2.
          */
@@ -415,10 +415,13 @@ public abstract class ClassValue<T> {
 
         /** Build a backing map for ClassValues, relative the given type.
          *  Also, create an empty cache array and install it on the class.
+         *  Most types are only ever used with one ClassValue, so the cache
+         *  starts with a single entry, which every ClassValue finds at its
+         *  home location without reprobing.
          */
         ClassValueMap(Class<?> type) {
             this.type = type;
-            sizeCache(INITIAL_ENTRIES);
+            sizeCache(1);
         }
 
         Entry<?>[] getCache() { return cacheArray; }
@@ -546,7 +549,7 @@ public abstract class ClassValue<T> {
 
         /** Given that first probe was a collision, retry at nearby locations. */
         static <T> Entry<T> probeBackupLocations(Entry<?>[] cache, ClassValue<T> classValue) {
-            if (PROBE_LIMIT <= 0)  return null;
+            if (PROBE_LIMIT <= 0 || cache.length == 1)  return null;
             // Probe the cache carefully, in a range of slots.
             int mask = (cache.length-1);
             int home = (classValue.hashCodeForCache & mask);
@@ -595,7 +598,8 @@ public abstract class ClassValue<T> {
         private void sizeCache(int length) {
             assert((length & (length-1)) == 0);  // must be power of 2
             cacheLoad = 0;
-            cacheLoadLimit = (int) ((double) length * CACHE_LOAD_LIMIT / 100);
+            // a single entry may be full; it is replaced on the second value
+            cacheLoadLimit = (length == 1) ? 1 : (int) ((double) length * CACHE_LOAD_LIMIT / 100);
             cacheArray = new Entry<?>[length];
         }
 
@@ -612,7 +616,7 @@ public abstract class ClassValue<T> {
             Entry<?>[] oldCache = getCache();
             if (oldCache.length > HASH_MASK)
                 return;  // lose
-            sizeCache(oldCache.length * 2);
+            sizeCache(oldCache.length == 1 ? INITIAL_ENTRIES : oldCache.length * 2);
             for (Entry<?> e : oldCache) {
                 if (e != null && e.isLive()) {
                     addToCache(e);
@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Converts {@code double} values to the shortest decimal strings that
+ * uniquely distinguish them from adjacent values, in the format of
+ * {@link Double#toString(double)}.
+ *
+ * <p> Digits are generated with the Grisu3 algorithm (F. Loitsch, "Printing
+ * Floating-Point Numbers Quickly and Accurately with Integers", PLDI 2010),
+ * which needs only 64-bit integer arithmetic and allocates nothing.  For
+ * about one value in two hundred Grisu3 cannot prove its result shortest
+ * and correctly rounded; those values, and the scientific-notation results
+ * of a single digit, which Double.toString prints with two, are converted
+ * exactly with {@code BigDecimal} instead.  Either way the result is the
+ * shortest decimal in the rounding interval of the value, and of those the
+ * one closest to it.
+ *
+ * <p> {@code FloatingDecimal} is not always shortest: it prints 1.0E23 as
+ * {@code 9.999999999999999E22} and 2^-44 as
+ * {@code 5.6843418860808015E-14}, where this class prints {@code 1.0E23}
+ * and {@code 5.684341886080802E-14}.  Results differ from it only in such
+ * cases.
+ */
+final class DoubleToDecimal {
+
+    private DoubleToDecimal() { }
+
+    /**
+     * Longest result: a sign, 17 digits, a point and "E-324", or a sign,
+     * "0.00" and 17 digits.
+     */
+    static final int MAX_CHARS = 26;
+
+    /**
+     * Returns the string representation of {@code v} specified by
+     * {@link Double#toString(double)}.
+     */
+    static String toJavaFormatString(double v) {
+        char[] buf = new char[MAX_CHARS];
+        return new String(buf, 0, toChars(v, buf, 0));
+    }
+
+    /**
+     * Appends the string representation of {@code v} to {@code sb},
+     * writing straight into its character array.
+     */
+    static void appendTo(double v, AbstractStringBuilder sb) {
+        sb.ensureCapacity(sb.count + MAX_CHARS);
+        sb.count += toChars(v, sb.value, sb.count);
+    }
+
+    private static final int SIGNIFICAND_WIDTH = 52;
+    private static final long SIGNIFICAND_MASK = (1L << SIGNIFICAND_WIDTH) - 1;
+    private static final long HIDDEN_BIT = 1L << SIGNIFICAND_WIDTH;
+    /** a double is f * 2^(biased exponent - EXPONENT_BIAS) */
+    private static final int EXPONENT_BIAS = 0x3ff + SIGNIFICAND_WIDTH;
+    /** returned by grisu3 when it cannot decide */
+    private static final int FAILED = Integer.MIN_VALUE;
+
+    /**
+     * Writes the string representation of {@code v} into {@code buf} at
+     * {@code off}, which must leave room for {@link #MAX_CHARS} chars.
+     * Returns the number of chars written, or -1 if Grisu3 fails for
+     * {@code v}, in which case the content of {@code buf} is unspecified.
+     */
+    private static int toChars(double v, char[] buf, int off) {
+        long bits = Double.doubleToRawLongBits(v);
+        int be = (int) (bits >>> SIGNIFICAND_WIDTH) & 0x7ff;
+        long f = bits & SIGNIFICAND_MASK;
+        if (be == 0x7ff && f != 0) {
+            return copy("NaN", buf, off) - off;
+        }
+        int pos = off;
+        if (bits < 0) {
+            buf[pos++] = '-';
+        }
+        if (be == 0x7ff) {
+            return copy("Infinity", buf, pos) - off;
+        }
+        if (be == 0 && f == 0) {
+            return copy("0.0", buf, pos) - off;
+        }
+        int e;
+        boolean lowerBoundaryIsCloser;
+        if (be == 0) {
+            e = 1 - EXPONENT_BIAS;          // subnormal
+            lowerBoundaryIsCloser = false;
+        } else {
+            lowerBoundaryIsCloser = (f == 0 && be > 1);
+            f |= HIDDEN_BIT;
+            e = be - EXPONENT_BIAS;
+        }
+        int r = grisu3(f, e, lowerBoundaryIsCloser, buf, pos);
+        int end = (r == FAILED) ? -1 : format(buf, pos, r & 0xff, r >> 8, 1);
+        if (end < 0) {
+            double abs = Math.abs(v);
+            r = exact(abs, 1, buf, pos);
+            end = format(buf, pos, r & 0xff, r >> 8, 1);
+            if (end < 0) {
+                r = exact(abs, 2, buf, pos);
+                end = format(buf, pos, r & 0xff, r >> 8, 2);
+            }
+        }
+        return end - off;
+    }
+
+    private static int copy(String s, char[] buf, int pos) {
+        int n = s.length();
+        s.getChars(0, n, buf, pos);
+        return pos + n;
+    }
+
+    /**
+     * Rearranges the {@code n} digits at {@code buf[pos]}, whose value is
+     * digits * 10^exp10, into the format of Double.toString, keeping at
+     * least {@code minDigits} of them, and returns the index following the
+     * last char, or -1 if a single digit is left in scientific notation.
+     */
+    private static int format(char[] buf, int pos, int n, int exp10,
+                              int minDigits) {
+        // Drop trailing zeros, which rounding may leave behind
+        while (n > minDigits && buf[pos + n - 1] == '0') {
+            n--;
+            exp10++;
+        }
+        int point = n + exp10;          // digits before the decimal point
+        int sciExp = point - 1;
+        if (sciExp >= -3 && sciExp < 7) {
+            if (point <= 0) {
+                // 0.00ddd
+                int shift = 2 - point;
+                System.arraycopy(buf, pos, buf, pos + shift, n);
+                buf[pos] = '0';
+                buf[pos + 1] = '.';
+                for (int i = 2; i < shift; i++) {
+                    buf[pos + i] = '0';
+                }
+                return pos + shift + n;
+            } else if (point < n) {
+                // ddd.ddd
+                System.arraycopy(buf, pos + point, buf, pos + point + 1,
+                                 n - point);
+                buf[pos + point] = '.';
+                return pos + n + 1;
+            } else {
+                // ddd000.0
+                for (int i = n; i < point; i++) {
+                    buf[pos + i] = '0';
+                }
+                buf[pos + point] = '.';
+                buf[pos + point + 1] = '0';
+                return pos + point + 2;
+            }
+        }
+        // d.dddE[-]xxx
+        if (n == 1) {
+            // Double.toString prints at least two digits here, and the
+            // second one need not be zero (4.9E-324, not 5.0E-324), so the
+            // caller asks for the closest two-digit decimal
+            return -1;
+        }
+        System.arraycopy(buf, pos + 1, buf, pos + 2, n - 1);
+        buf[pos + 1] = '.';
+        pos += n + 1;
+        buf[pos++] = 'E';
+        if (sciExp < 0) {
+            buf[pos++] = '-';
+            sciExp = -sciExp;
+        }
+        if (sciExp >= 100) {
+            buf[pos++] = (char) ('0' + sciExp / 100);
+            sciExp %= 100;
+            buf[pos++] = (char) ('0' + sciExp / 10);
+        } else if (sciExp >= 10) {
+            buf[pos++] = (char) ('0' + sciExp / 10);
+        }
+        buf[pos++] = (char) ('0' + sciExp % 10);
+        return pos;
+    }
+
+    private static final BigDecimal HALF = BigDecimal.valueOf(5, 1);
+
+    /**
+     * Writes at {@code buf[pos]} the digits of the shortest decimal of at
+     * least {@code minDigits} digits that reads back as the positive,
+     * finite {@code v}, choosing the closest one to {@code v}, and returns
+     * {@code (exp10 << 8) | length} as grisu3 does.  All arithmetic is
+     * exact, which makes this much slower than grisu3; it runs only when
+     * grisu3 fails.
+     */
+    private static int exact(double v, int minDigits, char[] buf, int pos) {
+        BigDecimal value = new BigDecimal(v);
+        // Halfway to the neighbours; a value whose significand is even wins
+        // ties when read back, so the bounds themselves are then inside
+        BigDecimal upper = value.add(new BigDecimal(Math.ulp(v)).multiply(HALF));
+        BigDecimal lower = value.subtract(
+                value.subtract(new BigDecimal(Math.nextDown(v))).multiply(HALF));
+        boolean inclusive = (Double.doubleToRawLongBits(v) & 1) == 0;
+        for (int p = minDigits; ; p++) {
+            // The closest decimal of p digits, and if it is outside the
+            // interval, the closest on the other side of v, which may still
+            // be inside when the interval is asymmetric
+            BigDecimal d = value.round(new MathContext(p, RoundingMode.HALF_EVEN));
+            if (!within(d, lower, upper, inclusive)) {
+                RoundingMode other = (d.compareTo(value) < 0)
+                        ? RoundingMode.CEILING : RoundingMode.FLOOR;
+                d = value.round(new MathContext(p, other));
+                if (!within(d, lower, upper, inclusive)) {
+                    continue;
+                }
+            }
+            String digits = d.unscaledValue().toString();
+            int n = digits.length();
+            digits.getChars(0, n, buf, pos);
+            return (-d.scale() << 8) | n;
+        }
+    }
+
+    private static boolean within(BigDecimal d, BigDecimal lower,
+                                  BigDecimal upper, boolean inclusive) {
+        int lo = d.compareTo(lower);
+        int hi = d.compareTo(upper);
+        return inclusive ? (lo >= 0 && hi <= 0) : (lo > 0 && hi < 0);
+    }
+
+    // -- Grisu3 --
+    //
+    // Follows the description in the paper and the double-conversion
+    // library.  A DiyFp (f, e) is the value f * 2^e, where f is an unsigned
+    // 64-bit significand held in a long; all comparisons of significands are
+    // therefore unsigned.
+
+    /** bounds of the binary exponent of the scaled value */
+    private static final int MINIMAL_TARGET_EXPONENT = -60;
+    private static final int MAXIMAL_TARGET_EXPONENT = -32;
+
+    /** 1 / log2(10) */
+    private static final double D_1_LOG2_10 = 0.30102999566398114;
+
+    /** decimal exponent of CACHED_POWERS_F[0] */
+    private static final int CACHED_POWERS_OFFSET = 348;
+    /** distance between the decimal exponents of consecutive powers */
+    private static final int DECIMAL_EXPONENT_DISTANCE = 8;
+
+    /**
+     * Normalized significands of the powers of ten 10^-348, 10^-340, ...,
+     * 10^340, rounded to nearest; CACHED_POWERS_E holds their binary
+     * exponents.
+     */
+    private static final long[] CACHED_POWERS_F = {
+        0xfa8fd5a0081c0288L, 0xbaaee17fa23ebf76L, 0x8b16fb203055ac76L,
+        0xcf42894a5dce35eaL, 0x9a6bb0aa55653b2dL, 0xe61acf033d1a45dfL,
+        0xab70fe17c79ac6caL, 0xff77b1fcbebcdc4fL, 0xbe5691ef416bd60cL,
+        0x8dd01fad907ffc3cL, 0xd3515c2831559a83L, 0x9d71ac8fada6c9b5L,
+        0xea9c227723ee8bcbL, 0xaecc49914078536dL, 0x823c12795db6ce57L,
+        0xc21094364dfb5637L, 0x9096ea6f3848984fL, 0xd77485cb25823ac7L,
+        0xa086cfcd97bf97f4L, 0xef340a98172aace5L, 0xb23867fb2a35b28eL,
+        0x84c8d4dfd2c63f3bL, 0xc5dd44271ad3cdbaL, 0x936b9fcebb25c996L,
+        0xdbac6c247d62a584L, 0xa3ab66580d5fdaf6L, 0xf3e2f893dec3f126L,
+        0xb5b5ada8aaff80b8L, 0x87625f056c7c4a8bL, 0xc9bcff6034c13053L,
+        0x964e858c91ba2655L, 0xdff9772470297ebdL, 0xa6dfbd9fb8e5b88fL,
+        0xf8a95fcf88747d94L, 0xb94470938fa89bcfL, 0x8a08f0f8bf0f156bL,
+        0xcdb02555653131b6L, 0x993fe2c6d07b7facL, 0xe45c10c42a2b3b06L,
+        0xaa242499697392d3L, 0xfd87b5f28300ca0eL, 0xbce5086492111aebL,
+        0x8cbccc096f5088ccL, 0xd1b71758e219652cL, 0x9c40000000000000L,
+        0xe8d4a51000000000L, 0xad78ebc5ac620000L, 0x813f3978f8940984L,
+        0xc097ce7bc90715b3L, 0x8f7e32ce7bea5c70L, 0xd5d238a4abe98068L,
+        0x9f4f2726179a2245L, 0xed63a231d4c4fb27L, 0xb0de65388cc8ada8L,
+        0x83c7088e1aab65dbL, 0xc45d1df942711d9aL, 0x924d692ca61be758L,
+        0xda01ee641a708deaL, 0xa26da3999aef774aL, 0xf209787bb47d6b85L,
+        0xb454e4a179dd1877L, 0x865b86925b9bc5c2L, 0xc83553c5c8965d3dL,
+        0x952ab45cfa97a0b3L, 0xde469fbd99a05fe3L, 0xa59bc234db398c25L,
+        0xf6c69a72a3989f5cL, 0xb7dcbf5354e9beceL, 0x88fcf317f22241e2L,
+        0xcc20ce9bd35c78a5L, 0x98165af37b2153dfL, 0xe2a0b5dc971f303aL,
+        0xa8d9d1535ce3b396L, 0xfb9b7cd9a4a7443cL, 0xbb764c4ca7a44410L,
+        0x8bab8eefb6409c1aL, 0xd01fef10a657842cL, 0x9b10a4e5e9913129L,
+        0xe7109bfba19c0c9dL, 0xac2820d9623bf429L, 0x80444b5e7aa7cf85L,
+        0xbf21e44003acdd2dL, 0x8e679c2f5e44ff8fL, 0xd433179d9c8cb841L,
+        0x9e19db92b4e31ba9L, 0xeb96bf6ebadf77d9L, 0xaf87023b9bf0ee6bL
+    };
+
+    private static final short[] CACHED_POWERS_E = {
+        -1220, -1193, -1166, -1140, -1113, -1087, -1060, -1034, -1007, -980,
+        -954, -927, -901, -874, -847, -821, -794, -768, -741, -715,
+        -688, -661, -635, -608, -582, -555, -529, -502, -475, -449,
+        -422, -396, -369, -343, -316, -289, -263, -236, -210, -183,
+        -157, -130, -103, -77, -50, -24, 3, 30, 56, 83,
+        109, 136, 162, 189, 216, 242, 269, 295, 322, 348,
+        375, 402, 428, 455, 481, 508, 534, 561, 588, 614,
+        641, 667, 694, 720, 747, 774, 800, 827, 853, 880,
+        907, 933, 960, 986, 1013, 1039, 1066
+    };
+
+    private static boolean ult(long a, long b) {
+        return (a + Long.MIN_VALUE) < (b + Long.MIN_VALUE);
+    }
+
+    /**
+     * Returns the upper 64 bits, rounded, of the 128-bit product of two
+     * unsigned 64-bit significands.
+     */
+    private static long multiplyHigh(long x, long y) {
+        final long M32 = 0xffffffffL;
+        long a = x >>> 32, b = x & M32;
+        long c = y >>> 32, d = y & M32;
+        long ac = a * c, bc = b * c, ad = a * d, bd = b * d;
+        long tmp = (bd >>> 32) + (ad & M32) + (bc & M32);
+        tmp += 1L << 31;                // round
+        return ac + (ad >>> 32) + (bc >>> 32) + (tmp >>> 32);
+    }
+
+    /**
+     * Generates the shortest digits of f * 2^e into buf at pos.  Returns
+     * (decimal exponent << 8) | number of digits, where the digits times
+     * ten to the decimal exponent are the value, or FAILED.
+     */
+    private static int grisu3(long f, int e, boolean lowerBoundaryIsCloser,
+                              char[] buf, int pos) {
+        // Boundaries m- and m+ halfway to the adjacent doubles
+        long mPlusF = (f << 1) + 1;
+        int mPlusE = e - 1;
+        int s = Long.numberOfLeadingZeros(mPlusF);
+        mPlusF <<= s;
+        mPlusE -= s;
+        long mMinusF;
+        int mMinusE;
+        if (lowerBoundaryIsCloser) {
+            mMinusF = (f << 2) - 1;
+            mMinusE = e - 2;
+        } else {
+            mMinusF = (f << 1) - 1;
+            mMinusE = e - 1;
+        }
+        mMinusF <<= mMinusE - mPlusE;
+
+        s = Long.numberOfLeadingZeros(f);
+        long wF = f << s;
+        int wE = e - s;
+
+        // Scale by a cached power of ten into the target exponent range
+        int minExponent = MINIMAL_TARGET_EXPONENT - (wE + 64);
+        int k = (int) Math.ceil((minExponent + 64 - 1) * D_1_LOG2_10);
+        int index = (CACHED_POWERS_OFFSET + k - 1) / DECIMAL_EXPONENT_DISTANCE
+                    + 1;
+        long cF = CACHED_POWERS_F[index];
+        int cE = CACHED_POWERS_E[index];
+        int mk = index * DECIMAL_EXPONENT_DISTANCE - CACHED_POWERS_OFFSET;
+
+        long low = multiplyHigh(mMinusF, cF);
+        long w = multiplyHigh(wF, cF);
+        long high = multiplyHigh(mPlusF, cF);
+        int scaledE = wE + cE + 64;     // common to all three
+
+        return digitGen(low, w, high, scaledE, buf, pos, -mk);
+    }
+
+    private static final int[] SMALL_POWERS_OF_TEN = {
+        1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000,
+        1000000000
+    };
+
+    /**
+     * Generates the digits of the shortest number in (low, high), all
+     * scaled to the binary exponent e, that is closest to w.
+     */
+    private static int digitGen(long low, long w, long high, int e,
+                                char[] buf, int pos, int exp10) {
+        long unit = 1;
+        long tooLow = low - unit;
+        long tooHigh = high + unit;
+        long unsafeInterval = tooHigh - tooLow;
+        int shift = -e;
+        long one = 1L << shift;
+        long integrals = tooHigh >>> shift;     // fits in 32 bits
+        long fractionals = tooHigh & (one - 1);
+
+        int kappa = 0;
+        while (kappa < SMALL_POWERS_OF_TEN.length
+               && SMALL_POWERS_OF_TEN[kappa] <= integrals) {
+            kappa++;
+        }
+        int length = 0;
+        while (kappa > 0) {
+            long divisor = SMALL_POWERS_OF_TEN[kappa - 1];
+            int digit = (int) (integrals / divisor);
+            buf[pos + length++] = (char) ('0' + digit);
+            integrals %= divisor;
+            kappa--;
+            long rest = (integrals << shift) + fractionals;
+            if (ult(rest, unsafeInterval)) {
+                if (!roundWeed(buf, pos, length, tooHigh - w, unsafeInterval,
+                               rest, divisor << shift, unit)) {
+                    return FAILED;
+                }
+                return ((exp10 + kappa) << 8) | length;
+            }
+        }
+        for (;;) {
+            fractionals *= 10;
+            unit *= 10;
+            unsafeInterval *= 10;
+            int digit = (int) (fractionals >>> shift);
+            buf[pos + length++] = (char) ('0' + digit);
+            fractionals &= one - 1;
+            kappa--;
+            if (ult(fractionals, unsafeInterval)) {
+                if (!roundWeed(buf, pos, length, (tooHigh - w) * unit,
+                               unsafeInterval, fractionals, one, unit)) {
+                    return FAILED;
+                }
+                return ((exp10 + kappa) << 8) | length;
+            }
+            if (length == 17) {
+                return FAILED;          // no shortest result found
+            }
+        }
+    }
+
+    /**
+     * Moves the last generated digit towards w while that stays within the
+     * safe interval, and returns true if the result is then provably the
+     * closest shortest representation.
+     */
+    private static boolean roundWeed(char[] buf, int pos, int length,
+                                     long distanceTooHighW,
+                                     long unsafeInterval, long rest,
+                                     long tenKappa, long unit) {
+        long smallDistance = distanceTooHighW - unit;
+        long bigDistance = distanceTooHighW + unit;
+        while (ult(rest, smallDistance)
+               && !ult(unsafeInterval - rest, tenKappa)
+               && (ult(rest + tenKappa, smallDistance)
+                   || !ult(smallDistance - rest,
+                           rest + tenKappa - smallDistance))) {
+            buf[pos + length - 1]--;
+            rest += tenKappa;
+        }
+        if (ult(rest, bigDistance)
+            && !ult(unsafeInterval - rest, tenKappa)
+            && (ult(rest + tenKappa, bigDistance)
+                || ult(rest + tenKappa - bigDistance, bigDistance - rest))) {
+            return false;
+        }
+        return !ult(rest, 2 * unit) && !ult(unsafeInterval - 4 * unit, rest);
+    }
+}
@@ -421,6 +421,37 @@ public final class Integer extends Number implements Comparable<Integer> {
         return Long.toString(toUnsignedLong(i));
     }
 
+    /**
+     * Writes the signed decimal representation of the specified integer,
+     * as returned by {@link #toString(int)}, into a byte array as ASCII
+     * characters.  No objects are allocated.
+     *
+     * @param   i     an integer to be converted.
+     * @param   dst   the destination array.
+     * @param   off   the index in {@code dst} of the first byte to write.
+     * @return  the index in {@code dst} following the last byte written.
+     * @throws  IndexOutOfBoundsException if {@code off} is negative or the
+     *          representation does not fit between {@code off} and the
+     *          end of {@code dst}; nothing is written in that case.
+     * @since 1.8
+     */
+    public static int writeTo(int i, byte[] dst, int off) {
+        int size = (i == Integer.MIN_VALUE) ? 11
+                 : (i < 0) ? stringSize(-i) + 1 : stringSize(i);
+        if (off < 0 || off > dst.length - size)
+            throw new IndexOutOfBoundsException("off " + off + ", size " + size
+                                                + ", length " + dst.length);
+        if (i == Integer.MIN_VALUE) {
+            for (int k = 0; k < size; k++)
+                dst[off + k] = (byte) MIN_VALUE_STRING.charAt(k);
+        } else {
+            getBytes(i, off + size, dst);
+        }
+        return off + size;
+    }
+
+    private static final String MIN_VALUE_STRING = "-2147483648";
+
     /**
      * Places characters representing the integer i into the
      * character array buf. The characters are placed into
@@ -464,6 +495,46 @@ public final class Integer extends Number implements Comparable<Integer> {
         }
     }
 
+    /**
+     * Places ASCII characters representing the integer i into the byte
+     * array buf, backwards from the specified index (exclusive), as
+     * {@link #getChars(int, int, char[])} does for a character array.
+     *
+     * Will fail if i == Integer.MIN_VALUE
+     */
+    static void getBytes(int i, int index, byte[] buf) {
+        int q, r;
+        int charPos = index;
+        byte sign = 0;
+
+        if (i < 0) {
+            sign = '-';
+            i = -i;
+        }
+
+        // Generate two digits per iteration
+        while (i >= 65536) {
+            q = i / 100;
+        // really: r = i - (q * 100);
+            r = i - ((q << 6) + (q << 5) + (q << 2));
+            i = q;
+            buf [--charPos] = (byte) DigitOnes[r];
+            buf [--charPos] = (byte) DigitTens[r];
+        }
+
+        // Fall thru to fast mode for smaller numbers
+        for (;;) {
+            q = (i * 52429) >>> (16+3);
+            r = i - ((q << 3) + (q << 1));  // r = i-(q*10) ...
+            buf [--charPos] = (byte) digits [r];
+            i = q;
+            if (i == 0) break;
+        }
+        if (sign != 0) {
+            buf [--charPos] = sign;
+        }
+    }
+
     final static int [] sizeTable = { 9, 99, 999, 9999, 99999, 999999, 9999999,
                                       99999999, 999999999, Integer.MAX_VALUE };
 
@@ -615,6 +686,94 @@ public final class Integer extends Number implements Comparable<Integer> {
         return parseInt(s,10);
     }
 
+    /**
+     * Parses a range of the character sequence argument as a signed
+     * integer in the specified radix, exactly as {@link
+     * #parseInt(String, int)} parses {@code s.subSequence(beginIndex,
+     * endIndex).toString()}, but without creating that string unless
+     * the range cannot be parsed.
+     *
+     * @param      s            the {@code CharSequence} containing the
+     *                          integer representation to be parsed
+     * @param      beginIndex   the index of the first character to parse.
+     * @param      endIndex     the index following the last character
+     *                          to parse.
+     * @param      radix        the radix to be used while parsing.
+     * @return     the integer represented by the range in the specified
+     *             radix.
+     * @throws     NullPointerException  if {@code s} is null.
+     * @throws     IndexOutOfBoundsException  if {@code beginIndex} is
+     *             negative, or if {@code beginIndex} is greater than
+     *             {@code endIndex} or {@code endIndex} is greater than
+     *             {@code s.length()}.
+     * @throws     NumberFormatException  if the range does not contain a
+     *             parsable {@code int}, or if {@code radix} is out of
+     *             range.
+     * @since 1.8
+     */
+    public static int parseInt(CharSequence s, int beginIndex, int endIndex,
+                               int radix)
+                throws NumberFormatException
+    {
+        java.util.Objects.requireNonNull(s);
+
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > s.length()) {
+            throw new IndexOutOfBoundsException("begin " + beginIndex +
+                                                ", end " + endIndex +
+                                                ", length " + s.length());
+        }
+        if (radix < Character.MIN_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " less than Character.MIN_RADIX");
+        }
+        if (radix > Character.MAX_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " greater than Character.MAX_RADIX");
+        }
+
+        int result = 0;
+        boolean negative = false;
+        int i = beginIndex;
+        int limit = -Integer.MAX_VALUE;
+        int multmin;
+        int digit;
+
+        if (i < endIndex) {
+            char firstChar = s.charAt(i);
+            if (firstChar < '0') { // Possible leading "+" or "-"
+                if (firstChar == '-') {
+                    negative = true;
+                    limit = Integer.MIN_VALUE;
+                } else if (firstChar != '+')
+                    throw NumberFormatException.forInputString(
+                            s.subSequence(beginIndex, endIndex).toString());
+
+                if (endIndex - i == 1) // Cannot have lone "+" or "-"
+                    throw NumberFormatException.forInputString(
+                            s.subSequence(beginIndex, endIndex).toString());
+                i++;
+            }
+            multmin = limit / radix;
+            while (i < endIndex) {
+                // Accumulating negatively avoids surprises near MAX_VALUE
+                digit = Character.digit(s.charAt(i++), radix);
+                if (digit < 0 || result < multmin) {
+                    throw NumberFormatException.forInputString(
+                            s.subSequence(beginIndex, endIndex).toString());
+                }
+                result *= radix;
+                if (result < limit + digit) {
+                    throw NumberFormatException.forInputString(
+                            s.subSequence(beginIndex, endIndex).toString());
+                }
+                result -= digit;
+            }
+        } else {
+            throw NumberFormatException.forInputString("");
+        }
+        return negative ? result : -result;
+    }
+
     /**
      * Parses the string argument as an unsigned integer in the radix
      * specified by the second argument.  An unsigned integer maps the
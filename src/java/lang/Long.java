@@ -417,6 +417,37 @@ public final class Long extends Number implements Comparable<Long> {
         return toUnsignedString(i, 10);
     }
 
+    /**
+     * Writes the signed decimal representation of the specified
+     * {@code long}, as returned by {@link #toString(long)}, into a byte
+     * array as ASCII characters.  No objects are allocated.
+     *
+     * @param   i     a {@code long} to be converted.
+     * @param   dst   the destination array.
+     * @param   off   the index in {@code dst} of the first byte to write.
+     * @return  the index in {@code dst} following the last byte written.
+     * @throws  IndexOutOfBoundsException if {@code off} is negative or the
+     *          representation does not fit between {@code off} and the
+     *          end of {@code dst}; nothing is written in that case.
+     * @since 1.8
+     */
+    public static int writeTo(long i, byte[] dst, int off) {
+        int size = (i == Long.MIN_VALUE) ? 20
+                 : (i < 0) ? stringSize(-i) + 1 : stringSize(i);
+        if (off < 0 || off > dst.length - size)
+            throw new IndexOutOfBoundsException("off " + off + ", size " + size
+                                                + ", length " + dst.length);
+        if (i == Long.MIN_VALUE) {
+            for (int k = 0; k < size; k++)
+                dst[off + k] = (byte) MIN_VALUE_STRING.charAt(k);
+        } else {
+            getBytes(i, off + size, dst);
+        }
+        return off + size;
+    }
+
+    private static final String MIN_VALUE_STRING = "-9223372036854775808";
+
     /**
      * Places characters representing the integer i into the
      * character array buf. The characters are placed into
@@ -473,6 +504,37 @@ public final class Long extends Number implements Comparable<Long> {
         }
     }
 
+    /**
+     * Places ASCII characters representing the long i into the byte
+     * array buf, backwards from the specified index (exclusive), as
+     * {@link #getChars(long, int, char[])} does for a character array.
+     *
+     * Will fail if i == Long.MIN_VALUE
+     */
+    static void getBytes(long i, int index, byte[] buf) {
+        long q;
+        int r;
+        int charPos = index;
+
+        boolean negative = i < 0;
+        if (negative) {
+            i = -i;
+        }
+
+        // Get 2 digits/iteration using longs until quotient fits into an int
+        while (i > Integer.MAX_VALUE) {
+            q = i / 100;
+            // really: r = i - (q * 100);
+            r = (int)(i - ((q << 6) + (q << 5) + (q << 2)));
+            i = q;
+            buf[--charPos] = (byte) Integer.DigitOnes[r];
+            buf[--charPos] = (byte) Integer.DigitTens[r];
+        }
+
+        // The rest, sign included, is in int range
+        Integer.getBytes(negative ? -(int)i : (int)i, charPos, buf);
+    }
+
     // Requires positive x
     static int stringSize(long x) {
         long p = 10;
@@ -631,6 +693,94 @@ public final class Long extends Number implements Comparable<Long> {
         return parseLong(s, 10);
     }
 
+    /**
+     * Parses a range of the character sequence argument as a signed
+     * {@code long} in the specified radix, exactly as {@link
+     * #parseLong(String, int)} parses {@code s.subSequence(beginIndex,
+     * endIndex).toString()}, but without creating that string unless
+     * the range cannot be parsed.
+     *
+     * @param      s            the {@code CharSequence} containing the
+     *                          {@code long} representation to be parsed
+     * @param      beginIndex   the index of the first character to parse.
+     * @param      endIndex     the index following the last character
+     *                          to parse.
+     * @param      radix        the radix to be used while parsing.
+     * @return     the {@code long} represented by the range in the
+     *             specified radix.
+     * @throws     NullPointerException  if {@code s} is null.
+     * @throws     IndexOutOfBoundsException  if {@code beginIndex} is
+     *             negative, or if {@code beginIndex} is greater than
+     *             {@code endIndex} or {@code endIndex} is greater than
+     *             {@code s.length()}.
+     * @throws     NumberFormatException  if the range does not contain a
+     *             parsable {@code long}, or if {@code radix} is out of
+     *             range.
+     * @since 1.8
+     */
+    public static long parseLong(CharSequence s, int beginIndex, int endIndex,
+                                 int radix)
+              throws NumberFormatException
+    {
+        java.util.Objects.requireNonNull(s);
+
+        if (beginIndex < 0 || beginIndex > endIndex || endIndex > s.length()) {
+            throw new IndexOutOfBoundsException("begin " + beginIndex +
+                                                ", end " + endIndex +
+                                                ", length " + s.length());
+        }
+        if (radix < Character.MIN_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " less than Character.MIN_RADIX");
+        }
+        if (radix > Character.MAX_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " greater than Character.MAX_RADIX");
+        }
+
+        long result = 0;
+        boolean negative = false;
+        int i = beginIndex;
+        long limit = -Long.MAX_VALUE;
+        long multmin;
+        int digit;
+
+        if (i < endIndex) {
+            char firstChar = s.charAt(i);
+            if (firstChar < '0') { // Possible leading "+" or "-"
+                if (firstChar == '-') {
+                    negative = true;
+                    limit = Long.MIN_VALUE;
+                } else if (firstChar != '+')
+                    throw NumberFormatException.forInputString(
+                            s.subSequence(beginIndex, endIndex).toString());
+
+                if (endIndex - i == 1) // Cannot have lone "+" or "-"
+                    throw NumberFormatException.forInputString(
+                            s.subSequence(beginIndex, endIndex).toString());
+                i++;
+            }
+            multmin = limit / radix;
+            while (i < endIndex) {
+                // Accumulating negatively avoids surprises near MAX_VALUE
+                digit = Character.digit(s.charAt(i++), radix);
+                if (digit < 0 || result < multmin) {
+                    throw NumberFormatException.forInputString(
+                            s.subSequence(beginIndex, endIndex).toString());
+                }
+                result *= radix;
+                if (result < limit + digit) {
+                    throw NumberFormatException.forInputString(
+                            s.subSequence(beginIndex, endIndex).toString());
+                }
+                result -= digit;
+            }
+        } else {
+            throw NumberFormatException.forInputString("");
+        }
+        return negative ? result : -result;
+    }
+
     /**
      * Parses the string argument as an unsigned {@code long} in the
      * radix specified by the second argument.  An unsigned integer
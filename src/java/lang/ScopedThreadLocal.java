@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import sun.misc.Cleaner;
+
+/**
+ * A thread-local variable with a fixed slot in each thread, explicit
+ * scoping and explicit cleanup.
+ *
+ * <p> A {@link ThreadLocal} finds its value in a per-thread hash table that
+ * holds its keys weakly and removes the entries of collected keys only when
+ * it comes across them.  In threads that live long and see many
+ * thread-local variables come and go, such as those of a thread pool, the
+ * table fills with stale entries and lookups probe long runs of them.  A
+ * {@code ScopedThreadLocal} is instead given a slot number when created,
+ * and each thread keeps its values in an array indexed by slot, so that
+ * {@link #get} is a single array access whatever the number of variables.
+ * The slot is given back, to be reused by a later variable, when the
+ * variable is {@linkplain #close closed} or becomes unreachable.
+ *
+ * <p> A value can be bound for the extent of an operation with
+ * {@link #runWith runWith} or {@link #callWith callWith}, after which the
+ * previous value, or its absence, is restored, and all the values of the
+ * current thread can be dropped at once with {@link #removeAll}, for
+ * example by a thread pool between tasks.
+ *
+ * <p> The values of a thread are released when it terminates.  Values are
+ * not inherited by child threads.
+ *
+ * <p> A value is held strongly by its thread, not by the variable, so it
+ * stays reachable after the variable is closed or collected until the
+ * thread next sets a variable it had no value for, calls {@link #removeAll}
+ * or terminates; closing a variable releases its value in the current
+ * thread only.  A value whose class was loaded by a class loader that is
+ * meant to be unloaded, such as that of a redeployed application, keeps
+ * that loader reachable for as long as a long-lived thread holds it.
+ * Threads shared with other code, such as those of a thread pool, should
+ * {@link #remove} such values, or call {@link #removeAll} between tasks.
+ *
+ * @param <T> the type of the variable's value
+ * @see ThreadLocal
+ * @since 1.8
+ */
+public class ScopedThreadLocal<T> extends ThreadLocal<T> {
+
+    /** The values of one thread, indexed by slot. */
+    static final class Values {
+        Object[] values;
+        // the generation of the variable that set each value
+        long[] generations;
+
+        Values(int capacity) {
+            values = new Object[capacity];
+            generations = new long[capacity];
+        }
+    }
+
+    /*
+     * Slots are allocated from a stack of free slots, then from the next
+     * unused one.  A generation number, unique to each variable, tells the
+     * value of a variable from that of an earlier owner of its slot.  The
+     * generation of the variable that owns each slot, or 0 for a free
+     * slot, is kept so that threads can find their stale values.
+     */
+    private static final Object lock = new Object();
+    private static int[] freeSlots = new int[16];
+    private static int freeCount;
+    private static int nextSlot;
+    private static long nextGeneration = 1;
+    // written under lock; read without it, so a value may be seen as live
+    // for a while after its slot is released
+    private static volatile long[] slotGenerations = new long[16];
+
+    private final int slot;
+    private final long generation;
+    private final Cleaner cleaner;
+    private volatile boolean closed;
+
+    /**
+     * Creates a scoped thread-local variable.  Its initial value in each
+     * thread is given by {@link #initialValue}.
+     */
+    public ScopedThreadLocal() {
+        int s;
+        synchronized (lock) {
+            s = (freeCount > 0) ? freeSlots[--freeCount] : nextSlot++;
+            generation = nextGeneration++;
+            long[] gens = slotGenerations;
+            if (s >= gens.length) {
+                gens = Arrays.copyOf(gens, Math.max(s + 1, gens.length * 2));
+            }
+            gens[s] = generation;
+            slotGenerations = gens;
+        }
+        slot = s;
+        cleaner = Cleaner.create(this, new SlotReleaser(s));
+    }
+
+    /**
+     * Creates a scoped thread-local variable whose initial value in each
+     * thread is obtained from the given supplier.
+     *
+     * @param <S> the type of the variable's value
+     * @param supplier the supplier of initial values
+     * @return a new scoped thread-local variable
+     * @throws NullPointerException if the specified supplier is null
+     */
+    public static <S> ScopedThreadLocal<S> withInitial(Supplier<? extends S> supplier) {
+        Objects.requireNonNull(supplier);
+        return new ScopedThreadLocal<S>() {
+            @Override
+            protected S initialValue() {
+                return supplier.get();
+            }
+        };
+    }
+
+    /**
+     * Returns the value of this variable in the current thread, first
+     * setting it to the result of {@link #initialValue} if it has none.
+     *
+     * @return the current thread's value of this variable
+     * @throws IllegalStateException if this variable has been closed
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        Values v = Thread.currentThread().scopedLocals;
+        if (v != null && slot < v.values.length
+                && v.generations[slot] == generation && !closed) {
+            return (T) v.values[slot];
+        }
+        ensureOpen();
+        T value = initialValue();
+        set(value);
+        return value;
+    }
+
+    /**
+     * Sets the value of this variable in the current thread.
+     *
+     * @param value the value
+     * @throws IllegalStateException if this variable has been closed
+     */
+    @Override
+    public void set(T value) {
+        ensureOpen();
+        Thread t = Thread.currentThread();
+        Values v = t.scopedLocals;
+        if (v == null) {
+            t.scopedLocals = v = new Values(Math.max(slot + 1, 16));
+        } else if (slot >= v.values.length) {
+            expungeStaleValues(v);
+            int capacity = Math.max(slot + 1, v.values.length * 2);
+            v.values = Arrays.copyOf(v.values, capacity);
+            v.generations = Arrays.copyOf(v.generations, capacity);
+        } else if (v.generations[slot] != generation) {
+            // a new value in this thread; drop those of closed variables
+            expungeStaleValues(v);
+        }
+        v.values[slot] = value;
+        v.generations[slot] = generation;
+    }
+
+    /**
+     * Drops the values of the given thread's array whose variable has been
+     * closed or collected.
+     */
+    private static void expungeStaleValues(Values v) {
+        long[] gens = slotGenerations;
+        Object[] values = v.values;
+        long[] generations = v.generations;
+        for (int i = 0; i < values.length; i++) {
+            long g = generations[i];
+            if (g != 0 && (i >= gens.length || gens[i] != g)) {
+                values[i] = null;
+                generations[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Removes the value of this variable in the current thread.  If it is
+     * read again, it is reinitialized by {@link #initialValue}.  Removing
+     * the value of a closed variable has no effect.
+     */
+    @Override
+    public void remove() {
+        Values v = Thread.currentThread().scopedLocals;
+        if (v != null && slot < v.values.length
+                && v.generations[slot] == generation) {
+            v.values[slot] = null;
+            v.generations[slot] = 0;
+        }
+    }
+
+    /**
+     * Runs an operation with this variable set to the given value in the
+     * current thread, then restores its previous value, or its absence.
+     *
+     * @param value the value for the extent of the operation
+     * @param op the operation
+     * @throws IllegalStateException if this variable has been closed
+     * @throws NullPointerException if {@code op} is null
+     */
+    public void runWith(T value, Runnable op) {
+        Objects.requireNonNull(op);
+        Object previous = swap(value);
+        try {
+            op.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Calls an operation with this variable set to the given value in the
+     * current thread, then restores its previous value, or its absence.
+     *
+     * @param <R> the type of the operation's result
+     * @param value the value for the extent of the operation
+     * @param op the operation
+     * @return the result of the operation
+     * @throws Exception if the operation throws it
+     * @throws IllegalStateException if this variable has been closed
+     * @throws NullPointerException if {@code op} is null
+     */
+    public <R> R callWith(T value, Callable<? extends R> op) throws Exception {
+        Objects.requireNonNull(op);
+        Object previous = swap(value);
+        try {
+            return op.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    // marks the absence of a value to restore
+    private static final Object ABSENT = new Object();
+
+    private Object swap(T value) {
+        Values v = Thread.currentThread().scopedLocals;
+        Object previous = ABSENT;
+        if (v != null && slot < v.values.length
+                && v.generations[slot] == generation) {
+            previous = v.values[slot];
+        }
+        set(value);
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void restore(Object previous) {
+        if (closed) {
+            return;
+        }
+        if (previous == ABSENT) {
+            remove();
+        } else {
+            set((T) previous);
+        }
+    }
+
+    /**
+     * Closes this variable.  Its value in the current thread is removed,
+     * its values in other threads become unreachable through it and its
+     * slot is given back, to be reused by a variable created later.  The
+     * values in other threads are released as those threads set a value
+     * they had none for, call {@link #removeAll} or terminate.  Closing a
+     * closed variable has no effect.
+     */
+    public void close() {
+        if (!closed) {
+            remove();
+            closed = true;
+            cleaner.clean();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("closed");
+    }
+
+    /**
+     * Removes the values of all scoped thread-local variables in the
+     * current thread.
+     */
+    public static void removeAll() {
+        Thread.currentThread().scopedLocals = null;
+    }
+
+    /**
+     * Gives back the slot of a variable that has been closed or collected.
+     */
+    private static final class SlotReleaser implements Runnable {
+        private final int slot;
+
+        SlotReleaser(int slot) {
+            this.slot = slot;
+        }
+
+        public void run() {
+            synchronized (lock) {
+                slotGenerations[slot] = 0;
+                if (freeCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+                }
+                freeSlots[freeCount++] = slot;
+            }
+        }
+    }
+}
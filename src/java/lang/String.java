@@ -27,6 +27,7 @@ package java.lang;
 
 import java.io.ObjectStreamField;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -515,6 +516,33 @@ public final class String
         this(bytes, 0, bytes.length, charset);
     }
 
+    /**
+     * Constructs a new {@code String} by decoding the remaining bytes of the
+     * given buffer using the specified {@linkplain java.nio.charset.Charset
+     * charset}.  The buffer's position is advanced to its limit.  Bytes are
+     * decoded directly from the buffer, without first being copied into an
+     * array.
+     *
+     * <p> This method always replaces malformed-input and unmappable-character
+     * sequences with this charset's default replacement string.  The {@link
+     * java.nio.charset.CharsetDecoder} class should be used when more control
+     * over the decoding process is required.
+     *
+     * @param  bytes
+     *         The buffer whose remaining bytes are to be decoded
+     *
+     * @param  charset
+     *         The {@linkplain java.nio.charset.Charset charset} to be used to
+     *         decode the {@code bytes}
+     *
+     * @since  1.8
+     */
+    public String(ByteBuffer bytes, Charset charset) {
+        if (charset == null)
+            throw new NullPointerException("charset");
+        this.value = StringCoding.decode(charset, bytes);
+    }
+
     /**
      * Constructs a new {@code String} by decoding the specified subarray of
      * bytes using the platform's default charset.  The length of the new
@@ -941,6 +969,73 @@ public final class String
         return StringCoding.encode(charset, value, 0, value.length);
     }
 
+    /**
+     * Encodes this {@code String} using the given {@linkplain
+     * java.nio.charset.Charset charset}, storing the result into the
+     * destination byte array starting at {@code dstBegin}.
+     *
+     * <p> This method always replaces malformed-input and unmappable-character
+     * sequences with this charset's default replacement byte array.  Unlike
+     * {@link #getBytes(Charset)}, it does not allocate a result array.
+     *
+     * @param  charset
+     *         The {@linkplain java.nio.charset.Charset} to be used to encode
+     *         the {@code String}
+     *
+     * @param  dst
+     *         The destination array
+     *
+     * @param  dstBegin
+     *         The start offset in the destination array
+     *
+     * @return  The number of bytes written
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If {@code dstBegin} is negative or greater than
+     *          {@code dst.length}, or if the encoded bytes do not fit into
+     *          {@code dst}, in which case the contents of {@code dst} from
+     *          {@code dstBegin} on are unspecified
+     *
+     * @since  1.8
+     */
+    public int getBytes(Charset charset, byte[] dst, int dstBegin) {
+        if (charset == null || dst == null) throw new NullPointerException();
+        return StringCoding.encode(charset, value, 0, value.length,
+                                   dst, dstBegin);
+    }
+
+    /**
+     * Encodes this {@code String} using the given {@linkplain
+     * java.nio.charset.Charset charset}, storing the result into the given
+     * buffer at its current position and advancing the position.
+     *
+     * <p> This method always replaces malformed-input and unmappable-character
+     * sequences with this charset's default replacement byte array.
+     *
+     * @param  charset
+     *         The {@linkplain java.nio.charset.Charset} to be used to encode
+     *         the {@code String}
+     *
+     * @param  dst
+     *         The destination buffer
+     *
+     * @return  The number of bytes written
+     *
+     * @throws  java.nio.BufferOverflowException
+     *          If the encoded bytes do not fit into the buffer's remaining
+     *          space, in which case the position of the buffer is unchanged
+     *          and the contents of the buffer beyond it are unspecified
+     *
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If {@code dst} is read-only
+     *
+     * @since  1.8
+     */
+    public int getBytes(Charset charset, ByteBuffer dst) {
+        if (charset == null || dst == null) throw new NullPointerException();
+        return StringCoding.encode(charset, value, 0, value.length, dst);
+    }
+
     /**
      * Encodes this {@code String} into a sequence of bytes using the
      * platform's default charset, storing the result into a new byte array.
@@ -27,6 +27,7 @@ package java.lang;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.ref.SoftReference;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
@@ -36,6 +37,7 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.Arrays;
 import sun.misc.MessageUtils;
@@ -145,6 +147,11 @@ class StringCoding {
         }
 
         char[] decode(byte[] ba, int off, int len) {
+            if (hasFastPath(cs)) {
+                char[] ca = decodeFast(cs, ba, off, len);
+                if (ca != null)
+                    return ca;
+            }
             int en = scale(len, cd.maxCharsPerByte());
             char[] ca = new char[en];
             if (len == 0)
@@ -210,6 +217,11 @@ class StringCoding {
         // check (... && (isTrusted || SM == null || getClassLoader0())) in trim
         // but it then can be argued that the SM is null when the opertaion
         // is started...
+        if (hasFastPath(cs)) {
+            char[] ca = decodeFast(cs, ba, off, len);
+            if (ca != null)
+                return ca;
+        }
         CharsetDecoder cd = cs.newDecoder();
         int en = scale(len, cd.maxCharsPerByte());
         char[] ca = new char[en];
@@ -296,6 +308,8 @@ class StringCoding {
         }
 
         byte[] encode(char[] ca, int off, int len) {
+            if (hasFastPath(cs))
+                return encodeFast(cs, ca, off, len);
             int en = scale(len, ce.maxBytesPerChar());
             byte[] ba = new byte[en];
             if (len == 0)
@@ -345,6 +359,8 @@ class StringCoding {
     }
 
     static byte[] encode(Charset cs, char[] ca, int off, int len) {
+        if (hasFastPath(cs))
+            return encodeFast(cs, ca, off, len);
         CharsetEncoder ce = cs.newEncoder();
         int en = scale(len, ce.maxBytesPerChar());
         byte[] ba = new byte[en];
@@ -401,4 +417,263 @@ class StringCoding {
             return null;
         }
     }
+
+    // -- Encoding into and decoding from caller-supplied buffers --
+
+    /**
+     * Encodes ca[off, off + len) into dst at dstBegin, returning the number
+     * of bytes written.  Throws IndexOutOfBoundsException if the result does
+     * not fit, in which case the contents of dst are unspecified.
+     */
+    static int encode(Charset cs, char[] ca, int off, int len,
+                      byte[] dst, int dstBegin) {
+        if (dstBegin < 0 || dstBegin > dst.length)
+            throw new IndexOutOfBoundsException("dstBegin " + dstBegin);
+        if (hasFastPath(cs)) {
+            int blen = encodedLength(cs, ca, off, len);
+            if (blen > dst.length - dstBegin)
+                throw new IndexOutOfBoundsException(
+                    "length " + blen + " at " + dstBegin);
+            return encodeFast(cs, ca, off, len, dst, dstBegin);
+        }
+        try {
+            return encode(cs, ca, off, len,
+                          ByteBuffer.wrap(dst, dstBegin, dst.length - dstBegin));
+        } catch (BufferOverflowException x) {
+            throw new IndexOutOfBoundsException("dst too small");
+        }
+    }
+
+    /**
+     * Encodes ca[off, off + len) into dst at its position, advancing the
+     * position and returning the number of bytes written.  Throws
+     * BufferOverflowException if the result does not fit, in which case the
+     * position of dst is unchanged and the contents beyond it are
+     * unspecified.
+     */
+    static int encode(Charset cs, char[] ca, int off, int len,
+                      ByteBuffer dst) {
+        int pos = dst.position();
+        if (hasFastPath(cs) && dst.hasArray()) {
+            int blen = encodedLength(cs, ca, off, len);
+            if (blen > dst.remaining())
+                throw new BufferOverflowException();
+            encodeFast(cs, ca, off, len, dst.array(), dst.arrayOffset() + pos);
+            dst.position(pos + blen);
+            return blen;
+        }
+        CharsetEncoder ce = cs.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try {
+            CoderResult cr = ce.encode(CharBuffer.wrap(ca, off, len), dst, true);
+            if (cr.isUnderflow())
+                cr = ce.flush(dst);
+            if (cr.isOverflow()) {
+                dst.position(pos);
+                throw new BufferOverflowException();
+            }
+            if (!cr.isUnderflow())
+                cr.throwException();
+        } catch (CharacterCodingException x) {
+            // Substitution is always enabled,
+            // so this shouldn't happen
+            throw new Error(x);
+        }
+        return dst.position() - pos;
+    }
+
+    /**
+     * Decodes the remaining bytes of bb, advancing its position to its
+     * limit.  Heap buffers are decoded in place; direct buffers are decoded
+     * without first copying their content into an array.
+     */
+    static char[] decode(Charset cs, ByteBuffer bb) {
+        int len = bb.remaining();
+        if (bb.hasArray()) {
+            char[] ca = decode(cs, bb.array(), bb.arrayOffset() + bb.position(),
+                               len);
+            bb.position(bb.limit());
+            return ca;
+        }
+        if (cs == ISO_8859_1 || cs == US_ASCII) {
+            char[] ca = new char[len];
+            boolean latin1 = (cs == ISO_8859_1);
+            for (int i = 0; i < len; i++) {
+                byte b = bb.get();
+                ca[i] = (b >= 0 || latin1) ? (char)(b & 0xff) : REPL;
+            }
+            return ca;
+        }
+        boolean isTrusted = (System.getSecurityManager() == null
+                             || cs.getClass().getClassLoader0() == null);
+        CharsetDecoder cd = cs.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        char[] ca = new char[scale(len, cd.maxCharsPerByte())];
+        if (len == 0)
+            return ca;
+        CharBuffer cb = CharBuffer.wrap(ca);
+        try {
+            CoderResult cr = cd.decode(bb, cb, true);
+            if (!cr.isUnderflow())
+                cr.throwException();
+            cr = cd.flush(cb);
+            if (!cr.isUnderflow())
+                cr.throwException();
+        } catch (CharacterCodingException x) {
+            // Substitution is always enabled,
+            // so this shouldn't happen
+            throw new Error(x);
+        }
+        return safeTrim(ca, cb.position(), cs, isTrusted);
+    }
+
+    // -- Fast paths for UTF-8, ISO-8859-1 and US-ASCII --
+    //
+    // These charsets carry most text.  Their fast paths copy runs of ASCII
+    // in bulk, size results exactly instead of allocating for the worst
+    // case and trimming, and need no cached coder.  They produce the same
+    // output, replacements included, as the charsets' own coders with
+    // CodingErrorAction.REPLACE.
+
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+    private static final Charset ISO_8859_1 = StandardCharsets.ISO_8859_1;
+    private static final Charset US_ASCII = StandardCharsets.US_ASCII;
+
+    /** Replacement used by the decoders of the fast-path charsets */
+    private static final char REPL = '\uFFFD';
+
+    /** Replacement used by the encoders of the fast-path charsets */
+    private static final byte REPL_BYTE = (byte)'?';
+
+    private static boolean hasFastPath(Charset cs) {
+        return cs == UTF_8 || cs == ISO_8859_1 || cs == US_ASCII;
+    }
+
+    /**
+     * Returns true if the chars at i and i + 1 of ca, with i + 1 < end, form
+     * a valid surrogate pair.
+     */
+    private static boolean isSurrogatePair(char[] ca, int i, int end) {
+        return Character.isHighSurrogate(ca[i]) && i + 1 < end
+            && Character.isLowSurrogate(ca[i + 1]);
+    }
+
+    /**
+     * Returns the number of bytes that cs, which must have a fast path,
+     * encodes ca[off, off + len) to.
+     */
+    private static int encodedLength(Charset cs, char[] ca, int off, int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end && ca[i] < 0x80)
+            i++;
+        int blen = i - off;
+        if (cs == UTF_8) {
+            for (; i < end; i++) {
+                char c = ca[i];
+                if (c < 0x80) {
+                    blen++;
+                } else if (c < 0x800) {
+                    blen += 2;
+                } else if (!Character.isSurrogate(c)) {
+                    blen += 3;
+                } else if (isSurrogatePair(ca, i, end)) {
+                    blen += 4;
+                    i++;
+                } else {
+                    blen++;         // malformed, replaced
+                }
+            }
+        } else {
+            // one byte per char, and one replacement per surrogate pair
+            for (; i < end; i++) {
+                if (isSurrogatePair(ca, i, end))
+                    i++;
+                blen++;
+            }
+        }
+        return blen;
+    }
+
+    private static byte[] encodeFast(Charset cs, char[] ca, int off, int len) {
+        byte[] ba = new byte[encodedLength(cs, ca, off, len)];
+        encodeFast(cs, ca, off, len, ba, 0);
+        return ba;
+    }
+
+    /**
+     * Encodes ca[off, off + len) into ba at dp, which must have room for the
+     * result, and returns the number of bytes written.
+     */
+    private static int encodeFast(Charset cs, char[] ca, int off, int len,
+                                  byte[] ba, int dp) {
+        int start = dp;
+        int end = off + len;
+        int i = off;
+        while (i < end && ca[i] < 0x80)
+            ba[dp++] = (byte)ca[i++];
+        if (cs == UTF_8) {
+            while (i < end) {
+                char c = ca[i++];
+                if (c < 0x80) {
+                    ba[dp++] = (byte)c;
+                } else if (c < 0x800) {
+                    ba[dp++] = (byte)(0xc0 | (c >> 6));
+                    ba[dp++] = (byte)(0x80 | (c & 0x3f));
+                } else if (!Character.isSurrogate(c)) {
+                    ba[dp++] = (byte)(0xe0 | (c >> 12));
+                    ba[dp++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+                    ba[dp++] = (byte)(0x80 | (c & 0x3f));
+                } else if (isSurrogatePair(ca, i - 1, end)) {
+                    int uc = Character.toCodePoint(c, ca[i++]);
+                    ba[dp++] = (byte)(0xf0 | (uc >> 18));
+                    ba[dp++] = (byte)(0x80 | ((uc >> 12) & 0x3f));
+                    ba[dp++] = (byte)(0x80 | ((uc >> 6) & 0x3f));
+                    ba[dp++] = (byte)(0x80 | (uc & 0x3f));
+                } else {
+                    ba[dp++] = REPL_BYTE;
+                }
+            }
+        } else {
+            char max = (cs == ISO_8859_1) ? '\u00ff' : '\u007f';
+            while (i < end) {
+                char c = ca[i];
+                if (c <= max) {
+                    ba[dp++] = (byte)c;
+                } else {
+                    if (isSurrogatePair(ca, i, end))
+                        i++;
+                    ba[dp++] = REPL_BYTE;
+                }
+                i++;
+            }
+        }
+        return dp - start;
+    }
+
+    /**
+     * Decodes ba[off, off + len) with cs, which must have a fast path.
+     * Returns null if cs is UTF-8 and the input is not all ASCII, which is
+     * left to the charset's decoder.
+     */
+    private static char[] decodeFast(Charset cs, byte[] ba, int off, int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end && ba[i] >= 0)
+            i++;
+        if (i < end && cs == UTF_8)
+            return null;
+        char[] ca = new char[len];
+        int n = i - off;
+        for (int j = 0; j < n; j++)
+            ca[j] = (char)ba[off + j];
+        boolean latin1 = (cs == ISO_8859_1);
+        for (int j = n; j < len; j++) {
+            byte b = ba[off + j];
+            ca[j] = (b >= 0 || latin1) ? (char)(b & 0xff) : REPL;
+        }
+        return ca;
+    }
 }
@@ -174,6 +174,20 @@ import jdk.internal.org.objectweb.asm.MethodVisitor;
         return Arrays.asList(boundValues);
     }
 
+    @Override
+    /*non-public*/
+    void customizeTargets(int depth) {
+        SpeciesData speciesData = speciesData();
+        for (int i = 0; i < speciesData.fieldCount(); i++) {
+            if (speciesData.fieldType(i) == L_TYPE) {
+                Object value = arg(i);
+                if (value instanceof MethodHandle) {
+                    ((MethodHandle) value).customize(depth);
+                }
+            }
+        }
+    }
+
     /*non-public*/ final Object arg(int i) {
         try {
             switch (speciesData().fieldType(i)) {
@@ -380,6 +394,9 @@ import jdk.internal.org.objectweb.asm.MethodVisitor;
         }
 
         private static SpeciesData get(String types) {
+            if (PREGENERATE_SPECIES > 0) {
+                Pregenerated.ensureGenerated();
+            }
             return CACHE.computeIfAbsent(types, new Function<String, SpeciesData>() {
                 @Override
                 public SpeciesData apply(String types) {
@@ -390,6 +407,7 @@ import jdk.internal.org.objectweb.asm.MethodVisitor;
                     // CHM.computeIfAbsent ensures only one SpeciesData will be set
                     // successfully on the concrete BMH class if ever
                     Factory.setSpeciesDataToConcreteBMHClass(bmhcl, speciesData);
+                    MethodHandleStatistics.STATS.species.increment();
                     // the concrete BMH class is published via SpeciesData instance
                     // returned here only after it's SPECIES_DATA field is set
                     return speciesData;
@@ -436,6 +454,30 @@ import jdk.internal.org.objectweb.asm.MethodVisitor;
         return SpeciesData.get(types);
     }
 
+    /**
+     * Creates all species of up to PREGENERATE_SPECIES fields when first
+     * asked for one that is not built in, so that binding values of a new
+     * combination of types later does not spin a class.  Initialization of
+     * this class is the lock: other threads wait for it, and species
+     * requested while generating, by the same thread, are created as usual.
+     */
+    private static final class Pregenerated {
+        static {
+            extendAll(SpeciesData.EMPTY, PREGENERATE_SPECIES);
+        }
+
+        private static void extendAll(SpeciesData d, int depth) {
+            if (depth == 0)  return;
+            for (BasicType type : BasicType.ARG_TYPES) {
+                extendAll(d.extendWith(type), depth - 1);
+            }
+        }
+
+        static void ensureGenerated() {
+            // initialization does the work
+        }
+    }
+
     /**
      * Generation of concrete BMH classes.
      *
@@ -559,6 +601,7 @@ import jdk.internal.org.objectweb.asm.MethodVisitor;
          * @return the generated concrete BMH class
          */
         static Class<? extends BoundMethodHandle> generateConcreteBMHClass(String types) {
+            MethodHandleStatistics.STATS.speciesClasses.increment();
             final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS + ClassWriter.COMPUTE_FRAMES);
 
             String shortTypes = LambdaForm.shortenSignature(types);
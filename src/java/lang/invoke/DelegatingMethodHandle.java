@@ -51,6 +51,12 @@ abstract class DelegatingMethodHandle extends MethodHandle {
     /** Define this to extract the delegated target which supplies the invocation behavior. */
     abstract protected MethodHandle getTarget();
 
+    @Override
+    /*non-public*/
+    void customizeTargets(int depth) {
+        getTarget().customize(depth);
+    }
+
     @Override
     abstract MethodHandle asTypeUncached(MethodType newType);
 
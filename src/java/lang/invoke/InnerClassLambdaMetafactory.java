@@ -86,12 +86,34 @@ import static jdk.internal.org.objectweb.asm.Opcodes.*;
     // For dumping generated classes to disk, for debugging purposes
     private static final ProxyClassesDumper dumper;
 
+    // For reusing generated classes across runs, for faster startup
+    private static final LambdaProxyClassArchive archive;
+
     static {
         final String key = "jdk.internal.lambda.dumpProxyClasses";
         String path = AccessController.doPrivileged(
                 new GetPropertyAction(key), null,
                 new PropertyPermission(key , "read"));
         dumper = (null == path) ? null : ProxyClassesDumper.getInstance(path);
+
+        final String loadKey = "jdk.internal.lambda.proxyClassArchive";
+        final String dumpKey = "jdk.internal.lambda.dumpProxyClassArchive";
+        archive = AccessController.doPrivileged(
+                new PrivilegedAction<LambdaProxyClassArchive>() {
+                    @Override
+                    public LambdaProxyClassArchive run() {
+                        String loadPath = System.getProperty(loadKey);
+                        String dumpPath = System.getProperty(dumpKey);
+                        if (loadPath == null && dumpPath == null)
+                            return null;
+                        return LambdaProxyClassArchive.getInstance(loadPath, dumpPath);
+                    }
+                }, null,
+                new PropertyPermission(loadKey, "read"),
+                new PropertyPermission(dumpKey, "read"),
+                new PropertyPermission("java.runtime.version", "read"),
+                new FilePermission("<<ALL FILES>>", "read, write"),
+                new RuntimePermission("shutdownHooks"));
     }
 
     // See context values in AbstractValidatingLambdaMetafactory
@@ -263,6 +285,15 @@ import static jdk.internal.org.objectweb.asm.Opcodes.*;
             interfaces = itfs.toArray(new String[itfs.size()]);
         }
 
+        String archiveKey = null;
+        if (archive != null) {
+            archiveKey = archiveKey(accidentallySerializable);
+            byte[] archived = archive.find(archiveKey);
+            if (archived != null) {
+                return UNSAFE.defineAnonymousClass(targetClass, archived, null);
+            }
+        }
+
         cw.visit(CLASSFILE_VERSION, ACC_SUPER + ACC_FINAL + ACC_SYNTHETIC,
                  lambdaClassName, null,
                  JAVA_LANG_OBJECT, interfaces);
@@ -309,6 +340,10 @@ import static jdk.internal.org.objectweb.asm.Opcodes.*;
 
         final byte[] classBytes = cw.toByteArray();
 
+        if (archive != null) {
+            archive.add(archiveKey, classBytes);
+        }
+
         // If requested, dump out to a file for debugging purposes
         if (dumper != null) {
             AccessController.doPrivileged(new PrivilegedAction<Void>() {
@@ -326,6 +361,36 @@ import static jdk.internal.org.objectweb.asm.Opcodes.*;
         return UNSAFE.defineAnonymousClass(targetClass, classBytes, null);
     }
 
+    /**
+     * Returns the key of the class spun for this call site in a lambda proxy
+     * class archive.  The class file depends on nothing else than what the
+     * key spells out, save for the counter in the class name, which does
+     * not need to be unique for a class defined as an anonymous class.
+     */
+    private String archiveKey(boolean accidentallySerializable) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(targetClass.getName())
+          .append(' ').append(invokedType.toMethodDescriptorString())
+          .append(' ').append(samMethodName)
+          .append(' ').append(samMethodType.toMethodDescriptorString())
+          .append(' ').append(implKind)
+          .append(' ').append(implMethodClassName)
+          .append(' ').append(implMethodName)
+          .append(' ').append(implMethodDesc)
+          .append(' ').append(instantiatedMethodType.toMethodDescriptorString())
+          .append(' ').append(isSerializable)
+          .append(' ').append(accidentallySerializable);
+        for (Class<?> markerInterface : markerInterfaces) {
+            sb.append(" M").append(markerInterface.getName());
+        }
+        if (additionalBridges != null) {
+            for (MethodType mt : additionalBridges) {
+                sb.append(" B").append(mt.toMethodDescriptorString());
+            }
+        }
+        return sb.toString();
+    }
+
     /**
      * Generate the factory method for the class
      */
@@ -651,10 +651,13 @@ class LambdaForm {
         MethodType invokerType = methodType();
         assert(vmentry == null || vmentry.getMethodType().basicType().equals(invokerType));
         try {
+            long start = System.nanoTime();
             vmentry = InvokerBytecodeGenerator.generateCustomizedCode(this, invokerType);
             if (TRACE_INTERPRETER)
                 traceInterpreter("compileToBytecode", this);
             isCompiled = true;
+            MethodHandleStatistics.STATS.lambdaFormCompilations.increment();
+            MethodHandleStatistics.STATS.lambdaFormCompileNanos.add(System.nanoTime() - start);
             return vmentry;
         } catch (Error | Exception ex) {
             throw newInternalError(this.toString(), ex);
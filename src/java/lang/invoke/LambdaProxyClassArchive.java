@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.invoke;
+
+import sun.util.logging.PlatformLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Helper class used by InnerClassLambdaMetafactory to reuse the class
+ * files of lambda proxy classes across runs.
+ *
+ * <p> An archive is a file that maps a key, which spells out everything
+ * the class file of a proxy class depends on, to that class file.  When
+ * the system property {@code jdk.internal.lambda.proxyClassArchive} names
+ * an archive, the metafactory defines the archived class file instead of
+ * spinning a new one whenever it finds the key of a call site.  When
+ * {@code jdk.internal.lambda.dumpProxyClassArchive} names a file, the
+ * class files of all proxy classes defined in the run are written to it
+ * on exit, so that a training run can produce the archive for later
+ * runs.  An archive written by a different runtime version is ignored.
+ *
+ * @implNote
+ * <p> Because this class is called by LambdaMetafactory, make use
+ * of lambda lead to recursive calls cause stack overflow.
+ */
+final class LambdaProxyClassArchive {
+    private static final int MAGIC = 0x4C414D42;    // "LAMB"
+    private static final int VERSION = 1;
+
+    /** Archived class files by key; empty if none were loaded. */
+    private final Map<String, byte[]> archived;
+    /** Class files to write on exit, or null if not dumping. */
+    private final Map<String, byte[]> dumped;
+
+    private LambdaProxyClassArchive(Map<String, byte[]> archived,
+                                    Map<String, byte[]> dumped) {
+        this.archived = archived;
+        this.dumped = dumped;
+    }
+
+    /**
+     * Returns an archive that loads from and dumps to the given files,
+     * either of which may be null, or null if neither is usable.  Must be
+     * called with the permissions to read and write the files and to add a
+     * shutdown hook.
+     */
+    static LambdaProxyClassArchive getInstance(String loadPath, String dumpPath) {
+        Map<String, byte[]> archived = new HashMap<>();
+        if (loadPath != null) {
+            try {
+                read(new File(loadPath.trim()), archived);
+            } catch (IOException | RuntimeException ex) {
+                archived.clear();
+                PlatformLogger.getLogger(LambdaProxyClassArchive.class.getName())
+                              .warning("Cannot read lambda proxy class archive "
+                                       + loadPath + " - archive ignored", ex);
+            }
+        }
+        Map<String, byte[]> dumped = null;
+        if (dumpPath != null) {
+            dumped = new ConcurrentHashMap<>();
+            final File file = new File(dumpPath.trim());
+            final Map<String, byte[]> classes = dumped;
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        write(file, classes);
+                    } catch (IOException ex) {
+                        PlatformLogger.getLogger(LambdaProxyClassArchive.class.getName())
+                                      .warning("Exception writing lambda proxy class archive "
+                                               + file, ex);
+                    }
+                }
+            });
+        }
+        if (archived.isEmpty() && dumped == null)
+            return null;
+        return new LambdaProxyClassArchive(archived, dumped);
+    }
+
+    /**
+     * Returns the archived class file for the given key, or null.
+     */
+    byte[] find(String key) {
+        byte[] classBytes = archived.get(key);
+        if (classBytes != null && dumped != null)
+            dumped.put(key, classBytes);
+        return classBytes;
+    }
+
+    /**
+     * Records a class file spun in this run, if dumping.
+     */
+    void add(String key, byte[] classBytes) {
+        if (dumped != null)
+            dumped.put(key, classBytes);
+    }
+
+    private static String runtimeVersion() {
+        return String.valueOf(System.getProperty("java.runtime.version"));
+    }
+
+    private static void read(File file, Map<String, byte[]> classes)
+        throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Not a lambda proxy class archive");
+            if (!runtimeVersion().equals(in.readUTF()))
+                return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = new String(readBytes(in), StandardCharsets.UTF_8);
+                classes.put(key, readBytes(in));
+            }
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return b;
+    }
+
+    private static void write(File file, Map<String, byte[]> dumped)
+        throws IOException
+    {
+        Map<String, byte[]> classes = new HashMap<>(dumped);
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(runtimeVersion());
+            out.writeInt(classes.size());
+            for (Map.Entry<String, byte[]> e : classes.entrySet()) {
+                byte[] key = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(e.getValue().length);
+                out.write(e.getValue());
+            }
+        }
+    }
+}
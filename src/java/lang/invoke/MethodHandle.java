@@ -1437,12 +1437,35 @@ assertEquals("[three, thee, tee]", asListFix.invoke((Object)argv).toString());
     /** Craft a LambdaForm customized for this particular MethodHandle */
     /*non-public*/
     void customize() {
+        customize(CUSTOMIZE_DEPTH);
+    }
+
+    /**
+     * Craft a LambdaForm customized for this particular MethodHandle and,
+     * down to the given depth, for the MethodHandles it invokes, so that a
+     * hot tree of handles runs customized code throughout instead of only
+     * at its root.
+     */
+    /*non-public*/
+    void customize(int depth) {
         if (form.customized == null) {
             LambdaForm newForm = form.customize(this);
             updateForm(newForm);
+            MethodHandleStatistics.STATS.customizations.increment();
         } else {
             assert(form.customized == this);
         }
+        if (depth > 0) {
+            customizeTargets(depth - 1);
+        }
+    }
+
+    /**
+     * Customize the MethodHandles invoked by this one, down to the given
+     * depth.  By default there are none.
+     */
+    /*non-public*/
+    void customizeTargets(int depth) {
     }
 
     private static final long FORM_OFFSET;
@@ -50,9 +50,12 @@ import sun.misc.Unsafe;
     static final int PROFILE_LEVEL;
     static final boolean PROFILE_GWT;
     static final int CUSTOMIZE_THRESHOLD;
+    static final int CUSTOMIZE_DEPTH;
+    static final int PREGENERATE_SPECIES;
+    static final boolean MXBEAN;
 
     static {
-        final Object[] values = new Object[9];
+        final Object[] values = new Object[12];
         AccessController.doPrivileged(new PrivilegedAction<Void>() {
                 public Void run() {
                     values[0] = Boolean.getBoolean("java.lang.invoke.MethodHandle.DEBUG_NAMES");
@@ -64,6 +67,9 @@ import sun.misc.Unsafe;
                     values[6] = Integer.getInteger("java.lang.invoke.MethodHandle.PROFILE_LEVEL", 0);
                     values[7] = Boolean.parseBoolean(System.getProperty("java.lang.invoke.MethodHandle.PROFILE_GWT", "true"));
                     values[8] = Integer.getInteger("java.lang.invoke.MethodHandle.CUSTOMIZE_THRESHOLD", 127);
+                    values[9] = Integer.getInteger("java.lang.invoke.MethodHandle.CUSTOMIZE_DEPTH", 0);
+                    values[10] = Integer.getInteger("java.lang.invoke.MethodHandle.PREGENERATE_SPECIES", 0);
+                    values[11] = Boolean.getBoolean("java.lang.invoke.MethodHandle.MXBEAN");
                     return null;
                 }
             });
@@ -76,10 +82,20 @@ import sun.misc.Unsafe;
         PROFILE_LEVEL             = (Integer) values[6];
         PROFILE_GWT               = (Boolean) values[7];
         CUSTOMIZE_THRESHOLD       = (Integer) values[8];
+        CUSTOMIZE_DEPTH           = (Integer) values[9];
+        PREGENERATE_SPECIES       = (Integer) values[10];
+        MXBEAN                    = (Boolean) values[11];
 
         if (CUSTOMIZE_THRESHOLD < -1 || CUSTOMIZE_THRESHOLD > 127) {
             throw newInternalError("CUSTOMIZE_THRESHOLD should be in [-1...127] range");
         }
+        if (CUSTOMIZE_DEPTH < 0) {
+            throw newInternalError("CUSTOMIZE_DEPTH should not be negative");
+        }
+        // 5 basic types: all species up to 4 fields are 780 classes
+        if (PREGENERATE_SPECIES < 0 || PREGENERATE_SPECIES > 4) {
+            throw newInternalError("PREGENERATE_SPECIES should be in [0...4] range");
+        }
     }
 
     /** Tell if any of the debugging switches are turned on.
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.invoke;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.invoke.MethodHandleStatics.*;
+
+/**
+ * Counters of the work done by the method handle implementation,
+ * published as a {@code sun.invoke.MethodHandleStatisticsMXBean}.
+ */
+/*non-public*/ final class MethodHandleStatistics
+        implements sun.invoke.MethodHandleStatisticsMXBean {
+
+    static final MethodHandleStatistics STATS = new MethodHandleStatistics();
+
+    final LongAdder lambdaFormCompilations = new LongAdder();
+    final LongAdder lambdaFormCompileNanos = new LongAdder();
+    final LongAdder customizations = new LongAdder();
+    final LongAdder species = new LongAdder();
+    final LongAdder speciesClasses = new LongAdder();
+
+    private MethodHandleStatistics() { }
+
+    public long getLambdaFormCompilationCount() {
+        return lambdaFormCompilations.sum();
+    }
+
+    public long getTotalLambdaFormCompilationTime() {
+        return TimeUnit.NANOSECONDS.toMillis(lambdaFormCompileNanos.sum());
+    }
+
+    public long getCustomizationCount() {
+        return customizations.sum();
+    }
+
+    public long getSpeciesCount() {
+        return species.sum();
+    }
+
+    public long getSpeciesClassCount() {
+        return speciesClasses.sum();
+    }
+
+    public javax.management.ObjectName getObjectName() {
+        try {
+            return new javax.management.ObjectName(
+                "java.lang.invoke:type=MethodHandleStatistics");
+        } catch (javax.management.MalformedObjectNameException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    static {
+        if (MXBEAN) {
+            register();
+        }
+    }
+
+    /*
+     * Registers the counters from another thread: the platform MBean
+     * server uses method handles itself, and the first counted event may
+     * happen while method handle classes are being initialized.
+     */
+    private static void register() {
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            public Void run() {
+                Thread t = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            java.lang.management.ManagementFactory
+                                .getPlatformMBeanServer()
+                                .registerMBean(STATS, STATS.getObjectName());
+                        } catch (Exception e) {
+                            // statistics are optional
+                        }
+                    }
+                }, "MethodHandleStatistics registration");
+                t.setDaemon(true);
+                t.start();
+                return null;
+            }
+        });
+    }
+}
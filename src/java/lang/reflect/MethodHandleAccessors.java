@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.security.AccessController;
+import sun.misc.Launcher;
+import sun.misc.Unsafe;
+import sun.misc.VM;
+import sun.reflect.ConstructorAccessor;
+import sun.reflect.MethodAccessor;
+import sun.reflect.Reflection;
+import sun.security.action.GetPropertyAction;
+
+/**
+ * Package-private factory of method and constructor accessors that invoke
+ * their member through a {@link MethodHandle}.
+ *
+ * <p> The accessors of {@code sun.reflect.ReflectionFactory} call through
+ * JNI for the first invocations of a member and then spin a bytecode
+ * accessor class for it.  An accessor made here is a direct method handle
+ * adapted to take its arguments as an array; it is fast from the first
+ * call and needs no class of its own.  It is used when the system property
+ * {@code sun.reflect.useMethodHandleAccessors} is {@code true}.
+ *
+ * <p> Arguments are checked before the method handle is called, so that
+ * any exception thrown by the invocation comes from the member itself and
+ * is wrapped in an {@code InvocationTargetException}.
+ */
+final class MethodHandleAccessors {
+
+    private MethodHandleAccessors() {}
+
+    private static volatile boolean initted;
+    private static boolean enabled;
+
+    /**
+     * Tells whether accessors should be made here.  Always false until the
+     * launcher has created the system class loader: the system is booted
+     * while the launcher is still being set up, and the method handle
+     * implementation cannot be initialized before it is done.
+     */
+    private static boolean enabled() {
+        if (!initted) {
+            if (!VM.isBooted() || Launcher.getLauncher() == null)
+                return false;
+            String value = AccessController.doPrivileged(
+                new GetPropertyAction("sun.reflect.useMethodHandleAccessors"));
+            enabled = Boolean.parseBoolean(value);
+            initted = true;
+        }
+        return enabled;
+    }
+
+    /**
+     * Returns an accessor for the given root method, or null if the
+     * default accessor should be used.
+     */
+    static MethodAccessor newMethodAccessor(Method root) {
+        if (!enabled() || !useMethodHandle(root.getDeclaringClass()))
+            return null;
+        // Caller-sensitive methods must see the real caller, which a
+        // method handle would bind once for all
+        if (Reflection.isCallerSensitive(root))
+            return null;
+        boolean isStatic = Modifier.isStatic(root.getModifiers());
+        Class<?>[] ptypes = root.getParameterTypes();
+        MethodHandle target;
+        try {
+            Method m = root.copy();
+            m.override = true;      // so that unreflect needs no access
+            target = MethodHandles.publicLookup().unreflect(m);
+            if (isStatic)
+                target = MethodHandles.dropArguments(target, 0, Object.class);
+            target = target.asType(MethodType.genericMethodType(ptypes.length + 1))
+                           .asSpreader(Object[].class, ptypes.length);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+        if (isStatic)
+            ensureInitialized(root.getDeclaringClass());
+        return new MethodHandleMethodAccessor(target, root.getDeclaringClass(),
+                                              ptypes, isStatic);
+    }
+
+    /**
+     * Returns an accessor for the given root constructor, or null if the
+     * default accessor should be used.
+     */
+    static ConstructorAccessor newConstructorAccessor(Constructor<?> root) {
+        Class<?> c = root.getDeclaringClass();
+        if (!enabled() || !useMethodHandle(c)
+                || Modifier.isAbstract(c.getModifiers())
+                || c == Class.class)
+            return null;
+        Class<?>[] ptypes = root.getParameterTypes();
+        MethodHandle target;
+        try {
+            Constructor<?> ctor = root.copy();
+            ctor.override = true;
+            target = MethodHandles.publicLookup().unreflectConstructor(ctor)
+                .asType(MethodType.genericMethodType(ptypes.length))
+                .asSpreader(Object[].class, ptypes.length);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+        ensureInitialized(c);
+        return new MethodHandleConstructorAccessor(target, ptypes);
+    }
+
+    /**
+     * Members of the method handle implementation itself, and of classes
+     * that the VM defines without a name, keep the default accessors.
+     */
+    private static boolean useMethodHandle(Class<?> c) {
+        return !c.getName().startsWith("java.lang.invoke.")
+            && !c.getName().contains("/");
+    }
+
+    /**
+     * Initializes the class up front, so that an initialization error
+     * reaches the caller unwrapped, as it does with the default accessors.
+     */
+    private static void ensureInitialized(Class<?> c) {
+        Unsafe.getUnsafe().ensureClassInitialized(c);
+    }
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * Checks the arguments the way the default accessors do and returns
+     * the array to spread, never null.
+     */
+    private static Object[] checkArguments(Class<?>[] ptypes, Object[] args) {
+        if (args == null)
+            args = NO_ARGS;
+        if (args.length != ptypes.length)
+            throw new IllegalArgumentException("wrong number of arguments");
+        for (int i = 0; i < args.length; i++) {
+            Class<?> t = ptypes[i];
+            Object arg = args[i];
+            if (t.isPrimitive()) {
+                if (arg == null || !isWidening(arg.getClass(), t))
+                    throw new IllegalArgumentException("argument type mismatch");
+            } else if (arg != null && !t.isInstance(arg)) {
+                throw new IllegalArgumentException("argument type mismatch");
+            }
+        }
+        return args;
+    }
+
+    /** The numeric types in widening order; char widens to int and up. */
+    private static final Class<?>[] NUMERIC = {
+        byte.class, short.class, int.class, long.class, float.class, double.class
+    };
+
+    /**
+     * Tells whether a value of the given wrapper class can be unboxed and
+     * widened to the given primitive type.
+     */
+    private static boolean isWidening(Class<?> wrapper, Class<?> to) {
+        Class<?> from = unwrap(wrapper);
+        if (from == to)
+            return true;
+        if (from == null || from == boolean.class || to == boolean.class
+                || to == char.class)
+            return false;
+        int f = (from == char.class) ? 1 : indexOf(from);   // above short
+        return f < indexOf(to);
+    }
+
+    private static int indexOf(Class<?> numeric) {
+        for (int i = 0; i < NUMERIC.length; i++) {
+            if (NUMERIC[i] == numeric)
+                return i;
+        }
+        return -1;
+    }
+
+    private static Class<?> unwrap(Class<?> c) {
+        if (c == Integer.class)   return int.class;
+        if (c == Long.class)      return long.class;
+        if (c == Double.class)    return double.class;
+        if (c == Boolean.class)   return boolean.class;
+        if (c == Character.class) return char.class;
+        if (c == Byte.class)      return byte.class;
+        if (c == Short.class)     return short.class;
+        if (c == Float.class)     return float.class;
+        return null;
+    }
+
+    /**
+     * Invokes a method through a handle of type (Object, Object[])Object.
+     */
+    private static final class MethodHandleMethodAccessor
+        implements MethodAccessor
+    {
+        private final MethodHandle target;
+        private final Class<?> declaringClass;
+        private final Class<?>[] ptypes;
+        private final boolean isStatic;
+
+        MethodHandleMethodAccessor(MethodHandle target, Class<?> declaringClass,
+                                   Class<?>[] ptypes, boolean isStatic) {
+            this.target = target;
+            this.declaringClass = declaringClass;
+            this.ptypes = ptypes;
+            this.isStatic = isStatic;
+        }
+
+        public Object invoke(Object obj, Object[] args)
+            throws IllegalArgumentException, InvocationTargetException
+        {
+            if (!isStatic) {
+                if (obj == null)
+                    throw new NullPointerException();
+                if (!declaringClass.isInstance(obj))
+                    throw new IllegalArgumentException(
+                        "object is not an instance of declaring class");
+            }
+            args = checkArguments(ptypes, args);
+            try {
+                return (Object) target.invokeExact(obj, args);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    /**
+     * Invokes a constructor through a handle of type (Object[])Object.
+     */
+    private static final class MethodHandleConstructorAccessor
+        implements ConstructorAccessor
+    {
+        private final MethodHandle target;
+        private final Class<?>[] ptypes;
+
+        MethodHandleConstructorAccessor(MethodHandle target, Class<?>[] ptypes) {
+            this.target = target;
+            this.ptypes = ptypes;
+        }
+
+        public Object newInstance(Object[] args)
+            throws InstantiationException, IllegalArgumentException,
+                   InvocationTargetException
+        {
+            args = checkArguments(ptypes, args);
+            try {
+                return (Object) target.invokeExact(args);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+}
@@ -25,15 +25,22 @@
 
 package java.net;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Random;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.io.ObjectStreamException;
 import java.io.ObjectStreamField;
 import java.io.IOException;
@@ -177,6 +184,33 @@ import sun.net.spi.nameservice.*;
  * </dl>
  * </blockquote>
  *
+ * <p> Cache hits do not take a lock, and concurrent lookups of the same host
+ * name share a single query to the name service.  Two system properties
+ * reduce the latency seen when entries expire:
+ *
+ * <blockquote>
+ * <dl>
+ * <dt><b>sun.net.inetaddr.refreshAhead</b> (default: 10)</dt>
+ * <dd>A successful lookup that is used again once less than this percentage
+ * of its time-to-live remains is refreshed in the background, so that hot
+ * entries are replaced before they expire.
+ * A value of 0 disables refreshing ahead of expiry.
+ * </dd>
+ * <dt><b>sun.net.inetaddr.stale.ttl</b> (default: 0)</dt>
+ * <dd>The number of seconds for which an expired successful lookup is still
+ * returned while it is refreshed in the background.  An unsuccessful
+ * refresh does not replace the expired entry.
+ * A value of 0 indicates that expired entries are never returned.
+ * </dd>
+ * </dl>
+ * </blockquote>
+ *
+ * <p> Host names may also be resolved without blocking the calling thread
+ * with {@link #getAllByNameAsync getAllByNameAsync}.  When the system
+ * property {@code sun.net.inetaddr.mxbean} is {@code true}, cache and lookup
+ * statistics are published as a {@code sun.net.InetAddressCacheMXBean} under
+ * the name {@code java.net:type=InetAddressCache}.
+ *
  * @author  Chris Warth
  * @see     java.net.InetAddress#getByAddress(byte[])
  * @see     java.net.InetAddress#getByAddress(java.lang.String, byte[])
@@ -728,18 +762,47 @@ class InetAddress implements java.io.Serializable {
 
     /*
      * Cached addresses - our own litle nis, not!
+     *
+     * Successful and unsuccessful lookups share one concurrent map keyed
+     * by the lower-cased host name, so that a cache hit takes no lock.
      */
-    private static Cache addressCache = new Cache(Cache.Type.Positive);
+    private static final ConcurrentHashMap<String, CacheEntry> addressCache =
+        new ConcurrentHashMap<>();
 
-    private static Cache negativeCache = new Cache(Cache.Type.Negative);
-
-    private static boolean addressCacheInit = false;
+    private static volatile boolean addressCacheInit = false;
 
     static InetAddress[]    unknown_array; // put THIS in cache
 
     static InetAddressImpl  impl;
 
-    private static final HashMap<String, Void> lookupTable = new HashMap<>();
+    /*
+     * Lookups in progress, keyed by host name.  A thread that needs a host
+     * that is already being looked up waits for that lookup to complete
+     * instead of querying the name service itself.
+     */
+    private static final ConcurrentHashMap<String, CompletableFuture<InetAddress[]>>
+        lookupTable = new ConcurrentHashMap<>();
+
+    /*
+     * Percentage of an entry's time-to-live remaining below which a hit
+     * refreshes the entry in the background; 0 disables refresh-ahead.
+     */
+    private static final int refreshAhead = AccessController.doPrivileged(
+        new GetIntegerAction("sun.net.inetaddr.refreshAhead", 10));
+
+    /*
+     * Milliseconds after expiry during which an expired successful lookup
+     * is still returned while it is refreshed; 0 disables stale hits.
+     */
+    private static final long staleTTL = 1000L * AccessController.doPrivileged(
+        new GetIntegerAction("sun.net.inetaddr.stale.ttl", 0));
+
+    /*
+     * Expired entries are swept from the cache once every this many puts.
+     */
+    private static final int SWEEP_INTERVAL = 64;
+
+    private static final AtomicInteger putCount = new AtomicInteger();
 
     /**
      * Represents a cache entry
@@ -749,127 +812,117 @@ class InetAddress implements java.io.Serializable {
         CacheEntry(InetAddress[] addresses, long expiration) {
             this.addresses = addresses;
             this.expiration = expiration;
+            this.created = System.currentTimeMillis();
         }
 
-        InetAddress[] addresses;
-        long expiration;
+        final InetAddress[] addresses;
+        final long expiration;
+        final long created;
+
+        // number of hits; updated racily as it only decides which
+        // entries are hot enough to refresh ahead of expiry
+        int hits;
     }
 
     /**
-     * A cache that manages entries based on a policy specified
-     * at creation time.
+     * Cache and lookup statistics.
      */
-    static final class Cache {
-        private LinkedHashMap<String, CacheEntry> cache;
-        private Type type;
-
-        enum Type {Positive, Negative};
-
-        /**
-         * Create cache
-         */
-        public Cache(Type type) {
-            this.type = type;
-            cache = new LinkedHashMap<String, CacheEntry>();
+    static final class CacheStats implements sun.net.InetAddressCacheMXBean {
+        final LongAdder hits = new LongAdder();
+        final LongAdder staleHits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder refreshes = new LongAdder();
+        final LongAdder lookups = new LongAdder();
+        final LongAdder failedLookups = new LongAdder();
+        final LongAdder lookupNanos = new LongAdder();
+
+        public long getHitCount() {
+            return hits.sum();
         }
 
-        private int getPolicy() {
-            if (type == Type.Positive) {
-                return InetAddressCachePolicy.get();
-            } else {
-                return InetAddressCachePolicy.getNegative();
-            }
+        public long getStaleHitCount() {
+            return staleHits.sum();
         }
 
-        /**
-         * Add an entry to the cache. If there's already an
-         * entry then for this host then the entry will be
-         * replaced.
-         */
-        public Cache put(String host, InetAddress[] addresses) {
-            int policy = getPolicy();
-            if (policy == InetAddressCachePolicy.NEVER) {
-                return this;
-            }
+        public long getMissCount() {
+            return misses.sum();
+        }
 
-            // purge any expired entries
+        public long getRefreshCount() {
+            return refreshes.sum();
+        }
 
-            if (policy != InetAddressCachePolicy.FOREVER) {
+        public long getLookupCount() {
+            return lookups.sum();
+        }
 
-                // As we iterate in insertion order we can
-                // terminate when a non-expired entry is found.
-                LinkedList<String> expired = new LinkedList<>();
-                long now = System.currentTimeMillis();
-                for (String key : cache.keySet()) {
-                    CacheEntry entry = cache.get(key);
+        public long getFailedLookupCount() {
+            return failedLookups.sum();
+        }
 
-                    if (entry.expiration >= 0 && entry.expiration < now) {
-                        expired.add(key);
-                    } else {
-                        break;
-                    }
-                }
+        public long getTotalLookupTime() {
+            return TimeUnit.NANOSECONDS.toMillis(lookupNanos.sum());
+        }
 
-                for (String key : expired) {
-                    cache.remove(key);
-                }
-            }
+        public int getCacheSize() {
+            return addressCache.size();
+        }
 
-            // create new entry and add it to the cache
-            // -- as a HashMap replaces existing entries we
-            //    don't need to explicitly check if there is
-            //    already an entry for this host.
-            long expiration;
-            if (policy == InetAddressCachePolicy.FOREVER) {
-                expiration = -1;
-            } else {
-                expiration = System.currentTimeMillis() + (policy * 1000);
-            }
-            CacheEntry entry = new CacheEntry(addresses, expiration);
-            cache.put(host, entry);
-            return this;
+        public int getLookupsInProgress() {
+            return lookupTable.size();
         }
 
-        /**
-         * Query the cache for the specific host. If found then
-         * return its CacheEntry, or null if not found.
-         */
-        public CacheEntry get(String host) {
-            int policy = getPolicy();
-            if (policy == InetAddressCachePolicy.NEVER) {
-                return null;
-            }
-            CacheEntry entry = cache.get(host);
-
-            // check if entry has expired
-            if (entry != null && policy != InetAddressCachePolicy.FOREVER) {
-                if (entry.expiration >= 0 &&
-                    entry.expiration < System.currentTimeMillis()) {
-                    cache.remove(host);
-                    entry = null;
-                }
+        public javax.management.ObjectName getObjectName() {
+            try {
+                return new javax.management.ObjectName(
+                    "java.net:type=InetAddressCache");
+            } catch (javax.management.MalformedObjectNameException e) {
+                throw new InternalError(e);
             }
-
-            return entry;
         }
     }
 
+    static final CacheStats cacheStats = new CacheStats();
+
     /*
      * Initialize cache and insert anyLocalAddress into the
      * unknown array with no expiry.
      */
     private static void cacheInitIfNeeded() {
-        assert Thread.holdsLock(addressCache);
         if (addressCacheInit) {
             return;
         }
-        unknown_array = new InetAddress[1];
-        unknown_array[0] = impl.anyLocalAddress();
+        synchronized (addressCache) {
+            if (addressCacheInit) {
+                return;
+            }
+            unknown_array = new InetAddress[1];
+            unknown_array[0] = impl.anyLocalAddress();
 
-        addressCache.put(impl.anyLocalAddress().getHostName(),
-                         unknown_array);
+            addressCache.put(impl.anyLocalAddress().getHostName(),
+                             new CacheEntry(unknown_array, -1));
 
-        addressCacheInit = true;
+            addressCacheInit = true;
+        }
+        if (AccessController.doPrivileged(
+                new GetBooleanAction("sun.net.inetaddr.mxbean"))) {
+            registerCacheStats();
+        }
+    }
+
+    private static void registerCacheStats() {
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            public Void run() {
+                try {
+                    java.lang.management.ManagementFactory
+                        .getPlatformMBeanServer()
+                        .registerMBean(cacheStats, cacheStats.getObjectName());
+                } catch (Exception e) {
+                    // statistics are optional
+                }
+                return null;
+            }
+        });
     }
 
     /*
@@ -879,12 +932,33 @@ class InetAddress implements java.io.Serializable {
                                        InetAddress[] addresses,
                                        boolean success) {
         hostname = hostname.toLowerCase();
-        synchronized (addressCache) {
-            cacheInitIfNeeded();
-            if (success) {
-                addressCache.put(hostname, addresses);
-            } else {
-                negativeCache.put(hostname, addresses);
+        cacheInitIfNeeded();
+        int policy = success ? InetAddressCachePolicy.get()
+                             : InetAddressCachePolicy.getNegative();
+        if (policy == InetAddressCachePolicy.NEVER) {
+            return;
+        }
+        long expiration;
+        if (policy == InetAddressCachePolicy.FOREVER) {
+            expiration = -1;
+        } else {
+            expiration = System.currentTimeMillis() + (policy * 1000);
+        }
+        addressCache.put(hostname, new CacheEntry(addresses, expiration));
+
+        if (putCount.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            // purge expired entries, keeping successful lookups that may
+            // still be returned while they are refreshed
+            long now = System.currentTimeMillis();
+            Iterator<CacheEntry> it = addressCache.values().iterator();
+            while (it.hasNext()) {
+                CacheEntry entry = it.next();
+                if (entry.expiration >= 0) {
+                    long stale = (entry.addresses == unknown_array) ? 0 : staleTTL;
+                    if (entry.expiration + stale < now) {
+                        it.remove();
+                    }
+                }
             }
         }
     }
@@ -895,24 +969,121 @@ class InetAddress implements java.io.Serializable {
      */
     private static InetAddress[] getCachedAddresses(String hostname) {
         hostname = hostname.toLowerCase();
+        cacheInitIfNeeded();
 
-        // search both positive & negative caches
+        CacheEntry entry = addressCache.get(hostname);
+        if (entry == null) {
+            cacheStats.misses.increment();
+            return null;
+        }
 
-        synchronized (addressCache) {
-            cacheInitIfNeeded();
+        boolean success = entry.addresses != unknown_array;
+        int policy = success ? InetAddressCachePolicy.get()
+                             : InetAddressCachePolicy.getNegative();
+        if (policy == InetAddressCachePolicy.NEVER) {
+            addressCache.remove(hostname, entry);
+            cacheStats.misses.increment();
+            return null;
+        }
 
-            CacheEntry entry = addressCache.get(hostname);
-            if (entry == null) {
-                entry = negativeCache.get(hostname);
+        // check if entry has expired, or is about to
+        if (entry.expiration >= 0 && policy != InetAddressCachePolicy.FOREVER) {
+            long now = System.currentTimeMillis();
+            if (entry.expiration < now) {
+                if (success && now - entry.expiration <= staleTTL) {
+                    refreshAsync(hostname);
+                    cacheStats.staleHits.increment();
+                    return entry.addresses;
+                }
+                addressCache.remove(hostname, entry);
+                cacheStats.misses.increment();
+                return null;
             }
-
-            if (entry != null) {
-                return entry.addresses;
+            if (success && refreshAhead > 0 && ++entry.hits > 1
+                && (entry.expiration - now) * 100 <
+                   (entry.expiration - entry.created) * refreshAhead) {
+                refreshAsync(hostname);
             }
         }
 
-        // not found
-        return null;
+        cacheStats.hits.increment();
+        return entry.addresses;
+    }
+
+    /**
+     * Executes lookups on behalf of {@link #getAllByNameAsync} and of
+     * entries refreshed in the background.
+     */
+    private static final class Resolver {
+        static final ThreadPoolExecutor executor;
+
+        static {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory factory = new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    return AccessController.doPrivileged(
+                        new PrivilegedAction<Thread>() {
+                            public Thread run() {
+                                Thread t = new Thread(r, "InetAddress-resolver-"
+                                    + threadNumber.incrementAndGet());
+                                t.setDaemon(true);
+                                t.setContextClassLoader(null);
+                                return t;
+                            }
+                        });
+                }
+            };
+            int threads = AccessController.doPrivileged(
+                new GetIntegerAction("sun.net.inetaddr.resolverThreads",
+                    Math.max(4, Runtime.getRuntime().availableProcessors())));
+            executor = new ThreadPoolExecutor(threads, threads,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                factory);
+            executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /*
+     * Looks up the given host on a resolver thread unless it is already
+     * being looked up, and returns the lookup in progress.
+     */
+    private static CompletableFuture<InetAddress[]> lookupAsync(
+        final String host, final boolean refresh)
+    {
+        final CompletableFuture<InetAddress[]> lookup = new CompletableFuture<>();
+        CompletableFuture<InetAddress[]> prev = lookupTable.putIfAbsent(host, lookup);
+        if (prev != null) {
+            return prev;
+        }
+        if (refresh) {
+            cacheStats.refreshes.increment();
+        }
+        try {
+            Resolver.executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        lookup.complete(lookupAndCache(host, null, !refresh));
+                    } catch (Throwable t) {
+                        lookup.completeExceptionally(t);
+                    } finally {
+                        lookupTable.remove(host, lookup);
+                    }
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            lookupTable.remove(host, lookup);
+            lookup.completeExceptionally(e);
+        }
+        return lookup;
+    }
+
+    /*
+     * Refreshes the cache entry of the given host in the background.
+     */
+    private static void refreshAsync(String host) {
+        if (!lookupTable.containsKey(host)) {
+            lookupAsync(host, true);
+        }
     }
 
     private static NameService createNSProvider(String provider) {
@@ -1128,6 +1299,86 @@ class InetAddress implements java.io.Serializable {
 
     private static InetAddress[] getAllByName(String host, InetAddress reqAddr)
         throws UnknownHostException {
+        InetAddress[] ret = getAllByLiteral(host);
+        if (ret != null) {
+            return ret;
+        }
+        return getAllByName0(host, reqAddr, true);
+    }
+
+    /**
+     * Asynchronously resolves the given host name to an array of its IP
+     * addresses, based on the configured name service on the system.
+     *
+     * <p> The host name is interpreted as by {@link #getAllByName(String)
+     * getAllByName}.  If the host name is a literal IP address, is
+     * {@code null} or empty, or its addresses are cached, then the returned
+     * future is already complete.  Otherwise the name service is queried on
+     * a resolver thread and the calling thread does not block.  If the host
+     * is already being looked up, by this or any other method, then the
+     * returned future completes when that lookup completes.
+     *
+     * <p> If there is a security manager and {@code host} is not
+     * null and {@code host.length() } is not equal to zero, the
+     * security manager's {@code checkConnect} method is called by the
+     * calling thread with the hostname and {@code -1} as its arguments to
+     * see if the operation is allowed.
+     *
+     * @param      host   the name of the host, or {@code null}.
+     * @return     a future that completes with an array of all the IP
+     *             addresses for the given host name, or completes
+     *             exceptionally with an {@code UnknownHostException} if no
+     *             IP address for the {@code host} could be found.
+     *
+     * @exception  SecurityException  if a security manager exists and its
+     *               {@code checkConnect} method doesn't allow the operation.
+     *
+     * @see java.net.InetAddress#getAllByName(java.lang.String)
+     * @since 1.8
+     */
+    public static CompletableFuture<InetAddress[]> getAllByNameAsync(String host) {
+        CompletableFuture<InetAddress[]> result = new CompletableFuture<>();
+        try {
+            InetAddress[] ret = getAllByLiteral(host);
+            if (ret != null) {
+                result.complete(ret);
+                return result;
+            }
+        } catch (UnknownHostException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        SecurityManager security = System.getSecurityManager();
+        if (security != null) {
+            security.checkConnect(host, -1);
+        }
+
+        InetAddress[] addresses = getCachedAddresses(host);
+        if (addresses == unknown_array) {
+            result.completeExceptionally(new UnknownHostException(host));
+            return result;
+        }
+        if (addresses != null) {
+            result.complete(addresses.clone());
+            return result;
+        }
+
+        // give each caller its own copy of the shared result
+        return lookupAsync(host.toLowerCase(), false).thenApply(
+            new Function<InetAddress[], InetAddress[]>() {
+                public InetAddress[] apply(InetAddress[] a) {
+                    return a.clone();
+                }
+            });
+    }
+
+    /*
+     * Returns the addresses of a null or empty host, or of a literal IP
+     * address, or null if the host is a host name that has to be looked up.
+     */
+    private static InetAddress[] getAllByLiteral(String host)
+        throws UnknownHostException {
 
         if (host == null || host.length() == 0) {
             InetAddress[] ret = new InetAddress[1];
@@ -1189,7 +1440,7 @@ class InetAddress implements java.io.Serializable {
             // We were expecting an IPv6 Litteral, but got something else
             throw new UnknownHostException("["+host+"]");
         }
-        return getAllByName0(host, reqAddr, true);
+        return null;
     }
 
     /**
@@ -1285,137 +1536,141 @@ class InetAddress implements java.io.Serializable {
     private static InetAddress[] getAddressesFromNameService(String host, InetAddress reqAddr)
         throws UnknownHostException
     {
-        InetAddress[] addresses = null;
-        boolean success = false;
-        UnknownHostException ex = null;
+        String key = host.toLowerCase();
 
         // Check whether the host is in the lookupTable.
-        // 1) If the host isn't in the lookupTable when
-        //    checkLookupTable() is called, checkLookupTable()
-        //    would add the host in the lookupTable and
-        //    return null. So we will do the lookup.
-        // 2) If the host is in the lookupTable when
-        //    checkLookupTable() is called, the current thread
-        //    would be blocked until the host is removed
-        //    from the lookupTable. Then this thread
-        //    should try to look up the addressCache.
-        //     i) if it found the addresses in the
-        //        addressCache, checkLookupTable()  would
-        //        return the addresses.
+        // 1) If the host isn't in the lookupTable, this thread adds
+        //    its own lookup to the lookupTable and does the lookup.
+        // 2) If the host is in the lookupTable, another thread is
+        //    looking up the host and this thread waits for it to
+        //    finish, then tries to look up the addressCache.
+        //     i) if it found the addresses in the addressCache,
+        //        it returns them.
         //     ii) if it didn't find the addresses in the
-        //         addressCache for any reason,
-        //         it should add the host in the
-        //         lookupTable and return null so the
-        //         following code would do  a lookup itself.
-        if ((addresses = checkLookupTable(host)) == null) {
-            try {
+        //         addressCache for any reason, it tries again
+        //         to do the lookup itself.
+        for (;;) {
+            CompletableFuture<InetAddress[]> lookup = new CompletableFuture<>();
+            CompletableFuture<InetAddress[]> prev = lookupTable.putIfAbsent(key, lookup);
+            if (prev == null) {
                 // This is the first thread which looks up the addresses
                 // this host or the cache entry for this host has been
                 // expired so this thread should do the lookup.
-                for (NameService nameService : nameServices) {
-                    try {
-                        /*
-                         * Do not put the call to lookup() inside the
-                         * constructor.  if you do you will still be
-                         * allocating space when the lookup fails.
-                         */
-
-                        addresses = nameService.lookupAllHostAddr(host);
-                        success = true;
-                        break;
-                    } catch (UnknownHostException uhe) {
-                        if (host.equalsIgnoreCase("localhost")) {
-                            InetAddress[] local = new InetAddress[] { impl.loopbackAddress() };
-                            addresses = local;
-                            success = true;
-                            break;
-                        }
-                        else {
-                            addresses = unknown_array;
-                            success = false;
-                            ex = uhe;
-                        }
-                    }
+                try {
+                    InetAddress[] addresses = lookupAndCache(host, reqAddr, true);
+                    lookup.complete(addresses);
+                    return addresses;
+                } catch (UnknownHostException | RuntimeException | Error e) {
+                    lookup.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    // Delete host from the lookupTable, releasing all
+                    // threads waiting for this lookup.
+                    lookupTable.remove(key, lookup);
                 }
+            }
 
-                // More to do?
-                if (reqAddr != null && addresses.length > 1 && !addresses[0].equals(reqAddr)) {
-                    // Find it?
-                    int i = 1;
-                    for (; i < addresses.length; i++) {
-                        if (addresses[i].equals(reqAddr)) {
-                            break;
-                        }
-                    }
-                    // Rotate
-                    if (i < addresses.length) {
-                        InetAddress tmp, tmp2 = reqAddr;
-                        for (int j = 0; j < i; j++) {
-                            tmp = addresses[j];
-                            addresses[j] = tmp2;
-                            tmp2 = tmp;
-                        }
-                        addresses[i] = tmp2;
-                    }
+            // The other thread has finished looking up the addresses of
+            // the host when the join returns, whatever its outcome.
+            boolean interrupted = false;
+            for (;;) {
+                try {
+                    prev.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (java.util.concurrent.ExecutionException |
+                         java.util.concurrent.CancellationException e) {
+                    break;
                 }
-                // Cache the address.
-                cacheAddresses(host, addresses, success);
-
-                if (!success && ex != null)
-                    throw ex;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
 
-            } finally {
-                // Delete host from the lookupTable and notify
-                // all threads waiting on the lookupTable monitor.
-                updateLookupTable(host);
+            InetAddress[] addresses = getCachedAddresses(host);
+            if (addresses != null) {
+                return addresses;
             }
         }
-
-        return addresses;
     }
 
+    /*
+     * Queries the name services for the given host and caches the result.
+     * A failure is only cached if cacheFailure is true, so that a failed
+     * background refresh does not replace an entry that may be stale.
+     */
+    private static InetAddress[] lookupAndCache(String host, InetAddress reqAddr,
+                                                boolean cacheFailure)
+        throws UnknownHostException
+    {
+        InetAddress[] addresses = null;
+        boolean success = false;
+        UnknownHostException ex = null;
 
-    private static InetAddress[] checkLookupTable(String host) {
-        synchronized (lookupTable) {
-            // If the host isn't in the lookupTable, add it in the
-            // lookuptable and return null. The caller should do
-            // the lookup.
-            if (lookupTable.containsKey(host) == false) {
-                lookupTable.put(host, null);
-                return null;
-            }
+        long start = System.nanoTime();
+        for (NameService nameService : nameServices) {
+            try {
+                /*
+                 * Do not put the call to lookup() inside the
+                 * constructor.  if you do you will still be
+                 * allocating space when the lookup fails.
+                 */
 
-            // If the host is in the lookupTable, it means that another
-            // thread is trying to look up the addresses of this host.
-            // This thread should wait.
-            while (lookupTable.containsKey(host)) {
-                try {
-                    lookupTable.wait();
-                } catch (InterruptedException e) {
+                addresses = nameService.lookupAllHostAddr(host);
+                success = true;
+                break;
+            } catch (UnknownHostException uhe) {
+                if (host.equalsIgnoreCase("localhost")) {
+                    InetAddress[] local = new InetAddress[] { impl.loopbackAddress() };
+                    addresses = local;
+                    success = true;
+                    break;
+                }
+                else {
+                    addresses = unknown_array;
+                    success = false;
+                    ex = uhe;
                 }
             }
         }
-
-        // The other thread has finished looking up the addresses of
-        // the host. This thread should retry to get the addresses
-        // from the addressCache. If it doesn't get the addresses from
-        // the cache, it will try to look up the addresses itself.
-        InetAddress[] addresses = getCachedAddresses(host);
-        if (addresses == null) {
-            synchronized (lookupTable) {
-                lookupTable.put(host, null);
-                return null;
+        cacheStats.lookups.increment();
+        cacheStats.lookupNanos.add(System.nanoTime() - start);
+
+        // More to do?
+        if (reqAddr != null && addresses.length > 1 && !addresses[0].equals(reqAddr)) {
+            // Find it?
+            int i = 1;
+            for (; i < addresses.length; i++) {
+                if (addresses[i].equals(reqAddr)) {
+                    break;
+                }
+            }
+            // Rotate
+            if (i < addresses.length) {
+                InetAddress tmp, tmp2 = reqAddr;
+                for (int j = 0; j < i; j++) {
+                    tmp = addresses[j];
+                    addresses[j] = tmp2;
+                    tmp2 = tmp;
+                }
+                addresses[i] = tmp2;
             }
         }
 
-        return addresses;
-    }
+        // Cache the address.
+        if (success || cacheFailure) {
+            cacheAddresses(host, addresses, success);
+        }
 
-    private static void updateLookupTable(String host) {
-        synchronized (lookupTable) {
-            lookupTable.remove(host);
-            lookupTable.notifyAll();
+        if (!success) {
+            cacheStats.failedLookups.increment();
+            if (ex != null)
+                throw ex;
+            throw new UnknownHostException(host);
         }
+
+        return addresses;
     }
 
     /**
@@ -39,6 +39,7 @@ import java.security.PermissionCollection;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedExceptionAction;
 import java.security.SecureClassLoader;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -49,6 +50,7 @@ import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
+import sun.misc.ClassPathIndex;
 import sun.misc.Resource;
 import sun.misc.URLClassPath;
 import sun.net.www.ParseUtil;
@@ -77,6 +79,9 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
     /* The context to be used when loading classes and resources */
     private final AccessControlContext acc;
 
+    /* The lookup of the search path through the class path index, or null */
+    private final ClassPathIndex.Lookup index;
+
     /**
      * Constructs a new URLClassLoader for the given URLs. The URLs will be
      * searched in the order specified for classes and resources after first
@@ -105,6 +110,7 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
         }
         this.acc = AccessController.getContext();
         ucp = new URLClassPath(urls, acc);
+        index = ClassPathIndex.lookupFor(this, urls, acc);
     }
 
     URLClassLoader(URL[] urls, ClassLoader parent,
@@ -117,6 +123,7 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
         }
         this.acc = acc;
         ucp = new URLClassPath(urls, acc);
+        index = ClassPathIndex.lookupFor(this, urls, acc);
     }
 
     /**
@@ -149,6 +156,7 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
         }
         this.acc = AccessController.getContext();
         ucp = new URLClassPath(urls, acc);
+        index = ClassPathIndex.lookupFor(this, urls, acc);
     }
 
     URLClassLoader(URL[] urls, AccessControlContext acc) {
@@ -160,6 +168,7 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
         }
         this.acc = acc;
         ucp = new URLClassPath(urls, acc);
+        index = ClassPathIndex.lookupFor(this, urls, acc);
     }
 
     /**
@@ -193,6 +202,20 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
         }
         acc = AccessController.getContext();
         ucp = new URLClassPath(urls, factory, acc);
+        // Another factory may handle file URLs differently
+        index = isLauncherFactory(factory)
+            ? ClassPathIndex.lookupFor(this, urls, acc) : null;
+    }
+
+    /*
+     * Tells whether the given factory is the one the launcher gives the
+     * application and extension class loaders, which creates the same
+     * handlers as the default, so that those loaders use the index.
+     */
+    private static boolean isLauncherFactory(URLStreamHandlerFactory factory) {
+        Class<?> c = (factory != null) ? factory.getClass() : null;
+        return c != null && c.getClassLoader() == null
+            && c.getName().equals("sun.misc.Launcher$Factory");
     }
 
     /* A map (used as a set) to keep track of closeable local resources
@@ -289,6 +312,9 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
             security.checkPermission(new RuntimePermission("closeClassLoader"));
         }
         List<IOException> errors = ucp.closeLoaders();
+        if (index != null) {
+            errors.addAll(index.close());
+        }
 
         // now close any remaining streams.
 
@@ -330,6 +356,9 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
      */
     protected void addURL(URL url) {
         ucp.addURL(url);
+        if (index != null && url != null) {
+            index.addURL(url);
+        }
     }
 
     /**
@@ -362,7 +391,9 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
                 new PrivilegedExceptionAction<Class<?>>() {
                     public Class<?> run() throws ClassNotFoundException {
                         String path = name.replace('.', '/').concat(".class");
-                        Resource res = ucp.getResource(path, false);
+                        Resource res = (index != null && index.covers(path))
+                            ? index.getResource(path)
+                            : ucp.getResource(path, false);
                         if (res != null) {
                             try {
                                 return defineClass(name, res);
@@ -566,6 +597,9 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
         URL url = AccessController.doPrivileged(
             new PrivilegedAction<URL>() {
                 public URL run() {
+                    if (index != null && index.covers(name)) {
+                        return index.findResource(name);
+                    }
                     return ucp.findResource(name, true);
                 }
             }, acc);
@@ -585,7 +619,18 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
     public Enumeration<URL> findResources(final String name)
         throws IOException
     {
-        final Enumeration<URL> e = ucp.findResources(name, true);
+        final Enumeration<URL> e;
+        if (index != null && index.covers(name)) {
+            // through the jars the index has opened, not the class path's
+            e = Collections.enumeration(AccessController.doPrivileged(
+                new PrivilegedAction<List<URL>>() {
+                    public List<URL> run() {
+                        return index.findResources(name);
+                    }
+                }, acc));
+        } else {
+            e = ucp.findResources(name, true);
+        }
 
         return new Enumeration<URL>() {
             private URL url = null;
@@ -0,0 +1,1000 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.channels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A multi-reactor server for stream-oriented connecting sockets.
+ *
+ * <p> A reactor server owns a listening {@link ServerSocketChannel} and a
+ * fixed number of <i>reactor</i> threads, each of which runs its own {@link
+ * Selector}.  Only the first reactor selects on the listening channel, so
+ * that an incoming connection wakes up a single selector; the connections it
+ * accepts are handed off to the reactors in round-robin order.  Once handed
+ * off, a connection is served by the same reactor thread for its entire
+ * lifetime; no locking is required to read from it, decode frames, or drain
+ * its write queue.
+ *
+ * <p> A reactor server is created by means of a {@link Builder}, for example:
+ * <pre>
+ *     ReactorServer server = ReactorServer.builder()
+ *         .reactorThreads(4)
+ *         .frameDecoder(() -&gt; ReactorServer.FrameDecoder.lengthPrefixed(65536))
+ *         .handler((conn, frame) -&gt; conn.write(copyOf(frame)))
+ *         .bind(new InetSocketAddress(8080));
+ * </pre>
+ *
+ * <h2>Reading</h2>
+ *
+ * <p> Read buffers are pooled per reactor.  A connection borrows a buffer from
+ * its reactor's pool when its channel becomes readable, and returns it to the
+ * pool as soon as every byte read has been consumed by the connection's
+ * {@link FrameDecoder}.  A buffer is retained by the connection only while it
+ * holds a partial frame, so the memory used for reading is proportional to
+ * the number of connections with data in flight rather than to the number
+ * of open connections.  Frames handed to the {@link Handler#frameReceived
+ * frameReceived} method are views of the pooled buffer and are only valid
+ * until that method returns.
+ *
+ * <h2>Writing</h2>
+ *
+ * <p> Buffers passed to {@link Connection#write write} are queued without
+ * copying and are written to the channel with a single gathering {@link
+ * GatheringByteChannel#write(ByteBuffer[],int,int) write} per flush.  The
+ * connection owns a buffer from the time it is queued until it has been
+ * completely written.  When a write cannot complete the reactor registers
+ * interest in {@link SelectionKey#OP_WRITE OP_WRITE} and resumes the flush
+ * when the channel becomes writable again.
+ *
+ * <p> The number of queued bytes is bounded by a pair of <i>watermarks</i>.
+ * When the queued bytes reach the high watermark the connection becomes
+ * {@link Connection#isWritable unwritable} and its handler is notified; the
+ * connection becomes writable again, and the handler is notified again, once
+ * the queued bytes drop to the low watermark.  Producers are expected to
+ * stop writing while a connection is unwritable, which propagates
+ * back-pressure from slow peers to the code producing the data.
+ *
+ * <h2>Concurrency</h2>
+ *
+ * <p> The methods of a {@link Handler} and a {@link FrameDecoder} are only
+ * invoked by the reactor thread that owns the connection.  The methods of
+ * {@link Connection} may be invoked by any thread; when invoked by a thread
+ * other than the owning reactor the operation is handed to the reactor and
+ * the reactor's selector is woken up at most once for any number of pending
+ * operations.
+ *
+ * @since 1.8
+ */
+
+public final class ReactorServer implements Closeable {
+
+    /**
+     * Splits the bytes received on a connection into frames.
+     *
+     * <p> A frame decoder is created for each connection by the factory
+     * configured with {@link Builder#frameDecoder frameDecoder} and is only
+     * invoked by the reactor thread that owns the connection.
+     */
+    @FunctionalInterface
+    public interface FrameDecoder {
+
+        /**
+         * Decodes the next frame from the given buffer.
+         *
+         * <p> The buffer contains the bytes received but not yet consumed,
+         * between its position and its limit.  If the buffer contains a
+         * complete frame then this method advances the buffer's position
+         * past the frame and returns a buffer holding the frame's content,
+         * typically a slice of the given buffer.  Otherwise this method
+         * leaves the buffer's position unchanged and returns {@code null}.
+         *
+         * @param  in  The received bytes
+         *
+         * @return  The next frame, or {@code null} if the buffer does not
+         *          contain a complete frame
+         *
+         * @throws  IOException
+         *          If the received bytes are malformed; the connection is
+         *          closed
+         */
+        ByteBuffer decode(ByteBuffer in) throws IOException;
+
+        /**
+         * Returns a frame decoder that hands every received byte to the
+         * handler as soon as it is read.
+         *
+         * @return  A pass-through frame decoder
+         */
+        static FrameDecoder passThrough() {
+            return in -> {
+                if (!in.hasRemaining())
+                    return null;
+                ByteBuffer frame = in.slice();
+                in.position(in.limit());
+                return frame;
+            };
+        }
+
+        /**
+         * Returns a frame decoder for frames that are preceded by their
+         * length, encoded as a four-byte big-endian integer.  The length
+         * prefix is not part of the returned frame.
+         *
+         * @param  maxFrameLength  The largest frame length accepted
+         *
+         * @return  A length-prefixed frame decoder
+         *
+         * @throws  IllegalArgumentException
+         *          If {@code maxFrameLength} is negative
+         */
+        static FrameDecoder lengthPrefixed(int maxFrameLength) {
+            if (maxFrameLength < 0)
+                throw new IllegalArgumentException("Negative maxFrameLength");
+            return in -> {
+                int pos = in.position();
+                if (in.limit() - pos < 4)
+                    return null;
+                int len = in.getInt(pos);
+                if (len < 0 || len > maxFrameLength)
+                    throw new IOException("Invalid frame length: " + len);
+                if (in.limit() - pos - 4 < len)
+                    return null;
+                ByteBuffer frame = in.duplicate();
+                frame.limit(pos + 4 + len).position(pos + 4);
+                in.position(pos + 4 + len);
+                return frame.slice();
+            };
+        }
+    }
+
+    /**
+     * Receives the events of the connections accepted by a reactor server.
+     *
+     * <p> The methods of a handler are invoked by the reactor thread that
+     * owns the connection and should not block.  If a method throws an
+     * exception then the connection is closed and the exception is passed
+     * to {@link #closed closed}.
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * Invoked when a connection has been accepted.
+         *
+         * @param  connection  The connection
+         *
+         * @throws  IOException
+         *          If an I/O error occurs
+         */
+        default void connected(Connection connection) throws IOException { }
+
+        /**
+         * Invoked for each frame decoded from the bytes received on a
+         * connection.  The frame is only valid until this method returns.
+         *
+         * @param  connection  The connection
+         * @param  frame       The frame
+         *
+         * @throws  IOException
+         *          If an I/O error occurs
+         */
+        void frameReceived(Connection connection, ByteBuffer frame)
+            throws IOException;
+
+        /**
+         * Invoked when the connection's queued bytes cross one of the
+         * watermarks.
+         *
+         * @param  connection  The connection
+         * @param  writable    The new value of {@link Connection#isWritable}
+         */
+        default void writabilityChanged(Connection connection,
+                                        boolean writable) { }
+
+        /**
+         * Invoked once when the connection is closed.
+         *
+         * @param  connection  The connection
+         * @param  cause       The exception that caused the connection to be
+         *                     closed, or {@code null} if it was closed by
+         *                     the peer, by {@link Connection#close close}, or
+         *                     by closing the server
+         */
+        default void closed(Connection connection, Throwable cause) { }
+    }
+
+    /**
+     * A connection accepted by a reactor server.
+     */
+    public interface Connection extends Closeable {
+
+        /**
+         * Returns the remote address of this connection.
+         *
+         * @return  The remote address, or {@code null} if not known
+         */
+        SocketAddress getRemoteAddress();
+
+        /**
+         * Queues the remaining bytes of the given buffer for writing.
+         *
+         * <p> The buffer must not be modified until it has been completely
+         * written.  Bytes queued on a closed connection are discarded.
+         *
+         * @param  src  The buffer from which bytes are to be written
+         */
+        void write(ByteBuffer src);
+
+        /**
+         * Tells whether the bytes queued for writing are below the high
+         * watermark.
+         *
+         * @return  {@code true} if, and only if, more bytes may be written
+         *          without exceeding the high watermark
+         */
+        boolean isWritable();
+
+        /**
+         * Returns the number of bytes queued for writing.
+         *
+         * @return  The number of bytes queued but not yet written
+         */
+        long pendingBytes();
+
+        /**
+         * Tells whether this connection is open.
+         *
+         * @return  {@code true} if, and only if, this connection is open
+         */
+        boolean isOpen();
+
+        /**
+         * Attaches the given object to this connection.
+         *
+         * @param  ob  The object to be attached; may be {@code null}
+         *
+         * @return  The previously-attached object, if any, otherwise
+         *          {@code null}
+         */
+        Object attach(Object ob);
+
+        /**
+         * Retrieves the current attachment.
+         *
+         * @return  The object currently attached to this connection, or
+         *          {@code null} if there is no attachment
+         */
+        Object attachment();
+
+        /**
+         * Closes this connection.  Bytes that have been queued but not yet
+         * written are discarded.  If this connection is already closed then
+         * invoking this method has no effect.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * A builder of reactor servers.
+     *
+     * <p> A builder is not safe for use by multiple concurrent threads.
+     */
+    public static final class Builder {
+        private int reactorThreads = Runtime.getRuntime().availableProcessors();
+        private int bufferSize = 16 * 1024;
+        private int lowWaterMark = 32 * 1024;
+        private int highWaterMark = 64 * 1024;
+        private Supplier<? extends FrameDecoder> decoderFactory =
+            FrameDecoder::passThrough;
+        private Handler handler;
+        private ThreadFactory threadFactory;
+
+        Builder() { }
+
+        /**
+         * Sets the number of reactor threads.  The default is the number of
+         * available processors.
+         *
+         * @param  n  The number of reactor threads
+         *
+         * @return  This builder
+         *
+         * @throws  IllegalArgumentException
+         *          If {@code n} is not positive
+         */
+        public Builder reactorThreads(int n) {
+            if (n <= 0)
+                throw new IllegalArgumentException("Non-positive thread count");
+            reactorThreads = n;
+            return this;
+        }
+
+        /**
+         * Sets the capacity of the pooled read buffers.  A frame, including
+         * any header consumed by the frame decoder, must fit in one buffer.
+         * The default is 16384 bytes.
+         *
+         * @param  size  The buffer capacity in bytes
+         *
+         * @return  This builder
+         *
+         * @throws  IllegalArgumentException
+         *          If {@code size} is not positive
+         */
+        public Builder bufferSize(int size) {
+            if (size <= 0)
+                throw new IllegalArgumentException("Non-positive buffer size");
+            bufferSize = size;
+            return this;
+        }
+
+        /**
+         * Sets the watermarks that bound the bytes queued for writing on
+         * each connection.  The defaults are 32768 and 65536 bytes.
+         *
+         * @param  low   The low watermark
+         * @param  high  The high watermark
+         *
+         * @return  This builder
+         *
+         * @throws  IllegalArgumentException
+         *          If {@code low} is negative or greater than {@code high}
+         */
+        public Builder writeBufferWaterMark(int low, int high) {
+            if (low < 0 || low > high)
+                throw new IllegalArgumentException("Invalid watermarks");
+            lowWaterMark = low;
+            highWaterMark = high;
+            return this;
+        }
+
+        /**
+         * Sets the factory that creates the frame decoder of each
+         * connection.  The default creates {@link
+         * FrameDecoder#passThrough() pass-through} decoders.
+         *
+         * @param  factory  The frame decoder factory
+         *
+         * @return  This builder
+         */
+        public Builder frameDecoder(Supplier<? extends FrameDecoder> factory) {
+            decoderFactory = Objects.requireNonNull(factory);
+            return this;
+        }
+
+        /**
+         * Sets the handler that receives the events of every connection.
+         * A handler must be set before the server is bound.
+         *
+         * @param  handler  The handler
+         *
+         * @return  This builder
+         */
+        public Builder handler(Handler handler) {
+            this.handler = Objects.requireNonNull(handler);
+            return this;
+        }
+
+        /**
+         * Sets the factory used to create the reactor threads.  By default
+         * non-daemon threads are created.
+         *
+         * @param  factory  The thread factory
+         *
+         * @return  This builder
+         */
+        public Builder threadFactory(ThreadFactory factory) {
+            threadFactory = Objects.requireNonNull(factory);
+            return this;
+        }
+
+        /**
+         * Binds a new reactor server to the given local address and starts
+         * its reactor threads.
+         *
+         * @param  local    The address to bind the listening socket to, or
+         *                  {@code null} to bind to an automatically assigned
+         *                  socket address
+         *
+         * @return  A new reactor server
+         *
+         * @throws  IllegalStateException
+         *          If no handler has been set
+         *
+         * @throws  IOException
+         *          If an I/O error occurs
+         */
+        public ReactorServer bind(SocketAddress local) throws IOException {
+            return bind(local, 0);
+        }
+
+        /**
+         * Binds a new reactor server to the given local address and starts
+         * its reactor threads.
+         *
+         * @param  local    The address to bind the listening socket to, or
+         *                  {@code null} to bind to an automatically assigned
+         *                  socket address
+         * @param  backlog  The maximum number of pending connections
+         *
+         * @return  A new reactor server
+         *
+         * @throws  IllegalStateException
+         *          If no handler has been set
+         *
+         * @throws  IOException
+         *          If an I/O error occurs
+         */
+        public ReactorServer bind(SocketAddress local, int backlog)
+            throws IOException
+        {
+            if (handler == null)
+                throw new IllegalStateException("No handler");
+            ServerSocketChannel listener = ServerSocketChannel.open();
+            try {
+                listener.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                listener.bind(local, backlog);
+                listener.configureBlocking(false);
+                return new ReactorServer(this, listener);
+            } catch (IOException | RuntimeException | Error x) {
+                try {
+                    listener.close();
+                } catch (IOException y) {
+                    x.addSuppressed(y);
+                }
+                throw x;
+            }
+        }
+    }
+
+    /**
+     * Creates a new builder of reactor servers.
+     *
+     * @return  A new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static final AtomicInteger serverNumber = new AtomicInteger();
+
+    // maximum number of connections accepted per readiness event, so that
+    // the accepting reactor does not starve its own connections during an
+    // accept storm
+    private static final int MAX_ACCEPTS_PER_EVENT = 64;
+
+    // maximum number of buffers passed to a single gathering write
+    private static final int MAX_GATHER = 64;
+
+    private final ServerSocketChannel listener;
+    private final Handler handler;
+    private final Supplier<? extends FrameDecoder> decoderFactory;
+    private final int bufferSize;
+    private final int lowWaterMark;
+    private final int highWaterMark;
+    private final Reactor[] reactors;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private ReactorServer(Builder b, ServerSocketChannel listener)
+        throws IOException
+    {
+        this.listener = listener;
+        this.handler = b.handler;
+        this.decoderFactory = b.decoderFactory;
+        this.bufferSize = b.bufferSize;
+        this.lowWaterMark = b.lowWaterMark;
+        this.highWaterMark = b.highWaterMark;
+
+        int n = b.reactorThreads;
+        reactors = new Reactor[n];
+        try {
+            for (int i = 0; i < n; i++)
+                reactors[i] = new Reactor(Selector.open());
+        } catch (IOException x) {
+            for (Reactor r : reactors) {
+                if (r != null) {
+                    try {
+                        r.selector.close();
+                    } catch (IOException y) {
+                        x.addSuppressed(y);
+                    }
+                }
+            }
+            throw x;
+        }
+
+        int id = serverNumber.incrementAndGet();
+        for (int i = 0; i < n; i++) {
+            Thread t;
+            if (b.threadFactory != null) {
+                t = b.threadFactory.newThread(reactors[i]);
+            } else {
+                t = new Thread(reactors[i], "ReactorServer-" + id + "-reactor-" + i);
+            }
+            reactors[i].thread = t;
+            t.start();
+        }
+    }
+
+    /**
+     * Returns the socket address that the listening socket is bound to.
+     *
+     * @return  The local address
+     *
+     * @throws  ClosedChannelException
+     *          If this server is closed
+     * @throws  IOException
+     *          If an I/O error occurs
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return listener.getLocalAddress();
+    }
+
+    /**
+     * Tells whether this server is open.
+     *
+     * @return  {@code true} if, and only if, this server is open
+     */
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    /**
+     * Returns the number of connections currently open on this server.
+     *
+     * @return  The number of open connections
+     */
+    public int connectionCount() {
+        int count = 0;
+        for (Reactor r : reactors)
+            count += r.connections.get();
+        return count;
+    }
+
+    /**
+     * Closes this server.  The listening socket is closed immediately; each
+     * reactor closes the connections it owns, invoking their handler's
+     * {@link Handler#closed closed} method, and then terminates.  If this
+     * server is already closed then invoking this method has no effect.
+     *
+     * @throws  IOException
+     *          If an I/O error occurs closing the listening socket
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true))
+            return;
+        try {
+            listener.close();
+        } finally {
+            for (Reactor r : reactors)
+                r.selector.wakeup();
+        }
+    }
+
+    /**
+     * A reactor thread with its own selector, read buffer pool and task
+     * queue.  All fields other than the task queue and the wakeup flag are
+     * confined to the reactor thread.
+     */
+    private final class Reactor implements Runnable, Consumer<SelectionKey> {
+        final Selector selector;
+        final AtomicInteger connections = new AtomicInteger();
+        private final ConcurrentLinkedQueue<Runnable> tasks =
+            new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean wakenUp = new AtomicBoolean();
+        private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+        private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+        // accepted channels handed off to this reactor by the accepting one
+        private final ConcurrentLinkedQueue<SocketChannel> handoffs =
+            new ConcurrentLinkedQueue<>();
+        // index of the reactor that is handed the next accepted connection,
+        // confined to the accepting reactor
+        private int nextReactor;
+        private volatile boolean terminated;
+        volatile Thread thread;
+
+        Reactor(Selector selector) {
+            this.selector = selector;
+        }
+
+        boolean inReactor() {
+            return Thread.currentThread() == thread;
+        }
+
+        /**
+         * Runs the given task on this reactor's thread.
+         */
+        void execute(Runnable task) {
+            tasks.offer(task);
+            if (!inReactor() && wakenUp.compareAndSet(false, true))
+                selector.wakeup();
+        }
+
+        ByteBuffer acquireBuffer() {
+            ByteBuffer buf = bufferPool.pollFirst();
+            return (buf != null) ? buf : ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        void releaseBuffer(ByteBuffer buf) {
+            buf.clear();
+            bufferPool.offerFirst(buf);
+        }
+
+        /**
+         * Hands off an accepted channel to this reactor.  Invoked by the
+         * accepting reactor.
+         */
+        void handoff(SocketChannel ch) {
+            handoffs.offer(ch);
+            if (terminated) {
+                // the reactor has terminated and may not have seen the
+                // channel; whichever thread polls it first closes it
+                closeHandoffs();
+            } else if (wakenUp.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        private void closeHandoffs() {
+            SocketChannel ch;
+            while ((ch = handoffs.poll()) != null) {
+                try {
+                    ch.close();
+                } catch (IOException ignore) { }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                // one reactor accepts, to avoid waking up every selector
+                // for each incoming connection
+                if (this == reactors[0])
+                    listener.register(selector, SelectionKey.OP_ACCEPT);
+                while (!closed.get()) {
+                    // a task queued after this point either sees the flag
+                    // cleared and wakes up the selector, or is seen below
+                    wakenUp.set(false);
+                    if (tasks.isEmpty() && handoffs.isEmpty()) {
+                        selector.select(this);
+                    } else {
+                        selector.selectNow(this);
+                    }
+                    runTasks();
+                }
+            } catch (ClosedChannelException | ClosedSelectorException x) {
+                // server closed while starting or selecting
+            } catch (IOException x) {
+                // selector failed; the connections it owns cannot be served
+            } finally {
+                shutdown();
+            }
+        }
+
+        private void runTasks() {
+            SocketChannel ch;
+            while ((ch = handoffs.poll()) != null)
+                register(ch);
+            Runnable task;
+            while ((task = tasks.poll()) != null)
+                task.run();
+        }
+
+        /**
+         * Performed for each ready key by the selection operation.
+         */
+        @Override
+        public void accept(SelectionKey key) {
+            Object att = key.attachment();
+            if (att == null) {
+                if (key.isValid() && key.isAcceptable())
+                    acceptConnections();
+                return;
+            }
+            Conn conn = (Conn) att;
+            try {
+                if (key.isValid() && key.isWritable())
+                    conn.flush();
+                if (key.isValid() && key.isReadable())
+                    conn.read();
+            } catch (Throwable x) {
+                conn.closeInReactor(x);
+            }
+        }
+
+        private void acceptConnections() {
+            for (int i = 0; i < MAX_ACCEPTS_PER_EVENT; i++) {
+                SocketChannel ch;
+                try {
+                    if ((ch = listener.accept()) == null)
+                        return;
+                } catch (IOException x) {
+                    return;
+                }
+                Reactor r = reactors[nextReactor];
+                if (++nextReactor == reactors.length)
+                    nextReactor = 0;
+                if (r == this) {
+                    register(ch);
+                } else {
+                    r.handoff(ch);
+                }
+            }
+        }
+
+        /**
+         * Registers an accepted channel with this reactor's selector.
+         */
+        private void register(SocketChannel ch) {
+            Conn conn = null;
+            try {
+                ch.configureBlocking(false);
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                conn = new Conn(this, ch, decoderFactory.get());
+                conn.key = ch.register(selector, SelectionKey.OP_READ, conn);
+                connections.incrementAndGet();
+                handler.connected(conn);
+            } catch (Throwable x) {
+                if (conn != null && conn.key != null) {
+                    conn.closeInReactor(x);
+                } else {
+                    try {
+                        ch.close();
+                    } catch (IOException ignore) { }
+                }
+            }
+        }
+
+        private void shutdown() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    Object att = key.attachment();
+                    if (att != null)
+                        ((Conn) att).closeInReactor(null);
+                }
+            } catch (ClosedSelectorException ignore) {
+            } finally {
+                try {
+                    selector.close();
+                } catch (IOException ignore) { }
+                // channels handed off from now on are closed by the
+                // accepting reactor
+                terminated = true;
+                closeHandoffs();
+                tasks.clear();
+                bufferPool.clear();
+            }
+        }
+    }
+
+    /**
+     * A connection owned by a reactor.  The read buffer, decoder and write
+     * queue are confined to the reactor thread.
+     */
+    private final class Conn implements Connection {
+        private final Reactor reactor;
+        private final SocketChannel ch;
+        private final FrameDecoder decoder;
+        private final SocketAddress remote;
+        private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+        private final AtomicLong pending = new AtomicLong();
+        SelectionKey key;
+        private ByteBuffer readBuf;
+        private volatile boolean open = true;
+        private volatile boolean writable = true;
+        private volatile Object attachment;
+
+        Conn(Reactor reactor, SocketChannel ch, FrameDecoder decoder) {
+            this.reactor = reactor;
+            this.ch = ch;
+            this.decoder = Objects.requireNonNull(decoder);
+            SocketAddress sa;
+            try {
+                sa = ch.getRemoteAddress();
+            } catch (IOException x) {
+                sa = null;
+            }
+            this.remote = sa;
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return remote;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return writable;
+        }
+
+        @Override
+        public long pendingBytes() {
+            return pending.get();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public Object attach(Object ob) {
+            Object prev = attachment;
+            attachment = ob;
+            return prev;
+        }
+
+        @Override
+        public Object attachment() {
+            return attachment;
+        }
+
+        @Override
+        public void write(ByteBuffer src) {
+            Objects.requireNonNull(src);
+            if (!open || !src.hasRemaining())
+                return;
+            pending.addAndGet(src.remaining());
+            if (reactor.inReactor()) {
+                enqueue(src);
+            } else {
+                reactor.execute(() -> enqueue(src));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (reactor.inReactor()) {
+                closeInReactor(null);
+            } else {
+                reactor.execute(() -> closeInReactor(null));
+            }
+        }
+
+        private void enqueue(ByteBuffer src) {
+            if (!open)
+                return;
+            try {
+                boolean wasEmpty = writeQueue.isEmpty();
+                writeQueue.offerLast(src);
+                if (writable && pending.get() >= highWaterMark) {
+                    writable = false;
+                    handler.writabilityChanged(this, false);
+                }
+                // if OP_WRITE is registered the flush resumes when the
+                // channel becomes writable; otherwise write immediately
+                if (wasEmpty)
+                    flush();
+            } catch (Throwable x) {
+                closeInReactor(x);
+            }
+        }
+
+        void flush() throws IOException {
+            ByteBuffer[] srcs = reactor.gather;
+            while (open && !writeQueue.isEmpty()) {
+                int n = 0;
+                long requested = 0;
+                for (ByteBuffer buf : writeQueue) {
+                    srcs[n++] = buf;
+                    requested += buf.remaining();
+                    if (n == srcs.length)
+                        break;
+                }
+                long written;
+                try {
+                    written = ch.write(srcs, 0, n);
+                } finally {
+                    Arrays.fill(srcs, 0, n, null);
+                }
+                pending.addAndGet(-written);
+                ByteBuffer head;
+                while ((head = writeQueue.peekFirst()) != null
+                       && !head.hasRemaining())
+                    writeQueue.pollFirst();
+                if (written < requested) {
+                    // socket send buffer is full
+                    key.interestOpsOr(SelectionKey.OP_WRITE);
+                    break;
+                }
+            }
+            if (writeQueue.isEmpty() && key.isValid())
+                key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            if (!writable && pending.get() <= lowWaterMark) {
+                writable = true;
+                handler.writabilityChanged(this, true);
+            }
+        }
+
+        void read() throws IOException {
+            ByteBuffer buf = readBuf;
+            if (buf == null)
+                buf = readBuf = reactor.acquireBuffer();
+            int n = ch.read(buf);
+            if (n < 0) {
+                closeInReactor(null);
+                return;
+            }
+            buf.flip();
+            ByteBuffer frame;
+            while (open && (frame = decoder.decode(buf)) != null)
+                handler.frameReceived(this, frame);
+            if (!open)
+                return;
+            if (!buf.hasRemaining()) {
+                readBuf = null;
+                reactor.releaseBuffer(buf);
+            } else if (buf.position() == 0 && buf.limit() == buf.capacity()) {
+                throw new IOException("Frame exceeds buffer size");
+            } else {
+                buf.compact();
+            }
+        }
+
+        void closeInReactor(Throwable cause) {
+            if (!open)
+                return;
+            open = false;
+            reactor.connections.decrementAndGet();
+            if (key != null)
+                key.cancel();
+            try {
+                ch.close();
+            } catch (IOException x) {
+                if (cause != null)
+                    cause.addSuppressed(x);
+            }
+            if (readBuf != null) {
+                reactor.releaseBuffer(readBuf);
+                readBuf = null;
+            }
+            writeQueue.clear();
+            pending.set(0);
+            try {
+                handler.closed(this, cause);
+            } catch (RuntimeException ignore) {
+                // the connection is closed regardless
+            }
+        }
+    }
+}
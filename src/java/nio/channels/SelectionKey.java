@@ -198,6 +198,71 @@ public abstract class SelectionKey {
      */
     public abstract SelectionKey interestOps(int ops);
 
+    /**
+     * Atomically sets this key's interest set to the bitwise union ("or") of
+     * the existing interest set and the given value.
+     *
+     * <p> The new interest set takes effect at the next <a
+     * href="Selector.html#selop">selection operation</a>; this method does
+     * not wake up a selection operation that is already in progress.  A
+     * reactor thread that updates the interest set of its own keys between
+     * selection operations therefore never pays for a wakeup.  </p>
+     *
+     * @implSpec The default implementation synchronizes on this key and
+     * invokes {@code interestOps()} and {@code interestOps(int)} to retrieve
+     * and set this key's interest set.
+     *
+     * @param  ops  The interest set to apply
+     *
+     * @return  The previous interest set
+     *
+     * @throws  IllegalArgumentException
+     *          If a bit in the set does not correspond to an operation that
+     *          is supported by this key's channel, that is, if
+     *          {@code (ops & ~channel().validOps()) != 0}
+     *
+     * @throws  CancelledKeyException
+     *          If this key has been cancelled
+     *
+     * @since 1.8
+     */
+    public int interestOpsOr(int ops) {
+        synchronized (this) {
+            int oldVal = interestOps();
+            interestOps(oldVal | ops);
+            return oldVal;
+        }
+    }
+
+    /**
+     * Atomically sets this key's interest set to the bitwise intersection
+     * ("and") of the existing interest set and the given value.
+     *
+     * <p> The new interest set takes effect at the next <a
+     * href="Selector.html#selop">selection operation</a>; this method does
+     * not wake up a selection operation that is already in progress.  </p>
+     *
+     * @implSpec The default implementation synchronizes on this key and
+     * invokes {@code interestOps()} and {@code interestOps(int)} to retrieve
+     * and set this key's interest set.
+     *
+     * @param  ops  The interest set to apply
+     *
+     * @return  The previous interest set
+     *
+     * @throws  CancelledKeyException
+     *          If this key has been cancelled
+     *
+     * @since 1.8
+     */
+    public int interestOpsAnd(int ops) {
+        synchronized (this) {
+            int oldVal = interestOps();
+            interestOps(oldVal & ops);
+            return oldVal;
+        }
+    }
+
     /**
      * Retrieves this key's ready-operation set.
      *
@@ -1887,9 +1887,13 @@ public final class Formatter implements Closeable, Flushable {
 
     /* Private constructors */
     private Formatter(Locale l, Appendable a) {
+        this(l, a, getZero(l));
+    }
+
+    private Formatter(Locale l, Appendable a, char zero) {
         this.a = a;
         this.l = l;
-        this.zero = getZero(l);
+        this.zero = zero;
     }
 
     private Formatter(Charset charset, Locale l, File file)
@@ -2581,6 +2585,226 @@ public final class Formatter implements Closeable, Flushable {
         }
     }
 
+    /**
+     * Compiles the given format string for repeated use with the {@linkplain
+     * Locale#getDefault(Locale.Category) default locale} for {@linkplain
+     * Locale.Category#FORMAT formatting}, as returned when this method is
+     * invoked.
+     *
+     * @param  format
+     *         A format string as described in <a href="#syntax">Format string
+     *         syntax</a>
+     *
+     * @throws  IllegalFormatException
+     *          If the format string contains an illegal syntax
+     *
+     * @return  The compiled format
+     *
+     * @since 1.8
+     */
+    public static Compiled compile(String format) {
+        return new Compiled(Locale.getDefault(Locale.Category.FORMAT), format);
+    }
+
+    /**
+     * Compiles the given format string for repeated use with the given
+     * locale.
+     *
+     * @param  l
+     *         The {@linkplain java.util.Locale locale} to apply during
+     *         formatting.  If {@code l} is {@code null} then no localization
+     *         is applied.
+     *
+     * @param  format
+     *         A format string as described in <a href="#syntax">Format string
+     *         syntax</a>
+     *
+     * @throws  IllegalFormatException
+     *          If the format string contains an illegal syntax
+     *
+     * @return  The compiled format
+     *
+     * @since 1.8
+     */
+    public static Compiled compile(Locale l, String format) {
+        return new Compiled(l, format);
+    }
+
+    /**
+     * A compiled format string.
+     *
+     * <p> A compiled format is created by {@link Formatter#compile(String)}
+     * and produces the same output as {@link Formatter#format(String,
+     * Object...)} would with the same locale, format string and arguments.
+     * The format string is parsed and checked only once, when it is
+     * compiled, and the output is written straight to the destination
+     * given to each call, without an intermediate {@code Formatter}.  The
+     * specifiers {@code %s}, {@code %d} and {@code %x} without flags, width
+     * or precision are printed without consulting the locale's {@link
+     * DecimalFormatSymbols}, unless the locale's zero digit is not
+     * {@code '0'}.
+     *
+     * <p> Instances of this class are immutable and safe for use by multiple
+     * concurrent threads.
+     *
+     * @since 1.8
+     */
+    public static final class Compiled {
+        private final Locale l;
+        private final char zero;
+        private final String format;
+        // Specifiers are bound to a template formatter without destination,
+        // and are only ever printed through copies bound to the caller's
+        private final FormatString[] fsa;
+
+        private Compiled(Locale l, String format) {
+            Formatter template = new Formatter(l, null);
+            this.l = l;
+            this.zero = template.zero;
+            this.format = format;
+            this.fsa = template.parse(format);
+        }
+
+        /**
+         * Returns the locale of this compiled format.
+         *
+         * @return  {@code null} if no localization is applied, otherwise a
+         *          locale
+         */
+        public Locale locale() {
+            return l;
+        }
+
+        /**
+         * Returns a formatted string using this format and the given
+         * arguments.
+         *
+         * @param  args
+         *         Arguments referenced by the format specifiers in the format
+         *         string.  If there are more arguments than format specifiers,
+         *         the extra arguments are ignored.
+         *
+         * @throws  IllegalFormatException
+         *          If a format specifier is incompatible with the given
+         *          arguments, or if there are insufficient arguments
+         *
+         * @return  A formatted string
+         */
+        public String format(Object... args) {
+            return formatTo(new StringBuilder(), args).toString();
+        }
+
+        /**
+         * Appends the result of formatting the given arguments with this
+         * format to a string builder.
+         *
+         * @param  sb
+         *         The destination
+         *
+         * @param  args
+         *         Arguments referenced by the format specifiers in the format
+         *         string
+         *
+         * @throws  IllegalFormatException
+         *          If a format specifier is incompatible with the given
+         *          arguments, or if there are insufficient arguments
+         *
+         * @return  The given string builder
+         */
+        public StringBuilder formatTo(StringBuilder sb, Object... args) {
+            try {
+                print(sb, args);
+            } catch (IOException x) {
+                throw new AssertionError(x); // StringBuilder does not throw
+            }
+            return sb;
+        }
+
+        /**
+         * Appends the result of formatting the given arguments with this
+         * format to the given destination.  Unlike {@link Formatter}, this
+         * method reports an {@code IOException} thrown by the destination
+         * to its caller; the destination is then left with partial output.
+         *
+         * @param  a
+         *         The destination
+         *
+         * @param  args
+         *         Arguments referenced by the format specifiers in the format
+         *         string
+         *
+         * @throws  IllegalFormatException
+         *          If a format specifier is incompatible with the given
+         *          arguments, or if there are insufficient arguments
+         *
+         * @throws  IOException
+         *          If the destination throws {@code IOException}
+         */
+        public void formatTo(Appendable a, Object... args) throws IOException {
+            print(Objects.requireNonNull(a), args);
+        }
+
+        private void print(Appendable a, Object[] args) throws IOException {
+            // index of last argument referenced
+            int last = -1;
+            // last ordinary index
+            int lasto = -1;
+            // bound to a on the first specifier that needs it
+            Formatter fmt = null;
+
+            for (int i = 0; i < fsa.length; i++) {
+                FormatString fs = fsa[i];
+                if (fs instanceof FixedString) {
+                    a.append(((FixedString) fs).s);
+                    continue;
+                }
+                Object arg;
+                int index = fs.index();
+                switch (index) {
+                case -2:  // "%n" or "%%"
+                    arg = null;
+                    break;
+                case -1:  // relative index
+                    if (last < 0 || (args != null && last > args.length - 1))
+                        throw new MissingFormatArgumentException(fs.toString());
+                    arg = (args == null ? null : args[last]);
+                    break;
+                case 0:  // ordinary index
+                    lasto++;
+                    last = lasto;
+                    if (args != null && lasto > args.length - 1)
+                        throw new MissingFormatArgumentException(fs.toString());
+                    arg = (args == null ? null : args[lasto]);
+                    break;
+                default:  // explicit index
+                    last = index - 1;
+                    if (args != null && last > args.length - 1)
+                        throw new MissingFormatArgumentException(fs.toString());
+                    arg = (args == null ? null : args[last]);
+                    break;
+                }
+                FormatSpecifier spec = (FormatSpecifier) fs;
+                if (!spec.printSimple(a, arg, zero)) {
+                    if (fmt == null)
+                        fmt = new Formatter(l, a, zero);
+                    fmt.new FormatSpecifier(spec).print(arg, l);
+                    // Formattable arguments format through fmt itself
+                    if (fmt.lastException != null)
+                        throw fmt.lastException;
+                }
+            }
+        }
+
+        /**
+         * Returns the format string from which this format was compiled.
+         *
+         * @return  The format string
+         */
+        public String toString() {
+            return format;
+        }
+    }
+
     private interface FormatString {
         int index();
         void print(Object arg, Locale l) throws IOException;
@@ -2588,7 +2812,7 @@ public final class Formatter implements Closeable, Flushable {
     }
 
     private class FixedString implements FormatString {
-        private String s;
+        private final String s;
         FixedString(String s) { this.s = s; }
         public int index() { return -2; }
         public void print(Object arg, Locale l)
@@ -2735,6 +2959,78 @@ public final class Formatter implements Closeable, Flushable {
                 throw new UnknownFormatConversionException(String.valueOf(c));
         }
 
+        /**
+         * Creates a copy of the given specifier bound to this formatter.
+         */
+        FormatSpecifier(FormatSpecifier fs) {
+            index = fs.index;
+            f = fs.f;
+            width = fs.width;
+            precision = fs.precision;
+            dt = fs.dt;
+            c = fs.c;
+        }
+
+        /**
+         * Prints {@code %s}, {@code %d} and {@code %x} without flags, width
+         * or precision straight to the given destination, with decimal
+         * digits only if {@code zero} is {@code '0'}.  Does not use the
+         * enclosing formatter.  Returns false, having printed nothing, for
+         * any other specifier or argument.
+         */
+        boolean printSimple(Appendable a, Object arg, char zero)
+            throws IOException
+        {
+            if (dt || f.valueOf() != Flags.NONE.valueOf()
+                || width != -1 || precision != -1)
+                return false;
+            switch (c) {
+            case Conversion.STRING:
+                if (arg instanceof Formattable)
+                    return false;
+                a.append(String.valueOf(arg));
+                return true;
+            case Conversion.DECIMAL_INTEGER:
+            case Conversion.HEXADECIMAL_INTEGER:
+                boolean hex = (c == Conversion.HEXADECIMAL_INTEGER);
+                if (!hex && zero != '0')
+                    return false;
+                long v;
+                if (arg instanceof Integer) {
+                    v = ((Integer)arg).intValue();
+                    if (hex)
+                        v &= 0xffffffffL;
+                } else if (arg instanceof Long) {
+                    v = ((Long)arg).longValue();
+                } else if (arg instanceof Short) {
+                    v = ((Short)arg).shortValue();
+                    if (hex)
+                        v &= 0xffffL;
+                } else if (arg instanceof Byte) {
+                    v = ((Byte)arg).byteValue();
+                    if (hex)
+                        v &= 0xffL;
+                } else {
+                    return false;
+                }
+                if (hex)
+                    a.append(Long.toHexString(v));
+                else if (a instanceof StringBuilder)
+                    ((StringBuilder)a).append(v);
+                else
+                    a.append(Long.toString(v));
+                return true;
+            case Conversion.LINE_SEPARATOR:
+                a.append(System.lineSeparator());
+                return true;
+            case Conversion.PERCENT_SIGN:
+                a.append('%');
+                return true;
+            default:
+                return false;
+            }
+        }
+
         public void print(Object arg, Locale l) throws IOException {
             if (dt) {
                 printDateTime(arg, l);
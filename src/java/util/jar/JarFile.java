@@ -26,7 +26,10 @@
 package java.util.jar;
 
 import java.io.*;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
 import java.net.URL;
 import java.util.*;
 import java.util.stream.Stream;
@@ -35,6 +38,7 @@ import java.util.zip.*;
 import java.security.CodeSigner;
 import java.security.cert.Certificate;
 import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.security.CodeSource;
 import sun.misc.IOUtils;
 import sun.security.action.GetPropertyAction;
@@ -72,7 +76,7 @@ class JarFile extends ZipFile {
     private SoftReference<Manifest> manRef;
     private JarEntry manEntry;
     private JarVerifier jv;
-    private boolean jvInitialized;
+    private volatile boolean jvInitialized;
     private boolean verify;
 
     // indicates if Class-Path attribute present (only valid if hasCheckedSpecialAttributes true)
@@ -187,16 +191,25 @@ class JarFile extends ZipFile {
 
             JarEntry manEntry = getManEntry();
 
-            // If found then load the manifest
+            // If found then load the manifest, or copy the one parsed
+            // by another JarFile for the same unchanged file
             if (manEntry != null) {
-                if (verify) {
-                    byte[] b = getBytes(manEntry);
+                MetaInfCache mic = metaInfCache();
+                Manifest cached = (mic != null) ? mic.manifest : null;
+                byte[] b;
+                if (cached != null) {
+                    b = mic.manifestBytes;
+                    man = copyOf(cached);
+                } else {
+                    b = getBytes(manEntry);
                     man = new Manifest(new ByteArrayInputStream(b));
-                    if (!jvInitialized) {
-                        jv = new JarVerifier(b);
+                    if (mic != null) {
+                        mic.manifestBytes = b;
+                        mic.manifest = copyOf(man);
                     }
-                } else {
-                    man = new Manifest(super.getInputStream(manEntry));
+                }
+                if (verify && !jvInitialized) {
+                    jv = new JarVerifier(manEntry.getName(), b);
                 }
                 manRef = new SoftReference<>(man);
             }
@@ -206,6 +219,185 @@ class JarFile extends ZipFile {
 
     private native String[] getMetaInfEntryNames();
 
+    /*
+     * What is learnt from the "META-INF/" entries of a jar file: its
+     * manifest, whether that has a Class-Path attribute, and the results
+     * of checking its signature files.  Shared by all JarFiles opened on
+     * a file with the same name, size and last modified time, the key the
+     * native zip library also uses to share its open zip files, and with
+     * the same central directory records for the manifest and signature
+     * files, since a file can be rewritten within the same size and
+     * modification time.
+     */
+    private static final class MetaInfCache {
+        final long length;
+        final long lastModified;
+        final String metaInfStamp;
+        // the manifest is only ever copied; set after its bytes
+        volatile byte[] manifestBytes;
+        volatile Manifest manifest;
+        volatile Boolean hasClassPathAttribute;
+        volatile JarVerifier.MetaInfResults verifierResults;
+
+        MetaInfCache(long length, long lastModified, String metaInfStamp) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.metaInfStamp = metaInfStamp;
+        }
+    }
+
+    /*
+     * A soft reference to the META-INF data of a file, which remembers
+     * the key it was cached under so that it can be evicted once cleared.
+     */
+    private static final class MetaInfCacheRef
+        extends SoftReference<MetaInfCache>
+    {
+        final String key;
+
+        MetaInfCacheRef(String key, MetaInfCache mic,
+                        ReferenceQueue<MetaInfCache> queue) {
+            super(mic, queue);
+            this.key = key;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, MetaInfCacheRef>
+        metaInfCaches = new ConcurrentHashMap<>();
+
+    // cleared references, polled on each lookup to evict their entries
+    private static final ReferenceQueue<MetaInfCache> metaInfCacheQueue =
+        new ReferenceQueue<>();
+
+    // marks a file that is not cached
+    private static final MetaInfCache NO_CACHE = new MetaInfCache(-1, -1, null);
+
+    // this file's entry in metaInfCaches, looked up once
+    private MetaInfCache metaInfCache;
+
+    /*
+     * Returns the shared META-INF data for this file, or null if the file
+     * no longer exists, such as one opened with OPEN_DELETE.
+     */
+    private MetaInfCache metaInfCache() {
+        MetaInfCache mic = metaInfCache;
+        if (mic != null) {
+            return (mic != NO_CACHE) ? mic : null;
+        }
+        final File file = new File(getName());
+        long[] stat = AccessController.doPrivileged(
+            new PrivilegedAction<long[]>() {
+                public long[] run() {
+                    return new long[] { file.length(), file.lastModified() };
+                }
+            });
+        expungeMetaInfCaches();
+        mic = NO_CACHE;
+        if (stat[1] != 0) {
+            String key = file.getPath();
+            String stamp = metaInfStamp();
+            MetaInfCacheRef ref = metaInfCaches.get(key);
+            mic = (ref != null) ? ref.get() : null;
+            if (mic == null || mic.length != stat[0]
+                    || mic.lastModified != stat[1]
+                    || !mic.metaInfStamp.equals(stamp)) {
+                mic = new MetaInfCache(stat[0], stat[1], stamp);
+                metaInfCaches.put(key,
+                    new MetaInfCacheRef(key, mic, metaInfCacheQueue));
+            }
+        }
+        metaInfCache = mic;
+        return (mic != NO_CACHE) ? mic : null;
+    }
+
+    /*
+     * Returns the name, CRC and sizes that the central directory gives
+     * for the manifest and each signature file.  A manifest or signature
+     * file that is rewritten has a different CRC, even when the jar file
+     * keeps its size and last modified time.
+     */
+    private String metaInfStamp() {
+        StringBuilder sb = new StringBuilder();
+        String[] names = metaInfEntryNames();
+        if (names != null) {
+            for (String name : names) {
+                String uname = name.toUpperCase(Locale.ENGLISH);
+                if (!MANIFEST_NAME.equals(uname)
+                        && !SignatureFileVerifier.isBlockOrSF(uname)) {
+                    continue;
+                }
+                ZipEntry ze = super.getEntry(name);
+                if (ze != null) {
+                    sb.append(name).append('/').append(ze.getCrc())
+                      .append('/').append(ze.getSize())
+                      .append('/').append(ze.getCompressedSize()).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Removes the entries whose data has been cleared by the garbage
+     * collector.  An entry that has since been replaced is left alone.
+     */
+    private static void expungeMetaInfCaches() {
+        Reference<? extends MetaInfCache> ref;
+        while ((ref = metaInfCacheQueue.poll()) != null) {
+            MetaInfCacheRef r = (MetaInfCacheRef) ref;
+            metaInfCaches.remove(r.key, r);
+        }
+    }
+
+    /*
+     * Returns a copy of the given manifest that shares no mutable state
+     * with it, which Manifest's copy constructor does not guarantee.
+     */
+    private static Manifest copyOf(Manifest man) {
+        Manifest copy = new Manifest();
+        copy.getMainAttributes().putAll(man.getMainAttributes());
+        Map<String, Attributes> entries = copy.getEntries();
+        for (Map.Entry<String, Attributes> e : man.getEntries().entrySet()) {
+            entries.put(e.getKey(), (Attributes)e.getValue().clone());
+        }
+        return copy;
+    }
+
+    // true if zip files are read in Java, see ZipFile
+    private static final boolean pureJavaZip;
+    static {
+        String prop = sun.misc.VM.getSavedProperty("jdk.util.zip.pureJava");
+        pureJavaZip = prop != null && prop.equalsIgnoreCase("true");
+    }
+
+    // the names of the "META-INF/" entries when read in Java
+    private String[] metaInfNames;
+
+    /*
+     * Returns the names of the entries in "META-INF/" or below, or null
+     * if there are none.  A zip file read in Java has no native zip
+     * library data, so its entries are scanned once instead.
+     */
+    private String[] metaInfEntryNames() {
+        if (!pureJavaZip) {
+            return getMetaInfEntryNames();
+        }
+        String[] names = metaInfNames;
+        if (names == null) {
+            List<String> list = new ArrayList<>();
+            Enumeration<? extends ZipEntry> en = super.entries();
+            while (en.hasMoreElements()) {
+                String name = en.nextElement().getName();
+                if (name.length() > 9 &&
+                        name.regionMatches(true, 0, "META-INF/", 0, 9)) {
+                    list.add(name);
+                }
+            }
+            metaInfNames = names = list.toArray(new String[list.size()]);
+        }
+        return (names.length == 0) ? null : names;
+    }
+
     /**
      * Returns the <code>JarEntry</code> for the given entry name or
      * <code>null</code> if not found.
@@ -330,7 +522,7 @@ class JarFile extends ZipFile {
         }
 
         if (verify) {
-            String[] names = getMetaInfEntryNames();
+            String[] names = metaInfEntryNames();
             if (names != null) {
                 for (int i = 0; i < names.length; i++) {
                     String name = names[i].toUpperCase(Locale.ENGLISH);
@@ -358,11 +550,26 @@ class JarFile extends ZipFile {
      * entries and passing them to the verifier.
      */
     private void initializeVerifier() {
+        // Another JarFile for the same file may have checked the
+        // signature files already.  The digests of the other entries
+        // are always checked as they are read.
+        MetaInfCache mic = metaInfCache();
+        JarVerifier.MetaInfResults results =
+            (mic != null) ? mic.verifierResults : null;
+        if (results != null && results.manifestRawBytes == jv.manifestRawBytes) {
+            jv.doneWithMeta(results);
+            if (jv.nothingToVerify()) {
+                jv = null;
+                verify = false;
+            }
+            return;
+        }
+
         ManifestEntryVerifier mev = null;
 
         // Verify "META-INF/" entries...
         try {
-            String[] names = getMetaInfEntryNames();
+            String[] names = metaInfEntryNames();
             if (names != null) {
                 for (int i = 0; i < names.length; i++) {
                     String uname = names[i].toUpperCase(Locale.ENGLISH);
@@ -374,7 +581,7 @@ class JarFile extends ZipFile {
                         }
                         if (mev == null) {
                             mev = new ManifestEntryVerifier
-                                (getManifestFromReference());
+                                (getManifestFromReference(), jv.manifestName);
                         }
                         byte[] b = getBytes(e);
                         if (b != null && b.length > 0) {
@@ -405,6 +612,9 @@ class JarFile extends ZipFile {
             if (JarVerifier.debug != null) {
                 JarVerifier.debug.println("done with meta!");
             }
+            if (mic != null && mic.manifestBytes == jv.manifestRawBytes) {
+                mic.verifierResults = jv.getMetaInfResults();
+            }
 
             if (jv.nothingToVerify()) {
                 if (JarVerifier.debug != null) {
@@ -439,22 +649,18 @@ class JarFile extends ZipFile {
      * @throws IllegalStateException
      *         may be thrown if the jar file has been closed
      */
-    public synchronized InputStream getInputStream(ZipEntry ze)
+    public InputStream getInputStream(ZipEntry ze)
         throws IOException
     {
-        maybeInstantiateVerifier();
+        // Only setting up the verifier needs the lock; entries are
+        // digested as they are read, by the threads that read them.
+        if (!jvInitialized) {
+            initializeVerifierOnce();
+        }
+        JarVerifier jv = this.jv;
         if (jv == null) {
             return super.getInputStream(ze);
         }
-        if (!jvInitialized) {
-            initializeVerifier();
-            jvInitialized = true;
-            // could be set to null after a call to
-            // initializeVerifier if we have nothing to
-            // verify
-            if (jv == null)
-                return super.getInputStream(ze);
-        }
 
         // wrap a verifier stream around the real stream
         return new JarVerifier.VerifierStream(
@@ -465,6 +671,22 @@ class JarFile extends ZipFile {
             jv);
     }
 
+    /*
+     * Creates and initializes the verifier if the jar file is signed.
+     * jv could be set to null by initializeVerifier if we have nothing
+     * to verify.
+     */
+    private synchronized void initializeVerifierOnce() throws IOException {
+        if (jvInitialized) {
+            return;
+        }
+        maybeInstantiateVerifier();
+        if (jv != null) {
+            initializeVerifier();
+        }
+        jvInitialized = true;
+    }
+
     // Statics for hand-coded Boyer-Moore search
     private static final char[] CLASSPATH_CHARS = {'c','l','a','s','s','-','p','a','t','h'};
     // The bad character shift for "class-path"
@@ -495,7 +717,7 @@ class JarFile extends ZipFile {
             if (manEntry == null) {
                 // If not found, then iterate through all the "META-INF/"
                 // entries to find a match.
-                String[] names = getMetaInfEntryNames();
+                String[] names = metaInfEntryNames();
                 if (names != null) {
                     for (int i = 0; i < names.length; i++) {
                         if (MANIFEST_NAME.equals(
@@ -552,9 +774,19 @@ class JarFile extends ZipFile {
         if (!isKnownNotToHaveSpecialAttributes()) {
             JarEntry manEntry = getManEntry();
             if (manEntry != null) {
-                byte[] b = getBytes(manEntry);
-                if (match(CLASSPATH_CHARS, b, CLASSPATH_LASTOCC, CLASSPATH_OPTOSFT))
-                    hasClassPathAttribute = true;
+                MetaInfCache mic = metaInfCache();
+                Boolean cached = (mic != null) ? mic.hasClassPathAttribute : null;
+                if (cached != null) {
+                    hasClassPathAttribute = cached;
+                } else {
+                    byte[] b = (mic != null && mic.manifest != null)
+                        ? mic.manifestBytes : getBytes(manEntry);
+                    if (match(CLASSPATH_CHARS, b, CLASSPATH_LASTOCC, CLASSPATH_OPTOSFT))
+                        hasClassPathAttribute = true;
+                    if (mic != null) {
+                        mic.hasClassPathAttribute = hasClassPathAttribute;
+                    }
+                }
             }
         }
         hasCheckedSpecialAttributes = true;
@@ -602,16 +834,16 @@ class JarFile extends ZipFile {
         return false;
     }
 
-    private synchronized void ensureInitialization() {
+    // package-private for the runtime's JavaUtilJarAccessImpl
+    void ensureInitialization() {
+        if (jvInitialized) {
+            return;
+        }
         try {
-            maybeInstantiateVerifier();
+            initializeVerifierOnce();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        if (jv != null && !jvInitialized) {
-            initializeVerifier();
-            jvInitialized = true;
-        }
     }
 
     JarEntry newEntry(ZipEntry ze) {
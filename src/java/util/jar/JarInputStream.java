@@ -95,8 +95,8 @@ class JarInputStream extends ZipInputStream {
             man.read(new ByteArrayInputStream(bytes));
             closeEntry();
             if (doVerify) {
-                jv = new JarVerifier(bytes);
-                mev = new ManifestEntryVerifier(man);
+                jv = new JarVerifier(e.getName(), bytes);
+                mev = new ManifestEntryVerifier(man, jv.manifestName);
             }
             return (JarEntry)super.getNextEntry();
         }
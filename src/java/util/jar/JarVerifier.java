@@ -93,7 +93,15 @@ class JarVerifier {
     /** collect -DIGEST-MANIFEST values for blacklist */
     private List<Object> manifestDigests;
 
-    public JarVerifier(byte rawBytes[]) {
+    /** the manifest name this JarVerifier is created upon */
+    final String manifestName;
+
+    /* A cache mapping code signers to the algorithms used to digest jar
+       entries, and whether or not the algorithms are permitted. */
+    private Map<CodeSigner[], Map<String, Boolean>> signersToAlgs;
+
+    public JarVerifier(String name, byte rawBytes[]) {
+        manifestName = name;
         manifestRawBytes = rawBytes;
         sigFileSigners = new Hashtable<>();
         verifiedSigners = new Hashtable<>();
@@ -101,6 +109,7 @@ class JarVerifier {
         pendingBlocks = new ArrayList<>();
         baos = new ByteArrayOutputStream();
         manifestDigests = new ArrayList<>();
+        signersToAlgs = new HashMap<>();
     }
 
     /**
@@ -180,9 +189,8 @@ class JarVerifier {
 
         // only set the jev object for entries that have a signature
         // (either verified or not)
-        if (!name.equals(JarFile.MANIFEST_NAME)) {
-            if (sigFileSigners.get(name) != null ||
-                    verifiedSigners.get(name) != null) {
+        if (!name.equalsIgnoreCase(JarFile.MANIFEST_NAME)) {
+            if (isSigned(name)) {
                 mev.setEntry(name, je);
                 return;
             }
@@ -240,7 +248,14 @@ class JarVerifier {
         if (!parsingBlockOrSF) {
             JarEntry je = mev.getEntry();
             if ((je != null) && (je.signers == null)) {
-                je.signers = mev.verify(verifiedSigners, sigFileSigners);
+                // Threads may read the same entry at once.  The digests
+                // are complete; moving the signers from sigFileSigners
+                // to verifiedSigners is done under the lock, so that no
+                // thread finds the entry in neither.
+                synchronized (this) {
+                    je.signers = mev.verify(verifiedSigners, sigFileSigners,
+                                            signersToAlgs);
+                }
                 je.certs = mapSignersToCertArray(je.signers);
             }
         } else {
@@ -272,7 +287,8 @@ class JarVerifier {
                             }
 
                             sfv.setSignatureFile(bytes);
-                            sfv.process(sigFileSigners, manifestDigests);
+                            sfv.process(sigFileSigners, manifestDigests,
+                                    manifestName);
                         }
                     }
                     return;
@@ -315,7 +331,7 @@ class JarVerifier {
                         sfv.setSignatureFile(bytes);
                     }
                 }
-                sfv.process(sigFileSigners, manifestDigests);
+                sfv.process(sigFileSigners, manifestDigests, manifestName);
 
             } catch (IOException ioe) {
                 // e.g. sun.security.pkcs.ParsingException
@@ -355,11 +371,19 @@ class JarVerifier {
      * the given file in the jar. this array is not cloned.
      *
      */
-    public CodeSigner[] getCodeSigners(String name)
+    public synchronized CodeSigner[] getCodeSigners(String name)
     {
         return verifiedSigners.get(name);
     }
 
+    /*
+     * Tells whether the entry has signers, verified or not yet.
+     */
+    private synchronized boolean isSigned(String name) {
+        return sigFileSigners.get(name) != null ||
+            verifiedSigners.get(name) != null;
+    }
+
     public CodeSigner[] getCodeSigners(JarFile jar, JarEntry entry)
     {
         String name = entry.getName();
@@ -430,10 +454,64 @@ class JarVerifier {
         manDig = null;
         // MANIFEST.MF is always treated as signed and verified,
         // move its signers from sigFileSigners to verifiedSigners.
-        if (sigFileSigners.containsKey(JarFile.MANIFEST_NAME)) {
-            CodeSigner[] codeSigners = sigFileSigners.remove(JarFile.MANIFEST_NAME);
-            verifiedSigners.put(JarFile.MANIFEST_NAME, codeSigners);
+        if (sigFileSigners.containsKey(manifestName)) {
+            CodeSigner[] codeSigners = sigFileSigners.remove(manifestName);
+            verifiedSigners.put(manifestName, codeSigners);
+        }
+    }
+
+    /**
+     * The outcome of processing the META-INF entries of a jar file:
+     * which entries passed the .SF/.DSA/.EC -> MANIFEST check, and
+     * with which signers.  It does not depend on the contents of the
+     * other entries, whose digests are still checked as they are read,
+     * so it can be shared by all verifiers of an unchanged file.
+     */
+    static final class MetaInfResults {
+        final byte[] manifestRawBytes;
+        final Map<String, CodeSigner[]> sigFileSigners;
+        final CodeSigner[] manifestSigners;
+        final List<Object> manifestDigests;
+        final boolean anyToVerify;
+
+        MetaInfResults(JarVerifier jv) {
+            manifestRawBytes = jv.manifestRawBytes;
+            sigFileSigners = new HashMap<>(jv.sigFileSigners);
+            manifestSigners = jv.verifiedSigners.get(jv.manifestName);
+            manifestDigests = new ArrayList<>(jv.manifestDigests);
+            anyToVerify = jv.anyToVerify;
+        }
+    }
+
+    /**
+     * Returns the results of processing the META-INF entries.
+     * Should only be called after doneWithMeta.
+     */
+    synchronized MetaInfResults getMetaInfResults() {
+        return new MetaInfResults(this);
+    }
+
+    /**
+     * Takes the results of processing the META-INF entries from another
+     * verifier of the same manifest instead of processing them again, and
+     * completes as doneWithMeta does.
+     */
+    synchronized void doneWithMeta(MetaInfResults results) {
+        if (results.manifestRawBytes != manifestRawBytes) {
+            throw new IllegalArgumentException("different manifest");
         }
+        sigFileSigners.putAll(results.sigFileSigners);
+        if (results.manifestSigners != null) {
+            verifiedSigners.put(manifestName, results.manifestSigners);
+        }
+        manifestDigests.addAll(results.manifestDigests);
+        parsingMeta = false;
+        anyToVerify = results.anyToVerify;
+        baos = null;
+        sigFileData = null;
+        pendingBlocks = null;
+        signerCache = null;
+        manDig = null;
     }
 
     static class VerifierStream extends java.io.InputStream {
@@ -450,7 +528,7 @@ class JarVerifier {
         {
             this.is = is;
             this.jv = jv;
-            this.mev = new ManifestEntryVerifier(man);
+            this.mev = new ManifestEntryVerifier(man, jv.manifestName);
             this.jv.beginEntry(je, mev);
             this.numLeft = je.getSize();
             if (this.numLeft == 0)
@@ -25,6 +25,7 @@
 
 package java.util.regex;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -207,6 +208,12 @@ public final class Matcher implements MatchResult {
      */
     boolean anchoringBounds = true;
 
+    /**
+     * Scratch space of the linear-time program of the pattern, if it has
+     * one, allocated on first use.
+     */
+    NFA.State nfaState;
+
     /**
      * No default constructor.
      */
@@ -275,14 +282,17 @@ public final class Matcher implements MatchResult {
             throw new IllegalArgumentException("Pattern cannot be null");
         parentPattern = newPattern;
 
-        // Reallocate state storage
+        // Reallocate state storage only if the current one is too small
         int parentGroupCount = Math.max(newPattern.capturingGroupCount, 10);
-        groups = new int[parentGroupCount * 2];
-        locals = new int[newPattern.localCount];
+        if (groups.length < parentGroupCount * 2)
+            groups = new int[parentGroupCount * 2];
+        if (locals.length < newPattern.localCount)
+            locals = new int[newPattern.localCount];
         for (int i = 0; i < groups.length; i++)
             groups[i] = -1;
         for (int i = 0; i < locals.length; i++)
             locals[i] = -1;
+        nfaState = null;
         return this;
     }
 
@@ -319,6 +329,11 @@ public final class Matcher implements MatchResult {
      * anchoring and transparency of this matcher's region boundaries are
      * unaffected.
      *
+     * <p> The storage for groups and match state depends only on the pattern,
+     * so resetting a matcher with input of any length allocates nothing.  A
+     * matcher can be kept and reset for each input to avoid creating a new
+     * one each time.
+     *
      * @param  input
      *         The new input character sequence
      *
@@ -798,8 +813,30 @@ public final class Matcher implements MatchResult {
             throw new IllegalStateException("No match available");
 
         // Process substitution string to replace group references with groups
-        int cursor = 0;
         StringBuilder result = new StringBuilder();
+        try {
+            appendExpandedReplacement(replacement, result);
+        } catch (IOException x) {
+            throw new InternalError(x);     // a StringBuilder does not throw
+        }
+        // Append the intervening text
+        sb.append(text, lastAppendPosition, first);
+        // Append the match substitution
+        sb.append(result);
+
+        lastAppendPosition = last;
+        return this;
+    }
+
+    /**
+     * Appends the replacement string to the given appendable, substituting
+     * the groups of the current match for the group references in it.
+     */
+    private void appendExpandedReplacement(String replacement,
+                                           Appendable result)
+        throws IOException
+    {
+        int cursor = 0;
 
         while (cursor < replacement.length()) {
             char nextChar = replacement.charAt(cursor);
@@ -884,13 +921,6 @@ public final class Matcher implements MatchResult {
                 cursor++;
             }
         }
-        // Append the intervening text
-        sb.append(text, lastAppendPosition, first);
-        // Append the match substitution
-        sb.append(result);
-
-        lastAppendPosition = last;
-        return this;
     }
 
     /**
@@ -948,17 +978,76 @@ public final class Matcher implements MatchResult {
      */
     public String replaceAll(String replacement) {
         reset();
-        boolean result = find();
-        if (result) {
-            StringBuffer sb = new StringBuffer();
-            do {
-                appendReplacement(sb, replacement);
-                result = find();
-            } while (result);
-            appendTail(sb);
-            return sb.toString();
+        if (!find())
+            return text.toString();
+        StringBuilder sb = new StringBuilder(getTextLength() + 16);
+        try {
+            replaceAll0(replacement, sb);
+        } catch (IOException x) {
+            throw new InternalError(x);     // a StringBuilder does not throw
         }
-        return text.toString();
+        return sb.toString();
+    }
+
+    /**
+     * Replaces every subsequence of the input sequence that matches the
+     * pattern with the given replacement string, and appends the result to
+     * the given appendable.
+     *
+     * <p> This method produces the same characters as {@link
+     * #replaceAll(String) replaceAll(replacement)}, but writes them to
+     * {@code out} as it goes instead of building a new string, which saves
+     * a copy of the result when it is only to be written out.  Characters
+     * that are not part of any match are appended straight from the input
+     * sequence.
+     *
+     * <p> Invoking this method changes this matcher's state.  If the matcher
+     * is to be used in further matching operations then it should first be
+     * reset.  If an exception is thrown then part of the result may already
+     * have been appended.  </p>
+     *
+     * @param  replacement
+     *         The replacement string
+     *
+     * @param  out
+     *         The appendable to which the result is appended
+     *
+     * @throws  IOException
+     *          If an I/O error occurs while appending
+     *
+     * @throws  IllegalArgumentException
+     *          If the replacement string refers to a named-capturing
+     *          group that does not exist in the pattern
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the replacement string refers to a capturing group
+     *          that does not exist in the pattern
+     * @since 1.8
+     */
+    public void replaceAll(String replacement, Appendable out)
+        throws IOException
+    {
+        Objects.requireNonNull(replacement, "replacement");
+        Objects.requireNonNull(out, "out");
+        reset();
+        if (find())
+            replaceAll0(replacement, out);
+        else
+            out.append(text, 0, getTextLength());
+    }
+
+    /**
+     * Appends the replaced input to out, starting with the current match.
+     */
+    private void replaceAll0(String replacement, Appendable out)
+        throws IOException
+    {
+        do {
+            out.append(text, lastAppendPosition, first);
+            appendExpandedReplacement(replacement, out);
+            lastAppendPosition = last;
+        } while (find());
+        out.append(text, lastAppendPosition, getTextLength());
     }
 
     /**
@@ -1245,7 +1334,10 @@ public final class Matcher implements MatchResult {
         for (int i = 0; i < groups.length; i++)
             groups[i] = -1;
         acceptMode = NOANCHOR;
-        boolean result = parentPattern.root.match(this, from, text);
+        NFA nfa = parentPattern.nfa;
+        boolean result = (nfa != null)
+            ? nfa.match(this, from, true)
+            : parentPattern.root.match(this, from, text);
         if (!result)
             this.first = -1;
         this.oldLast = this.last;
@@ -1267,7 +1359,10 @@ public final class Matcher implements MatchResult {
         for (int i = 0; i < groups.length; i++)
             groups[i] = -1;
         acceptMode = anchor;
-        boolean result = parentPattern.matchRoot.match(this, from, text);
+        NFA nfa = parentPattern.nfa;
+        boolean result = (nfa != null)
+            ? nfa.match(this, from, false)
+            : parentPattern.matchRoot.match(this, from, text);
         if (!result)
             this.first = -1;
         this.oldLast = this.last;
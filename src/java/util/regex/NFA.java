@@ -0,0 +1,823 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.regex;
+
+import java.util.Arrays;
+import java.util.regex.Pattern.*;
+
+/**
+ * A Thompson NFA compiled from the node tree of a {@link Pattern}, for
+ * matching in time linear in the length of the input.
+ *
+ * <p> The node tree is translated into a program of consuming, branching,
+ * capturing and assertion instructions, which is run by a Pike VM: all
+ * threads advance over the input in lock step, ordered by the priority the
+ * backtracking matcher would give them, so the match found is the one that
+ * the node tree would find, groups included.  Trees that use back
+ * references, lookaround, atomic groups, possessive quantifiers or {@code
+ * \R} are not translated; {@link #compile} returns {@code null} for them
+ * and such patterns keep matching by backtracking.
+ *
+ * <p> Zero-width assertions are evaluated by copies of their nodes whose
+ * successor accepts unconditionally, so that they see the matcher's region
+ * exactly as the node tree would.
+ *
+ * <p> The node tree leaves a loop once an iteration has matched the empty
+ * string.  The program does the same: an EMPTY instruction at the end of
+ * each iteration compares the current index with the one saved when the
+ * iteration began, and if they are equal sends the thread to the exit of
+ * the loop instead of back to its start.  What a thread does before it
+ * next consumes a character then depends on its instruction and on how
+ * many of the loops around it began their iteration at the current index,
+ * which are always the innermost ones; threads are told apart by both, so
+ * that an empty iteration is not cut short where the iteration before it
+ * passed the same instructions.  Repetitions of a single assertion or of a
+ * group of assertions, which can only match the empty string, are emitted
+ * for their minimum count and at most one optional iteration, as the node
+ * tree matches them.
+ *
+ * <p> A program may also be compiled from several patterns, with the
+ * captures left out, so that {@link PatternSet} can find which of them
+ * occur in an input in one pass.
+ */
+final class NFA {
+
+    // Consuming instructions; code point instructions are followed by LOW
+    private static final int CHAR     = 0;  // arg: BMP char
+    private static final int CHAR_I   = 1;  // arg: char, ASCII case folded
+    private static final int CHAR_U   = 2;  // arg: char, Unicode case folded
+    private static final int CP       = 3;  // arg: code point
+    private static final int CP_I     = 4;  // arg: code point, ASCII folded
+    private static final int CP_U     = 5;  // arg: code point, Unicode folded
+    private static final int BMP_PROP = 6;  // node: BmpCharProperty
+    private static final int PROP     = 7;  // node: CharProperty
+    private static final int LOW      = 8;  // low surrogate of a code point
+    // Others
+    private static final int SPLIT    = 9;  // arg: preferred pc, arg2: other
+    private static final int JMP      = 10; // arg: pc
+    private static final int SAVE     = 11; // arg: slot
+    private static final int GROUP    = 12; // arg: group slot, arg2: local
+    private static final int ASSERT   = 13; // node: assertion, next TRUE
+    private static final int MATCH    = 14; // arg: pattern index
+    private static final int EMPTY    = 15; // arg: slot, arg2: exit pc
+
+    /** programs larger than this, mostly from counted repetition, are
+        not built */
+    private static final int MAX_PROGRAM = 1 << 14;
+
+    /** the successor of copied assertion nodes */
+    private static final Node TRUE = new Node() {
+        boolean match(Matcher matcher, int i, CharSequence seq) {
+            return true;
+        }
+    };
+
+    private final int[] op;
+    private final int[] arg;
+    private final int[] arg2;
+    private final Node[] node;
+    /** index of the pattern each instruction belongs to, for sets */
+    private final int[] owner;
+    /** innermost loop with EMPTY checks around each instruction, or -1 */
+    private final int[] scope;
+    /** per loop, the slot holding the start of its iteration */
+    private final int[] loopSlot;
+    /** per loop, the loop around it, or -1 */
+    private final int[] loopParent;
+    /** first thread key of each instruction, and the number of keys */
+    private final int[] base;
+    private final int nkeys;
+    /** captures: groups (two slots each, group 0 first) then locals */
+    final int nslots;
+    private final int ngroupSlots;
+    private final boolean anchoredAtBegin;
+    /** pc of the first instruction */
+    private int start;
+
+    private NFA(Builder b, int ngroupSlots, boolean anchoredAtBegin) {
+        int n = b.size;
+        op = Arrays.copyOf(b.op, n);
+        arg = Arrays.copyOf(b.arg, n);
+        arg2 = Arrays.copyOf(b.arg2, n);
+        node = Arrays.copyOf(b.node, n);
+        owner = Arrays.copyOf(b.owner, n);
+        scope = Arrays.copyOf(b.scope, n);
+        loopSlot = Arrays.copyOf(b.loopSlot, b.nloops);
+        loopParent = Arrays.copyOf(b.loopParent, b.nloops);
+        // An instruction inside d loops has d + 1 keys
+        base = new int[n];
+        int keys = 0;
+        for (int pc = 0; pc < n; pc++) {
+            base[pc] = keys++;
+            for (int l = scope[pc]; l >= 0; l = loopParent[l])
+                keys++;
+        }
+        nkeys = keys;
+        this.ngroupSlots = ngroupSlots;
+        this.nslots = ngroupSlots + b.nlocals;
+        this.anchoredAtBegin = anchoredAtBegin;
+    }
+
+    /**
+     * Translates the node tree of the given compiled pattern, or returns
+     * null if it contains constructs that need backtracking.
+     */
+    static NFA compile(Pattern p) {
+        Builder b = new Builder(true, 2 * p.capturingGroupCount);
+        b.nlocals = p.localCount;
+        if (!b.emit(p.matchRoot, Pattern.lastAccept))
+            return null;
+        b.add(MATCH, 0, 0, null);
+        if (b.size > MAX_PROGRAM)
+            return null;
+        return new NFA(b, 2 * p.capturingGroupCount,
+                       p.matchRoot instanceof Begin);
+    }
+
+    /**
+     * Translates the node trees of the given compiled patterns into one
+     * program without captures, whose MATCH instructions carry the index
+     * of their pattern.  Patterns that cannot be translated are left out
+     * and their entries in {@code included} are set to false.
+     */
+    static NFA compileSet(Pattern[] ps, boolean[] included) {
+        Builder b = new Builder(false, 0);
+        int[] splits = new int[ps.length];
+        int nsplits = 0;
+        for (int k = 0; k < ps.length; k++) {
+            int mark = b.size;
+            int split = b.add(SPLIT, mark + 1, 0, null);
+            b.pattern = k;
+            if (b.emit(ps[k].matchRoot, Pattern.lastAccept)
+                && b.add(MATCH, k, 0, null) < MAX_PROGRAM) {
+                splits[nsplits++] = split;
+                included[k] = true;
+            } else {
+                b.size = mark;          // drop what was emitted
+                included[k] = false;
+            }
+        }
+        int fail = b.add(SPLIT, -1, -1, null);  // no thread survives
+        for (int s = 0; s < nsplits; s++) {
+            b.arg2[splits[s]] = (s + 1 < nsplits) ? splits[s + 1] : fail;
+        }
+        if (nsplits == 0)
+            return null;
+        // Chain starts at the first split
+        NFA nfa = new NFA(b, 0, false);
+        nfa.start = splits[0];
+        return nfa;
+    }
+
+    /**
+     * Accumulates a program while the node tree is walked.
+     */
+    private static final class Builder {
+        int[] op = new int[32];
+        int[] arg = new int[32];
+        int[] arg2 = new int[32];
+        Node[] node = new Node[32];
+        int[] owner = new int[32];
+        int[] scope = new int[32];
+        int size;
+        int nlocals;
+        int pattern;
+        int[] loopSlot = new int[4];
+        int[] loopParent = new int[4];
+        int nloops;
+        /** the loop whose iteration is being emitted, or -1 */
+        int loop = -1;
+        final boolean captures;
+        final int localBase;
+
+        Builder(boolean captures, int localBase) {
+            this.captures = captures;
+            this.localBase = localBase;
+        }
+
+        int add(int o, int a, int a2, Node n) {
+            if (size == op.length) {
+                int len = size * 2;
+                op = Arrays.copyOf(op, len);
+                arg = Arrays.copyOf(arg, len);
+                arg2 = Arrays.copyOf(arg2, len);
+                node = Arrays.copyOf(node, len);
+                owner = Arrays.copyOf(owner, len);
+                scope = Arrays.copyOf(scope, len);
+            }
+            op[size] = o;
+            arg[size] = a;
+            arg2[size] = a2;
+            node[size] = n;
+            owner[size] = pattern;
+            scope[size] = loop;
+            return size++;
+        }
+
+        /**
+         * Emits the path from n up to, not including, stop.  A GroupCurly
+         * stop ends at the GroupTail of its group.  Returns false if a node
+         * cannot be translated or the program gets too large.
+         */
+        boolean emit(Node n, Node stop) {
+            while (!isEnd(n, stop)) {
+                if (size > MAX_PROGRAM || n == null)
+                    return false;
+                if (n instanceof CharProperty) {
+                    if (n instanceof BmpCharProperty) {
+                        add(BMP_PROP, 0, 0, n);
+                    } else {
+                        add(PROP, 0, 0, n);
+                        add(LOW, 0, 0, null);
+                    }
+                } else if (n instanceof SliceNode) {
+                    emitSlice((SliceNode) n);
+                } else if (n instanceof GroupHead) {
+                    if (captures)
+                        add(SAVE, localBase + ((GroupHead) n).localIndex, 0,
+                            null);
+                } else if (n instanceof GroupTail) {
+                    GroupTail t = (GroupTail) n;
+                    if (captures && t.groupIndex != 0)
+                        add(GROUP, t.groupIndex, localBase + t.localIndex,
+                            null);
+                } else if (n instanceof Branch) {
+                    Branch br = (Branch) n;
+                    if (!emitBranch(br))
+                        return false;
+                    n = br.conn.next;
+                    continue;
+                } else if (n instanceof Ques) {
+                    Ques q = (Ques) n;
+                    if (q.type != Pattern.GREEDY && q.type != Pattern.LAZY)
+                        return false;
+                    if (!emitRepeat(q.atom, Pattern.accept, 0, 1,
+                                    q.type == Pattern.GREEDY, -1, -1))
+                        return false;
+                } else if (n instanceof Curly) {
+                    Curly c = (Curly) n;
+                    if (c.type != Pattern.GREEDY && c.type != Pattern.LAZY)
+                        return false;
+                    if (!emitRepeat(c.atom, Pattern.accept, c.cmin, c.cmax,
+                                    c.type == Pattern.GREEDY, -1, -1))
+                        return false;
+                } else if (n instanceof GroupCurly) {
+                    GroupCurly gc = (GroupCurly) n;
+                    if (gc.type != Pattern.GREEDY && gc.type != Pattern.LAZY)
+                        return false;
+                    if (!emitRepeat(gc.atom, gc, gc.cmin, gc.cmax,
+                                    gc.type == Pattern.GREEDY,
+                                    gc.capture ? gc.groupIndex : -1, -1))
+                        return false;
+                } else if (n instanceof Prolog) {
+                    Loop loop = ((Prolog) n).loop;
+                    if (!emitRepeat(loop.body, loop, loop.cmin, loop.cmax,
+                                    !(loop instanceof LazyLoop), -1,
+                                    localBase + loop.beginIndex))
+                        return false;
+                    n = loop.next;
+                    continue;
+                } else {
+                    Node a = copyAssertion(n);
+                    if (a == null)
+                        return false;
+                    add(ASSERT, 0, 0, a);
+                }
+                n = n.next;
+            }
+            return true;
+        }
+
+        /**
+         * Tells whether the path from n to stop can match the empty string.
+         * Only called on paths that emit accepts.
+         */
+        private static boolean nullable(Node n, Node stop) {
+            while (!isEnd(n, stop)) {
+                if (n instanceof CharProperty || n instanceof SliceNode)
+                    return false;
+                if (n instanceof Branch) {
+                    Branch br = (Branch) n;
+                    boolean any = false;
+                    for (int k = 0; k < br.size && !any; k++)
+                        any = br.atoms[k] == null
+                              || nullable(br.atoms[k], br.conn);
+                    if (!any)
+                        return false;
+                    n = br.conn.next;
+                    continue;
+                }
+                if (n instanceof Curly) {
+                    Curly c = (Curly) n;
+                    if (c.cmin > 0 && !nullable(c.atom, Pattern.accept))
+                        return false;
+                } else if (n instanceof GroupCurly) {
+                    GroupCurly gc = (GroupCurly) n;
+                    if (gc.cmin > 0 && !nullable(gc.atom, gc))
+                        return false;
+                } else if (n instanceof Prolog) {
+                    Loop loop = ((Prolog) n).loop;
+                    if (loop.cmin > 0 && !nullable(loop.body, loop))
+                        return false;
+                    n = loop.next;
+                    continue;
+                }
+                n = n.next;
+            }
+            return true;
+        }
+
+        private static boolean isEnd(Node n, Node stop) {
+            if (n == stop)
+                return true;
+            return stop instanceof GroupCurly && n instanceof GroupTail
+                && ((GroupTail) n).localIndex == ((GroupCurly) stop).localIndex;
+        }
+
+        private void emitSlice(SliceNode s) {
+            int o;
+            if (s instanceof Slice)
+                o = CHAR;
+            else if (s instanceof SliceU)
+                o = CHAR_U;
+            else if (s instanceof SliceI)
+                o = CHAR_I;
+            else if (s instanceof SliceS)
+                o = CP;
+            else if (s instanceof SliceUS)
+                o = CP_U;
+            else
+                o = CP_I;               // SliceIS
+            for (int c : s.buffer) {
+                add(o, c, 0, null);
+                if (o >= CP)
+                    add(LOW, 0, 0, null);
+            }
+        }
+
+        private boolean emitBranch(Branch br) {
+            int[] jumps = new int[br.size];
+            for (int k = 0; k < br.size; k++) {
+                int split = -1;
+                if (k < br.size - 1)
+                    split = add(SPLIT, size + 1, 0, null);
+                if (br.atoms[k] != null && !emit(br.atoms[k], br.conn))
+                    return false;
+                jumps[k] = add(JMP, 0, 0, null);
+                if (split >= 0)
+                    arg2[split] = size;
+            }
+            for (int j : jumps)
+                arg[j] = size;
+            return true;
+        }
+
+        /**
+         * Emits cmin to cmax repetitions of the path from atom to stop,
+         * each saved to the group at slot groupSlot unless that is -1.  If
+         * beginSlot is not -1, the body is that of a Loop, and the slot holds
+         * the index at which its current iteration began.
+         */
+        private boolean emitRepeat(Node atom, Node stop, int cmin, int cmax,
+                                   boolean greedy, int groupSlot,
+                                   int beginSlot) {
+            boolean nullable = cmax > 1 && nullable(atom, stop);
+            if (nullable && beginSlot < 0) {
+                // A Curly or GroupCurly that can match the empty string
+                // repeats assertions only, and the node tree stops at the
+                // first optional iteration.  A greedy one still sets the
+                // groups inside the atom, though not its own.
+                for (int k = 0; k < cmin; k++) {
+                    if (!emitOnce(atom, stop, groupSlot))
+                        return false;
+                }
+                if (greedy && cmax > cmin) {
+                    int split = add(SPLIT, 0, 0, null);
+                    if (!emit(atom, stop))
+                        return false;
+                    setSplit(split, split + 1, size, true);
+                }
+                return true;
+            }
+            // Without captures an empty iteration only leads back to a
+            // thread already in the list, so the check is left out
+            boolean check = nullable && beginSlot >= 0 && captures;
+            int id = -1;
+            if (check) {
+                if (nloops == loopSlot.length) {
+                    loopSlot = Arrays.copyOf(loopSlot, nloops * 2);
+                    loopParent = Arrays.copyOf(loopParent, nloops * 2);
+                }
+                id = nloops++;
+                loopSlot[id] = beginSlot;
+                loopParent[id] = loop;
+            }
+            int first = size;
+            for (int k = 0; k < cmin; k++) {
+                if (!emitIteration(atom, stop, groupSlot, id))
+                    return false;
+            }
+            if (cmax == Pattern.MAX_REPS) {
+                int split = add(SPLIT, 0, 0, null);
+                if (!emitIteration(atom, stop, groupSlot, id))
+                    return false;
+                add(JMP, split, 0, null);
+                setSplit(split, split + 1, size, greedy);
+            } else {
+                int n = cmax - cmin;
+                if (n > MAX_PROGRAM)
+                    return false;
+                int[] splits = new int[n];
+                for (int k = 0; k < n; k++) {
+                    splits[k] = add(SPLIT, 0, 0, null);
+                    if (!emitIteration(atom, stop, groupSlot, id))
+                        return false;
+                }
+                for (int split : splits)
+                    setSplit(split, split + 1, size, greedy);
+            }
+            if (check) {
+                // Nested loops have already set the exits of their own
+                for (int pc = first; pc < size; pc++) {
+                    if (op[pc] == EMPTY && arg2[pc] < 0)
+                        arg2[pc] = size;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Emits one iteration.  If id is not -1 it is the index of the
+         * loop, and the iteration is followed by an EMPTY instruction whose
+         * exit is left for emitRepeat to set.
+         */
+        private boolean emitIteration(Node atom, Node stop, int groupSlot,
+                                      int id) {
+            if (id < 0)
+                return emitOnce(atom, stop, groupSlot);
+            int outer = loop;
+            int mark = size;
+            loop = id;
+            boolean ok = emitOnce(atom, stop, groupSlot);
+            if (ok)
+                add(EMPTY, loopSlot[id], -1, null);
+            loop = outer;
+            // The body starts by saving the start of the iteration, and
+            // is inside the loop only from then on
+            scope[mark] = outer;
+            return ok;
+        }
+
+        private boolean emitOnce(Node atom, Node stop, int groupSlot) {
+            if (captures && groupSlot >= 0)
+                add(SAVE, groupSlot, 0, null);
+            if (!emit(atom, stop))
+                return false;
+            if (captures && groupSlot >= 0)
+                add(SAVE, groupSlot + 1, 0, null);
+            return true;
+        }
+
+        private void setSplit(int split, int body, int exit, boolean greedy) {
+            arg[split] = greedy ? body : exit;
+            arg2[split] = greedy ? exit : body;
+        }
+
+        /**
+         * Returns a copy of a supported zero-width assertion node that
+         * accepts where the original would go on to its successor.
+         */
+        private static Node copyAssertion(Node n) {
+            Node a;
+            if (n instanceof Begin)
+                a = new Begin();
+            else if (n instanceof End)
+                a = new End();
+            else if (n instanceof Caret)
+                a = new Caret();
+            else if (n instanceof UnixCaret)
+                a = new UnixCaret();
+            else if (n instanceof Dollar)
+                a = new Dollar(((Dollar) n).multiline);
+            else if (n instanceof UnixDollar)
+                a = new UnixDollar(((UnixDollar) n).multiline);
+            else if (n instanceof Bound)
+                a = new Bound(((Bound) n).type, ((Bound) n).useUWORD);
+            else if (n instanceof LastMatch)
+                a = new LastMatch();
+            else
+                return null;
+            a.next = TRUE;
+            return a;
+        }
+    }
+
+    // -- Execution --
+
+    /**
+     * A list of threads, as a sparse set of thread keys in priority order
+     * together with the program counter and captures of each.
+     */
+    static final class Threads {
+        final int[] sparse;
+        final int[] dense;
+        final int[] pcs;
+        final int[][] caps;
+        int size;
+
+        Threads(int n) {
+            sparse = new int[n];
+            dense = new int[n];
+            pcs = new int[n];
+            caps = new int[n][];
+        }
+
+        boolean contains(int key) {
+            int d = sparse[key];
+            return d < size && dense[d] == key;
+        }
+
+        void add(int key, int pc, int[] c) {
+            sparse[key] = size;
+            pcs[size] = pc;
+            dense[size] = key;
+            caps[size++] = c;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Per-matcher scratch space for running one program.
+     */
+    static final class State {
+        final NFA nfa;
+        Threads clist;
+        Threads nlist;
+        final int[] stackPc;
+        final int[][] stackCaps;
+
+        State(NFA nfa) {
+            int n = nfa.nkeys;
+            this.nfa = nfa;
+            clist = new Threads(n);
+            nlist = new Threads(n);
+            stackPc = new int[n + 1];
+            stackCaps = new int[n + 1][];
+        }
+    }
+
+    /**
+     * Adds the thread at pc, with the given captures, to the list, along
+     * with every thread reachable from it without consuming input, in
+     * priority order.
+     */
+    private void addThread(State st, Threads list, int pc, int[] caps,
+                           int i, Matcher m, CharSequence seq) {
+        int[] stackPc = st.stackPc;
+        int[][] stackCaps = st.stackCaps;
+        int sp = 0;
+        stackPc[sp] = pc;
+        stackCaps[sp++] = caps;
+        while (sp > 0) {
+            pc = stackPc[--sp];
+            caps = stackCaps[sp];
+            stackCaps[sp] = null;
+            while (pc >= 0) {
+                int key = key(pc, caps, i);
+                if (list.contains(key))
+                    break;
+                list.add(key, pc, caps);
+                switch (op[pc]) {
+                case JMP:
+                    pc = arg[pc];
+                    continue;
+                case SPLIT:
+                    stackPc[sp] = arg2[pc];
+                    stackCaps[sp++] = caps;
+                    pc = arg[pc];
+                    continue;
+                case SAVE:
+                    caps = caps.clone();
+                    caps[arg[pc]] = i;
+                    pc++;
+                    continue;
+                case GROUP:
+                    caps = caps.clone();
+                    caps[arg[pc]] = caps[arg2[pc]];
+                    caps[arg[pc] + 1] = i;
+                    pc++;
+                    continue;
+                case ASSERT:
+                    if (node[pc].match(m, i, seq)) {
+                        pc++;
+                        continue;
+                    }
+                    break;
+                case EMPTY:
+                    // An iteration that matched nothing leaves the loop
+                    pc = (caps[arg[pc]] == i) ? arg2[pc] : pc + 1;
+                    continue;
+                default:
+                    break;
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the key of a thread at pc with the given captures at index
+     * i: the first key of pc plus the number of loops around pc whose
+     * iteration began at i.  An iteration that began at i leaves every
+     * loop inside it also begun at i, so those loops are the innermost.
+     */
+    private int key(int pc, int[] caps, int i) {
+        int key = base[pc];
+        for (int l = scope[pc]; l >= 0 && caps[loopSlot[l]] == i;
+             l = loopParent[l])
+            key++;
+        return key;
+    }
+
+    /**
+     * Runs the thread at pc, at index i, for one character.  Returns the
+     * program counter of its successor at i + 1, or -1 if it fails; a
+     * successor from a code point instruction is at pc + 1 for a
+     * supplementary character and pc + 2 otherwise.
+     */
+    private int step(int pc, int i, Matcher m, CharSequence seq) {
+        if (i >= m.to) {
+            m.hitEnd = true;
+            return -1;
+        }
+        int c;
+        switch (op[pc]) {
+        case CHAR:
+            return (seq.charAt(i) == arg[pc]) ? pc + 1 : -1;
+        case CHAR_I:
+            c = seq.charAt(i);
+            return (arg[pc] == c || arg[pc] == ASCII.toLower(c)) ? pc + 1 : -1;
+        case CHAR_U:
+            c = seq.charAt(i);
+            return (arg[pc] == c
+                    || arg[pc] == Character.toLowerCase(Character.toUpperCase(c)))
+                ? pc + 1 : -1;
+        case BMP_PROP:
+            return ((CharProperty) node[pc]).isSatisfiedBy(seq.charAt(i))
+                ? pc + 1 : -1;
+        case LOW:
+            return pc + 1;
+        default:
+            break;
+        }
+        c = Character.codePointAt(seq, i);
+        boolean ok;
+        switch (op[pc]) {
+        case CP:
+            ok = (arg[pc] == c);
+            break;
+        case CP_I:
+            ok = (arg[pc] == c || arg[pc] == ASCII.toLower(c));
+            break;
+        case CP_U:
+            ok = (arg[pc] == c
+                  || arg[pc] == Character.toLowerCase(Character.toUpperCase(c)));
+            break;
+        default:    // PROP
+            ok = ((CharProperty) node[pc]).isSatisfiedBy(c);
+            break;
+        }
+        if (!ok)
+            return -1;
+        return Character.isSupplementaryCodePoint(c) ? pc + 1 : pc + 2;
+    }
+
+    /**
+     * Looks for a match starting at from, or if search is true at or after
+     * from, with the semantics of the node tree, and on success sets the
+     * matcher's first, last and groups.
+     */
+    boolean match(Matcher m, int from, boolean search) {
+        State st = m.nfaState;
+        if (st == null || st.nfa != this)
+            m.nfaState = st = new State(this);
+        CharSequence seq = m.text;
+        int to = m.to;
+        boolean endAnchor = (m.acceptMode == Matcher.ENDANCHOR);
+        if (anchoredAtBegin)
+            search = false;             // seeds elsewhere would fail at once
+        Threads clist = st.clist;
+        Threads nlist = st.nlist;
+        clist.clear();
+        int[] matched = null;
+        for (int i = from; i <= to; i++) {
+            if (matched == null && (search || i == from)) {
+                int[] caps = new int[nslots];
+                Arrays.fill(caps, -1);
+                caps[0] = i;
+                addThread(st, clist, start, caps, i, m, seq);
+            }
+            if (clist.size == 0) {
+                if (matched != null || !search)
+                    break;
+                continue;
+            }
+            nlist.clear();
+            for (int k = 0; k < clist.size; k++) {
+                int pc = clist.pcs[k];
+                int o = op[pc];
+                if (o == MATCH) {
+                    if (endAnchor && i != to)
+                        continue;
+                    matched = clist.caps[k].clone();
+                    matched[1] = i;
+                    break;              // cut lower priority threads
+                }
+                if (o > LOW)
+                    continue;           // already followed
+                int next = step(pc, i, m, seq);
+                if (next >= 0)
+                    addThread(st, nlist, next, clist.caps[k], i + 1, m, seq);
+            }
+            Threads t = clist;
+            clist = nlist;
+            nlist = t;
+        }
+        st.clist = clist;
+        st.nlist = nlist;
+        if (matched == null) {
+            if (search)
+                m.hitEnd = true;
+            return false;
+        }
+        m.first = matched[0];
+        m.last = matched[1];
+        System.arraycopy(matched, 0, m.groups, 0, ngroupSlots);
+        return true;
+    }
+
+    /**
+     * Finds which of the patterns of a program compiled by compileSet occur
+     * in the region of m, setting their entries in found, and returns the
+     * number of entries set.  Stops once remaining entries are set.
+     */
+    int find(Matcher m, boolean[] found, int remaining) {
+        State st = new State(this);
+        m.oldLast = m.from;             // as for a first find()
+        CharSequence seq = m.text;
+        int to = m.to;
+        Threads clist = st.clist;
+        Threads nlist = st.nlist;
+        int count = 0;
+        for (int i = m.from; i <= to && count < remaining; i++) {
+            addThread(st, clist, start, null, i, m, seq);
+            nlist.clear();
+            for (int k = 0; k < clist.size; k++) {
+                int pc = clist.pcs[k];
+                int o = op[pc];
+                if (found[owner[pc]])
+                    continue;
+                if (o == MATCH) {
+                    found[arg[pc]] = true;
+                    count++;
+                    continue;
+                }
+                if (o > LOW)
+                    continue;
+                int next = step(pc, i, m, seq);
+                if (next >= 0)
+                    addThread(st, nlist, next, null, i + 1, m, seq);
+            }
+            Threads t = clist;
+            clist = nlist;
+            nlist = t;
+        }
+        return count;
+    }
+}
@@ -25,6 +25,7 @@
 
 package java.util.regex;
 
+import java.nio.CharBuffer;
 import java.text.Normalizer;
 import java.util.Locale;
 import java.util.Iterator;
@@ -35,6 +36,8 @@ import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -917,6 +920,30 @@ public final class Pattern
      */
     public static final int UNICODE_CHARACTER_CLASS = 0x100;
 
+    /**
+     * Enables linear-time matching.
+     *
+     * <p> When this flag is specified, the pattern is matched by simulating
+     * all of its possible paths through the input at once, instead of by
+     * trying them one after another.  Matching then takes time
+     * proportional to the length of the input multiplied by the size of
+     * the pattern, however the input is constructed, and a failing match
+     * cannot backtrack catastrophically.  Matches are the same as without
+     * the flag, and so are groups, except that a group within a repetition
+     * does not keep a value captured by an attempt that was given up.
+     *
+     * <p> Back references, lookahead and lookbehind, independent groups,
+     * possessive quantifiers and the linebreak matcher {@code \R} need
+     * backtracking.  Compiling a pattern that uses any of them, or whose
+     * counted repetitions expand too far, with this flag throws a {@link
+     * PatternSyntaxException}, so that such a pattern is never matched by
+     * backtracking unnoticed.
+     *
+     * <p> There is no embedded flag character for this flag.
+     * @since 1.8
+     */
+    public static final int LINEAR_TIME = 0x200;
+
     /* Pattern has only two serialized components: The pattern string
      * and the flags, which are all that is needed to recompile the pattern
      * when it is deserialized.
@@ -932,6 +959,16 @@ public final class Pattern
      */
     private String pattern;
 
+    /**
+     * A matcher that matches(CharSequence, int, int) borrows, or null
+     * while it is in use.
+     */
+    private transient volatile Matcher spareMatcher;
+
+    private static final AtomicReferenceFieldUpdater<Pattern,Matcher>
+        SPARE_MATCHER = AtomicReferenceFieldUpdater.newUpdater(
+            Pattern.class, Matcher.class, "spareMatcher");
+
     /**
      * The original pattern flags.
      *
@@ -963,6 +1000,12 @@ public final class Pattern
      */
     transient Node matchRoot;
 
+    /**
+     * The linear-time program for the matchRoot if LINEAR_TIME is set,
+     * otherwise null.
+     */
+    transient NFA nfa;
+
     /**
      * Temporary storage used by parsing pattern slice.
      */
@@ -1039,8 +1082,8 @@ public final class Pattern
      *         Match flags, a bit mask that may include
      *         {@link #CASE_INSENSITIVE}, {@link #MULTILINE}, {@link #DOTALL},
      *         {@link #UNICODE_CASE}, {@link #CANON_EQ}, {@link #UNIX_LINES},
-     *         {@link #LITERAL}, {@link #UNICODE_CHARACTER_CLASS}
-     *         and {@link #COMMENTS}
+     *         {@link #LITERAL}, {@link #UNICODE_CHARACTER_CLASS},
+     *         {@link #LINEAR_TIME} and {@link #COMMENTS}
      *
      * @return the given regular expression compiled into a pattern with the given flags
      * @throws  IllegalArgumentException
@@ -1048,7 +1091,9 @@ public final class Pattern
      *          match flags are set in <tt>flags</tt>
      *
      * @throws  PatternSyntaxException
-     *          If the expression's syntax is invalid
+     *          If the expression's syntax is invalid, or if {@link
+     *          #LINEAR_TIME} is specified and the expression needs
+     *          backtracking
      */
     public static Pattern compile(String regex, int flags) {
         return new Pattern(regex, flags);
@@ -1084,14 +1129,21 @@ public final class Pattern
      * @return  A new matcher for this pattern
      */
     public Matcher matcher(CharSequence input) {
+        ensureCompiled();
+        Matcher m = new Matcher(this, input);
+        return m;
+    }
+
+    /**
+     * Compiles a deserialized pattern on first use.
+     */
+    void ensureCompiled() {
         if (!compiled) {
             synchronized(this) {
                 if (!compiled)
                     compile();
             }
         }
-        Matcher m = new Matcher(this, input);
-        return m;
     }
 
     /**
@@ -1135,6 +1187,56 @@ public final class Pattern
         return m.matches();
     }
 
+    /**
+     * Attempts to match the given range of the input against this pattern.
+     *
+     * <p> An invocation of this method of the form
+     *
+     * <blockquote><pre>
+     * p.matches(input, start, end);</pre></blockquote>
+     *
+     * behaves in exactly the same way as the expression
+     *
+     * <blockquote><pre>
+     * p.matcher(input).region(start, end).matches()</pre></blockquote>
+     *
+     * <p> Like the pattern itself, this method is safe for use by multiple
+     * concurrent threads.  The pattern keeps a matcher that a call borrows
+     * when no other call is using it, so that repeated calls usually create
+     * no objects.  </p>
+     *
+     * @param  input
+     *         The character sequence to be matched
+     *
+     * @param  start
+     *         The index of the first character to match (inclusive)
+     *
+     * @param  end
+     *         The index of the last character to match (exclusive)
+     *
+     * @return whether or not the range of the input matches this pattern
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If start or end is less than zero, if either is greater than
+     *          the length of the input sequence, or if start is greater
+     *          than end
+     * @since 1.8
+     */
+    public boolean matches(CharSequence input, int start, int end) {
+        ensureCompiled();
+        Matcher m = SPARE_MATCHER.getAndSet(this, null);
+        if (m == null)
+            m = new Matcher(this, input);
+        else
+            m.text = input;
+        try {
+            return m.region(start, end).matches();
+        } finally {
+            m.text = null;
+            SPARE_MATCHER.lazySet(this, m);
+        }
+    }
+
     /**
      * Splits the given input sequence around matches of this pattern.
      *
@@ -1716,6 +1818,14 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
             root = hasSupplementary ? new StartS(matchRoot) : new Start(matchRoot);
         }
 
+        if (has(LINEAR_TIME)) {
+            nfa = NFA.compile(this);
+            if (nfa == null)
+                throw new PatternSyntaxException(
+                    "Needs backtracking, cannot be matched in linear time",
+                    normalizedPattern, -1);
+        }
+
         // Release temporary storage
         temp = null;
         buffer = null;
@@ -3763,7 +3873,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * Abstract node class to match one character satisfying some
      * boolean property.
      */
-    private static abstract class CharProperty extends Node {
+    static abstract class CharProperty extends Node {
         abstract boolean isSatisfiedBy(int ch);
         CharProperty complement() {
             return new CharProperty() {
@@ -3791,7 +3901,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * Optimized version of CharProperty that works only for
      * properties never satisfied by Supplementary characters.
      */
-    private static abstract class BmpCharProperty extends CharProperty {
+    static abstract class BmpCharProperty extends CharProperty {
         boolean match(Matcher matcher, int i, CharSequence seq) {
             if (i < matcher.to) {
                 return isSatisfiedBy(seq.charAt(i))
@@ -5853,4 +5963,97 @@ NEXT:       while (i <= last) {
         return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
                 new MatcherIterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
+
+    /**
+     * Creates a spliterator over views of the given input sequence around
+     * matches of this pattern.
+     *
+     * <p> The spliterator returned by this method covers the same
+     * subsequences, in the same order, as the stream returned by {@link
+     * #splitAsStream splitAsStream}.  Instead of copying each of them into a
+     * new string, it presents it as a read-only {@link CharSequence} view of
+     * the input, which is cheaper when only some of the elements, or only
+     * some of their characters, are needed.  The input is split lazily, one
+     * element at a time, as the elements are consumed.
+     *
+     * <p> The input sequence must remain constant while the spliterator or
+     * any of its elements are in use.  Otherwise, the elements are undefined.
+     *
+     * @param   input
+     *          The character sequence to be split
+     *
+     * @return  The spliterator of subsequences computed by splitting the
+     *          input around matches of this pattern
+     * @see     #splitAsStream(CharSequence)
+     * @since   1.8
+     */
+    public Spliterator<CharSequence> splitAsSpliterator(final CharSequence input) {
+        class MatcherSpliterator
+            extends Spliterators.AbstractSpliterator<CharSequence>
+        {
+            private final Matcher matcher;
+            // The start position of the next sub-sequence of input
+            // when current == input.length there are no more elements
+            private int current;
+            // The bounds of the next non-empty element; nextEnd < 0 if the
+            // next element, if any, needs to be obtained
+            private int nextStart;
+            private int nextEnd = -1;
+            // > 0 if there are N next empty elements
+            private int emptyElementCount;
+
+            MatcherSpliterator() {
+                super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+                this.matcher = matcher(input);
+            }
+
+            public boolean tryAdvance(Consumer<? super CharSequence> action) {
+                if (action == null)
+                    throw new NullPointerException();
+                if (emptyElementCount == 0 && nextEnd < 0 && !findNext())
+                    return false;
+                if (emptyElementCount > 0) {
+                    emptyElementCount--;
+                    action.accept("");
+                } else {
+                    action.accept(CharBuffer.wrap(input, nextStart, nextEnd));
+                    nextEnd = -1;
+                }
+                return true;
+            }
+
+            private boolean findNext() {
+                if (current == input.length())
+                    return false;
+
+                // Consume the next matching element
+                // Count sequence of matching empty elements
+                while (matcher.find()) {
+                    nextStart = current;
+                    nextEnd = matcher.start();
+                    current = matcher.end();
+                    if (nextEnd > nextStart) {
+                        return true;
+                    } else if (current > 0) { // no empty leading substring for zero-width
+                                              // match at the beginning of the input
+                        emptyElementCount++;
+                    }
+                }
+
+                // Consume last matching element
+                nextStart = current;
+                nextEnd = input.length();
+                current = input.length();
+                if (nextEnd > nextStart) {
+                    return true;
+                } else {
+                    // Ignore a terminal sequence of matching empty elements
+                    emptyElementCount = 0;
+                    nextEnd = -1;
+                    return false;
+                }
+            }
+        }
+        return new MatcherSpliterator();
+    }
 }
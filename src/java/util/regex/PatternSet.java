@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.regex;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * A set of patterns that can be searched for in an input all at once.
+ *
+ * <p> {@link #find(CharSequence)} reports which of the patterns occur in an
+ * input, that is for which of them {@link Matcher#find()} would return
+ * {@code true} on a new matcher for the input.  Patterns are matched in a
+ * single pass over the input by a combined linear-time program, as with the
+ * {@link Pattern#LINEAR_TIME} flag, so that the cost of a search grows with
+ * the total size of the patterns rather than with their number times the
+ * length of the input.  Patterns that need backtracking (see {@link
+ * Pattern#LINEAR_TIME}) are searched for one by one after that pass.
+ *
+ * <p> A pattern set is immutable and safe for use by multiple concurrent
+ * threads.
+ *
+ * @see Pattern#LINEAR_TIME
+ * @since 1.8
+ */
+public final class PatternSet {
+
+    private final Pattern[] patterns;
+    /** the combined program, or null if no pattern could be translated */
+    private final NFA nfa;
+    /** which patterns are matched by nfa */
+    private final boolean[] linear;
+    private final int linearCount;
+
+    private PatternSet(Pattern[] patterns) {
+        this.patterns = patterns;
+        for (Pattern p : patterns)
+            p.ensureCompiled();
+        linear = new boolean[patterns.length];
+        nfa = NFA.compileSet(patterns, linear);
+        int n = 0;
+        for (boolean b : linear) {
+            if (b)
+                n++;
+        }
+        linearCount = n;
+    }
+
+    /**
+     * Compiles the given regular expressions into a pattern set.
+     *
+     * @param  regexes
+     *         The expressions to be compiled
+     *
+     * @return  A pattern set whose pattern at each index is compiled from
+     *          the expression at that index
+     *
+     * @throws  PatternSyntaxException
+     *          If an expression's syntax is invalid
+     */
+    public static PatternSet compile(String... regexes) {
+        return compile(0, regexes);
+    }
+
+    /**
+     * Compiles the given regular expressions with the given flags into a
+     * pattern set.
+     *
+     * @param  flags
+     *         Match flags, as for {@link Pattern#compile(String, int)}
+     *
+     * @param  regexes
+     *         The expressions to be compiled
+     *
+     * @return  A pattern set whose pattern at each index is compiled from
+     *          the expression at that index
+     *
+     * @throws  PatternSyntaxException
+     *          If an expression's syntax is invalid, or if {@link
+     *          Pattern#LINEAR_TIME} is specified and an expression needs
+     *          backtracking
+     */
+    public static PatternSet compile(int flags, String... regexes) {
+        Pattern[] ps = new Pattern[regexes.length];
+        for (int i = 0; i < regexes.length; i++)
+            ps[i] = Pattern.compile(regexes[i], flags);
+        return new PatternSet(ps);
+    }
+
+    /**
+     * Returns a pattern set of the given patterns.
+     *
+     * @param  patterns
+     *         The patterns, each compiled with its own flags
+     *
+     * @return  A pattern set with the given patterns at their indices
+     *
+     * @throws  NullPointerException
+     *          If a pattern is {@code null}
+     */
+    public static PatternSet of(Pattern... patterns) {
+        Pattern[] ps = patterns.clone();
+        for (Pattern p : ps)
+            Objects.requireNonNull(p);
+        return new PatternSet(ps);
+    }
+
+    /**
+     * Returns the number of patterns in this set.
+     *
+     * @return  The number of patterns
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * Returns the pattern at the given index.
+     *
+     * @param  index
+     *         The index of the pattern
+     *
+     * @return  The pattern
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the index is negative or not less than {@link #size()}
+     */
+    public Pattern pattern(int index) {
+        return patterns[index];
+    }
+
+    /**
+     * Returns the indices of the patterns that occur in the given input.
+     *
+     * @param  input
+     *         The character sequence to be searched
+     *
+     * @return  A new bit set with the bits set whose indices are those of
+     *          the patterns that match some part of the input
+     */
+    public BitSet find(CharSequence input) {
+        boolean[] found = search(input, linearCount);
+        BitSet result = new BitSet(patterns.length);
+        for (int i = 0; i < patterns.length; i++) {
+            if (found[i] || (!linear[i] && patterns[i].matcher(input).find()))
+                result.set(i);
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether any pattern of this set occurs in the given input.
+     *
+     * @param  input
+     *         The character sequence to be searched
+     *
+     * @return  {@code true} if, and only if, some pattern matches some part
+     *          of the input
+     */
+    public boolean findAny(CharSequence input) {
+        boolean[] found = search(input, 1);
+        for (int i = 0; i < patterns.length; i++) {
+            if (found[i] || (!linear[i] && patterns[i].matcher(input).find()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Runs the combined program over the input until it has found
+     * {@code enough} patterns or reached the end of the input.
+     */
+    private boolean[] search(CharSequence input, int enough) {
+        boolean[] found = new boolean[patterns.length];
+        Objects.requireNonNull(input);
+        if (nfa != null) {
+            // A matcher gives assertions the region they expect
+            Matcher m = new Matcher(patterns[0], input);
+            nfa.find(m, found, enough);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A class that can be used to compute the CRC-32C of a data stream.
+ *
+ * <p> CRC-32C is defined by the Castagnoli polynomial 0x1EDC6F41, as used
+ * by iSCSI (RFC 3720) and many storage formats.  It is computed here eight
+ * bytes at a time ("slicing-by-8"), from tables built when the class is
+ * initialized.
+ *
+ * <p> Passing a {@code null} argument to a method in this class will cause
+ * a {@link NullPointerException} to be thrown.
+ *
+ * @see         Checksum
+ * @since       1.8
+ */
+public final class CRC32C implements Checksum {
+
+    /*
+     * The bit-reflected Castagnoli polynomial.
+     */
+    private static final int POLY = 0x82F63B78;
+
+    /*
+     * Eight tables of 256 entries, held in one array.  Table 0 is the CRC
+     * of each byte value; table k is the CRC of each byte value followed by
+     * k zero bytes, so that eight bytes can be folded in with eight
+     * independent lookups.
+     */
+    private static final int[] TABLE = new int[8 * 256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            int c = n;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLY : c >>> 1;
+            }
+            TABLE[n] = c;
+        }
+        for (int n = 0; n < 256; n++) {
+            int c = TABLE[n];
+            for (int k = 1; k < 8; k++) {
+                c = (c >>> 8) ^ TABLE[c & 0xff];
+                TABLE[k * 256 + n] = c;
+            }
+        }
+    }
+
+    /*
+     * The CRC-32C of the data so far, before the final inversion.
+     */
+    private int crc = 0xFFFFFFFF;
+
+    /**
+     * Creates a new CRC32C object.
+     */
+    public CRC32C() {
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the specified byte (the low
+     * eight bits of the argument b).
+     *
+     * @param b the byte to update the checksum with
+     */
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xff];
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the specified array of bytes.
+     *
+     * @throws  ArrayIndexOutOfBoundsException
+     *          if {@code off} is negative, or {@code len} is negative,
+     *          or {@code off+len} is greater than the length of the
+     *          array {@code b}
+     */
+    public void update(byte[] b, int off, int len) {
+        if (b == null) {
+            throw new NullPointerException();
+        }
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        crc = updateBytes(crc, b, off, off + len);
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the specified array of bytes.
+     *
+     * @param b the array of bytes to update the checksum with
+     */
+    public void update(byte[] b) {
+        crc = updateBytes(crc, b, 0, b.length);
+    }
+
+    /**
+     * Updates the checksum with the bytes from the specified buffer.
+     *
+     * The checksum is updated using
+     * buffer.{@link java.nio.Buffer#remaining() remaining()}
+     * bytes starting at
+     * buffer.{@link java.nio.Buffer#position() position()}
+     * Upon return, the buffer's position will
+     * be updated to its limit; its limit will not have been changed.
+     * Direct buffers are read in place.
+     *
+     * @param buffer the ByteBuffer to update the checksum with
+     */
+    public void update(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        assert (pos <= limit);
+        int rem = limit - pos;
+        if (rem <= 0)
+            return;
+        if (buffer.hasArray()) {
+            int off = pos + buffer.arrayOffset();
+            crc = updateBytes(crc, buffer.array(), off, off + rem);
+        } else {
+            crc = updateByteBuffer(crc, buffer, pos, limit);
+        }
+        buffer.position(limit);
+    }
+
+    /**
+     * Resets CRC-32C to initial value.
+     */
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+
+    /**
+     * Returns CRC-32C value.
+     */
+    public long getValue() {
+        return (~crc) & 0xFFFFFFFFL;
+    }
+
+    /*
+     * Folds eight bytes, given as two little-endian ints, into the CRC.
+     */
+    private static int fold8(int crc, int lo, int hi) {
+        int[] t = TABLE;
+        int c = crc ^ lo;
+        return t[7 * 256 + (c & 0xff)] ^ t[6 * 256 + ((c >>> 8) & 0xff)]
+             ^ t[5 * 256 + ((c >>> 16) & 0xff)] ^ t[4 * 256 + (c >>> 24)]
+             ^ t[3 * 256 + (hi & 0xff)] ^ t[2 * 256 + ((hi >>> 8) & 0xff)]
+             ^ t[1 * 256 + ((hi >>> 16) & 0xff)] ^ t[hi >>> 24];
+    }
+
+    /*
+     * Updates the CRC with b[off, end).  Kept free of object state so that
+     * a VM may substitute the CPU's CRC32C instruction for it.
+     */
+    private static int updateBytes(int crc, byte[] b, int off, int end) {
+        for (; off <= end - 8; off += 8) {
+            int lo = (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8)
+                   | ((b[off + 2] & 0xff) << 16) | (b[off + 3] << 24);
+            int hi = (b[off + 4] & 0xff) | ((b[off + 5] & 0xff) << 8)
+                   | ((b[off + 6] & 0xff) << 16) | (b[off + 7] << 24);
+            crc = fold8(crc, lo, hi);
+        }
+        for (; off < end; off++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ b[off]) & 0xff];
+        }
+        return crc;
+    }
+
+    /*
+     * Updates the CRC with the bytes of buf at [off, end), read with
+     * absolute gets of eight bytes at a time.  Kept free of object state,
+     * as updateBytes.
+     */
+    private static int updateByteBuffer(int crc, ByteBuffer buf,
+                                        int off, int end) {
+        ByteBuffer bb = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (; off <= end - 8; off += 8) {
+            long v = bb.getLong(off);
+            crc = fold8(crc, (int)v, (int)(v >>> 32));
+        }
+        for (; off < end; off++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ bb.get(off)) & 0xff];
+        }
+        return crc;
+    }
+}
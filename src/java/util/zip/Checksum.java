@@ -25,6 +25,8 @@
 
 package java.util.zip;
 
+import java.nio.ByteBuffer;
+
 /**
  * An interface representing a data checksum.
  *
@@ -47,6 +49,44 @@ interface Checksum {
      */
     public void update(byte[] b, int off, int len);
 
+    /**
+     * Updates the current checksum with the bytes from the specified buffer.
+     *
+     * The checksum is updated with the
+     * buffer.{@link java.nio.Buffer#remaining() remaining()} bytes
+     * starting at buffer.{@link java.nio.Buffer#position() position()}.
+     * Upon return, the buffer's position will be equal to its limit; its
+     * limit will not have been changed.
+     *
+     * @implSpec
+     * The default implementation passes the buffer's backing array to
+     * {@link #update(byte[], int, int)} if it has an accessible one, and
+     * otherwise copies the bytes through a temporary array of at most
+     * 4096 bytes.
+     *
+     * @param buffer the ByteBuffer to update the checksum with
+     * @since 1.8
+     */
+    public default void update(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        int rem = limit - pos;
+        if (rem <= 0) {
+            return;
+        }
+        if (buffer.hasArray()) {
+            update(buffer.array(), pos + buffer.arrayOffset(), rem);
+        } else {
+            byte[] b = new byte[Math.min(rem, 4096)];
+            while (buffer.hasRemaining()) {
+                int len = Math.min(buffer.remaining(), b.length);
+                buffer.get(b, 0, len);
+                update(b, 0, len);
+            }
+        }
+        buffer.position(limit);
+    }
+
     /**
      * Returns the current checksum value.
      * @return the current checksum value
@@ -25,6 +25,9 @@
 
 package java.util.zip;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
 /**
  * This class provides support for general purpose compression using the
  * popular ZLIB compression library. The ZLIB compression library was
@@ -76,6 +79,9 @@ class Deflater {
     private final ZStreamRef zsRef;
     private byte[] buf = new byte[0];
     private int off, len;
+    private ByteBuffer input;   // if set with setInput(ByteBuffer)
+    private byte[] inStage;     // input copied from a buffer with no array
+    private byte[] outStage;    // output for a buffer with no array
     private int level, strategy;
     private boolean setParams;
     private boolean finish, finished;
@@ -207,6 +213,7 @@ class Deflater {
             this.buf = b;
             this.off = off;
             this.len = len;
+            this.input = null;
         }
     }
 
@@ -220,6 +227,31 @@ class Deflater {
         setInput(b, 0, b.length);
     }
 
+    /**
+     * Sets input data for compression. This should be called whenever
+     * needsInput() returns true indicating that more input data is required.
+     *
+     * <p>The bytes from the buffer's position to its limit are compressed.
+     * The buffer is not copied: its position is advanced as its bytes are
+     * consumed by the {@code deflate} methods, and it must not be modified
+     * until needsInput() returns true or other input is set.  Input in a
+     * buffer that is backed by an accessible array is compressed in place;
+     * input in other buffers, such as direct buffers, is read in chunks.
+     *
+     * @param input the input data bytes
+     * @see Deflater#needsInput
+     * @since 1.8
+     */
+    public void setInput(ByteBuffer input) {
+        if (input == null) {
+            throw new NullPointerException();
+        }
+        synchronized (zsRef) {
+            this.input = input;
+            this.off = this.len = 0;
+        }
+    }
+
     /**
      * Sets preset dictionary for compression. A preset dictionary is used
      * when the history buffer can be predetermined. When the data is later
@@ -259,6 +291,29 @@ class Deflater {
         setDictionary(b, 0, b.length);
     }
 
+    /**
+     * Sets preset dictionary for compression. A preset dictionary is used
+     * when the history buffer can be predetermined. The bytes from the
+     * buffer's position to its limit are used, and the position is set to
+     * the limit.
+     * @param dictionary the dictionary data bytes
+     * @see Inflater#inflate
+     * @see Inflater#getAdler
+     * @since 1.8
+     */
+    public void setDictionary(ByteBuffer dictionary) {
+        int rem = dictionary.remaining();
+        if (dictionary.hasArray()) {
+            setDictionary(dictionary.array(),
+                          dictionary.arrayOffset() + dictionary.position(), rem);
+        } else {
+            byte[] b = new byte[rem];
+            dictionary.duplicate().get(b);
+            setDictionary(b, 0, rem);
+        }
+        dictionary.position(dictionary.limit());
+    }
+
     /**
      * Sets the compression strategy to the specified value.
      *
@@ -319,7 +374,7 @@ class Deflater {
      */
     public boolean needsInput() {
         synchronized (zsRef) {
-            return len <= 0;
+            return (input != null) ? !input.hasRemaining() : len <= 0;
         }
     }
 
@@ -440,16 +495,134 @@ class Deflater {
             ensureOpen();
             if (flush == NO_FLUSH || flush == SYNC_FLUSH ||
                 flush == FULL_FLUSH) {
-                int thisLen = this.len;
-                int n = deflateBytes(zsRef.address(), b, off, len, flush);
-                bytesWritten += n;
-                bytesRead += (thisLen - this.len);
-                return n;
+                ByteBuffer input = this.input;
+                if (input == null) {
+                    int thisLen = this.len;
+                    int n = deflateBytes(zsRef.address(), b, off, len, flush);
+                    bytesWritten += n;
+                    bytesRead += (thisLen - this.len);
+                    return n;
+                }
+                // A buffer with no array is staged in chunks.  Only the
+                // chunk that holds the rest of the input may finish or
+                // flush the stream; the ones before it use NO_FLUSH.
+                int total = 0;
+                for (;;) {
+                    int pos = input.position();
+                    loadInput(input, pos);
+                    int thisLen = this.len;
+                    boolean last = (thisLen == input.limit() - pos);
+                    int n;
+                    if (last) {
+                        n = deflateBytes(zsRef.address(), b, off + total,
+                                         len - total, flush);
+                    } else {
+                        boolean fin = finish;
+                        finish = false;
+                        try {
+                            n = deflateBytes(zsRef.address(), b, off + total,
+                                             len - total, NO_FLUSH);
+                        } finally {
+                            finish = fin;
+                        }
+                    }
+                    bytesWritten += n;
+                    bytesRead += (thisLen - this.len);
+                    input.position(pos + (thisLen - this.len));
+                    total += n;
+                    if (last || this.len > 0 || total == len) {
+                        return total;
+                    }
+                }
             }
             throw new IllegalArgumentException();
         }
     }
 
+    /*
+     * Points buf, off and len at the remaining bytes of the input buffer,
+     * or at a copy of as many of them as fit in the staging array.
+     */
+    private void loadInput(ByteBuffer input, int pos) {
+        int rem = input.limit() - pos;
+        if (input.hasArray()) {
+            buf = input.array();
+            off = input.arrayOffset() + pos;
+            len = rem;
+        } else {
+            if (inStage == null) {
+                inStage = new byte[STAGE_SIZE];
+            }
+            int n = Math.min(rem, STAGE_SIZE);
+            input.get(inStage, 0, n);
+            input.position(pos);
+            buf = inStage;
+            off = 0;
+            len = n;
+        }
+    }
+
+    /**
+     * Compresses the input data and fills the specified buffer with
+     * compressed data, as {@link #deflate(byte[],int,int,int)} does for an
+     * array.  The bytes are written from the buffer's position up to its
+     * limit, and the position is advanced by the number of bytes written.
+     *
+     * @param output the buffer for the compressed data
+     * @param flush the compression flush mode
+     * @return the actual number of bytes of compressed data written to
+     *         the output buffer
+     *
+     * @throws ReadOnlyBufferException if the buffer is read-only
+     * @throws IllegalArgumentException if the flush mode is invalid
+     * @since 1.8
+     */
+    public int deflate(ByteBuffer output, int flush) {
+        if (output.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        synchronized (zsRef) {
+            int pos = output.position();
+            int rem = output.limit() - pos;
+            if (output.hasArray()) {
+                int n = deflate(output.array(), output.arrayOffset() + pos,
+                                rem, flush);
+                output.position(pos + n);
+                return n;
+            }
+            if (outStage == null) {
+                outStage = new byte[STAGE_SIZE];
+            }
+            int total = 0;
+            int m, n;
+            do {
+                m = Math.min(rem - total, STAGE_SIZE);
+                n = deflate(outStage, 0, m, flush);
+                output.put(outStage, 0, n);
+                total += n;
+            } while (n == m && total < rem);
+            return total;
+        }
+    }
+
+    /**
+     * Compresses the input data and fills the specified buffer with
+     * compressed data, using {@link #NO_FLUSH} as the flush mode.
+     *
+     * @param output the buffer for the compressed data
+     * @return the actual number of bytes of compressed data written to
+     *         the output buffer
+     *
+     * @throws ReadOnlyBufferException if the buffer is read-only
+     * @since 1.8
+     */
+    public int deflate(ByteBuffer output) {
+        return deflate(output, NO_FLUSH);
+    }
+
+    // size of the arrays that stage buffers with no accessible array
+    private static final int STAGE_SIZE = 8192;
+
     /**
      * Returns the ADLER-32 value of the uncompressed data.
      * @return the ADLER-32 value of the uncompressed data
@@ -524,6 +697,7 @@ class Deflater {
             finish = false;
             finished = false;
             off = len = 0;
+            input = null;
             bytesRead = bytesWritten = 0;
         }
     }
@@ -542,6 +716,7 @@ class Deflater {
             if (addr != 0) {
                 end(addr);
                 buf = null;
+                input = null;
             }
         }
     }
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the checkpoint index of a {@link GZIPSeekableChannel} in one pass
+ * over a gzip file.
+ *
+ * <p> The data is decompressed with a decoder written in Java, as the
+ * native inflater does not report where deflate blocks begin.  At the
+ * start of each member, and at the first block boundary that falls on a
+ * byte boundary after every {@code span} bytes of output, a checkpoint
+ * records the uncompressed offset, the position of the block in bits, and
+ * the up to 32 KB of member output before it, which is what the inflater
+ * needs to resume there.  Other block boundaries are skipped: resuming
+ * within a byte would need the input shifted by the bit offset, and a
+ * stored block is aligned to the bytes of the original stream, not of the
+ * shifted one.  Trailers are checked as by {@link GZIPInputStream}, and
+ * trailing data that is not a gzip member is ignored as it is there.
+ */
+final class GZIPIndexBuilder {
+
+    private static final int WSIZE = 32768;     // deflate window size
+    private static final int WMASK = WSIZE - 1;
+
+    private final SeekableByteChannel in;
+    private final long span;
+
+    // input
+    private final byte[] inbuf = new byte[64 * 1024];
+    private int inpos, inlen;
+    private long inbase;            // file offset of inbuf[0]
+    private boolean ineof;
+    private long bitbuf;            // bits not yet used, LSB first
+    private int bitcnt;
+
+    // output
+    private final byte[] window = new byte[WSIZE];
+    private int wpos;               // next index in window
+    private long out;               // total bytes output
+    private long memberOut;         // out at the start of the member
+    private final CRC32 crc = new CRC32();
+    private int crcpos;             // window index up to which crc is done
+
+    // checkpoints
+    private long lastCheckpoint;
+    private long[] uoffs = new long[16];
+    private long[] cbits = new long[16];
+    private final List<byte[]> windows = new ArrayList<>();
+
+    GZIPIndexBuilder(SeekableByteChannel in, long span) {
+        this.in = in;
+        this.span = span;
+    }
+
+    /**
+     * Reads the whole file and returns its index.
+     */
+    GZIPSeekableChannel.Index build() throws IOException {
+        long csize = in.size();
+        in.position(0);
+        if (!startsMember())
+            throw new ZipException("Not in GZIP format");
+        do {
+            member();
+        } while (startsMember());
+        int n = windows.size();
+        return new GZIPSeekableChannel.Index(out, csize, span,
+                                             Arrays.copyOf(uoffs, n),
+                                             Arrays.copyOf(cbits, n),
+                                             windows.toArray(new byte[n][]));
+    }
+
+    /*
+     * Tells whether a gzip member starts at the current (byte aligned)
+     * input position.
+     */
+    private boolean startsMember() throws IOException {
+        // whole bytes may remain in bitbuf after a trailer
+        int b0, b1;
+        if (bitcnt >= 16) {
+            b0 = (int)bitbuf & 0xff;
+            b1 = (int)(bitbuf >>> 8) & 0xff;
+        } else if (bitcnt == 8) {
+            if (!available(1))
+                return false;
+            b0 = (int)bitbuf & 0xff;
+            b1 = inbuf[inpos] & 0xff;
+        } else {
+            if (!available(2))
+                return false;
+            b0 = inbuf[inpos] & 0xff;
+            b1 = inbuf[inpos + 1] & 0xff;
+        }
+        return b0 == 0x1f && b1 == 0x8b;
+    }
+
+    private void member() throws IOException {
+        memberOut = out;
+        crc.reset();
+        crcpos = wpos;
+        addCheckpoint(bitPosition(), null);
+
+        // header, see GZIPInputStream.readHeader
+        readByte();
+        readByte();
+        if (readByte() != 8)
+            throw new ZipException("Unsupported compression method");
+        int flg = readByte();
+        for (int i = 0; i < 6; i++)
+            readByte();
+        if ((flg & 4) != 0) {                   // FEXTRA
+            int xlen = readByte() | (readByte() << 8);
+            for (int i = 0; i < xlen; i++)
+                readByte();
+        }
+        if ((flg & 8) != 0) {                   // FNAME
+            while (readByte() != 0)
+                ;
+        }
+        if ((flg & 16) != 0) {                  // FCOMMENT
+            while (readByte() != 0)
+                ;
+        }
+        if ((flg & 2) != 0) {                   // FHCRC
+            readByte();
+            readByte();
+        }
+
+        boolean last;
+        do {
+            if (out - lastCheckpoint >= span && bitPosition() % 8 == 0)
+                addCheckpoint(bitPosition(), snapshot());
+            last = bits(1) == 1;
+            switch (bits(2)) {
+            case 0:  stored();                      break;
+            case 1:  codes(FIXED_LENCODE, FIXED_DISTCODE); break;
+            case 2:  dynamic();                     break;
+            default: throw new ZipException("invalid block type");
+            }
+        } while (!last);
+
+        // trailer
+        alignToByte();
+        crc.update(window, crcpos, wpos - crcpos);
+        crcpos = wpos;
+        long v = readByte() | (readByte() << 8) | (readByte() << 16)
+                 | ((long)readByte() << 24);
+        long isize = readByte() | (readByte() << 8) | (readByte() << 16)
+                     | ((long)readByte() << 24);
+        if (v != crc.getValue() || isize != ((out - memberOut) & 0xffffffffL))
+            throw new ZipException("Corrupt GZIP trailer");
+    }
+
+    private void addCheckpoint(long cbit, byte[] w) {
+        int n = windows.size();
+        if (n == uoffs.length) {
+            uoffs = Arrays.copyOf(uoffs, n * 2);
+            cbits = Arrays.copyOf(cbits, n * 2);
+        }
+        uoffs[n] = out;
+        cbits[n] = cbit;
+        windows.add(w);
+        lastCheckpoint = out;
+    }
+
+    /*
+     * Returns the member output before the current position that a
+     * back-reference can reach.
+     */
+    private byte[] snapshot() {
+        int n = (int)Math.min(out - memberOut, WSIZE);
+        byte[] w = new byte[n];
+        int start = (wpos - n) & WMASK;
+        int first = Math.min(n, WSIZE - start);
+        System.arraycopy(window, start, w, 0, first);
+        System.arraycopy(window, 0, w, first, n - first);
+        return w;
+    }
+
+    // -- input
+
+    private long bitPosition() {
+        return (inbase + inpos) * 8 - bitcnt;
+    }
+
+    /*
+     * Ensures that n bytes, after those held in bitbuf, are buffered.
+     * Returns false if the input ends first.
+     */
+    private boolean available(int n) throws IOException {
+        while (inlen - inpos < n) {
+            if (ineof)
+                return false;
+            int rem = inlen - inpos;
+            System.arraycopy(inbuf, inpos, inbuf, 0, rem);
+            inbase += inpos;
+            inpos = 0;
+            inlen = rem;
+            int r = in.read(ByteBuffer.wrap(inbuf, rem, inbuf.length - rem));
+            if (r < 0)
+                ineof = true;
+            else
+                inlen += r;
+        }
+        return true;
+    }
+
+    private int nextByte() throws IOException {
+        if (inpos == inlen && !available(1))
+            throw new EOFException("Unexpected end of ZLIB input stream");
+        return inbuf[inpos++] & 0xff;
+    }
+
+    private int bits(int n) throws IOException {
+        while (bitcnt < n) {
+            bitbuf |= (long)nextByte() << bitcnt;
+            bitcnt += 8;
+        }
+        int v = (int)(bitbuf & ((1L << n) - 1));
+        bitbuf >>>= n;
+        bitcnt -= n;
+        return v;
+    }
+
+    private void alignToByte() {
+        int k = bitcnt & 7;
+        bitbuf >>>= k;
+        bitcnt -= k;
+    }
+
+    /*
+     * Reads a byte at a byte aligned position.
+     */
+    private int readByte() throws IOException {
+        return (bitcnt >= 8) ? bits(8) : nextByte();
+    }
+
+    // -- output
+
+    private void put(int b) {
+        window[wpos] = (byte)b;
+        wpos = (wpos + 1) & WMASK;
+        out++;
+        if (wpos == 0)
+            wrapped();
+    }
+
+    private void wrapped() {
+        crc.update(window, crcpos, WSIZE - crcpos);
+        crcpos = 0;
+    }
+
+    private void copy(int dist, int len) throws ZipException {
+        if (dist > out - memberOut)
+            throw new ZipException("invalid distance too far back");
+        int src = (wpos - dist) & WMASK;
+        for (int i = 0; i < len; i++) {
+            window[wpos] = window[src];
+            src = (src + 1) & WMASK;
+            wpos = (wpos + 1) & WMASK;
+            if (wpos == 0)
+                wrapped();
+        }
+        out += len;
+    }
+
+    // -- blocks, after Mark Adler's puff
+
+    private void stored() throws IOException {
+        alignToByte();
+        int len = readByte() | (readByte() << 8);
+        int nlen = readByte() | (readByte() << 8);
+        if (len != (~nlen & 0xffff))
+            throw new ZipException("invalid stored block lengths");
+        for (int i = 0; i < len; i++)
+            put(readByte());
+    }
+
+    private static final short[] LBASE = {
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+        35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+    private static final short[] LEXT = {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+        3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+    private static final short[] DBASE = {
+        1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+        257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145,
+        8193, 12289, 16385, 24577 };
+    private static final short[] DEXT = {
+        0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+        7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+
+    private void codes(Huffman lencode, Huffman distcode) throws IOException {
+        for (;;) {
+            int sym = decode(lencode);
+            if (sym < 256) {
+                put(sym);
+            } else if (sym == 256) {
+                return;
+            } else {
+                sym -= 257;
+                if (sym >= 29)
+                    throw new ZipException("invalid literal/length code");
+                int len = LBASE[sym] + bits(LEXT[sym]);
+                int dsym = decode(distcode);
+                if (dsym >= 30)
+                    throw new ZipException("invalid distance code");
+                int dist = DBASE[dsym] + bits(DEXT[dsym]);
+                copy(dist, len);
+            }
+        }
+    }
+
+    private static final short[] ORDER = {
+        16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+    private void dynamic() throws IOException {
+        int nlen = bits(5) + 257;
+        int ndist = bits(5) + 1;
+        int ncode = bits(4) + 4;
+        if (nlen > 286 || ndist > 30)
+            throw new ZipException("too many length or distance symbols");
+        short[] lengths = new short[320];
+        for (int i = 0; i < ncode; i++)
+            lengths[ORDER[i]] = (short)bits(3);
+        Huffman lencode = new Huffman(lengths, 19);
+        int index = 0;
+        while (index < nlen + ndist) {
+            int sym = decode(lencode);
+            if (sym < 16) {
+                lengths[index++] = (short)sym;
+            } else {
+                int len = 0;
+                int repeat;
+                if (sym == 16) {
+                    if (index == 0)
+                        throw new ZipException("invalid bit length repeat");
+                    len = lengths[index - 1];
+                    repeat = 3 + bits(2);
+                } else if (sym == 17) {
+                    repeat = 3 + bits(3);
+                } else {
+                    repeat = 11 + bits(7);
+                }
+                if (index + repeat > nlen + ndist)
+                    throw new ZipException("invalid bit length repeat");
+                while (repeat-- > 0)
+                    lengths[index++] = (short)len;
+            }
+        }
+        if (lengths[256] == 0)
+            throw new ZipException("invalid code -- missing end-of-block");
+        Huffman litcode = new Huffman(Arrays.copyOfRange(lengths, 0, nlen), nlen);
+        Huffman distcode = new Huffman(
+            Arrays.copyOfRange(lengths, nlen, nlen + ndist), ndist);
+        codes(litcode, distcode);
+    }
+
+    private int decode(Huffman h) throws IOException {
+        // fast path: a table lookup on the next FAST_BITS bits
+        if (bitcnt < Huffman.FAST_BITS) {
+            while (bitcnt <= 56 && (inpos < inlen || available(1))) {
+                bitbuf |= (long)(inbuf[inpos++] & 0xff) << bitcnt;
+                bitcnt += 8;
+            }
+        }
+        int e = h.fast[(int)(bitbuf & Huffman.FAST_MASK)];
+        if (e != 0 && (e & 15) <= bitcnt) {
+            bitbuf >>>= (e & 15);
+            bitcnt -= (e & 15);
+            return e >>> 4;
+        }
+        // slow path: canonical decoding a bit at a time
+        int code = 0, first = 0, index = 0;
+        for (int len = 1; len <= Huffman.MAX_BITS; len++) {
+            code |= bits(1);
+            int count = h.count[len];
+            if (code - count < first)
+                return h.symbol[index + (code - first)];
+            index += count;
+            first += count;
+            first <<= 1;
+            code <<= 1;
+        }
+        throw new ZipException("invalid Huffman code");
+    }
+
+    /**
+     * A canonical Huffman code, with a lookup table for short codes.
+     */
+    private static final class Huffman {
+        static final int MAX_BITS = 15;
+        static final int FAST_BITS = 9;
+        static final int FAST_MASK = (1 << FAST_BITS) - 1;
+
+        final short[] count = new short[MAX_BITS + 1];
+        final short[] symbol;
+        final int[] fast = new int[1 << FAST_BITS];     // symbol << 4 | length
+
+        Huffman(short[] lengths, int n) throws ZipException {
+            symbol = new short[n];
+            for (int s = 0; s < n; s++)
+                count[lengths[s]]++;
+            if (count[0] == n)
+                return;                         // no codes: decode fails
+            int left = 1;
+            for (int len = 1; len <= MAX_BITS; len++) {
+                left <<= 1;
+                left -= count[len];
+                if (left < 0)
+                    throw new ZipException("over-subscribed Huffman code");
+            }
+            short[] offs = new short[MAX_BITS + 1];
+            for (int len = 1; len < MAX_BITS; len++)
+                offs[len + 1] = (short)(offs[len] + count[len]);
+            int[] next = new int[MAX_BITS + 1];    // next code of each length
+            for (int len = 2; len <= MAX_BITS; len++)
+                next[len] = (next[len - 1] + count[len - 1]) << 1;
+            for (int s = 0; s < n; s++) {
+                int len = lengths[s];
+                if (len == 0)
+                    continue;
+                symbol[offs[len]++] = (short)s;
+                int c = next[len]++;
+                if (len <= FAST_BITS) {
+                    int rev = Integer.reverse(c) >>> (32 - len);
+                    for (int i = rev; i < (1 << FAST_BITS); i += 1 << len)
+                        fast[i] = (s << 4) | len;
+                }
+            }
+        }
+    }
+
+    private static final Huffman FIXED_LENCODE;
+    private static final Huffman FIXED_DISTCODE;
+
+    static {
+        short[] lengths = new short[288];
+        Arrays.fill(lengths, 0, 144, (short)8);
+        Arrays.fill(lengths, 144, 256, (short)9);
+        Arrays.fill(lengths, 256, 280, (short)7);
+        Arrays.fill(lengths, 280, 288, (short)8);
+        short[] dlengths = new short[30];
+        Arrays.fill(dlengths, (short)5);
+        try {
+            FIXED_LENCODE = new Huffman(lengths, 288);
+            FIXED_DISTCODE = new Huffman(dlengths, 30);
+        } catch (ZipException e) {
+            throw new InternalError(e);
+        }
+    }
+}
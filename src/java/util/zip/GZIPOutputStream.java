@@ -27,6 +27,7 @@ package java.util.zip;
 
 import java.io.OutputStream;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class implements a stream filter for writing compressed data in
@@ -52,6 +53,11 @@ class GZIPOutputStream extends DeflaterOutputStream {
      */
     private final static int TRAILER_SIZE = 8;
 
+    /*
+     * Compresses in parallel instead of def, if not null.
+     */
+    private ParallelDeflater pdef;
+
     /**
      * Creates a new output stream with the specified buffer size.
      *
@@ -131,6 +137,32 @@ class GZIPOutputStream extends DeflaterOutputStream {
         this(out, 512, syncFlush);
     }
 
+    /**
+     * Creates a new output stream that compresses on the threads of the
+     * given pool.
+     *
+     * <p>The data is split into blocks of 128 KB that are compressed
+     * concurrently, each primed with the end of the block before it, and
+     * written in order as a single deflate stream.  Compression is
+     * nearly as good as with a single compressor.  Data is written to
+     * {@code out} as blocks complete, and the
+     * {@link DeflaterOutputStream#flush() flush()} method only flushes
+     * the output stream.
+     *
+     * @param out the output stream
+     * @param pool the pool on which to compress
+     * @exception IOException If an I/O error has occurred.
+     *
+     * @since 1.8
+     */
+    public GZIPOutputStream(OutputStream out, ForkJoinPool pool)
+        throws IOException
+    {
+        this(out, 512, false);
+        pdef = new ParallelDeflater(out, pool, Deflater.DEFAULT_COMPRESSION,
+                                    ParallelDeflater.DEFAULT_BLOCK_SIZE);
+    }
+
     /**
      * Writes array of bytes to the compressed output stream. This method
      * will block until all the bytes are written.
@@ -142,7 +174,14 @@ class GZIPOutputStream extends DeflaterOutputStream {
     public synchronized void write(byte[] buf, int off, int len)
         throws IOException
     {
-        super.write(buf, off, len);
+        if (pdef != null) {
+            if (off < 0 || len < 0 || off > buf.length - len) {
+                throw new IndexOutOfBoundsException();
+            }
+            pdef.write(buf, off, len);
+        } else {
+            super.write(buf, off, len);
+        }
         crc.update(buf, off, len);
     }
 
@@ -153,6 +192,15 @@ class GZIPOutputStream extends DeflaterOutputStream {
      * @exception IOException if an I/O error has occurred
      */
     public void finish() throws IOException {
+        if (pdef != null) {
+            if (!pdef.finished()) {
+                pdef.finish();
+                byte[] trailer = new byte[TRAILER_SIZE];
+                writeTrailer(trailer, 0);
+                out.write(trailer);
+            }
+            return;
+        }
         if (!def.finished()) {
             def.finish();
             while (!def.finished()) {
@@ -199,7 +247,8 @@ class GZIPOutputStream extends DeflaterOutputStream {
      */
     private void writeTrailer(byte[] buf, int offset) throws IOException {
         writeInt((int)crc.getValue(), buf, offset); // CRC-32 of uncompr. data
-        writeInt(def.getTotalIn(), buf, offset + 4); // Number of uncompr. bytes
+        int total = (pdef != null) ? (int)pdef.getBytesRead() : def.getTotalIn();
+        writeInt(total, buf, offset + 4); // Number of uncompr. bytes
     }
 
     /*
@@ -0,0 +1,513 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * A read-only channel of the uncompressed contents of a gzip file, that
+ * can be positioned anywhere without decompressing from the start.
+ *
+ * <p> Random access is provided by an {@link Index} of checkpoints: places
+ * in the compressed data where decompression can resume.  There is one at
+ * the start of each member of the file, and one at the first deflate
+ * block that starts on a byte boundary after every {@code span} bytes of
+ * uncompressed data, which holds the 32 KB of data before it.  Blocks
+ * mostly end within a byte, so checkpoints can be well over {@code span}
+ * bytes apart; a file written with a {@link GZIPOutputStream} that
+ * flushes with {@link Deflater#SYNC_FLUSH} has a byte aligned block after
+ * each flush.  Reading from a position starts at the
+ * last checkpoint before it, so costs the decompression of at most about
+ * {@code span} bytes; sequential reads continue where the previous read
+ * ended.  An index is built by reading the whole file once, and can be
+ * saved and loaded again for as long as the file is not modified.
+ *
+ * <p> Files made of several concatenated gzip members are read as the
+ * concatenation of their contents, as by {@link GZIPInputStream}.
+ *
+ * <p> Channels of this class are safe for use by multiple concurrent
+ * threads, but reads and position changes are serialized.
+ *
+ * @see GZIPInputStream
+ * @since 1.8
+ */
+public final class GZIPSeekableChannel implements SeekableByteChannel {
+
+    /**
+     * The checkpoints of a gzip file.  Indexes are immutable.
+     *
+     * @since 1.8
+     */
+    public static final class Index {
+        private static final int MAGIC = 0x475a4958;    // "GZIX"
+        private static final int VERSION = 1;
+
+        private final long size;        // uncompressed size
+        private final long csize;       // size of the gzip file
+        private final long span;
+        private final long[] uoffs;     // uncompressed offsets
+        private final long[] cbits;     // compressed offsets, in bits
+        private final byte[][] windows; // null at the start of a member
+
+        Index(long size, long csize, long span,
+              long[] uoffs, long[] cbits, byte[][] windows) {
+            this.size = size;
+            this.csize = csize;
+            this.span = span;
+            this.uoffs = uoffs;
+            this.cbits = cbits;
+            this.windows = windows;
+        }
+
+        /**
+         * Returns the size of the uncompressed data.
+         *
+         * @return the uncompressed size
+         */
+        public long uncompressedSize() {
+            return size;
+        }
+
+        /**
+         * Returns the size of the gzip file the index was built from.
+         *
+         * @return the compressed size
+         */
+        public long compressedSize() {
+            return csize;
+        }
+
+        /**
+         * Returns the number of checkpoints.
+         *
+         * @return the number of checkpoints
+         */
+        public int checkpoints() {
+            return uoffs.length;
+        }
+
+        /**
+         * Writes this index to the given stream.  The stream is not closed.
+         *
+         * @param  out the output stream
+         * @throws IOException if an I/O error occurs
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            DataOutputStream dout = new DataOutputStream(out);
+            dout.writeInt(MAGIC);
+            dout.writeInt(VERSION);
+            dout.writeLong(size);
+            dout.writeLong(csize);
+            dout.writeLong(span);
+            dout.writeInt(uoffs.length);
+            for (int i = 0; i < uoffs.length; i++) {
+                dout.writeLong(uoffs[i]);
+                dout.writeLong(cbits[i]);
+                byte[] w = windows[i];
+                dout.writeInt((w == null) ? -1 : w.length);
+                if (w != null)
+                    dout.write(w);
+            }
+            dout.flush();
+        }
+
+        /**
+         * Reads an index written by {@link #writeTo writeTo}.
+         *
+         * @param  in the input stream
+         * @return the index
+         * @throws ZipException if the stream does not hold a valid index
+         * @throws IOException if an I/O error occurs
+         */
+        public static Index readFrom(InputStream in) throws IOException {
+            DataInputStream din = new DataInputStream(in);
+            if (din.readInt() != MAGIC || din.readInt() != VERSION)
+                throw new ZipException("not a gzip index");
+            long size = din.readLong();
+            long csize = din.readLong();
+            long span = din.readLong();
+            int n = din.readInt();
+            if (n <= 0)
+                throw new ZipException("invalid gzip index");
+            long[] uoffs = new long[n];
+            long[] cbits = new long[n];
+            byte[][] windows = new byte[n][];
+            for (int i = 0; i < n; i++) {
+                uoffs[i] = din.readLong();
+                cbits[i] = din.readLong();
+                int wlen = din.readInt();
+                if (wlen > 32768 || (cbits[i] & 7) != 0
+                    || (i > 0 && (uoffs[i] < uoffs[i - 1]
+                                               || cbits[i] <= cbits[i - 1])))
+                    throw new ZipException("invalid gzip index");
+                if (wlen >= 0) {
+                    windows[i] = new byte[wlen];
+                    din.readFully(windows[i]);
+                }
+            }
+            if (windows[0] != null || uoffs[0] != 0 || uoffs[n - 1] > size)
+                throw new ZipException("invalid gzip index");
+            return new Index(size, csize, span, uoffs, cbits, windows);
+        }
+
+        /*
+         * Returns the last checkpoint at or before the given uncompressed
+         * position.
+         */
+        int find(long pos) {
+            int i = Arrays.binarySearch(uoffs, pos);
+            if (i < 0)
+                return -i - 2;
+            // skip to the last of equal offsets, such as empty members
+            while (i + 1 < uoffs.length && uoffs[i + 1] == pos)
+                i++;
+            return i;
+        }
+    }
+
+    /**
+     * Builds the index of a gzip file by reading it in full.
+     *
+     * @param  in the gzip file; its position is changed
+     * @param  span the uncompressed distance between checkpoints, in bytes;
+     *         each checkpoint takes up to 32 KB of memory
+     * @return the index
+     * @throws ZipException if the file is not in gzip format or is corrupt
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if span is not positive
+     */
+    public static Index buildIndex(SeekableByteChannel in, long span)
+        throws IOException
+    {
+        if (span <= 0)
+            throw new IllegalArgumentException("span <= 0");
+        return new GZIPIndexBuilder(in, span).build();
+    }
+
+    private final SeekableByteChannel in;
+    private final Index index;
+    private volatile boolean closed;
+
+    private Inflater inf;
+    private int cp;                 // checkpoint the inflater started from
+    private long ipos;              // uncompressed position of the inflater
+    private long pos;               // position of the channel
+    private long cin;               // next compressed offset to read
+    private boolean dummy;          // if the final dummy byte has been given
+    private final byte[] cbuf = new byte[32 * 1024];
+    private byte[] skipbuf;
+
+    /**
+     * Creates a channel for the given gzip file and its index.
+     *
+     * @param  in the gzip file; its position is changed by reads
+     * @param  index the index of the file
+     * @throws ZipException if the size of the file does not match the index
+     * @throws IOException if an I/O error occurs
+     */
+    public GZIPSeekableChannel(SeekableByteChannel in, Index index)
+        throws IOException
+    {
+        if (index == null)
+            throw new NullPointerException();
+        if (in.size() != index.csize)
+            throw new ZipException("gzip index does not match file size");
+        this.in = in;
+        this.index = index;
+    }
+
+    /**
+     * Creates a channel for the given gzip file, building its index with
+     * checkpoints every {@code span} bytes of uncompressed data.
+     *
+     * @param  in the gzip file; its position is changed by reads
+     * @param  span the uncompressed distance between checkpoints, in bytes
+     * @throws ZipException if the file is not in gzip format or is corrupt
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if span is not positive
+     */
+    public GZIPSeekableChannel(SeekableByteChannel in, long span)
+        throws IOException
+    {
+        this(in, buildIndex(in, span));
+    }
+
+    /**
+     * Returns the index of this channel.
+     *
+     * @return the index
+     */
+    public Index index() {
+        return index;
+    }
+
+    /**
+     * Reads uncompressed bytes from the current position into the given
+     * buffer.
+     *
+     * @return the number of bytes read, or -1 at the end of the data
+     * @throws ZipException if the compressed data is corrupt
+     */
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (pos >= index.size)
+            return -1;
+        int len = (int)Math.min(dst.remaining(), index.size - pos);
+        if (len == 0)
+            return 0;
+        seek();
+        int n;
+        if (dst.hasArray()) {
+            n = inflate(dst.array(), dst.arrayOffset() + dst.position(), len);
+            if (n > 0)
+                dst.position(dst.position() + n);
+        } else {
+            byte[] b = skipBuffer();
+            n = inflate(b, 0, Math.min(len, b.length));
+            if (n > 0)
+                dst.put(b, 0, n);
+        }
+        if (n < 0)
+            throw new EOFException("Unexpected end of ZLIB input stream");
+        pos += n;
+        return n;
+    }
+
+    /**
+     * Throws {@code NonWritableChannelException}.
+     */
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return pos;
+    }
+
+    /**
+     * Sets the position.  Decompression resumes from the nearest
+     * checkpoint when data is next read.
+     */
+    public synchronized SeekableByteChannel position(long newPosition)
+        throws IOException
+    {
+        ensureOpen();
+        if (newPosition < 0)
+            throw new IllegalArgumentException();
+        pos = newPosition;
+        return this;
+    }
+
+    /**
+     * Returns the size of the uncompressed data.
+     */
+    public long size() throws IOException {
+        ensureOpen();
+        return index.size;
+    }
+
+    /**
+     * Throws {@code NonWritableChannelException}.
+     */
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Closes this channel and the gzip file's channel.
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            if (inf != null) {
+                inf.end();
+                inf = null;
+            }
+        }
+        in.close();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new ClosedChannelException();
+    }
+
+    private byte[] skipBuffer() {
+        if (skipbuf == null)
+            skipbuf = new byte[8192];
+        return skipbuf;
+    }
+
+    /*
+     * Brings the inflater to the channel position: restarts it from the
+     * last checkpoint before the position unless it is already between
+     * that checkpoint and the position, then skips.
+     */
+    private void seek() throws IOException {
+        int i = index.find(pos);
+        if (inf == null || ipos > pos || index.uoffs[i] > ipos)
+            start(i);
+        byte[] b = skipBuffer();
+        while (ipos < pos) {
+            if (inflate(b, 0, (int)Math.min(b.length, pos - ipos)) < 0)
+                throw new EOFException("Unexpected end of ZLIB input stream");
+        }
+    }
+
+    /*
+     * Restarts the inflater at checkpoint i.
+     */
+    private void start(int i) throws IOException {
+        if (inf == null)
+            inf = new Inflater(true);
+        else
+            inf.reset();
+        cp = i;
+        ipos = index.uoffs[i];
+        dummy = false;
+        long cbit = index.cbits[i];
+        byte[] window = index.windows[i];
+        if (window == null) {
+            cin = skipHeader(cbit >>> 3);
+        } else {
+            cin = cbit >>> 3;
+            if (window.length > 0)
+                inf.setDictionary(window);
+        }
+    }
+
+    /*
+     * Inflates up to len bytes, moving on to the next member at the end of
+     * one.  Returns -1 if there is no more data.
+     */
+    private int inflate(byte[] b, int off, int len) throws IOException {
+        for (;;) {
+            int n;
+            try {
+                n = inf.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                String s = e.getMessage();
+                throw new ZipException(s != null ? s : "Invalid ZLIB data format");
+            }
+            if (n > 0) {
+                ipos += n;
+                return n;
+            }
+            if (inf.finished()) {
+                if (!nextMember())
+                    return -1;
+            } else if (inf.needsDictionary()) {
+                throw new ZipException("unexpected preset dictionary");
+            } else if (inf.needsInput()) {
+                fill();
+            }
+        }
+    }
+
+    /*
+     * Continues with the member after the current one, which starts at the
+     * next member checkpoint.
+     */
+    private boolean nextMember() throws IOException {
+        int i = cp + 1;
+        while (i < index.windows.length && index.windows[i] != null)
+            i++;
+        if (i == index.windows.length)
+            return false;
+        if (index.uoffs[i] != ipos)
+            throw new ZipException("gzip index does not match file");
+        start(i);
+        return true;
+    }
+
+    /*
+     * Gives the inflater the next chunk of compressed data.  At the end of
+     * the file, gives a final dummy byte as the "nowrap" inflater requires.
+     */
+    private void fill() throws IOException {
+        in.position(cin);
+        int n = in.read(ByteBuffer.wrap(cbuf));
+        if (n <= 0) {
+            if (dummy)
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            dummy = true;
+            cbuf[0] = 0;
+            inf.setInput(cbuf, 0, 1);
+            return;
+        }
+        cin += n;
+        inf.setInput(cbuf, 0, n);
+    }
+
+    private int readByteAt(long off) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(1);
+        in.position(off);
+        while (bb.hasRemaining()) {
+            if (in.read(bb) < 0)
+                throw new EOFException("Unexpected end of ZLIB input stream");
+        }
+        return bb.get(0) & 0xff;
+    }
+
+    /*
+     * Returns the offset of the deflate data of the member starting at the
+     * given offset.  The header was checked when the index was built.
+     */
+    private long skipHeader(long off) throws IOException {
+        int flg = readByteAt(off + 3);
+        off += 10;
+        if ((flg & 4) != 0)                     // FEXTRA
+            off += 2 + (readByteAt(off) | (readByteAt(off + 1) << 8));
+        if ((flg & 8) != 0) {                   // FNAME
+            while (readByteAt(off++) != 0)
+                ;
+        }
+        if ((flg & 16) != 0) {                  // FCOMMENT
+            while (readByteAt(off++) != 0)
+                ;
+        }
+        if ((flg & 2) != 0)                     // FHCRC
+            off += 2;
+        return off;
+    }
+}
@@ -25,6 +25,9 @@
 
 package java.util.zip;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
 /**
  * This class provides support for general purpose decompression using the
  * popular ZLIB compression library. The ZLIB compression library was
@@ -76,6 +79,9 @@ class Inflater {
     private final ZStreamRef zsRef;
     private byte[] buf = defaultBuf;
     private int off, len;
+    private ByteBuffer input;   // if set with setInput(ByteBuffer)
+    private byte[] inStage;     // input copied from a buffer with no array
+    private byte[] outStage;    // output for a buffer with no array
     private boolean finished;
     private boolean needDict;
     private long bytesRead;
@@ -130,6 +136,7 @@ class Inflater {
             this.buf = b;
             this.off = off;
             this.len = len;
+            this.input = null;
         }
     }
 
@@ -144,6 +151,34 @@ class Inflater {
         setInput(b, 0, b.length);
     }
 
+    /**
+     * Sets input data for decompression. Should be called whenever
+     * needsInput() returns true indicating that more input data is
+     * required.
+     *
+     * <p>The bytes from the buffer's position to its limit are
+     * decompressed.  The buffer is not copied: its position is advanced as
+     * its bytes are consumed by the {@code inflate} methods, so that once
+     * decompression has finished it is positioned just past the compressed
+     * data.  It must not be modified until needsInput() returns true or
+     * other input is set.  Input in a buffer that is backed by an
+     * accessible array is decompressed in place; input in other buffers,
+     * such as direct buffers, is read in chunks.
+     *
+     * @param input the input data bytes
+     * @see Inflater#needsInput
+     * @since 1.8
+     */
+    public void setInput(ByteBuffer input) {
+        if (input == null) {
+            throw new NullPointerException();
+        }
+        synchronized (zsRef) {
+            this.input = input;
+            this.off = this.len = 0;
+        }
+    }
+
     /**
      * Sets the preset dictionary to the given array of bytes. Should be
      * called when inflate() returns 0 and needsDictionary() returns true
@@ -182,6 +217,29 @@ class Inflater {
         setDictionary(b, 0, b.length);
     }
 
+    /**
+     * Sets the preset dictionary to the bytes from the buffer's position
+     * to its limit, and sets the position to the limit. Should be called
+     * when inflate() returns 0 and needsDictionary() returns true
+     * indicating that a preset dictionary is required.
+     * @param dictionary the dictionary data bytes
+     * @see Inflater#needsDictionary
+     * @see Inflater#getAdler
+     * @since 1.8
+     */
+    public void setDictionary(ByteBuffer dictionary) {
+        int rem = dictionary.remaining();
+        if (dictionary.hasArray()) {
+            setDictionary(dictionary.array(),
+                          dictionary.arrayOffset() + dictionary.position(), rem);
+        } else {
+            byte[] b = new byte[rem];
+            dictionary.duplicate().get(b);
+            setDictionary(b, 0, rem);
+        }
+        dictionary.position(dictionary.limit());
+    }
+
     /**
      * Returns the total number of bytes remaining in the input buffer.
      * This can be used to find out what bytes still remain in the input
@@ -190,7 +248,7 @@ class Inflater {
      */
     public int getRemaining() {
         synchronized (zsRef) {
-            return len;
+            return (input != null) ? input.remaining() : len;
         }
     }
 
@@ -202,7 +260,7 @@ class Inflater {
      */
     public boolean needsInput() {
         synchronized (zsRef) {
-            return len <= 0;
+            return (input != null) ? !input.hasRemaining() : len <= 0;
         }
     }
 
@@ -255,14 +313,89 @@ class Inflater {
         }
         synchronized (zsRef) {
             ensureOpen();
+            ByteBuffer input = this.input;
+            int pos = 0;
+            if (input != null) {
+                pos = input.position();
+                loadInput(input, pos);
+            }
             int thisLen = this.len;
             int n = inflateBytes(zsRef.address(), b, off, len);
             bytesWritten += n;
             bytesRead += (thisLen - this.len);
+            if (input != null) {
+                input.position(pos + (thisLen - this.len));
+            }
             return n;
         }
     }
 
+    /*
+     * Points buf, off and len at the remaining bytes of the input buffer,
+     * or at a copy of as many of them as fit in the staging array.
+     */
+    private void loadInput(ByteBuffer input, int pos) {
+        int rem = input.limit() - pos;
+        if (input.hasArray()) {
+            buf = input.array();
+            off = input.arrayOffset() + pos;
+            len = rem;
+        } else {
+            if (inStage == null) {
+                inStage = new byte[STAGE_SIZE];
+            }
+            int n = Math.min(rem, STAGE_SIZE);
+            input.get(inStage, 0, n);
+            input.position(pos);
+            buf = inStage;
+            off = 0;
+            len = n;
+        }
+    }
+
+    /**
+     * Uncompresses bytes into the specified buffer, as
+     * {@link #inflate(byte[],int,int)} does for an array. The bytes are
+     * written from the buffer's position up to its limit, and the position
+     * is advanced by the number of bytes written.
+     * @param output the buffer for the uncompressed data
+     * @return the actual number of uncompressed bytes
+     * @exception DataFormatException if the compressed data format is invalid
+     * @exception ReadOnlyBufferException if the buffer is read-only
+     * @see Inflater#needsInput
+     * @see Inflater#needsDictionary
+     * @since 1.8
+     */
+    public int inflate(ByteBuffer output) throws DataFormatException {
+        if (output.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        synchronized (zsRef) {
+            int pos = output.position();
+            int rem = output.limit() - pos;
+            if (output.hasArray()) {
+                int n = inflate(output.array(), output.arrayOffset() + pos, rem);
+                output.position(pos + n);
+                return n;
+            }
+            if (outStage == null) {
+                outStage = new byte[STAGE_SIZE];
+            }
+            int total = 0;
+            int m, n;
+            do {
+                m = Math.min(rem - total, STAGE_SIZE);
+                n = inflate(outStage, 0, m);
+                output.put(outStage, 0, n);
+                total += n;
+            } while (n == m && total < rem);
+            return total;
+        }
+    }
+
+    // size of the arrays that stage buffers with no accessible array
+    private static final int STAGE_SIZE = 8192;
+
     /**
      * Uncompresses bytes into specified buffer. Returns actual number
      * of bytes uncompressed. A return value of 0 indicates that
@@ -354,6 +487,7 @@ class Inflater {
             finished = false;
             needDict = false;
             off = len = 0;
+            input = null;
             bytesRead = bytesWritten = 0;
         }
     }
@@ -372,6 +506,7 @@ class Inflater {
             if (addr != 0) {
                 end(addr);
                 buf = null;
+                input = null;
             }
         }
     }
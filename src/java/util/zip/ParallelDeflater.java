@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compresses a stream into raw deflate data on the threads of a
+ * {@link ForkJoinPool}.  The input is split into blocks that are
+ * compressed independently, each with the last 32 KB of the block
+ * before it as preset dictionary, so that matches across block
+ * boundaries are kept.  Every block but the last is ended with a sync
+ * flush, which leaves its output on a byte boundary; the compressed
+ * blocks are written in order and together form one deflate stream.
+ *
+ * <p> Used by {@link GZIPOutputStream} and {@link ZipOutputStream} when
+ * they are given a pool.  Instances are not safe for use by concurrent
+ * threads.
+ */
+final class ParallelDeflater {
+
+    /** the size of the deflate window, and of the preset dictionaries */
+    static final int DICT_SIZE = 32 * 1024;
+
+    /** the default block size */
+    static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private final OutputStream out;
+    private final ForkJoinPool pool;
+    private final int level;
+    private final int blockSize;
+    private final int maxPending;
+
+    private byte[] block;               // the block being filled
+    private int count;                  // bytes in block
+    private byte[] dict;                // end of the previous block, or null
+    private final ArrayDeque<Block> pending = new ArrayDeque<>();
+    private long bytesRead;
+    private long bytesWritten;
+    private boolean finished;
+
+    /**
+     * Creates a parallel deflater writing to the given stream.
+     *
+     * @param out the output stream
+     * @param pool the pool to compress on
+     * @param level the compression level (0-9), or -1 for the default
+     * @param blockSize the number of input bytes compressed by one task,
+     *        at least {@code DICT_SIZE}
+     */
+    ParallelDeflater(OutputStream out, ForkJoinPool pool, int level,
+                     int blockSize) {
+        if (out == null || pool == null)
+            throw new NullPointerException();
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("invalid compression level");
+        if (blockSize < DICT_SIZE)
+            throw new IllegalArgumentException("block size < " + DICT_SIZE);
+        this.out = out;
+        this.pool = pool;
+        this.level = level;
+        this.blockSize = blockSize;
+        // enough blocks in flight to keep the pool busy while the oldest
+        // one is written
+        this.maxPending = 2 * pool.getParallelism() + 1;
+        this.block = new byte[blockSize];
+    }
+
+    /**
+     * Adds data to be compressed.  Blocks are handed to the pool as they
+     * fill up, and compressed blocks are written out once too many are
+     * pending.
+     */
+    void write(byte[] b, int off, int len) throws IOException {
+        if (finished)
+            throw new IOException("write beyond end of stream");
+        bytesRead += len;
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submit(false);
+                block = new byte[blockSize];
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Compresses the remaining input as the last block and writes all
+     * compressed data.  The underlying stream is not flushed or closed.
+     */
+    void finish() throws IOException {
+        if (finished)
+            return;
+        finished = true;
+        submit(true);
+        block = null;
+        while (!pending.isEmpty())
+            writeFirst();
+    }
+
+    boolean finished() {
+        return finished;
+    }
+
+    /** Returns the number of uncompressed bytes written so far. */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /** Returns the number of compressed bytes output so far. */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void submit(boolean last) throws IOException {
+        Block task = new Block(block, count, dict, level, last);
+        if (!last)
+            dict = Arrays.copyOfRange(block, count - DICT_SIZE, count);
+        pending.add(task);
+        pool.execute(task);
+        while (pending.size() > maxPending)
+            writeFirst();
+    }
+
+    private void writeFirst() throws IOException {
+        Block task = pending.poll();
+        task.join();
+        out.write(task.out, 0, task.outlen);
+        bytesWritten += task.outlen;
+        task.out = null;
+    }
+
+    // The raw deflaters kept by each pool worker, one per compression
+    // level, reset after each task.  They are ended when they become
+    // unreachable with their thread.
+    private static final ThreadLocal<Deflater[]> workerDeflaters =
+        new ThreadLocal<Deflater[]>() {
+            protected Deflater[] initialValue() {
+                return new Deflater[10 + 1];    // and DEFAULT_COMPRESSION
+            }
+        };
+
+    /**
+     * Returns a raw deflater of the given level for a task running on the
+     * current thread.  A pool worker reuses the one it keeps for the
+     * level; other threads, which may run a task they join, get a new one.
+     */
+    static Deflater obtainDeflater(int level) {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread))
+            return new Deflater(level, true);
+        Deflater[] slots = workerDeflaters.get();
+        Deflater def = slots[level + 1];
+        if (def == null) {
+            def = new Deflater(level, true);
+            slots[level + 1] = def;
+        }
+        return def;
+    }
+
+    /**
+     * Releases a deflater obtained on the current thread by
+     * {@link #obtainDeflater}.
+     */
+    static void releaseDeflater(Deflater def) {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread)
+            def.reset();
+        else
+            def.end();
+    }
+
+    /**
+     * Compresses one block.
+     */
+    @SuppressWarnings("serial") // not serialized
+    private static final class Block extends RecursiveAction {
+        private byte[] in;
+        private final int inlen;
+        private final byte[] dict;
+        private final int level;
+        private final boolean last;
+        byte[] out;
+        int outlen;
+
+        Block(byte[] in, int inlen, byte[] dict, int level, boolean last) {
+            this.in = in;
+            this.inlen = inlen;
+            this.dict = dict;
+            this.level = level;
+            this.last = last;
+        }
+
+        protected void compute() {
+            Deflater def = obtainDeflater(level);
+            try {
+                if (dict != null)
+                    def.setDictionary(dict);
+                def.setInput(in, 0, inlen);
+                out = new byte[inlen + (inlen >> 8) + 64];
+                if (last) {
+                    def.finish();
+                    while (!def.finished())
+                        deflate(def, Deflater.NO_FLUSH);
+                } else {
+                    // a sync flush ends on a byte boundary; it is complete
+                    // once it leaves room in the output buffer
+                    while (deflate(def, Deflater.SYNC_FLUSH) == -1)
+                        ;
+                }
+            } finally {
+                releaseDeflater(def);
+                in = null;
+            }
+        }
+
+        /*
+         * Deflates into the output buffer, growing it first if it is
+         * full.  Returns the number of bytes output, or -1 if they
+         * filled the buffer.
+         */
+        private int deflate(Deflater def, int flush) {
+            if (outlen == out.length)
+                out = Arrays.copyOf(out, out.length * 2);
+            int space = out.length - outlen;
+            int n = def.deflate(out, outlen, space, flush);
+            outlen += n;
+            return (n == space) ? -1 : n;
+        }
+    }
+}
@@ -59,6 +59,7 @@ import static java.util.zip.ZipConstants64.*;
 public
 class ZipFile implements ZipConstants, Closeable {
     private long jzfile;  // address of jzfile data
+    private final ZipSource source; // non-null if read in Java
     private final String name;     // zip file name
     private final int total;       // total number of entries
     private final boolean locsig;  // if zip file starts with LOCSIG (usually true)
@@ -92,6 +93,8 @@ class ZipFile implements ZipConstants, Closeable {
 
     private static final boolean ensuretrailingslash;
 
+    private static final boolean purejava;
+
     static {
         // A system prpperty to disable mmap use to avoid vm crash when
         // in-use zip file is accidently overwritten by others.
@@ -102,6 +105,12 @@ class ZipFile implements ZipConstants, Closeable {
         // see getEntry() for details
         prop = sun.misc.VM.getSavedProperty("jdk.util.zip.ensureTrailingSlash");
         ensuretrailingslash = prop == null || !prop.equalsIgnoreCase("false");
+
+        // Read zip files in Java rather than with the native zip library:
+        // the central directory is indexed once, and entries are looked up
+        // and read without locking the ZipFile
+        prop = sun.misc.VM.getSavedProperty("jdk.util.zip.pureJava");
+        purejava = prop != null && prop.equalsIgnoreCase("true");
     }
 
     /**
@@ -222,12 +231,24 @@ class ZipFile implements ZipConstants, Closeable {
             throw new NullPointerException("charset is null");
         this.zc = ZipCoder.get(charset);
         long t0 = System.nanoTime();
-        jzfile = open(name, mode, file.lastModified(), usemmap);
+        // a file opened with OPEN_DELETE is read natively, as it could not
+        // be reopened after an interrupt closes the channel of a ZipSource
+        if (purejava && (mode & OPEN_DELETE) == 0) {
+            source = new ZipSource(file, usemmap);
+        } else {
+            source = null;
+            jzfile = open(name, mode, file.lastModified(), usemmap);
+        }
         sun.misc.PerfCounter.getZipFileOpenTime().addElapsedTimeFrom(t0);
         sun.misc.PerfCounter.getZipFileCount().increment();
         this.name = name;
-        this.total = getTotal(jzfile);
-        this.locsig = startsWithLOC(jzfile);
+        if (source != null) {
+            this.total = source.total();
+            this.locsig = source.startsWithLOC();
+        } else {
+            this.total = getTotal(jzfile);
+            this.locsig = startsWithLOC(jzfile);
+        }
     }
 
     /**
@@ -289,6 +310,13 @@ class ZipFile implements ZipConstants, Closeable {
      * Since 1.7
      */
     public String getComment() {
+        if (source != null) {
+            ensureOpen();
+            byte[] bcomm = source.comment();
+            if (bcomm == null)
+                return null;
+            return zc.toString(bcomm, bcomm.length);
+        }
         synchronized (this) {
             ensureOpen();
             byte[] bcomm = getCommentBytes(jzfile);
@@ -310,6 +338,20 @@ class ZipFile implements ZipConstants, Closeable {
         if (name == null) {
             throw new NullPointerException("name");
         }
+        if (source != null) {
+            source.acquire();
+            try {
+                ensureOpen();
+                int pos = source.getEntryPos(zc.getBytes(name), true);
+                if (pos < 0) {
+                    return null;
+                }
+                return ensuretrailingslash ? getZipEntry(null, pos)
+                                           : getZipEntry(name, pos);
+            } finally {
+                source.release();
+            }
+        }
         long jzentry = 0;
         synchronized (this) {
             ensureOpen();
@@ -360,6 +402,9 @@ class ZipFile implements ZipConstants, Closeable {
         if (entry == null) {
             throw new NullPointerException("entry");
         }
+        if (source != null) {
+            return getSourceInputStream(entry);
+        }
         long jzentry = 0;
         ZipFileInputStream in = null;
         synchronized (this) {
@@ -386,8 +431,8 @@ class ZipFile implements ZipConstants, Closeable {
                 if (size > 65536) size = 8192;
                 if (size <= 0) size = 4096;
                 Inflater inf = getInflater();
-                InputStream is =
-                    new ZipFileInflaterInputStream(in, inf, (int)size);
+                InputStream is = new ZipFileInflaterInputStream(
+                        in, in.size(), inf, (int)size);
                 synchronized (streams) {
                     streams.put(is, inf);
                 }
@@ -398,15 +443,63 @@ class ZipFile implements ZipConstants, Closeable {
         }
     }
 
+    /*
+     * getInputStream for zip files read in Java.  Neither the lookup nor
+     * the reads of the returned stream lock the ZipFile.
+     */
+    private InputStream getSourceInputStream(ZipEntry entry)
+        throws IOException
+    {
+        int pos;
+        int method;
+        ZipSourceInputStream in;
+        source.acquire();
+        try {
+            ensureOpen();
+            if (!zc.isUTF8() && (entry.flag & EFS) != 0) {
+                pos = source.getEntryPos(zc.getBytesUTF8(entry.name), false);
+            } else {
+                pos = source.getEntryPos(zc.getBytes(entry.name), false);
+            }
+            if (pos < 0) {
+                return null;
+            }
+            in = new ZipSourceInputStream(pos);
+            method = source.method(pos);
+        } finally {
+            source.release();
+        }
+        switch (method) {
+        case STORED:
+            synchronized (streams) {
+                streams.put(in, null);
+            }
+            return in;
+        case DEFLATED:
+            long size = in.size() + 2; // Inflater likes a bit of slack
+            if (size > 65536) size = 8192;
+            if (size <= 0) size = 4096;
+            Inflater inf = getInflater();
+            InputStream is = new ZipFileInflaterInputStream(
+                    in, in.size(), inf, (int)size);
+            synchronized (streams) {
+                streams.put(is, inf);
+            }
+            return is;
+        default:
+            throw new ZipException("invalid compression method");
+        }
+    }
+
     private class ZipFileInflaterInputStream extends InflaterInputStream {
         private volatile boolean closeRequested = false;
         private boolean eof = false;
-        private final ZipFileInputStream zfin;
+        private final long size;    // uncompressed size of the entry
 
-        ZipFileInflaterInputStream(ZipFileInputStream zfin, Inflater inf,
-                int size) {
-            super(zfin, inf, size);
-            this.zfin = zfin;
+        ZipFileInflaterInputStream(InputStream in, long size, Inflater inf,
+                int bufsize) {
+            super(in, inf, bufsize);
+            this.size = size;
         }
 
         public void close() throws IOException {
@@ -443,7 +536,7 @@ class ZipFile implements ZipConstants, Closeable {
         public int available() throws IOException {
             if (closeRequested)
                 return 0;
-            long avail = zfin.size() - inf.getBytesWritten();
+            long avail = size - inf.getBytesWritten();
             return (avail > (long) Integer.MAX_VALUE ?
                     Integer.MAX_VALUE : (int) avail);
         }
@@ -455,10 +548,19 @@ class ZipFile implements ZipConstants, Closeable {
 
     /*
      * Gets an inflater from the list of available inflaters or allocates
-     * a new one.
+     * a new one.  Zip files read in Java first try the inflater kept by
+     * the current thread.
      */
     private Inflater getInflater() {
         Inflater inf;
+        if (source != null) {
+            Inflater[] slot = threadInflater.get();
+            inf = slot[0];
+            slot[0] = null;
+            if (inf != null && !inf.ended()) {
+                return inf;
+            }
+        }
         synchronized (inflaterCache) {
             while (null != (inf = inflaterCache.poll())) {
                 if (false == inf.ended()) {
@@ -475,6 +577,13 @@ class ZipFile implements ZipConstants, Closeable {
     private void releaseInflater(Inflater inf) {
         if (false == inf.ended()) {
             inf.reset();
+            if (source != null) {
+                Inflater[] slot = threadInflater.get();
+                if (slot[0] == null) {
+                    slot[0] = inf;
+                    return;
+                }
+            }
             synchronized (inflaterCache) {
                 inflaterCache.add(inf);
             }
@@ -484,6 +593,16 @@ class ZipFile implements ZipConstants, Closeable {
     // List of available Inflater objects for decompression
     private Deque<Inflater> inflaterCache = new ArrayDeque<>();
 
+    // An Inflater kept by each thread for zip files read in Java, shared
+    // by all of them.  It outlives the zip file it was last used with, and
+    // is ended when it becomes unreachable with its thread.
+    private static final ThreadLocal<Inflater[]> threadInflater =
+        new ThreadLocal<Inflater[]>() {
+            protected Inflater[] initialValue() {
+                return new Inflater[1];
+            }
+        };
+
     /**
      * Returns the path name of the ZIP file.
      * @return the path name of the ZIP file
@@ -504,6 +623,10 @@ class ZipFile implements ZipConstants, Closeable {
         }
 
         public boolean hasNext() {
+            if (source != null) {
+                ensureOpen();
+                return i < total;
+            }
             synchronized (ZipFile.this) {
                 ensureOpen();
                 return i < total;
@@ -515,6 +638,18 @@ class ZipFile implements ZipConstants, Closeable {
         }
 
         public ZipEntry next() {
+            if (source != null) {
+                source.acquire();
+                try {
+                    ensureOpen();
+                    if (i >= total) {
+                        throw new NoSuchElementException();
+                    }
+                    return getZipEntry(null, source.entryPos(i++));
+                } finally {
+                    source.release();
+                }
+            }
             synchronized (ZipFile.this) {
                 ensureOpen();
                 if (i >= total) {
@@ -602,6 +737,39 @@ class ZipFile implements ZipConstants, Closeable {
         return e;
     }
 
+    // called with the central directory of the source acquired
+    private ZipEntry getZipEntry(String name, int pos) {
+        ZipEntry e = new ZipEntry();
+        e.flag = source.flag(pos);  // get the flag first
+        if (name != null) {
+            e.name = name;
+        } else {
+            byte[] bname = source.name(pos);
+            if (!zc.isUTF8() && (e.flag & EFS) != 0) {
+                e.name = zc.toStringUTF8(bname, bname.length);
+            } else {
+                e.name = zc.toString(bname, bname.length);
+            }
+        }
+        e.xdostime = source.time(pos);
+        e.crc = source.crc(pos);
+        e.size = source.size(pos);
+        e.csize = source.csize(pos);
+        e.method = source.method(pos);
+        e.setExtra0(source.extra(pos), false);
+        byte[] bcomm = source.comment(pos);
+        if (bcomm == null) {
+            e.comment = null;
+        } else {
+            if (!zc.isUTF8() && (e.flag & EFS) != 0) {
+                e.comment = zc.toStringUTF8(bcomm, bcomm.length);
+            } else {
+                e.comment = zc.toString(bcomm, bcomm.length);
+            }
+        }
+        return e;
+    }
+
     private static native long getNextEntry(long jzfile, int i);
 
     /**
@@ -658,6 +826,9 @@ class ZipFile implements ZipConstants, Closeable {
 
                 close(zf);
             }
+            if (source != null) {
+                source.close();
+            }
         }
     }
 
@@ -686,7 +857,7 @@ class ZipFile implements ZipConstants, Closeable {
             throw new IllegalStateException("zip file closed");
         }
 
-        if (jzfile == 0) {
+        if (jzfile == 0 && source == null) {
             throw new IllegalStateException("The object is not initialized.");
         }
     }
@@ -794,6 +965,104 @@ class ZipFile implements ZipConstants, Closeable {
         }
     }
 
+    /*
+     * Inner class implementing the input stream used to read a
+     * (possibly compressed) entry of a zip file read in Java.  Reads
+     * lock only the stream.
+     */
+    private class ZipSourceInputStream extends InputStream {
+        private volatile boolean closeRequested = false;
+        private final long locoff;  // offset of the entry's LOC header
+        private long start = -1;    // file position of the entry data
+        private long pos;           // current position within entry data
+        private long rem;           // number of remaining bytes within entry
+        private final long size;    // uncompressed size of this entry
+
+        // called with the central directory acquired
+        ZipSourceInputStream(int cenpos) {
+            locoff = source.locoff(cenpos);
+            rem = source.csize(cenpos);
+            size = source.size(cenpos);
+        }
+
+        public int read(byte b[], int off, int len) throws IOException {
+            synchronized (this) {
+                if (rem == 0) {
+                    return -1;
+                }
+                if (len <= 0) {
+                    return 0;
+                }
+                if (len > rem) {
+                    len = (int) rem;
+                }
+
+                // Check if ZipFile open
+                ensureOpenOrZipException();
+                if (start < 0) {
+                    start = source.dataPos(locoff);
+                }
+                len = source.readAt(b, off, len, start + pos);
+                if (len < 0) {
+                    throw new ZipException("unexpected end of zip entry data");
+                }
+                pos += len;
+                rem -= len;
+            }
+            if (rem == 0) {
+                close();
+            }
+            return len;
+        }
+
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            if (read(b, 0, 1) == 1) {
+                return b[0] & 0xff;
+            } else {
+                return -1;
+            }
+        }
+
+        public synchronized long skip(long n) {
+            if (n > rem)
+                n = rem;
+            if (n <= 0)
+                return 0;
+            pos += n;
+            rem -= n;
+            if (rem == 0) {
+                close();
+            }
+            return n;
+        }
+
+        public synchronized int available() {
+            return rem > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) rem;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public void close() {
+            if (closeRequested)
+                return;
+            closeRequested = true;
+
+            synchronized (this) {
+                rem = 0;
+            }
+            synchronized (streams) {
+                streams.remove(this);
+            }
+        }
+
+        protected void finalize() {
+            close();
+        }
+    }
+
     static {
         sun.misc.SharedSecrets.setJavaUtilZipFileAccess(
             new sun.misc.JavaUtilZipFileAccess() {
@@ -29,8 +29,12 @@ import java.io.OutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Vector;
 import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import static java.util.zip.ZipConstants64.*;
 import static java.util.zip.ZipUtils.*;
 
@@ -81,6 +85,21 @@ class ZipOutputStream extends DeflaterOutputStream implements ZipConstants {
 
     private final ZipCoder zc;
 
+    // Parallel compression, see setCompressionPool
+    private ForkJoinPool pool;
+    private ForkJoinPool epool;         // the pool for the current entry
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private byte[] ebuf;                // data of the current entry, if buffered
+    private int ecount;                 // number of bytes in ebuf
+    private ParallelDeflater pdef;      // compresses the current entry, if large
+    private final ArrayDeque<EntryDeflater> pending = new ArrayDeque<>();
+
+    /*
+     * Entries larger than this are compressed block by block as they are
+     * written, rather than buffered and compressed whole.
+     */
+    private static final int MAX_BUFFERED_ENTRY = 4 * 1024 * 1024;
+
     private static int version(ZipEntry e) throws ZipException {
         switch (e.method) {
         case DEFLATED: return 20;
@@ -174,6 +193,30 @@ class ZipOutputStream extends DeflaterOutputStream implements ZipConstants {
      */
     public void setLevel(int level) {
         def.setLevel(level);
+        this.level = level;
+    }
+
+    /**
+     * Sets the pool used to compress subsequent DEFLATED entries, or
+     * {@code null} to compress them on the calling thread, which is the
+     * initial setting.
+     *
+     * <p>With a pool, the data of each entry is buffered when written and
+     * compressed on the pool when the entry is closed, so that entries are
+     * compressed concurrently.  Compressed entries are written in the order
+     * in which they were put, with their sizes and CRC-32 in the LOC
+     * header.  Entries whose data exceeds 4 MB are instead compressed in
+     * blocks, concurrently, as their data is written.  Up to twice the
+     * pool's parallelism entries are held in memory while waiting to be
+     * written.  A mismatch with the size, compressed size or CRC-32 set on
+     * a buffered entry is reported when the entry is written, which may be
+     * on a later call than {@code closeEntry}.
+     *
+     * @param pool the pool on which to compress, or {@code null}
+     * @since 1.8
+     */
+    public void setCompressionPool(ForkJoinPool pool) {
+        this.pool = pool;
     }
 
     /**
@@ -233,6 +276,16 @@ class ZipOutputStream extends DeflaterOutputStream implements ZipConstants {
         }
         if (zc.isUTF8())
             e.flag |= EFS;
+        if (pool != null && e.method == DEFLATED) {
+            // offset and LOC header are set when the entry is written
+            current = new XEntry(e, -1);
+            epool = pool;
+            ebuf = new byte[(e.size >= 0 && e.size <= MAX_BUFFERED_ENTRY)
+                            ? (int)e.size : 8192];
+            ecount = 0;
+            return;
+        }
+        writePending(0);
         current = new XEntry(e, written);
         xentries.add(current);
         writeLOC(current);
@@ -250,31 +303,35 @@ class ZipOutputStream extends DeflaterOutputStream implements ZipConstants {
             ZipEntry e = current.entry;
             switch (e.method) {
             case DEFLATED:
-                def.finish();
-                while (!def.finished()) {
-                    deflate();
+                if (ebuf != null) {
+                    EntryDeflater ed = new EntryDeflater(e, ebuf, ecount, level);
+                    ebuf = null;
+                    epool.execute(ed);
+                    pending.add(ed);
+                    writePending(2 * epool.getParallelism());
+                    current = null;
+                    return;
+                }
+                long size, csize;
+                if (pdef != null) {
+                    pdef.finish();
+                    size = pdef.getBytesRead();
+                    csize = pdef.getBytesWritten();
+                    pdef = null;
+                } else {
+                    def.finish();
+                    while (!def.finished()) {
+                        deflate();
+                    }
+                    size = def.getBytesRead();
+                    csize = def.getBytesWritten();
                 }
                 if ((e.flag & 8) == 0) {
                     // verify size, compressed size, and crc-32 settings
-                    if (e.size != def.getBytesRead()) {
-                        throw new ZipException(
-                            "invalid entry size (expected " + e.size +
-                            " but got " + def.getBytesRead() + " bytes)");
-                    }
-                    if (e.csize != def.getBytesWritten()) {
-                        throw new ZipException(
-                            "invalid entry compressed size (expected " +
-                            e.csize + " but got " + def.getBytesWritten() + " bytes)");
-                    }
-                    if (e.crc != crc.getValue()) {
-                        throw new ZipException(
-                            "invalid entry CRC-32 (expected 0x" +
-                            Long.toHexString(e.crc) + " but got 0x" +
-                            Long.toHexString(crc.getValue()) + ")");
-                    }
+                    checkSizes(e, size, csize, crc.getValue());
                 } else {
-                    e.size  = def.getBytesRead();
-                    e.csize = def.getBytesWritten();
+                    e.size  = size;
+                    e.csize = csize;
                     e.crc = crc.getValue();
                     writeEXT(e);
                 }
@@ -303,6 +360,113 @@ class ZipOutputStream extends DeflaterOutputStream implements ZipConstants {
         }
     }
 
+    /*
+     * Verifies the size, compressed size, and crc-32 set on an entry.
+     */
+    private static void checkSizes(ZipEntry e, long size, long csize, long crc)
+        throws ZipException
+    {
+        if (e.size != size) {
+            throw new ZipException(
+                "invalid entry size (expected " + e.size +
+                " but got " + size + " bytes)");
+        }
+        if (e.csize != csize) {
+            throw new ZipException(
+                "invalid entry compressed size (expected " +
+                e.csize + " but got " + csize + " bytes)");
+        }
+        if (e.crc != crc) {
+            throw new ZipException(
+                "invalid entry CRC-32 (expected 0x" +
+                Long.toHexString(e.crc) + " but got 0x" +
+                Long.toHexString(crc) + ")");
+        }
+    }
+
+    /*
+     * Writes entries compressed on the pool, in order, until at most
+     * max of them are pending.
+     */
+    private void writePending(int max) throws IOException {
+        while (pending.size() > max) {
+            EntryDeflater ed = pending.poll();
+            ed.join();
+            ZipEntry e = ed.entry;
+            if ((e.flag & 8) == 0) {
+                checkSizes(e, ed.size, ed.csize, ed.crc);
+            }
+            // sizes are known, so they go in the LOC header
+            e.size = ed.size;
+            e.csize = ed.csize;
+            e.crc = ed.crc;
+            e.flag &= ~8;
+            XEntry xentry = new XEntry(e, written);
+            xentries.add(xentry);
+            writeLOC(xentry);
+            writeBytes(ed.out, 0, ed.csize);
+        }
+    }
+
+    /*
+     * Switches the current, buffered entry to compression as it is
+     * written, once it has grown too large to buffer.  Entries before it
+     * are written first.
+     */
+    private void startParallelDeflater() throws IOException {
+        writePending(0);
+        ZipEntry e = current.entry;
+        current = new XEntry(e, written);
+        xentries.add(current);
+        writeLOC(current);
+        pdef = new ParallelDeflater(out, epool, level,
+                                    ParallelDeflater.DEFAULT_BLOCK_SIZE);
+        pdef.write(ebuf, 0, ecount);
+        crc.update(ebuf, 0, ecount);
+        ebuf = null;
+    }
+
+    /*
+     * Compresses one entry and computes its crc-32.
+     */
+    @SuppressWarnings("serial") // not serialized
+    private static final class EntryDeflater extends RecursiveAction {
+        final ZipEntry entry;
+        private byte[] data;
+        final int size;
+        private final int level;
+        byte[] out;
+        int csize;
+        long crc;
+
+        EntryDeflater(ZipEntry entry, byte[] data, int size, int level) {
+            this.entry = entry;
+            this.data = data;
+            this.size = size;
+            this.level = level;
+        }
+
+        protected void compute() {
+            CRC32 c = new CRC32();
+            c.update(data, 0, size);
+            crc = c.getValue();
+            Deflater def = ParallelDeflater.obtainDeflater(level);
+            try {
+                def.setInput(data, 0, size);
+                def.finish();
+                out = new byte[size + (size >> 8) + 64];
+                while (!def.finished()) {
+                    if (csize == out.length)
+                        out = Arrays.copyOf(out, out.length * 2);
+                    csize += def.deflate(out, csize, out.length - csize);
+                }
+            } finally {
+                ParallelDeflater.releaseDeflater(def);
+                data = null;
+            }
+        }
+    }
+
     /**
      * Writes an array of bytes to the current ZIP entry data. This method
      * will block until all the bytes are written.
@@ -328,7 +492,23 @@ class ZipOutputStream extends DeflaterOutputStream implements ZipConstants {
         ZipEntry entry = current.entry;
         switch (entry.method) {
         case DEFLATED:
-            super.write(b, off, len);
+            if (ebuf != null) {
+                if (ecount + len <= MAX_BUFFERED_ENTRY) {
+                    if (ecount + len > ebuf.length) {
+                        ebuf = Arrays.copyOf(ebuf, Math.min(MAX_BUFFERED_ENTRY,
+                            Math.max(ecount + len, ebuf.length * 2)));
+                    }
+                    System.arraycopy(b, off, ebuf, ecount, len);
+                    ecount += len;
+                    return;     // crc-32 is computed on the pool
+                }
+                startParallelDeflater();
+            }
+            if (pdef != null) {
+                pdef.write(b, off, len);
+            } else {
+                super.write(b, off, len);
+            }
             break;
         case STORED:
             written += len;
@@ -359,6 +539,7 @@ class ZipOutputStream extends DeflaterOutputStream implements ZipConstants {
         if (current != null) {
             closeEntry();
         }
+        writePending(0);
         // write central directory
         long off = written;
         for (XEntry xentry : xentries)
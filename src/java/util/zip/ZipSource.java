@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+import static java.util.zip.ZipConstants64.*;
+import static java.util.zip.ZipUtils.*;
+
+/**
+ * The contents of a zip file, read in Java: the central directory, mapped
+ * or read into memory once and indexed by a hash table of entry names,
+ * and positional reads of entry data.  Used by {@link ZipFile} when the
+ * system property {@code jdk.util.zip.pureJava} is {@code true}, for
+ * zip files that are not opened with {@code OPEN_DELETE}.
+ *
+ * <p> All methods are safe for use by concurrent threads.  Lookups only
+ * read the central directory and the table, and data is read with
+ * positional reads of a shared channel, so that neither takes a lock.
+ *
+ * <p> A mapped central directory is unmapped when the source is closed,
+ * so the methods that read it must be called between {@link #acquire}
+ * and {@link #release}, after checking that the zip file is still open;
+ * an unmapping requested while there are such readers is done by the
+ * last of them.
+ *
+ * <p> Entries are identified by the position of their header in the
+ * central directory.
+ */
+final class ZipSource implements ZipConstants {
+
+    private final File file;
+    private volatile FileChannel ch;
+    private volatile boolean closed;
+
+    private final ByteBuffer cen;       // little-endian, absolute reads only
+    private final boolean mapped;       // if cen is mapped
+    private final AtomicInteger readers = new AtomicInteger();
+    private final AtomicBoolean unmapped = new AtomicBoolean();
+    private final long locpos;          // position of the first LOC header
+    private final int total;            // number of entries
+    private final boolean locsig;       // if the file starts with LOCSIG
+    private final byte[] comment;       // null if none
+
+    // Hash table of entry names: for each entry, its name hash, the index
+    // of the next entry in its chain, and its position in the CEN
+    private final int[] table;
+    private final int[] entries;
+
+    private static final int ZIP_ENDCHAIN = -1;
+
+    ZipSource(File file, boolean usemmap) throws IOException {
+        this.file = file;
+        this.ch = new RandomAccessFile(file, "r").getChannel();
+        try {
+            long size = ch.size();
+            byte[] head = new byte[4];
+            locsig = size >= 4 && readFullyAt(head, 0, 4, 0) == 4
+                && get32(head, 0) == LOCSIG;
+
+            // Find the END header, searching back over the zip file comment
+            int buflen = (int)Math.min(size, ENDHDR + 0xFFFF);
+            byte[] buf = new byte[buflen];
+            long bufpos = size - buflen;
+            readFullyAt(buf, 0, buflen, bufpos);
+            int end = -1;
+            for (int i = buflen - ENDHDR; i >= 0; i--) {
+                if (get32(buf, i) == ENDSIG
+                        && i + ENDHDR + get16(buf, i + ENDCOM) <= buflen) {
+                    end = i;
+                    break;
+                }
+            }
+            if (end < 0)
+                throw new ZipException("zip END header not found");
+            int comlen = get16(buf, end + ENDCOM);
+            comment = (comlen == 0) ? null
+                : Arrays.copyOfRange(buf, end + ENDHDR, end + ENDHDR + comlen);
+
+            long endpos = bufpos + end;
+            long cenlen = get32(buf, end + ENDSIZ);
+            long cenoff = get32(buf, end + ENDOFF);
+            if (cenlen == ZIP64_MAGICVAL || cenoff == ZIP64_MAGICVAL
+                    || get16(buf, end + ENDTOT) == ZIP64_MAGICCOUNT) {
+                byte[] loc = new byte[ZIP64_LOCHDR];
+                if (endpos >= ZIP64_LOCHDR
+                        && readFullyAt(loc, 0, ZIP64_LOCHDR,
+                                       endpos - ZIP64_LOCHDR) == ZIP64_LOCHDR
+                        && get32(loc, 0) == ZIP64_LOCSIG) {
+                    long end64pos = get64(loc, ZIP64_LOCOFF);
+                    byte[] end64 = new byte[ZIP64_ENDHDR];
+                    if (readFullyAt(end64, 0, ZIP64_ENDHDR, end64pos) != ZIP64_ENDHDR
+                            || get32(end64, 0) != ZIP64_ENDSIG)
+                        throw new ZipException("invalid zip64 END header");
+                    cenlen = get64(end64, ZIP64_ENDSIZ);
+                    cenoff = get64(end64, ZIP64_ENDOFF);
+                    endpos = end64pos;
+                }
+            }
+            long cenpos = endpos - cenlen;
+            locpos = cenpos - cenoff;
+            if (cenpos < 0 || locpos < 0)
+                throw new ZipException("invalid END header (bad central directory offset)");
+            if (cenlen > Integer.MAX_VALUE)
+                throw new ZipException("invalid END header (central directory size too large)");
+
+            ByteBuffer bb;
+            mapped = usemmap && cenlen > 0;
+            if (mapped) {
+                bb = ch.map(FileChannel.MapMode.READ_ONLY, cenpos, cenlen);
+            } else {
+                byte[] b = new byte[(int)cenlen];
+                if (readFullyAt(b, 0, b.length, cenpos) != b.length)
+                    throw new ZipException("invalid END header (bad central directory size)");
+                bb = ByteBuffer.wrap(b);
+            }
+            cen = bb.order(ByteOrder.LITTLE_ENDIAN);
+
+            // Index the entries.  The END total is not trusted, as it
+            // overflows in zip files with many entries that are not zip64.
+            int[] ents = new int[Math.max(get16(buf, end + ENDTOT), 16) * 3];
+            int n = 0;
+            int pos = 0;
+            int limit = (int)cenlen;
+            while (pos < limit) {
+                if (pos + CENHDR > limit || cenInt(pos) != (int)CENSIG)
+                    throw new ZipException("invalid CEN header (bad signature)");
+                int nlen = cenShort(pos + CENNAM);
+                int next = pos + CENHDR + nlen + cenShort(pos + CENEXT)
+                           + cenShort(pos + CENCOM);
+                if (next > limit)
+                    throw new ZipException("invalid CEN header (bad header size)");
+                if (n * 3 == ents.length)
+                    ents = Arrays.copyOf(ents, ents.length * 2);
+                ents[n * 3] = hash(pos + CENHDR, nlen);
+                ents[n * 3 + 2] = pos;
+                n++;
+                pos = next;
+            }
+            total = n;
+            entries = ents;
+            table = new int[(n / 2) | 1];
+            Arrays.fill(table, ZIP_ENDCHAIN);
+            for (int i = 0; i < n; i++) {
+                int slot = (entries[i * 3] & 0x7fffffff) % table.length;
+                entries[i * 3 + 1] = table[slot];
+                table[slot] = i;
+            }
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private int cenShort(int pos) {
+        return cen.getShort(pos) & 0xffff;
+    }
+
+    private int cenInt(int pos) {
+        return cen.getInt(pos);
+    }
+
+    private long cenUInt(int pos) {
+        return cen.getInt(pos) & 0xffffffffL;
+    }
+
+    private int hash(int pos, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++)
+            h = 31 * h + cen.get(pos + i);
+        return h;
+    }
+
+    private static int hash(byte[] name, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++)
+            h = 31 * h + name[i];
+        return h;
+    }
+
+    /** Returns the number of entries. */
+    int total() {
+        return total;
+    }
+
+    /** Tells whether the file starts with a LOC header. */
+    boolean startsWithLOC() {
+        return locsig;
+    }
+
+    /** Returns the zip file comment, or null if none. */
+    byte[] comment() {
+        return (comment == null) ? null : comment.clone();
+    }
+
+    /** Returns the CEN position of the i-th entry. */
+    int entryPos(int i) {
+        return entries[i * 3 + 2];
+    }
+
+    /**
+     * Returns the CEN position of the entry of the given encoded name, or
+     * -1 if there is none.  If addSlash is true, also looks for the name
+     * followed by a slash.
+     */
+    int getEntryPos(byte[] name, boolean addSlash) {
+        int pos = lookup(name, name.length);
+        if (pos < 0 && addSlash && name.length > 0
+                && name[name.length - 1] != '/') {
+            byte[] slashed = Arrays.copyOf(name, name.length + 1);
+            slashed[name.length] = '/';
+            pos = lookup(slashed, slashed.length);
+        }
+        return pos;
+    }
+
+    private int lookup(byte[] name, int len) {
+        int h = hash(name, len);
+        int i = table[(h & 0x7fffffff) % table.length];
+        while (i != ZIP_ENDCHAIN) {
+            if (entries[i * 3] == h) {
+                int pos = entries[i * 3 + 2];
+                if (cenShort(pos + CENNAM) == len && nameEquals(pos, name, len))
+                    return pos;
+            }
+            i = entries[i * 3 + 1];
+        }
+        return -1;
+    }
+
+    private boolean nameEquals(int pos, byte[] name, int len) {
+        int off = pos + CENHDR;
+        for (int i = 0; i < len; i++) {
+            if (cen.get(off + i) != name[i])
+                return false;
+        }
+        return true;
+    }
+
+    int flag(int pos)   { return cenShort(pos + CENFLG); }
+    int method(int pos) { return cenShort(pos + CENHOW); }
+    long time(int pos)  { return cenUInt(pos + CENTIM); }
+    long crc(int pos)   { return cenUInt(pos + CENCRC); }
+
+    byte[] name(int pos) {
+        return bytes(pos + CENHDR, cenShort(pos + CENNAM));
+    }
+
+    /** Returns the extra field, or null if none. */
+    byte[] extra(int pos) {
+        int elen = cenShort(pos + CENEXT);
+        return (elen == 0) ? null
+            : bytes(pos + CENHDR + cenShort(pos + CENNAM), elen);
+    }
+
+    /** Returns the entry comment, or null if none. */
+    byte[] comment(int pos) {
+        int clen = cenShort(pos + CENCOM);
+        return (clen == 0) ? null
+            : bytes(pos + CENHDR + cenShort(pos + CENNAM)
+                    + cenShort(pos + CENEXT), clen);
+    }
+
+    private byte[] bytes(int off, int len) {
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++)
+            b[i] = cen.get(off + i);
+        return b;
+    }
+
+    long size(int pos)   { return zip64Field(pos, 0); }
+    long csize(int pos)  { return zip64Field(pos, 1); }
+    long locoff(int pos) { return zip64Field(pos, 2); }
+
+    /**
+     * Returns the uncompressed size (0), compressed size (1) or LOC offset
+     * (2) of an entry, taking it from the zip64 extra field when the
+     * header has the magic value.  The zip64 field holds only the values
+     * that are magic in the header, in this order.
+     */
+    private long zip64Field(int pos, int field) {
+        long[] values = {
+            cenUInt(pos + CENLEN), cenUInt(pos + CENSIZ), cenUInt(pos + CENOFF)
+        };
+        if (values[field] != ZIP64_MAGICVAL)
+            return values[field];
+        int off = pos + CENHDR + cenShort(pos + CENNAM);
+        int end = off + cenShort(pos + CENEXT);
+        while (off + 4 <= end) {
+            int tag = cenShort(off);
+            int sz = cenShort(off + 2);
+            off += 4;
+            if (off + sz > end)
+                break;
+            if (tag == EXTID_ZIP64) {
+                int p = off;
+                for (int f = 0; f < 3; f++) {
+                    if (values[f] != ZIP64_MAGICVAL)
+                        continue;
+                    if (p + 8 > off + sz)
+                        break;
+                    if (f == field)
+                        return cen.getLong(p);
+                    p += 8;
+                }
+                break;
+            }
+            off += sz;
+        }
+        return values[field];
+    }
+
+    /**
+     * Returns the file position of the data of the entry whose LOC header
+     * is at the given offset, as returned by {@link #locoff}.  Reads only
+     * the file, not the central directory.
+     */
+    long dataPos(long locoff) throws IOException {
+        byte[] loc = new byte[LOCHDR];
+        long off = locpos + locoff;
+        if (readFullyAt(loc, 0, LOCHDR, off) != LOCHDR
+                || get32(loc, 0) != LOCSIG)
+            throw new ZipException("invalid LOC header (bad signature)");
+        return off + LOCHDR + get16(loc, LOCNAM) + get16(loc, LOCEXT);
+    }
+
+    /**
+     * Reads up to len bytes at the given file position.  Like reads of a
+     * RandomAccessFile, reads are not interruptible: an interrupt that
+     * closes the shared channel makes it be reopened, and the interrupt
+     * status is kept.
+     */
+    int readAt(byte[] b, int off, int len, long position) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            for (;;) {
+                FileChannel c = ch;
+                try {
+                    return c.read(ByteBuffer.wrap(b, off, len), position);
+                } catch (ClosedChannelException e) {
+                    if (closed)
+                        throw e;
+                    interrupted |= Thread.interrupted();
+                    reopen(c);
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private int readFullyAt(byte[] b, int off, int len, long position)
+        throws IOException
+    {
+        int n = 0;
+        while (n < len) {
+            int r = readAt(b, off + n, len - n, position + n);
+            if (r < 0)
+                break;
+            n += r;
+        }
+        return n;
+    }
+
+    private synchronized void reopen(FileChannel old) throws IOException {
+        if (ch == old && !closed)
+            ch = new RandomAccessFile(file, "r").getChannel();
+    }
+
+    /**
+     * Marks the start of a read of the central directory.  The caller
+     * then checks that the zip file is open.
+     */
+    void acquire() {
+        readers.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a read of the central directory.
+     */
+    void release() {
+        if (readers.decrementAndGet() == 0 && closed)
+            unmap();
+    }
+
+    synchronized void close() throws IOException {
+        closed = true;
+        try {
+            ch.close();
+        } finally {
+            if (readers.get() == 0)
+                unmap();
+        }
+    }
+
+    /**
+     * Unmaps a mapped central directory, once, rather than leaving it
+     * mapped until the buffer is collected.
+     */
+    private void unmap() {
+        if (mapped && unmapped.compareAndSet(false, true)) {
+            Cleaner cl = ((DirectBuffer)cen).cleaner();
+            if (cl != null)
+                cl.clean();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.invoke;
+
+import java.lang.management.PlatformManagedObject;
+
+/**
+ * The management interface of the {@link java.lang.invoke.MethodHandle}
+ * implementation.
+ *
+ * <p> An instance is registered with the platform MBean server under the
+ * name {@code java.lang.invoke:type=MethodHandleStatistics} when the system
+ * property {@code java.lang.invoke.MethodHandle.MXBEAN} is {@code true}.
+ */
+public interface MethodHandleStatisticsMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the number of lambda forms compiled to bytecode.
+     *
+     * @return the number of lambda form compilations
+     */
+    long getLambdaFormCompilationCount();
+
+    /**
+     * Returns the total time, in milliseconds, spent compiling lambda
+     * forms to bytecode.
+     *
+     * @return the total lambda form compilation time in milliseconds
+     */
+    long getTotalLambdaFormCompilationTime();
+
+    /**
+     * Returns the number of method handles given a lambda form of their
+     * own, either because they were invoked often enough or because a
+     * handle that invokes them was.
+     *
+     * @return the number of customized method handles
+     */
+    long getCustomizationCount();
+
+    /**
+     * Returns the number of bound method handle species created, that is
+     * of distinct combinations of bound value types in use.
+     *
+     * @return the number of species created
+     */
+    long getSpeciesCount();
+
+    /**
+     * Returns the number of classes generated for bound method handle
+     * species, including those generated ahead of use.
+     *
+     * @return the number of species classes generated
+     */
+    long getSpeciesClassCount();
+}
@@ -0,0 +1,666 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.misc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.AccessControlContext;
+import java.security.AccessController;
+import java.security.CodeSigner;
+import java.security.PrivilegedAction;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import sun.net.www.ParseUtil;
+import sun.security.action.GetPropertyAction;
+
+/**
+ * A persistent index of the directories held by the jar files of class
+ * paths, which lets a {@code URLClassLoader} go straight to the jars that
+ * can hold a class or resource instead of probing each jar in turn.
+ *
+ * <p> The index is used when the system property
+ * {@code sun.misc.ClassPathIndex.file} names the file that keeps it.  The
+ * first run that sees a jar scans its entries once and records the
+ * directories it holds, with its size and modification time; later runs
+ * read the file and only check that the jar has not changed.  The file is
+ * rewritten on exit when jars have been scanned.
+ *
+ * <p> A class path is only looked up through the index if all of its
+ * entries are local jars or directories.  A jar whose manifest extends
+ * the class path, or that has its own jar index, makes the loader use
+ * its {@code URLClassPath} as before.
+ *
+ * @since 1.8
+ */
+public final class ClassPathIndex {
+
+    private static final int MAGIC = 0x43504958;    // "CPIX"
+    private static final int VERSION = 1;
+
+    /** The index file, or null if indexing is disabled. */
+    private static final File indexFile;
+
+    /** The indexed jars, by canonical path. */
+    private static final ConcurrentHashMap<String,JarInfo> jars =
+        new ConcurrentHashMap<>();
+
+    /** Set when a jar has been scanned since the index was read. */
+    private static volatile boolean modified;
+
+    /** The lookups of live loaders, for their statistics. */
+    private static final Map<ClassLoader,Lookup> lookups =
+        Collections.synchronizedMap(new WeakHashMap<ClassLoader,Lookup>());
+
+    static {
+        String path = AccessController.doPrivileged(
+            new GetPropertyAction("sun.misc.ClassPathIndex.file"));
+        indexFile = (path == null || path.isEmpty()) ? null : new File(path);
+        if (indexFile != null) {
+            AccessController.doPrivileged(new PrivilegedAction<Void>() {
+                public Void run() {
+                    readIndex();
+                    Runtime.getRuntime().addShutdownHook(new Thread() {
+                        public void run() {
+                            if (modified)
+                                writeIndex();
+                        }
+                    });
+                    return null;
+                }
+            });
+        }
+    }
+
+    private ClassPathIndex() {}
+
+    /**
+     * Returns a lookup of the given class path for the given loader, or
+     * null if indexing is disabled.
+     *
+     * @param  loader  the loader searching the class path
+     * @param  urls    the class path
+     * @param  acc     the context in which the loader reads its class path
+     * @return the lookup, or null
+     */
+    public static Lookup lookupFor(ClassLoader loader, URL[] urls,
+                                   AccessControlContext acc) {
+        if (indexFile == null)
+            return null;
+        Lookup lookup = new Lookup(urls, acc);
+        lookups.put(loader, lookup);
+        return lookup;
+    }
+
+    /**
+     * Returns the lookup used by the given loader, or null if it does not
+     * use one.
+     *
+     * @param  loader  the class loader
+     * @return the lookup of the loader, or null
+     */
+    public static Lookup getLookup(ClassLoader loader) {
+        return lookups.get(loader);
+    }
+
+    /**
+     * Returns the directory part of a resource name; a trailing slash
+     * does not count, so that "a/b" and "a/b/" are in the same directory.
+     */
+    private static String directoryOf(String name) {
+        int end = name.length();
+        if (end > 0 && name.charAt(end - 1) == '/')
+            end--;
+        int i = name.lastIndexOf('/', end - 1);
+        return (i < 0) ? "" : name.substring(0, i);
+    }
+
+    /**
+     * What the index knows of a jar.
+     */
+    private static final class JarInfo {
+        final long lastModified;
+        final long length;
+        /** false if the jar has a Class-Path attribute or a jar index */
+        final boolean indexable;
+        final Set<String> directories;
+
+        JarInfo(long lastModified, long length, boolean indexable,
+                Set<String> directories) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.indexable = indexable;
+            this.directories = directories;
+        }
+    }
+
+    /**
+     * Returns the class path entry of a jar, with its up to date index
+     * entry.  A jar that the index does not know, or that has changed, is
+     * scanned, and the class path entry keeps the jar file opened for the
+     * scan, so that it is not opened again for the first lookup.
+     */
+    private static Entry jarEntry(URL url, File file) throws IOException {
+        String key = file.getCanonicalPath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        JarInfo info = jars.get(key);
+        if (info != null && info.lastModified == lastModified
+                && info.length == length)
+            return new Entry(url, file, info, null);
+        JarFile jar = new JarFile(file);
+        try {
+            info = scan(jar, lastModified, length);
+        } catch (IOException | RuntimeException e) {
+            jar.close();
+            throw e;
+        }
+        jars.put(key, info);
+        modified = true;
+        return new Entry(url, file, info, jar);
+    }
+
+    private static JarInfo scan(JarFile jar, long lastModified, long length)
+        throws IOException
+    {
+        boolean indexable = true;
+        Set<String> directories = new HashSet<>();
+        Manifest man = jar.getManifest();
+        if (man != null
+                && man.getMainAttributes().get(Attributes.Name.CLASS_PATH) != null)
+            indexable = false;
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            if (name.equals("META-INF/INDEX.LIST"))
+                indexable = false;
+            directories.add(directoryOf(name));
+        }
+        return new JarInfo(lastModified, length, indexable, directories);
+    }
+
+    private static void readIndex() {
+        if (!indexFile.isFile())
+            return;
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                boolean indexable = in.readBoolean();
+                int n = in.readInt();
+                Set<String> directories = new HashSet<>(n * 4 / 3 + 1);
+                for (int j = 0; j < n; j++)
+                    directories.add(in.readUTF());
+                jars.put(path, new JarInfo(lastModified, length, indexable,
+                                           directories));
+            }
+        } catch (IOException | RuntimeException e) {
+            // A damaged index is rebuilt
+            jars.clear();
+        }
+    }
+
+    private static void writeIndex() {
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                List<Map.Entry<String,JarInfo>> entries =
+                    new ArrayList<>(jars.entrySet());
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String,JarInfo> e : entries) {
+                    JarInfo info = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(info.lastModified);
+                    out.writeLong(info.length);
+                    out.writeBoolean(info.indexable);
+                    out.writeInt(info.directories.size());
+                    for (String dir : info.directories)
+                        out.writeUTF(dir);
+                }
+            }
+            if (!tmp.renameTo(indexFile)) {
+                indexFile.delete();
+                tmp.renameTo(indexFile);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * An entry of a class path: a directory, or a jar and the directories
+     * it holds.
+     */
+    private static final class Entry {
+        final URL url;
+        final File file;
+        final JarInfo info;         // null for a directory
+        private JarFile jar;             // guarded by this
+        private boolean closed;          // guarded by this
+
+        Entry(URL url, File file, JarInfo info, JarFile jar) {
+            this.url = url;
+            this.file = file;
+            this.info = info;
+            this.jar = jar;
+        }
+
+        boolean mayHold(String dir) {
+            return info == null || info.directories.contains(dir);
+        }
+
+        synchronized JarFile jar() throws IOException {
+            if (closed)
+                throw new IOException("closed");
+            if (jar == null)
+                jar = new JarFile(file);
+            return jar;
+        }
+
+        synchronized void close() throws IOException {
+            closed = true;
+            if (jar != null) {
+                jar.close();
+                jar = null;
+            }
+        }
+    }
+
+    /**
+     * The lookup of one loader's class path through the index.  Thread
+     * safe; lookups do not lock once the entries of a directory have
+     * been found.
+     */
+    public static final class Lookup {
+        private static final Entry[] NONE = new Entry[0];
+
+        private final List<URL> urls;
+        private final AccessControlContext acc;
+        private Entry[] entries;            // guarded by this
+        private boolean usable;             // guarded by this
+        private volatile boolean ready;
+        private volatile boolean closed;
+
+        /** Entries that may hold each directory, in class path order. */
+        private volatile ConcurrentHashMap<String,Entry[]> candidates =
+            new ConcurrentHashMap<>();
+
+        private final LongAdder lookups = new LongAdder();
+        private final LongAdder found = new LongAdder();
+        private final LongAdder probes = new LongAdder();
+        private final LongAdder fallbacks = new LongAdder();
+
+        Lookup(URL[] urls, AccessControlContext acc) {
+            this.urls = new ArrayList<>(urls.length);
+            for (URL url : urls)
+                this.urls.add(url);
+            this.acc = acc;
+        }
+
+        /**
+         * Appends a URL to the class path.
+         *
+         * @param  url  the URL
+         */
+        public synchronized void addURL(URL url) {
+            urls.add(url);
+            candidates = new ConcurrentHashMap<>();
+            ready = false;
+        }
+
+        /**
+         * Tells whether the given resource can be looked up through the
+         * index.  If not, the caller must search its class path itself.
+         *
+         * @param  name  the resource name
+         * @return whether {@link #getResource} and {@link #findResource}
+         *         can be used for the name
+         */
+        public boolean covers(String name) {
+            boolean covered = !closed && name.indexOf("..") < 0 && init();
+            if (!covered)
+                fallbacks.increment();
+            return covered;
+        }
+
+        private boolean init() {
+            if (ready)
+                return usable;
+            synchronized (this) {
+                if (!ready) {
+                    // open the class path as URLClassPath does, with
+                    // the permissions of the loader's creator
+                    usable = AccessController.doPrivileged(
+                        new PrivilegedAction<Boolean>() {
+                            public Boolean run() {
+                                return buildEntries();
+                            }
+                        }, acc);
+                    ready = true;
+                }
+                return usable;
+            }
+        }
+
+        // Called with the lock held
+        private boolean buildEntries() {
+            List<Entry> list = new ArrayList<>(urls.size());
+            for (URL url : urls) {
+                if (!"file".equals(url.getProtocol()))
+                    return false;
+                String host = url.getHost();
+                if (host != null && !host.isEmpty()
+                        && !host.equalsIgnoreCase("localhost"))
+                    return false;
+                Entry old = entryOf(url);
+                if (old != null) {
+                    // Keep the entries of a class path being extended
+                    list.add(old);
+                    continue;
+                }
+                String path = url.getFile();
+                File file = new File(ParseUtil.decode(path));
+                if (path.endsWith("/")) {
+                    if (file.isDirectory())
+                        list.add(new Entry(url, file, null, null));
+                } else if (file.isFile()) {
+                    Entry e;
+                    try {
+                        e = jarEntry(url, file);
+                    } catch (IOException ex) {
+                        closeNew(list);
+                        return false;
+                    }
+                    list.add(e);
+                    if (!e.info.indexable) {
+                        closeNew(list);
+                        return false;
+                    }
+                }
+                // URLClassPath skips entries that do not exist
+            }
+            entries = list.toArray(new Entry[list.size()]);
+            return true;
+        }
+
+        /**
+         * Closes the jars of the entries that are not in use, when the
+         * class path turns out not to be indexable.  URLClassPath opens
+         * its own.
+         */
+        private void closeNew(List<Entry> list) {
+            for (Entry e : list) {
+                if (entries == null || !Arrays.asList(entries).contains(e)) {
+                    try {
+                        e.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+        }
+
+        // Called with the lock held
+        private Entry entryOf(URL url) {
+            if (entries != null) {
+                for (Entry e : entries) {
+                    if (e.url.toString().equals(url.toString()))
+                        return e;
+                }
+            }
+            return null;
+        }
+
+        private Entry[] candidates(String dir) {
+            Entry[] c = candidates.get(dir);
+            if (c == null) {
+                ConcurrentHashMap<String,Entry[]> map;
+                Entry[] all;
+                boolean current;
+                synchronized (this) {
+                    map = candidates;
+                    all = entries;
+                    current = ready;    // else a URL is being added
+                }
+                List<Entry> list = new ArrayList<>();
+                for (Entry e : all) {
+                    if (e.mayHold(dir))
+                        list.add(e);
+                }
+                c = list.isEmpty() ? NONE : list.toArray(new Entry[list.size()]);
+                if (current) {
+                    Entry[] prev = map.putIfAbsent(dir, c);
+                    if (prev != null)
+                        c = prev;
+                }
+            }
+            return c;
+        }
+
+        /**
+         * Returns the resource of the given name, looking only at the class
+         * path entries that may hold it.  To be called if {@link #covers}
+         * returns true for the name.
+         *
+         * @param  name  the resource name
+         * @return the resource, or null if the class path does not have it
+         */
+        public Resource getResource(final String name) {
+            lookups.increment();
+            for (Entry e : candidates(directoryOf(name))) {
+                probes.increment();
+                Resource res = (e.info == null) ? fileResource(e, name)
+                                                : jarResource(e, name);
+                if (res != null) {
+                    found.increment();
+                    return res;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the URL of the resource of the given name, or null if the
+         * class path does not have it.  To be called if {@link #covers}
+         * returns true for the name.
+         *
+         * @param  name  the resource name
+         * @return the URL of the resource, or null
+         */
+        public URL findResource(String name) {
+            Resource res = getResource(name);
+            return (res != null) ? res.getURL() : null;
+        }
+
+        /**
+         * Returns the URLs of all the resources of the given name, in class
+         * path order.  To be called if {@link #covers} returns true for the
+         * name.
+         *
+         * @param  name  the resource name
+         * @return the URLs of the resources, possibly none
+         */
+        public List<URL> findResources(String name) {
+            lookups.increment();
+            List<URL> urls = new ArrayList<>();
+            for (Entry e : candidates(directoryOf(name))) {
+                probes.increment();
+                Resource res = (e.info == null) ? fileResource(e, name)
+                                                : jarResource(e, name);
+                if (res != null)
+                    urls.add(res.getURL());
+            }
+            if (!urls.isEmpty())
+                found.increment();
+            return urls;
+        }
+
+        private static Resource fileResource(Entry e, final String name) {
+            final File file = new File(e.file,
+                                       name.replace('/', File.separatorChar));
+            if (!file.exists())
+                return null;
+            final URL url;
+            try {
+                url = new URL(e.url, ParseUtil.encodePath(name, false));
+            } catch (MalformedURLException ex) {
+                return null;
+            }
+            final URL csu = e.url;
+            return new Resource() {
+                public String getName() { return name; }
+                public URL getURL() { return url; }
+                public URL getCodeSourceURL() { return csu; }
+                public InputStream getInputStream() throws IOException
+                    { return new FileInputStream(file); }
+                public int getContentLength() throws IOException
+                    { return (int)file.length(); }
+            };
+        }
+
+        private static Resource jarResource(Entry e, final String name) {
+            final JarFile jar;
+            final JarEntry entry;
+            final URL url;
+            try {
+                jar = e.jar();
+                entry = jar.getJarEntry(name);
+                if (entry == null)
+                    return null;
+                url = new URL("jar", "", -1, e.url + "!/"
+                              + ParseUtil.encodePath(name, false));
+            } catch (IOException ex) {
+                return null;
+            }
+            final URL csu = e.url;
+            return new Resource() {
+                public String getName() { return name; }
+                public URL getURL() { return url; }
+                public URL getCodeSourceURL() { return csu; }
+                public InputStream getInputStream() throws IOException
+                    { return jar.getInputStream(entry); }
+                public int getContentLength()
+                    { return (int)entry.getSize(); }
+                public Manifest getManifest() throws IOException
+                    { return jar.getManifest(); }
+                public Certificate[] getCertificates()
+                    { return entry.getCertificates(); }
+                public CodeSigner[] getCodeSigners()
+                    { return entry.getCodeSigners(); }
+            };
+        }
+
+        /**
+         * Closes the jar files opened by this lookup.  Later lookups are
+         * not covered.
+         *
+         * @return the exceptions thrown while closing, if any
+         */
+        public synchronized List<IOException> close() {
+            closed = true;
+            List<IOException> errors = new ArrayList<>();
+            if (entries != null) {
+                for (Entry e : entries) {
+                    try {
+                        e.close();
+                    } catch (IOException ex) {
+                        errors.add(ex);
+                    }
+                }
+            }
+            return errors;
+        }
+
+        /**
+         * Returns the number of lookups made through the index.
+         *
+         * @return the lookup count
+         */
+        public long getLookupCount() {
+            return lookups.sum();
+        }
+
+        /**
+         * Returns the number of lookups through the index that found their
+         * resource.
+         *
+         * @return the count of lookups that found a resource
+         */
+        public long getFoundCount() {
+            return found.sum();
+        }
+
+        /**
+         * Returns the number of class path entries probed by lookups
+         * through the index.  Without the index, a lookup probes every
+         * entry up to the one holding the resource, or all of them.
+         *
+         * @return the number of entries probed
+         */
+        public long getProbeCount() {
+            return probes.sum();
+        }
+
+        /**
+         * Returns the number of lookups that the index did not cover, and
+         * that went through the loader's class path instead.
+         *
+         * @return the fallback count
+         */
+        public long getFallbackCount() {
+            return fallbacks.sum();
+        }
+    }
+}
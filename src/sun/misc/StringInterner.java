@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.misc;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent, weakly referencing string interner.
+ *
+ * <p> Like {@link String#intern}, {@link #intern(String)} returns a canonical
+ * instance for each distinct string content.  Unlike the VM's string table,
+ * an interner holds its strings weakly and lives on the Java heap: it grows
+ * with its content, can be measured and cleared, and a string that is no
+ * longer referenced elsewhere is dropped from it.  Canonical instances are
+ * not the same objects as those returned by {@code String.intern}, so the
+ * two must not be mixed where strings are compared by identity.
+ *
+ * <p> Lookups do not block.  Entries whose strings have been collected are
+ * expunged by the threads that add new strings, a few at a time.
+ *
+ * @since 1.8
+ */
+public final class StringInterner {
+
+    /** most entries to expunge per insertion */
+    private static final int EXPUNGE_BATCH = 16;
+
+    private final ConcurrentHashMap<Object,Entry> map;
+    private final ReferenceQueue<String> queue = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an empty interner with a default initial capacity.
+     */
+    public StringInterner() {
+        this(256);
+    }
+
+    /**
+     * Creates an empty interner sized for the given number of strings.
+     *
+     * @param  initialCapacity  the expected number of distinct strings
+     * @throws IllegalArgumentException if {@code initialCapacity} is negative
+     */
+    public StringInterner(int initialCapacity) {
+        map = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    /**
+     * Holder for the shared interner, created on first use.
+     */
+    private static class SharedHolder {
+        static final StringInterner shared = new StringInterner(1024);
+    }
+
+    /**
+     * Returns the interner shared by platform code, such as
+     * {@code ObjectInputStream.readUTF} when the system property
+     * {@code sun.io.serialization.internStrings} is {@code true}.
+     *
+     * @return the shared interner
+     */
+    public static StringInterner shared() {
+        return SharedHolder.shared;
+    }
+
+    /**
+     * Returns the canonical instance of the given string, adding the string
+     * itself if no equal string is held.
+     *
+     * @param  s  the string
+     * @return a string equal to {@code s}; the same instance for all equal
+     *         strings for as long as it is strongly reachable
+     * @throws NullPointerException if {@code s} is null
+     */
+    public String intern(String s) {
+        String canon = lookup(new Probe(s, s.hashCode()));
+        if (canon != null) {
+            hits.increment();
+            return canon;
+        }
+        misses.increment();
+        return add(s, s.hashCode());
+    }
+
+    /**
+     * Returns the canonical instance of the string made of the given
+     * characters.  No string is created when an equal one is held, which
+     * lets a parser intern names straight from its character buffer.
+     *
+     * @param  buf  the characters
+     * @param  off  the index of the first character
+     * @param  len  the number of characters
+     * @return the canonical string with content {@code buf[off, off+len)}
+     * @throws IndexOutOfBoundsException if {@code off} or {@code len} are
+     *         out of bounds
+     */
+    public String intern(char[] buf, int off, int len) {
+        if (off < 0 || len < 0 || off > buf.length - len)
+            throw new IndexOutOfBoundsException();
+        int h = 0;
+        for (int i = off; i < off + len; i++)
+            h = 31 * h + buf[i];
+        String canon = lookup(new Probe(buf, off, len, h));
+        if (canon != null) {
+            hits.increment();
+            return canon;
+        }
+        misses.increment();
+        return add(new String(buf, off, len), h);
+    }
+
+    private String lookup(Probe p) {
+        Entry e = map.get(p);
+        return (e != null) ? e.get() : null;
+    }
+
+    private String add(String s, int h) {
+        expungeStaleEntries(EXPUNGE_BATCH);
+        Entry e = new Entry(s, h, queue);
+        for (;;) {
+            Entry old = map.putIfAbsent(e, e);
+            if (old == null)
+                return s;
+            String canon = old.get();
+            if (canon != null)
+                return canon;
+            map.remove(old, old);       // collected; retry with ours
+        }
+    }
+
+    private void expungeStaleEntries(int max) {
+        Object ref;
+        for (int i = 0; i < max && (ref = queue.poll()) != null; i++)
+            map.remove(ref, ref);
+    }
+
+    /**
+     * Returns the number of strings held.  Entries of strings that have
+     * been collected are expunged first, but the count may still include
+     * strings that the garbage collector has not yet reported.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        expungeStaleEntries(Integer.MAX_VALUE);
+        return map.size();
+    }
+
+    /**
+     * Returns the number of calls to {@code intern} that found an equal
+     * string.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of calls to {@code intern} that added a string.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of calls to {@code intern} that found an equal
+     * string, or {@code 0.0} if there have been none.
+     *
+     * @return the hit rate
+     */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return (total == 0) ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Removes all strings and resets the hit and miss counts.  Strings
+     * interned afterwards are not the same instances as those returned
+     * before.
+     */
+    public void clear() {
+        map.clear();
+        while (queue.poll() != null)
+            ;
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * A held string.  Equal to another entry holding an equal string, and
+     * to itself once its string has been collected, so that it can still
+     * be removed.
+     */
+    private static final class Entry extends WeakReference<String> {
+        private final int hash;
+
+        Entry(String s, int hash, ReferenceQueue<String> queue) {
+            super(s, queue);
+            this.hash = hash;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof Entry))
+                return false;
+            String s = get();
+            return s != null && s.equals(((Entry) obj).get());
+        }
+    }
+
+    /**
+     * A lookup key for content held either in a string or in a range of a
+     * character array.  Used as the argument to map lookups, so that it is
+     * always the probe that compares itself with an entry.
+     */
+    private static final class Probe {
+        private final String str;
+        private final char[] buf;
+        private final int off;
+        private final int len;
+        private final int hash;
+
+        Probe(String str, int hash) {
+            this.str = str;
+            this.buf = null;
+            this.off = 0;
+            this.len = str.length();
+            this.hash = hash;
+        }
+
+        Probe(char[] buf, int off, int len, int hash) {
+            this.str = null;
+            this.buf = buf;
+            this.off = off;
+            this.len = len;
+            this.hash = hash;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry))
+                return false;
+            String s = ((Entry) obj).get();
+            if (s == null || s.length() != len)
+                return false;
+            if (str != null)
+                return str.equals(s);
+            for (int i = 0; i < len; i++) {
+                if (s.charAt(i) != buf[off + i])
+                    return false;
+            }
+            return true;
+        }
+    }
+}
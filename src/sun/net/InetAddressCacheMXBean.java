@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.net;
+
+import java.lang.management.PlatformManagedObject;
+
+/**
+ * The management interface of the {@link java.net.InetAddress} cache.
+ *
+ * <p> An instance is registered with the platform MBean server under the
+ * name {@code java.net:type=InetAddressCache} when the system property
+ * {@code sun.net.inetaddr.mxbean} is {@code true}.
+ */
+public interface InetAddressCacheMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups answered with an expired entry while
+     * the entry was refreshed in the background.
+     *
+     * @return the number of stale cache hits
+     */
+    long getStaleHitCount();
+
+    /**
+     * Returns the number of lookups that were not answered from the cache.
+     *
+     * @return the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of entries refreshed in the background, either
+     * ahead of their expiry or after it.
+     *
+     * @return the number of background refreshes
+     */
+    long getRefreshCount();
+
+    /**
+     * Returns the number of queries made to the name service.
+     *
+     * @return the number of name service queries
+     */
+    long getLookupCount();
+
+    /**
+     * Returns the number of name service queries that failed.
+     *
+     * @return the number of failed name service queries
+     */
+    long getFailedLookupCount();
+
+    /**
+     * Returns the total time, in milliseconds, spent in name service
+     * queries.
+     *
+     * @return the total name service query time in milliseconds
+     */
+    long getTotalLookupTime();
+
+    /**
+     * Returns the number of entries in the cache, successful or not,
+     * including expired entries that have not yet been removed.
+     *
+     * @return the number of cache entries
+     */
+    int getCacheSize();
+
+    /**
+     * Returns the number of host names currently being looked up.
+     *
+     * @return the number of lookups in progress
+     */
+    int getLookupsInProgress();
+}
@@ -0,0 +1,546 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.net.www.http.pool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import sun.security.action.GetIntegerAction;
+
+/**
+ * A pool of persistent HTTP/1.1 connections, partitioned by route.
+ *
+ * <p> At most {@link #getMaxPerRoute maxPerRoute} connections are open to
+ * each route.  A request acquires an idle connection if there is one, the
+ * most recently used first, or else opens a new connection if the route is
+ * below its limit.  If the route is at its limit and pipelining is enabled
+ * ({@link #getMaxPipelineDepth maxPipelineDepth} greater than one), an
+ * idempotent request without a body may be pipelined on a connection whose
+ * outstanding requests are all idempotent.  Otherwise the request waits
+ * for a connection to be released.
+ *
+ * <p> Connections idle for longer than the {@link #getIdleTimeout idle
+ * timeout} are closed by a background thread.  Closing the pool closes its
+ * idle connections and stops that thread; connections in use are closed
+ * as they are released.
+ *
+ * <p> The default pool is configured by the following system properties:
+ * <ul>
+ *   <li>{@code sun.net.http.pool.maxPerRoute}, default 20;</li>
+ *   <li>{@code sun.net.http.pool.idleTimeout}, in milliseconds, default
+ *       15000;</li>
+ *   <li>{@code sun.net.http.pool.maxPipelineDepth}, default 1, meaning that
+ *       pipelining is disabled.</li>
+ * </ul>
+ */
+public class HttpConnectionPool implements HttpConnectionPoolMXBean, Closeable {
+
+    private static final String OBJECT_NAME =
+        "sun.net.www.http.pool:type=HttpConnectionPool,name=default";
+
+    private static class DefaultHolder {
+        static final HttpConnectionPool INSTANCE = createDefault();
+    }
+
+    /**
+     * Returns the default pool, creating it and registering it with the
+     * platform MBean server on first use.
+     *
+     * @return the default pool
+     */
+    public static HttpConnectionPool getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static HttpConnectionPool createDefault() {
+        int maxPerRoute = AccessController.doPrivileged(
+            new GetIntegerAction("sun.net.http.pool.maxPerRoute", 20));
+        int idleTimeout = AccessController.doPrivileged(
+            new GetIntegerAction("sun.net.http.pool.idleTimeout", 15000));
+        int depth = AccessController.doPrivileged(
+            new GetIntegerAction("sun.net.http.pool.maxPipelineDepth", 1));
+        HttpConnectionPool pool = new HttpConnectionPool(
+            Math.max(1, maxPerRoute), Math.max(1, idleTimeout),
+            TimeUnit.MILLISECONDS, Math.max(1, depth));
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            public Void run() {
+                try {
+                    ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(pool, new ObjectName(OBJECT_NAME));
+                } catch (Exception | LinkageError ignore) {
+                    // management is optional
+                }
+                return null;
+            }
+        });
+        return pool;
+    }
+
+    /**
+     * The connections of one route, guarded by this object's monitor.
+     */
+    private static final class RoutePool {
+        // most recently used first
+        final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+        final List<PooledConnection> busy = new ArrayList<>();
+        int open;
+        int waiting;
+    }
+
+    private final ConcurrentHashMap<Route, RoutePool> routes =
+        new ConcurrentHashMap<>();
+    private volatile int maxPerRoute;
+    private final long idleTimeout;
+    private final int maxPipelineDepth;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder pipelined = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    /**
+     * Creates a connection pool.
+     *
+     * @param maxPerRoute the maximum number of connections per route
+     * @param idleTimeout the time after which an idle connection is closed
+     * @param unit the unit of {@code idleTimeout}
+     * @param maxPipelineDepth the maximum number of outstanding requests per
+     *        connection, {@code 1} to disable pipelining
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public HttpConnectionPool(int maxPerRoute, long idleTimeout, TimeUnit unit,
+                              int maxPipelineDepth) {
+        if (maxPerRoute <= 0 || idleTimeout <= 0 || maxPipelineDepth <= 0)
+            throw new IllegalArgumentException();
+        this.maxPerRoute = maxPerRoute;
+        this.idleTimeout = unit.toMillis(idleTimeout);
+        this.maxPipelineDepth = maxPipelineDepth;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "HttpConnectionPool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(this.idleTimeout / 2, 1000);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period,
+                                       TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Acquires a connection to the given route, opening one if necessary.
+     *
+     * @param idempotent whether the request is idempotent and has no body,
+     *        and so may be pipelined
+     * @param connectTimeout the timeout for opening a connection and for
+     *        waiting for one to be released, {@code 0} for no timeout
+     */
+    PooledConnection acquire(Route route, boolean idempotent, int connectTimeout)
+        throws IOException
+    {
+        if (closed)
+            throw new IOException("Connection pool closed");
+        RoutePool rp = routes.computeIfAbsent(route, r -> new RoutePool());
+        long deadline = (connectTimeout > 0)
+            ? System.currentTimeMillis() + connectTimeout : 0;
+        // stale idle connections, closed once the lock is released
+        List<PooledConnection> stale = null;
+        try {
+            synchronized (rp) {
+                for (;;) {
+                    PooledConnection c;
+                    while ((c = rp.idle.pollFirst()) != null) {
+                        if (c.isReusable()) {
+                            c.inFlight = 1;
+                            c.exchanges++;
+                            c.pipelinable = idempotent;
+                            rp.busy.add(c);
+                            reused.increment();
+                            return c;
+                        }
+                        rp.open--;
+                        discarded.increment();
+                        if (stale == null)
+                            stale = new ArrayList<>();
+                        stale.add(c);
+                    }
+                    if (rp.open < maxPerRoute) {
+                        rp.open++;
+                        break;
+                    }
+                    if (idempotent && maxPipelineDepth > 1) {
+                        for (PooledConnection b : rp.busy) {
+                            if (b.pipelinable && b.inFlight < maxPipelineDepth
+                                    && !b.isBroken()) {
+                                b.inFlight++;
+                                b.exchanges++;
+                                pipelined.increment();
+                                return b;
+                            }
+                        }
+                    }
+                    long wait = 0;
+                    if (deadline != 0) {
+                        wait = deadline - System.currentTimeMillis();
+                        if (wait <= 0)
+                            throw new SocketTimeoutException(
+                                "Timed out waiting for a connection to " + route);
+                    }
+                    rp.waiting++;
+                    try {
+                        rp.wait(wait);
+                    } catch (InterruptedException x) {
+                        throw new InterruptedIOException();
+                    } finally {
+                        rp.waiting--;
+                    }
+                    if (closed)
+                        throw new IOException("Connection pool closed");
+                }
+            }
+        } finally {
+            markBroken(stale);
+        }
+
+        // a slot has been reserved; open the connection outside the lock
+        PooledConnection c;
+        try {
+            c = open(route, connectTimeout);
+        } catch (IOException | RuntimeException | Error x) {
+            synchronized (rp) {
+                rp.open--;
+                rp.notifyAll();
+            }
+            throw x;
+        }
+        created.increment();
+        synchronized (rp) {
+            c.inFlight = 1;
+            c.exchanges = 1;
+            c.pipelinable = idempotent;
+            rp.busy.add(c);
+        }
+        return c;
+    }
+
+    private static PooledConnection open(Route route, int connectTimeout)
+        throws IOException
+    {
+        boolean socks = route.proxy != null
+            && route.proxy.type() == Proxy.Type.SOCKS;
+        // a direct socket may still go through the SOCKS proxy selected
+        // for it, as with the default handler, but not one to an HTTP proxy
+        Socket s = socks ? new Socket(route.proxy)
+            : route.isHttpProxied() ? new Socket(Proxy.NO_PROXY)
+            : new Socket();
+        try {
+            // let a SOCKS proxy resolve the origin server
+            InetSocketAddress sa = socks
+                ? InetSocketAddress.createUnresolved(route.host, route.port)
+                : route.socketAddress();
+            s.connect(sa, connectTimeout);
+            s.setTcpNoDelay(true);
+            if (route.isSecure()) {
+                if (route.isHttpProxied())
+                    tunnel(s, route, connectTimeout);
+                SSLSocket ssl = (SSLSocket) ((SSLSocketFactory)
+                    SSLSocketFactory.getDefault()).createSocket(
+                        s, route.host, route.port, true);
+                // check that the certificate was issued for route.host
+                SSLParameters params = ssl.getSSLParameters();
+                params.setEndpointIdentificationAlgorithm("HTTPS");
+                ssl.setSSLParameters(params);
+                ssl.startHandshake();
+                s = ssl;
+            }
+            return new PooledConnection(route, s);
+        } catch (IOException | RuntimeException | Error x) {
+            try {
+                s.close();
+            } catch (IOException y) {
+                x.addSuppressed(y);
+            }
+            throw x;
+        }
+    }
+
+    /**
+     * Opens a tunnel to the origin server through an HTTP proxy with a
+     * CONNECT request.  Proxy authentication is not supported.
+     */
+    private static void tunnel(Socket s, Route route, int timeout)
+        throws IOException
+    {
+        String authority = route.host + ":" + route.port;
+        byte[] request = ("CONNECT " + authority + " HTTP/1.1\r\n"
+                          + "Host: " + authority + "\r\n"
+                          + "\r\n").getBytes("ISO-8859-1");
+        OutputStream out = s.getOutputStream();
+        out.write(request);
+        out.flush();
+
+        // read the response head a byte at a time, so that nothing
+        // the TLS handshake needs is buffered here
+        int soTimeout = s.getSoTimeout();
+        s.setSoTimeout(timeout);
+        InputStream in = s.getInputStream();
+        String statusLine = readLine(in);
+        String line;
+        do {
+            line = readLine(in);
+        } while (!line.isEmpty());
+        s.setSoTimeout(soTimeout);
+
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")
+                || !parts[1].startsWith("2") || parts[1].length() != 3)
+            throw new IOException("Unable to tunnel through proxy."
+                                  + " Proxy returns \"" + statusLine + "\"");
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1)
+                throw new IOException(
+                    "Unexpected end of file from proxy");
+            if (c != '\r')
+                sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    private static void markBroken(List<PooledConnection> connections) {
+        if (connections != null) {
+            for (PooledConnection c : connections)
+                c.markBroken();
+        }
+    }
+
+    /**
+     * Releases one exchange's use of a connection.  The connection is
+     * returned to the idle set when its last outstanding exchange releases
+     * it, unless it cannot be reused, in which case it is closed.
+     */
+    void release(PooledConnection c, boolean reusable) {
+        RoutePool rp = routes.get(c.route);
+        if (!reusable)
+            c.markBroken();
+        synchronized (rp) {
+            if (--c.inFlight > 0)
+                return;
+            rp.busy.remove(c);
+            if (c.isBroken() || closed || rp.open > maxPerRoute) {
+                rp.open--;
+                discarded.increment();
+                reusable = false;
+            } else {
+                c.idleSince = System.currentTimeMillis();
+                c.pipelinable = false;
+                rp.idle.offerFirst(c);
+            }
+            rp.notifyAll();
+        }
+        if (!reusable)
+            c.markBroken();
+    }
+
+    /**
+     * Closes the connections that have been idle for longer than the idle
+     * timeout.
+     */
+    void evictIdle() {
+        long expiry = System.currentTimeMillis() - idleTimeout;
+        List<PooledConnection> expired = new ArrayList<>();
+        for (RoutePool rp : routes.values()) {
+            synchronized (rp) {
+                // least recently used connections are at the tail
+                Iterator<PooledConnection> it = rp.idle.descendingIterator();
+                while (it.hasNext()) {
+                    PooledConnection c = it.next();
+                    if (c.idleSince > expiry)
+                        break;
+                    it.remove();
+                    rp.open--;
+                    evicted.increment();
+                    expired.add(c);
+                }
+                if (rp.open < maxPerRoute && rp.waiting > 0)
+                    rp.notifyAll();
+            }
+        }
+        markBroken(expired);
+    }
+
+    /**
+     * Closes this pool.  Idle connections are closed immediately and
+     * connections in use are closed when they are released.  Subsequent
+     * requests for a connection fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        closeIdleConnections();
+        for (RoutePool rp : routes.values()) {
+            synchronized (rp) {
+                rp.notifyAll();
+            }
+        }
+    }
+
+    // -- HttpConnectionPoolMXBean --
+
+    @Override
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    @Override
+    public void setMaxPerRoute(int max) {
+        if (max <= 0)
+            throw new IllegalArgumentException("Non-positive maximum");
+        maxPerRoute = max;
+        for (RoutePool rp : routes.values()) {
+            synchronized (rp) {
+                rp.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    @Override
+    public int getMaxPipelineDepth() {
+        return maxPipelineDepth;
+    }
+
+    @Override
+    public int getRouteCount() {
+        return routes.size();
+    }
+
+    @Override
+    public int getOpenConnections() {
+        int n = 0;
+        for (RoutePool rp : routes.values()) {
+            synchronized (rp) {
+                n += rp.open;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public int getIdleConnections() {
+        int n = 0;
+        for (RoutePool rp : routes.values()) {
+            synchronized (rp) {
+                n += rp.idle.size();
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public int getPendingRequests() {
+        int n = 0;
+        for (RoutePool rp : routes.values()) {
+            synchronized (rp) {
+                n += rp.waiting;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public long getConnectionsCreated() {
+        return created.sum();
+    }
+
+    @Override
+    public long getConnectionsReused() {
+        return reused.sum();
+    }
+
+    @Override
+    public long getRequestsPipelined() {
+        return pipelined.sum();
+    }
+
+    @Override
+    public long getConnectionsEvicted() {
+        return evicted.sum();
+    }
+
+    @Override
+    public long getConnectionsClosed() {
+        return discarded.sum();
+    }
+
+    @Override
+    public void closeIdleConnections() {
+        List<PooledConnection> idle = new ArrayList<>();
+        for (RoutePool rp : routes.values()) {
+            synchronized (rp) {
+                PooledConnection c;
+                while ((c = rp.idle.pollFirst()) != null) {
+                    rp.open--;
+                    idle.add(c);
+                }
+                rp.notifyAll();
+            }
+        }
+        markBroken(idle);
+    }
+}
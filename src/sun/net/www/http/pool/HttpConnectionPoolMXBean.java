@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.net.www.http.pool;
+
+/**
+ * The management interface of an {@link HttpConnectionPool}.
+ *
+ * <p> The default pool is registered with the platform MBean server under
+ * the name {@code sun.net.www.http.pool:type=HttpConnectionPool,name=default}
+ * when it is first used.
+ */
+public interface HttpConnectionPoolMXBean {
+
+    /**
+     * Returns the maximum number of connections per route.
+     *
+     * @return the maximum number of connections per route
+     */
+    int getMaxPerRoute();
+
+    /**
+     * Sets the maximum number of connections per route.  Lowering the limit
+     * does not close connections in excess of the new limit; they are closed
+     * as they are released.
+     *
+     * @param max the maximum number of connections per route
+     * @throws IllegalArgumentException if {@code max} is not positive
+     */
+    void setMaxPerRoute(int max);
+
+    /**
+     * Returns the time, in milliseconds, after which an idle connection is
+     * closed.
+     *
+     * @return the idle timeout in milliseconds
+     */
+    long getIdleTimeout();
+
+    /**
+     * Returns the maximum number of requests that may be outstanding on one
+     * connection.  A value of {@code 1} means that pipelining is disabled.
+     *
+     * @return the maximum pipeline depth
+     */
+    int getMaxPipelineDepth();
+
+    /**
+     * Returns the number of routes that have, or had, pooled connections.
+     *
+     * @return the number of routes
+     */
+    int getRouteCount();
+
+    /**
+     * Returns the number of open connections, idle or in use.
+     *
+     * @return the number of open connections
+     */
+    int getOpenConnections();
+
+    /**
+     * Returns the number of idle connections.
+     *
+     * @return the number of idle connections
+     */
+    int getIdleConnections();
+
+    /**
+     * Returns the number of requests waiting for a connection.
+     *
+     * @return the number of waiting requests
+     */
+    int getPendingRequests();
+
+    /**
+     * Returns the number of connections opened since the pool was created.
+     *
+     * @return the number of connections opened
+     */
+    long getConnectionsCreated();
+
+    /**
+     * Returns the number of requests that reused an idle connection.
+     *
+     * @return the number of reused connections
+     */
+    long getConnectionsReused();
+
+    /**
+     * Returns the number of requests that were pipelined on a connection
+     * with outstanding requests.
+     *
+     * @return the number of pipelined requests
+     */
+    long getRequestsPipelined();
+
+    /**
+     * Returns the number of idle connections closed because they exceeded
+     * the idle timeout.
+     *
+     * @return the number of evicted connections
+     */
+    long getConnectionsEvicted();
+
+    /**
+     * Returns the number of connections closed because they could not be
+     * reused.
+     *
+     * @return the number of connections closed
+     */
+    long getConnectionsClosed();
+
+    /**
+     * Closes all idle connections.
+     */
+    void closeIdleConnections();
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.net.www.http.pool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+/**
+ * A socket to a route, shared by the exchanges that have acquired it from
+ * an {@link HttpConnectionPool}.
+ *
+ * <p> Requests pipelined on one connection are given consecutive tickets
+ * in the order in which they are written.  An exchange reads its response
+ * only when it is its ticket's turn, which is when the response of the
+ * previous exchange has been completely consumed.  If any exchange fails
+ * the connection is marked broken and every exchange waiting for its turn
+ * fails as well.
+ */
+final class PooledConnection {
+    final Route route;
+    private final Socket socket;
+    final InputStream in;
+    final OutputStream out;
+
+    // guarded by the owning route's pool
+    int inFlight;
+    int exchanges;
+    boolean pipelinable;
+    long idleSince;
+
+    // guarded by this
+    private long nextTicket;
+    private long servingTicket;
+    private boolean broken;
+
+    PooledConnection(Route route, Socket socket) throws IOException {
+        this.route = route;
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    void setReadTimeout(int timeout) throws SocketException {
+        socket.setSoTimeout(timeout);
+    }
+
+    /**
+     * Writes a request head and assigns the request its ticket.  Heads
+     * written by concurrent pipelined exchanges are never interleaved.
+     */
+    synchronized long writeHead(byte[] head, boolean flush) throws IOException {
+        if (broken)
+            throw new SocketException("Connection closed");
+        long ticket = nextTicket++;
+        try {
+            out.write(head);
+            if (flush)
+                out.flush();
+        } catch (IOException x) {
+            markBroken();
+            throw x;
+        }
+        return ticket;
+    }
+
+    /**
+     * Waits until the response of the request with the given ticket may be
+     * read.
+     */
+    synchronized void awaitTurn(long ticket, int timeout) throws IOException {
+        long deadline = (timeout > 0) ? System.currentTimeMillis() + timeout : 0;
+        while (!broken && servingTicket != ticket) {
+            long wait = 0;
+            if (deadline != 0) {
+                wait = deadline - System.currentTimeMillis();
+                if (wait <= 0)
+                    throw new SocketTimeoutException("Read timed out");
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException x) {
+                throw new InterruptedIOException();
+            }
+        }
+        if (broken)
+            throw new SocketException(
+                "Connection closed while a pipelined request was outstanding");
+    }
+
+    /**
+     * Passes the turn to the next pipelined exchange.
+     */
+    synchronized void advance() {
+        servingTicket++;
+        notifyAll();
+    }
+
+    synchronized boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Closes the socket and fails all exchanges waiting for their turn.
+     * The socket is closed outside any lock, since closing a TLS socket
+     * may block writing its close notification.
+     */
+    void markBroken() {
+        synchronized (this) {
+            if (broken)
+                return;
+            broken = true;
+            notifyAll();
+        }
+        try {
+            socket.close();
+        } catch (IOException ignore) { }
+    }
+
+    /**
+     * Tells whether an idle connection may be handed to a new exchange:
+     * the socket is open and the server has not sent anything unsolicited,
+     * which for an idle connection can only be a close or an error.
+     */
+    boolean isReusable() {
+        if (isBroken() || socket.isClosed() || socket.isInputShutdown()
+                || socket.isOutputShutdown())
+            return false;
+        try {
+            return in.available() == 0;
+        } catch (IOException x) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PooledConnection[" + route + ", " + socket + "]";
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.net.www.http.pool;
+
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Objects;
+
+/**
+ * A stream protocol handler for the {@code http} and {@code https} protocols
+ * whose connections are pooled by an {@link HttpConnectionPool}.
+ *
+ * <p> The handler may be installed for all URLs with {@link
+ * java.net.URL#setURLStreamHandlerFactory URL.setURLStreamHandlerFactory},
+ * or for individual URLs with the {@link URL#URL(URL, String,
+ * URLStreamHandler) URL} constructor that takes a handler.
+ *
+ * <p> HTTPS connections use the default {@code SSLSocketFactory} and check
+ * that the server's certificate was issued for the host of the URL, as
+ * the {@code "HTTPS"} endpoint identification algorithm specifies; the
+ * {@code HostnameVerifier} of {@code HttpsURLConnection} is not consulted.
+ * HTTPS requests through an HTTP proxy are tunnelled with {@code CONNECT}.
+ * Proxies that require authentication are not supported.
+ *
+ * <p> A URL opened without a proxy is sent through the proxy that the
+ * default {@link java.net.ProxySelector ProxySelector} selects for it, as
+ * with the default handler.  Connections are pooled by route: the scheme,
+ * host and port of the server and the proxy through which it is reached.
+ */
+public class PooledHttpHandler extends URLStreamHandler {
+
+    private final HttpConnectionPool pool;
+
+    /**
+     * Creates a handler that uses the {@link HttpConnectionPool#getDefault
+     * default} connection pool.
+     */
+    public PooledHttpHandler() {
+        this(HttpConnectionPool.getDefault());
+    }
+
+    /**
+     * Creates a handler that uses the given connection pool.
+     *
+     * @param pool the connection pool
+     */
+    public PooledHttpHandler(HttpConnectionPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    @Override
+    protected URLConnection openConnection(URL u) throws IOException {
+        // the proxy is selected when the connection is made
+        return newConnection(u, null);
+    }
+
+    @Override
+    protected URLConnection openConnection(URL u, Proxy p) throws IOException {
+        return newConnection(u, Objects.requireNonNull(p));
+    }
+
+    private URLConnection newConnection(URL u, Proxy p) throws IOException {
+        String protocol = u.getProtocol();
+        if (!protocol.equalsIgnoreCase("http")
+                && !protocol.equalsIgnoreCase("https"))
+            throw new IOException("Unsupported protocol: " + protocol);
+        return new PooledHttpURLConnection(u, p, pool);
+    }
+}
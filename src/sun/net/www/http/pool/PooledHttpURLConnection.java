@@ -0,0 +1,855 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.net.www.http.pool;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import sun.net.www.ParseUtil;
+import sun.security.action.GetIntegerAction;
+import sun.security.action.GetPropertyAction;
+
+/**
+ * An HTTP/1.1 URL connection whose underlying connections are borrowed from,
+ * and returned to, an {@link HttpConnectionPool}.
+ *
+ * <p> A request body is always streamed: it is sent with a
+ * {@code Content-Length} header if a fixed length has been set with {@link
+ * #setFixedLengthStreamingMode(long) setFixedLengthStreamingMode}, and with
+ * chunked transfer encoding otherwise.  The body is never buffered in
+ * memory, so it cannot be resent on a redirect or authentication challenge.
+ *
+ * <p> The connection is returned to the pool as soon as the response body
+ * has been read to its end, or when the response stream is closed and the
+ * remaining body is short enough to be drained.  A response body read until
+ * the server closes the connection, or abandoned part way, causes the
+ * connection to be closed instead.
+ *
+ * <p> Unless a proxy was given to {@link URL#openConnection(Proxy)}, the
+ * proxy for each URL, including the target of a redirect, is chosen by the
+ * default {@link ProxySelector}, which honours the {@code http.proxyHost}
+ * and {@code https.proxyHost} properties.  The proxies it returns are
+ * tried in order, and those that cannot be reached are reported to it.
+ *
+ * <p> Redirects between GET and HEAD requests are followed when {@link
+ * #getInstanceFollowRedirects instanceFollowRedirects} is set.
+ * Authentication, cookies and response caching are not supported.
+ */
+final class PooledHttpURLConnection extends HttpURLConnection {
+
+    private static final String ACCEPT_STRING =
+        "text/html, image/gif, image/jpeg, *; q=.2, */*; q=.2";
+
+    private static final String USER_AGENT = "Java/"
+        + AccessController.doPrivileged(new GetPropertyAction("java.version"));
+
+    private static final int MAX_REDIRECTS = AccessController.doPrivileged(
+        new GetIntegerAction("http.maxRedirects", 20));
+
+    // default chunk size of request bodies in chunked streaming mode
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    // largest remaining response body drained, rather than discarded with
+    // its connection, when a response stream is closed early
+    private static final int MAX_DRAIN = 8192;
+
+    private static final int MAX_LINE = 64 * 1024;
+
+    private final HttpConnectionPool pool;
+    // the proxy given to openConnection, or null to ask the ProxySelector
+    private final Proxy instProxy;
+
+    private Map<String, List<String>> userHeaders;
+    private Route route;
+    private PooledConnection conn;
+    private long ticket;
+    private boolean requestSent;
+    private BodyOutputStream requestBody;
+
+    // response state; index 0 of the header lists holds the status line
+    private final List<String> headerKeys = new ArrayList<>();
+    private final List<String> headerValues = new ArrayList<>();
+    private Map<String, List<String>> headerMap;
+    private boolean keepAlive;
+    private InputStream responseBody;
+    private InputStream errorStream;
+    private IOException failure;
+
+    PooledHttpURLConnection(URL u, Proxy proxy, HttpConnectionPool pool) {
+        super(u);
+        this.instProxy = proxy;
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean usingProxy() {
+        if (route != null)
+            return route.proxy != null;
+        return instProxy != null && instProxy.type() != Proxy.Type.DIRECT;
+    }
+
+    private boolean isIdempotent() {
+        return !doOutput && (method.equals("GET") || method.equals("HEAD")
+                             || method.equals("OPTIONS") || method.equals("TRACE"));
+    }
+
+    @Override
+    public synchronized void connect() throws IOException {
+        if (connected)
+            return;
+        userHeaders = getRequestProperties();
+        acquire();
+        connected = true;
+    }
+
+    /**
+     * Acquires a connection through the proxy given to openConnection, or
+     * else through the first of the proxies selected for the URL that can
+     * be reached.
+     */
+    private void acquire() throws IOException {
+        if (instProxy != null) {
+            acquire(instProxy);
+            return;
+        }
+        ProxySelector sel = AccessController.doPrivileged(
+            new PrivilegedAction<ProxySelector>() {
+                public ProxySelector run() {
+                    return ProxySelector.getDefault();
+                }
+            });
+        URI uri = ParseUtil.toURI(url);
+        List<Proxy> proxies = (sel != null && uri != null) ? sel.select(uri) : null;
+        if (proxies == null || proxies.isEmpty()) {
+            acquire(Proxy.NO_PROXY);
+            return;
+        }
+        IOException failure = null;
+        for (Proxy p : proxies) {
+            try {
+                acquire(p);
+                return;
+            } catch (IOException x) {
+                if (p.type() != Proxy.Type.DIRECT)
+                    sel.connectFailed(uri, p.address(), x);
+                if (failure == null) {
+                    failure = x;
+                } else {
+                    failure.addSuppressed(x);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    private void acquire(Proxy proxy) throws IOException {
+        route = Route.of(url, proxy);
+        conn = pool.acquire(route, isIdempotent(), getConnectTimeout());
+        try {
+            conn.setReadTimeout(getReadTimeout());
+        } catch (IOException x) {
+            releaseConnection(false);
+            throw x;
+        }
+    }
+
+    private void releaseConnection(boolean reusable) {
+        PooledConnection c = conn;
+        if (c != null) {
+            conn = null;
+            if (reusable)
+                c.advance();
+            pool.release(c, reusable);
+        }
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        // a response not yet consumed can only be abandoned with its socket
+        releaseConnection(false);
+        responseBody = null;
+    }
+
+    // -- Request --
+
+    private String requestTarget() {
+        if (route.isHttpProxied() && !route.isSecure()) {
+            String s = url.toExternalForm();
+            int i = s.indexOf('#');
+            return (i >= 0) ? s.substring(0, i) : s;
+        }
+        String file = url.getFile();
+        return (file == null || file.isEmpty()) ? "/" : file;
+    }
+
+    private byte[] requestHead(long contentLength, boolean chunked) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(method).append(' ').append(requestTarget())
+          .append(" HTTP/1.1\r\n");
+        if (!userHeaders.containsKey("Host")) {
+            sb.append("Host: ").append(url.getHost());
+            if (route.port != Route.defaultPort(route.scheme))
+                sb.append(':').append(route.port);
+            sb.append("\r\n");
+        }
+        if (!userHeaders.containsKey("User-Agent"))
+            sb.append("User-Agent: ").append(USER_AGENT).append("\r\n");
+        if (!userHeaders.containsKey("Accept"))
+            sb.append("Accept: ").append(ACCEPT_STRING).append("\r\n");
+        if (!userHeaders.containsKey("Connection"))
+            sb.append("Connection: keep-alive\r\n");
+        for (Map.Entry<String, List<String>> e : userHeaders.entrySet()) {
+            String key = e.getKey();
+            if (key == null || key.equalsIgnoreCase("Content-Length")
+                    || key.equalsIgnoreCase("Transfer-Encoding"))
+                continue;
+            for (String value : e.getValue())
+                sb.append(key).append(": ").append(value).append("\r\n");
+        }
+        if (contentLength >= 0) {
+            sb.append("Content-Length: ").append(contentLength).append("\r\n");
+        } else if (chunked) {
+            sb.append("Transfer-Encoding: chunked\r\n");
+        }
+        sb.append("\r\n");
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (!doOutput)
+            throw new ProtocolException("cannot write to a URLConnection"
+                + " if doOutput=false - call setDoOutput(true)");
+        if (method.equals("GET"))
+            method = "POST";
+        if (method.equals("TRACE"))
+            throw new ProtocolException("HTTP method TRACE doesn't support output");
+        if (requestBody != null)
+            return requestBody;
+        if (requestSent)
+            throw new ProtocolException("Cannot write output after reading input.");
+        connect();
+        long length = (fixedContentLengthLong != -1)
+            ? fixedContentLengthLong : fixedContentLength;
+        ticket = conn.writeHead(requestHead(length, length < 0), false);
+        requestSent = true;
+        requestBody = (length >= 0)
+            ? new FixedLengthOutputStream(conn.out, length)
+            : new ChunkedOutputStream(conn.out,
+                  (chunkLength > 0) ? chunkLength : DEFAULT_CHUNK_SIZE);
+        return requestBody;
+    }
+
+    // -- Response --
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (!doInput)
+            throw new ProtocolException("Cannot read from URLConnection"
+                + " if doInput=false (call setDoInput(true))");
+        if (failure != null)
+            throw failure;
+        if (responseBody != null)
+            return responseBody;
+        try {
+            connect();
+            InputStream body = exchange();
+            for (int redirects = 0; isRedirect(); redirects++) {
+                if (redirects >= MAX_REDIRECTS)
+                    throw new ProtocolException(
+                        "Server redirected too many times (" + redirects + ")");
+                body.close();
+                url = new URL(url, findHeader("Location"));
+                resetResponse();
+                body = exchange();
+            }
+            if (responseCode >= 400) {
+                errorStream = body;
+                if (responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE)
+                    throw new FileNotFoundException(url.toString());
+                throw new IOException("Server returned HTTP response code: "
+                    + responseCode + " for URL: " + url);
+            }
+            responseBody = body;
+            return body;
+        } catch (IOException x) {
+            failure = x;
+            throw x;
+        }
+    }
+
+    private boolean isRedirect() {
+        if (!instanceFollowRedirects || requestBody != null)
+            return false;
+        if (!method.equals("GET") && !method.equals("HEAD"))
+            return false;
+        switch (responseCode) {
+            case HTTP_MOVED_PERM: case HTTP_MOVED_TEMP: case HTTP_SEE_OTHER:
+            case 307: case 308:
+                return findHeader("Location") != null;
+            default:
+                return false;
+        }
+    }
+
+    private void resetResponse() {
+        requestSent = false;
+        responseCode = -1;
+        responseMessage = null;
+        headerKeys.clear();
+        headerValues.clear();
+        headerMap = null;
+    }
+
+    /**
+     * Sends the request if it has not been sent and reads the response
+     * head.  An idempotent request that fails on a reused connection before
+     * any response is received is retried once on another connection.
+     */
+    private InputStream exchange() throws IOException {
+        if (conn == null)
+            acquire();
+        boolean retry = isIdempotent() && requestBody == null;
+        for (;;) {
+            boolean reused = conn.exchanges > 1;
+            try {
+                if (!requestSent) {
+                    ticket = conn.writeHead(requestHead(-1, false), true);
+                    requestSent = true;
+                } else if (requestBody != null) {
+                    requestBody.close();
+                }
+                return readResponseHead();
+            } catch (IOException x) {
+                releaseConnection(false);
+                if (!(retry && reused && headerKeys.isEmpty()))
+                    throw x;
+                retry = false;
+                requestSent = false;
+                acquire();
+            }
+        }
+    }
+
+    private InputStream readResponseHead() throws IOException {
+        conn.awaitTurn(ticket, getReadTimeout());
+        InputStream in = conn.in;
+        String statusLine;
+        int code;
+        do {
+            headerKeys.clear();
+            headerValues.clear();
+            statusLine = readLine(in);
+            if (statusLine == null)
+                throw new IOException("Unexpected end of file from server");
+            code = parseStatusCode(statusLine);
+            headerKeys.add(null);
+            headerValues.add(statusLine);
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon <= 0)
+                    throw new ProtocolException("Invalid header: " + line);
+                headerKeys.add(line.substring(0, colon).trim());
+                headerValues.add(line.substring(colon + 1).trim());
+            }
+            if (line == null)
+                throw new IOException("Unexpected end of file from server");
+            // skip interim responses other than a protocol switch
+        } while (code >= 100 && code < 200 && code != 101);
+        responseCode = code;
+
+        String connection = findHeader("Connection");
+        if (statusLine.startsWith("HTTP/1.0")) {
+            keepAlive = "keep-alive".equalsIgnoreCase(connection);
+        } else {
+            keepAlive = !"close".equalsIgnoreCase(connection);
+        }
+
+        if (method.equals("HEAD") || code == HTTP_NO_CONTENT
+                || code == HTTP_NOT_MODIFIED) {
+            exchangeComplete(keepAlive);
+            return new FixedLengthInputStream(in, 0);
+        }
+        String te = findHeader("Transfer-Encoding");
+        if (te != null && te.toLowerCase().contains("chunked"))
+            return new ChunkedInputStream(in);
+        String cl = findHeader("Content-Length");
+        if (cl != null) {
+            long length;
+            try {
+                length = Long.parseLong(cl);
+            } catch (NumberFormatException x) {
+                length = -1;
+            }
+            if (length >= 0) {
+                if (length == 0)
+                    exchangeComplete(keepAlive);
+                return new FixedLengthInputStream(in, length);
+            }
+        }
+        keepAlive = false;
+        return new UntilCloseInputStream(in);
+    }
+
+    private static int parseStatusCode(String statusLine) throws IOException {
+        if (statusLine.startsWith("HTTP/1.")) {
+            int sp = statusLine.indexOf(' ');
+            if (sp > 0 && statusLine.length() >= sp + 4) {
+                try {
+                    return Integer.parseInt(statusLine.substring(sp + 1, sp + 4));
+                } catch (NumberFormatException x) { }
+            }
+        }
+        throw new ProtocolException("Invalid status line: " + statusLine);
+    }
+
+    /**
+     * Reads a CRLF or LF terminated line, or returns {@code null} at end of
+     * stream.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int len = sb.length();
+                if (len > 0 && sb.charAt(len - 1) == '\r')
+                    sb.setLength(len - 1);
+                return sb.toString();
+            }
+            if (sb.length() >= MAX_LINE)
+                throw new ProtocolException("Header line too long");
+            sb.append((char) c);
+        }
+        return (sb.length() == 0) ? null : sb.toString();
+    }
+
+    private String findHeader(String name) {
+        for (int i = headerKeys.size() - 1; i > 0; i--) {
+            if (name.equalsIgnoreCase(headerKeys.get(i)))
+                return headerValues.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * Invoked when the response body has been consumed or abandoned.
+     */
+    private void exchangeComplete(boolean reusable) {
+        synchronized (this) {
+            releaseConnection(reusable && keepAlive);
+        }
+    }
+
+    private void ensureResponse() {
+        try {
+            getInputStream();
+        } catch (IOException x) {
+            // the response head, if any, is still available
+        }
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return (connected && responseCode >= 400) ? errorStream : null;
+    }
+
+    @Override
+    public String getHeaderField(String name) {
+        ensureResponse();
+        return (name == null) ? getHeaderField(0) : findHeader(name);
+    }
+
+    @Override
+    public String getHeaderFieldKey(int n) {
+        ensureResponse();
+        return (n > 0 && n < headerKeys.size()) ? headerKeys.get(n) : null;
+    }
+
+    @Override
+    public String getHeaderField(int n) {
+        ensureResponse();
+        return (n >= 0 && n < headerValues.size()) ? headerValues.get(n) : null;
+    }
+
+    @Override
+    public synchronized Map<String, List<String>> getHeaderFields() {
+        ensureResponse();
+        if (headerMap == null) {
+            Map<String, List<String>> m = new LinkedHashMap<>();
+            for (int i = 0; i < headerKeys.size(); i++) {
+                List<String> values = m.get(headerKeys.get(i));
+                if (values == null)
+                    m.put(headerKeys.get(i), values = new ArrayList<>(1));
+                // most recent value first, as for the JDK's own handler
+                values.add(0, headerValues.get(i));
+            }
+            for (Map.Entry<String, List<String>> e : m.entrySet())
+                e.setValue(Collections.unmodifiableList(e.getValue()));
+            headerMap = Collections.unmodifiableMap(m);
+        }
+        return headerMap;
+    }
+
+    // -- Request body streams --
+
+    private abstract class BodyOutputStream extends OutputStream {
+        final OutputStream out;
+        boolean closed;
+
+        BodyOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        void ensureOpen() throws IOException {
+            if (closed)
+                throw new IOException("Stream is closed");
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            out.flush();
+        }
+
+        abstract void finish() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+            synchronized (PooledHttpURLConnection.this) {
+                if (closed)
+                    return;
+                closed = true;
+                try {
+                    finish();
+                    out.flush();
+                } catch (IOException x) {
+                    releaseConnection(false);
+                    throw x;
+                }
+            }
+        }
+    }
+
+    private final class FixedLengthOutputStream extends BodyOutputStream {
+        private long remaining;
+
+        FixedLengthOutputStream(OutputStream out, long length) {
+            super(out);
+            this.remaining = length;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len > remaining)
+                throw new IOException("too many bytes written");
+            out.write(b, off, len);
+            remaining -= len;
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (remaining > 0)
+                throw new IOException("insufficient data written");
+        }
+    }
+
+    private final class ChunkedOutputStream extends BodyOutputStream {
+        private final byte[] buf;
+        private int count;
+
+        ChunkedOutputStream(OutputStream out, int chunkSize) {
+            super(out);
+            this.buf = new byte[chunkSize];
+        }
+
+        private void writeChunk(byte[] b, int off, int len) throws IOException {
+            out.write(Integer.toHexString(len).getBytes(StandardCharsets.ISO_8859_1));
+            out.write('\r');
+            out.write('\n');
+            out.write(b, off, len);
+            out.write('\r');
+            out.write('\n');
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len >= buf.length) {
+                // large writes go out as one chunk without copying
+                if (count > 0) {
+                    writeChunk(buf, 0, count);
+                    count = 0;
+                }
+                writeChunk(b, off, len);
+                return;
+            }
+            if (len > buf.length - count) {
+                writeChunk(buf, 0, count);
+                count = 0;
+            }
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            if (count > 0) {
+                writeChunk(buf, 0, count);
+                count = 0;
+            }
+            out.flush();
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (count > 0) {
+                writeChunk(buf, 0, count);
+                count = 0;
+            }
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    // -- Response body streams --
+
+    private abstract class BodyInputStream extends InputStream {
+        final InputStream in;
+        boolean done;
+        boolean closed;
+
+        BodyInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        void ensureOpen() throws IOException {
+            if (closed)
+                throw new IOException("Stream is closed");
+        }
+
+        /**
+         * Marks the body as consumed and releases the connection.
+         */
+        void done(boolean reusable) {
+            if (!done) {
+                done = true;
+                exchangeComplete(reusable);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return (n == -1) ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (done)
+                return -1;
+            try {
+                return readBody(b, off, len);
+            } catch (IOException x) {
+                done(false);
+                throw x;
+            }
+        }
+
+        abstract int readBody(byte[] b, int off, int len) throws IOException;
+
+        /**
+         * Returns the number of body bytes left, or -1 if not known.
+         */
+        abstract long remaining();
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            if (!done) {
+                long remaining = remaining();
+                if (remaining >= 0 && remaining <= MAX_DRAIN) {
+                    byte[] skip = new byte[(int) Math.max(remaining, 512)];
+                    try {
+                        long drained = 0;
+                        int n;
+                        while (!done && drained <= MAX_DRAIN
+                                && (n = readBody(skip, 0, skip.length)) >= 0)
+                            drained += n;
+                    } catch (IOException x) {
+                        // discard the connection below
+                    }
+                }
+                done(false);
+            }
+            closed = true;
+        }
+    }
+
+    private final class FixedLengthInputStream extends BodyInputStream {
+        private long remaining;
+
+        FixedLengthInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+            if (length == 0)
+                done = true;
+        }
+
+        @Override
+        int readBody(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                done(true);
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0)
+                throw new IOException("Premature EOF");
+            remaining -= n;
+            if (remaining == 0)
+                done(true);
+            return n;
+        }
+
+        @Override
+        long remaining() {
+            return remaining;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (done || closed) ? 0
+                : (int) Math.min(in.available(), remaining);
+        }
+    }
+
+    private final class ChunkedInputStream extends BodyInputStream {
+        // bytes left in the current chunk, or -1 before the first chunk
+        private long chunkRemaining = -1;
+
+        ChunkedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        int readBody(byte[] b, int off, int len) throws IOException {
+            if (chunkRemaining <= 0) {
+                if (chunkRemaining == 0)
+                    expectCRLF();
+                chunkRemaining = readChunkSize();
+                if (chunkRemaining == 0) {
+                    // skip trailers
+                    String line;
+                    while ((line = readLine(in)) != null && !line.isEmpty())
+                        ;
+                    if (line == null)
+                        throw new IOException("Premature EOF");
+                    done(true);
+                    return -1;
+                }
+            }
+            int n = in.read(b, off, (int) Math.min(len, chunkRemaining));
+            if (n < 0)
+                throw new IOException("Premature EOF");
+            chunkRemaining -= n;
+            return n;
+        }
+
+        private void expectCRLF() throws IOException {
+            String line = readLine(in);
+            if (line == null || !line.isEmpty())
+                throw new IOException("Missing CRLF after chunk data");
+        }
+
+        private long readChunkSize() throws IOException {
+            String line = readLine(in);
+            if (line == null)
+                throw new IOException("Premature EOF");
+            int semi = line.indexOf(';');
+            if (semi >= 0)
+                line = line.substring(0, semi);
+            try {
+                long size = Long.parseLong(line.trim(), 16);
+                if (size < 0)
+                    throw new NumberFormatException();
+                return size;
+            } catch (NumberFormatException x) {
+                throw new IOException("Bogus chunk size");
+            }
+        }
+
+        @Override
+        long remaining() {
+            // the size of the remaining chunks is not known; drain only the
+            // current chunk and the terminating chunk when they are small
+            return (chunkRemaining > 0) ? chunkRemaining : 0;
+        }
+    }
+
+    private final class UntilCloseInputStream extends BodyInputStream {
+        UntilCloseInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        int readBody(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0)
+                done(false);
+            return n;
+        }
+
+        @Override
+        long remaining() {
+            return -1;
+        }
+    }
+}
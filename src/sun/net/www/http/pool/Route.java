@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.net.www.http.pool;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+
+/**
+ * The key under which connections are pooled: the scheme, host and port
+ * of the origin server and the proxy, if any, through which it is reached.
+ */
+final class Route {
+    final String scheme;
+    final String host;
+    final int port;
+    final Proxy proxy;
+
+    private Route(String scheme, String host, int port, Proxy proxy) {
+        this.scheme = scheme;
+        this.host = host;
+        this.port = port;
+        this.proxy = proxy;
+    }
+
+    static Route of(URL url, Proxy proxy) {
+        String scheme = url.getProtocol().toLowerCase();
+        int port = url.getPort();
+        if (port == -1)
+            port = defaultPort(scheme);
+        if (proxy != null && proxy.type() == Proxy.Type.DIRECT)
+            proxy = null;
+        return new Route(scheme, url.getHost().toLowerCase(), port, proxy);
+    }
+
+    static int defaultPort(String scheme) {
+        return "https".equals(scheme) ? 443 : 80;
+    }
+
+    boolean isSecure() {
+        return "https".equals(scheme);
+    }
+
+    boolean isHttpProxied() {
+        return proxy != null && proxy.type() == Proxy.Type.HTTP;
+    }
+
+    /**
+     * Returns the address to which sockets for this route connect.
+     */
+    InetSocketAddress socketAddress() {
+        if (isHttpProxied()) {
+            // a ProxySelector typically returns an unresolved address
+            InetSocketAddress sa = (InetSocketAddress) proxy.address();
+            if (sa.isUnresolved())
+                sa = new InetSocketAddress(sa.getHostString(), sa.getPort());
+            return sa;
+        }
+        return new InetSocketAddress(host, port);
+    }
+
+    @Override
+    public boolean equals(Object ob) {
+        if (this == ob)
+            return true;
+        if (!(ob instanceof Route))
+            return false;
+        Route other = (Route) ob;
+        return port == other.port
+            && scheme.equals(other.scheme)
+            && host.equals(other.host)
+            && (proxy == null ? other.proxy == null : proxy.equals(other.proxy));
+    }
+
+    @Override
+    public int hashCode() {
+        int h = scheme.hashCode();
+        h = 31 * h + host.hashCode();
+        h = 31 * h + port;
+        return (proxy == null) ? h : 31 * h + proxy.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        String s = scheme + "://" + host + ":" + port;
+        return (proxy == null) ? s : s + " via " + proxy;
+    }
+}
@@ -0,0 +1,71 @@
+package tests.base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a main class in a new JVM with the test class path, for tests of
+ * behaviour that is fixed by system properties read at class initialization.
+ * A boot class path the tests run with, such as classes of this tree put
+ * in front of the runtime's, is passed on.
+ */
+public final class ForkedJvm {
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    private ForkedJvm() { }
+
+    /**
+     * Runs main with the given JVM options and program arguments, and
+     * returns its combined output.
+     *
+     * @throws AssertionError if the JVM exits with a non-zero status or
+     *         does not exit in time; the message includes its output
+     */
+    public static String run(Class<?> main, List<String> options, String... args)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-Xbootclasspath"))
+                command.add(arg);
+        }
+        command.addAll(options);
+        command.add(main.getName());
+        command.addAll(Arrays.asList(args));
+
+        Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Thread reader = new Thread(() -> {
+            byte[] b = new byte[4096];
+            try (InputStream in = p.getInputStream()) {
+                int n;
+                while ((n = in.read(b)) > 0)
+                    out.write(b, 0, n);
+            } catch (IOException ignore) {
+            }
+        });
+        reader.start();
+        boolean exited = p.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!exited)
+            p.destroyForcibly().waitFor();
+        reader.join();
+        String output = new String(out.toByteArray(), Charset.defaultCharset());
+        if (!exited)
+            throw new AssertionError(command + " timed out:\n" + output);
+        if (p.exitValue() != 0)
+            throw new AssertionError(command + " exited with " + p.exitValue() + ":\n" + output);
+        return output;
+    }
+}
@@ -0,0 +1,433 @@
+package tests.java.io;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * BufferedReader.readLine(StringBuilder) against readLine(), the
+ * unsynchronized buffered streams, readers, writers and print streams
+ * against their synchronized counterparts, and throughput of both
+ */
+public class BufferedStreamsTest extends BaseTest {
+
+    private static final String LINES =
+            "a\nbb\r\nccc\r\r\n\ndddd\rlast";
+
+    @Test
+    public void testReadLineStringBuilder() throws IOException {
+        // small buffers, so that lines and \r\n pairs span refills
+        for (int sz = 1; sz <= 8; sz++) {
+            List<String> expected = readLines(new BufferedReader(new StringReader(LINES), sz));
+            assertEquals(Arrays.asList("a", "bb", "ccc", "", "", "dddd", "last"), expected);
+            assertEquals(expected, readLinesInto(new BufferedReader(new StringReader(LINES), sz)));
+            assertEquals(expected, readLinesInto(BufferedReader.unsynchronized(new StringReader(LINES), sz)));
+        }
+    }
+
+    @Test
+    public void testReadLineAppends() throws IOException {
+        BufferedReader r = new BufferedReader(new StringReader("one\ntwo\n"));
+        StringBuilder sb = new StringBuilder("> ");
+        assertEquals(3, r.readLine(sb));
+        assertEquals("> one", sb.toString());
+        assertEquals(3, r.readLine(sb));
+        assertEquals("> onetwo", sb.toString());
+        assertEquals(-1, r.readLine(sb));
+        assertEquals("> onetwo", sb.toString());
+
+        try {
+            new BufferedReader(new StringReader("x")).readLine(null);
+            fail("NullPointerException expected");
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void testReadLineLongLine() throws IOException {
+        char[] line = new char[20000];
+        Arrays.fill(line, 'x');
+        String text = new String(line) + "\r\n" + "y";
+        for (BufferedReader r : new BufferedReader[] {
+                new BufferedReader(new StringReader(text), 16),
+                BufferedReader.unsynchronized(new StringReader(text), 16) }) {
+            StringBuilder sb = new StringBuilder();
+            assertEquals(line.length, r.readLine(sb));
+            assertEquals(new String(line), sb.toString());
+            sb.setLength(0);
+            assertEquals(1, r.readLine(sb));
+            assertEquals("y", sb.toString());
+            assertEquals(-1, r.readLine(sb));
+        }
+    }
+
+    @Test
+    public void testReadLineThenRead() throws IOException {
+        // the \n of a \r\n pair is skipped by the next read of any kind
+        BufferedReader r = new BufferedReader(new StringReader("x\r\ny\rz"), 2);
+        StringBuilder sb = new StringBuilder();
+        assertEquals(1, r.readLine(sb));
+        assertEquals('y', r.read());
+        assertEquals('\r', r.read());
+        assertEquals("z", r.readLine());
+
+        r = new BufferedReader(new StringReader("x\r\ny"), 2);
+        assertEquals("x", r.readLine());
+        sb.setLength(0);
+        assertEquals(1, r.readLine(sb));
+        assertEquals("y", sb.toString());
+    }
+
+    @Test
+    public void testLineNumberReader() throws IOException {
+        LineNumberReader r = new LineNumberReader(new StringReader(LINES), 3);
+        StringBuilder sb = new StringBuilder();
+        int lines = 0;
+        while (r.readLine(sb) >= 0) {
+            lines++;
+            assertEquals(lines, r.getLineNumber());
+        }
+        assertEquals(7, lines);
+        assertEquals("abbcccddddlast", sb.toString());
+        assertEquals(7, r.getLineNumber());
+    }
+
+    @Test
+    public void testUnsynchronizedInputStream() throws IOException {
+        byte[] data = data(10000);
+        BufferedInputStream in = BufferedInputStream.unsynchronized(new ByteArrayInputStream(data), 64);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(in.read());
+        byte[] b = new byte[100];
+        int n;
+        while ((n = in.read(b, 0, 37)) > 0) {
+            out.write(b, 0, n);
+            if (out.size() == 1000) {
+                // mark, reset and skip still work
+                in.mark(500);
+                assertEquals(10, in.skip(10));
+                in.reset();
+            }
+        }
+        assertEquals(-1, in.read());
+        assertArrayEquals(data, out.toByteArray());
+        in.close();
+        try {
+            in.read();
+            fail("IOException expected");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testUnsynchronizedOutputStream() throws IOException {
+        byte[] data = data(10000);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        BufferedOutputStream out = BufferedOutputStream.unsynchronized(sink, 64);
+        out.write(data, 0, 10);
+        for (int i = 10; i < 100; i++)
+            out.write(data[i]);
+        assertEquals(64, sink.size());
+        // larger than the buffer, so written through
+        out.write(data, 100, 5000);
+        assertEquals(5100, sink.size());
+        out.write(data, 5100, 10);
+        assertEquals(5100, sink.size());
+        out.write(data, 5110, data.length - 5110);
+        out.flush();
+        assertArrayEquals(data, sink.toByteArray());
+    }
+
+    @Test
+    public void testUnsynchronizedWriter() throws IOException {
+        StringWriter expected = new StringWriter();
+        StringWriter actual = new StringWriter();
+        write(new BufferedWriter(expected, 16));
+        write(BufferedWriter.unsynchronized(actual, 16));
+        assertEquals(expected.toString(), actual.toString());
+
+        BufferedReader r = BufferedReader.unsynchronized(new StringReader(actual.toString()), 5);
+        char[] cbuf = new char[7];
+        StringBuilder sb = new StringBuilder();
+        int n;
+        while ((n = r.read(cbuf, 0, cbuf.length)) > 0)
+            sb.append(cbuf, 0, n);
+        assertEquals(actual.toString(), sb.toString());
+    }
+
+    private static void write(BufferedWriter w) throws IOException {
+        w.write('c');
+        w.write("a string longer than the buffer");
+        w.newLine();
+        w.write(new char[] { 'x', 'y', 'z' }, 1, 2);
+        w.write("0123456789", 2, 5);
+        w.append("appended").append('!');
+        w.close();
+    }
+
+    @Test
+    public void testUnsynchronizedPrintStream() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        print(new PrintStream(expected, false));
+        print(PrintStream.unsynchronized(actual, false));
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+        // writes after close set the error state
+        PrintStream ps = PrintStream.unsynchronized(new ByteArrayOutputStream(), true);
+        assertFalse(ps.checkError());
+        ps.close();
+        ps.println("closed");
+        assertTrue(ps.checkError());
+
+        try {
+            PrintStream.unsynchronized(null, true);
+            fail("NullPointerException expected");
+        } catch (NullPointerException expected2) {
+        }
+    }
+
+    @Test
+    public void testUnsynchronizedPrintStreamAutoFlush() {
+        CountingStream expected = new CountingStream();
+        CountingStream actual = new CountingStream();
+        print(new PrintStream(expected, true));
+        print(PrintStream.unsynchronized(actual, true));
+        assertArrayEquals(expected.bytes.toByteArray(), actual.bytes.toByteArray());
+        assertTrue(expected.flushes > 0);
+        assertEquals(expected.flushes, actual.flushes);
+
+        // a single byte only flushes when it is a newline
+        actual.flushes = 0;
+        PrintStream ps = PrintStream.unsynchronized(actual, true);
+        ps.write('c');
+        assertEquals(0, actual.flushes);
+        ps.write('\n');
+        assertEquals(1, actual.flushes);
+    }
+
+    private static void print(PrintStream ps) {
+        ps.print(true);
+        ps.print('c');
+        ps.print(42);
+        ps.print(-7L);
+        ps.print(1.5f);
+        ps.print(2.25);
+        ps.print(new char[] { 'h', 'i' });
+        ps.print("str");
+        ps.print((Object) null);
+        ps.println(false);
+        ps.println('d');
+        ps.println(1);
+        ps.println(2L);
+        ps.println(3.0f);
+        ps.println(4.0);
+        ps.println(new char[] { 'o', 'k' });
+        ps.println("line");
+        ps.println(Arrays.asList(1, 2));
+        ps.println();
+        ps.printf("%d-%s%n", 5, "five");
+        ps.format(Locale.FRANCE, "%.2f%n", 1.25);
+        ps.format(Locale.US, "%.2f%n", 1.25);
+        ps.append("seq").append('x').append("abcdef", 1, 3);
+        ps.write('w');
+        ps.write(new byte[] { 'b', 'y', 't', 'e', 's' }, 1, 3);
+        ps.flush();
+    }
+
+    @Test
+    public void testBadSize() {
+        try {
+            BufferedInputStream.unsynchronized(new ByteArrayInputStream(new byte[0]), 0);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            BufferedOutputStream.unsynchronized(new ByteArrayOutputStream(), -1);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            BufferedReader.unsynchronized(new StringReader(""), 0);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            BufferedWriter.unsynchronized(new StringWriter(), 0);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * Compares reading lines as Strings, into a reused builder, and into a
+     * reused builder without locking.
+     */
+    @Test
+    public void testReadLineThroughput() throws IOException {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            for (int j = random.nextInt(80); j >= 0; j--)
+                text.append((char) ('a' + random.nextInt(26)));
+            text.append('\n');
+        }
+        String s = text.toString();
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            long n0 = 0;
+            BufferedReader r = new BufferedReader(new StringReader(s));
+            String line;
+            while ((line = r.readLine()) != null)
+                n0 += line.length();
+            long t1 = System.nanoTime();
+            long n1 = countInto(new BufferedReader(new StringReader(s)));
+            long t2 = System.nanoTime();
+            long n2 = countInto(BufferedReader.unsynchronized(new StringReader(s), 8192));
+            long t3 = System.nanoTime();
+            assertEquals(n0, n1);
+            assertEquals(n0, n2);
+            log.info("readLine(): " + (t1 - t0) / 1000000 + " ms, readLine(StringBuilder): "
+                    + (t2 - t1) / 1000000 + " ms, unsynchronized: " + (t3 - t2) / 1000000 + " ms");
+        }
+    }
+
+    /**
+     * Compares single byte writes and println through synchronized and
+     * unsynchronized streams.
+     */
+    @Test
+    public void testWriteThroughput() {
+        int bytes = 20000000;
+        int lines = 500000;
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            writeBytes(new BufferedOutputStream(new NullStream()), bytes);
+            long t1 = System.nanoTime();
+            writeBytes(BufferedOutputStream.unsynchronized(new NullStream(), 8192), bytes);
+            long t2 = System.nanoTime();
+            printLines(new PrintStream(new BufferedOutputStream(new NullStream())), lines);
+            long t3 = System.nanoTime();
+            printLines(PrintStream.unsynchronized(
+                    BufferedOutputStream.unsynchronized(new NullStream(), 8192), false), lines);
+            long t4 = System.nanoTime();
+            log.info("write(int): " + (t1 - t0) / 1000000 + " ms, unsynchronized: "
+                    + (t2 - t1) / 1000000 + " ms; println: " + (t3 - t2) / 1000000
+                    + " ms, unsynchronized: " + (t4 - t3) / 1000000 + " ms");
+        }
+    }
+
+    private static void writeBytes(BufferedOutputStream out, int n) {
+        try {
+            for (int i = 0; i < n; i++)
+                out.write(i);
+            out.flush();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void printLines(PrintStream ps, int n) {
+        for (int i = 0; i < n; i++)
+            ps.println(i);
+        ps.flush();
+        assertFalse(ps.checkError());
+    }
+
+    private static long countInto(BufferedReader r) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        long total = 0;
+        int n;
+        while ((n = r.readLine(sb)) >= 0) {
+            total += n;
+            sb.setLength(0);
+        }
+        return total;
+    }
+
+    private static List<String> readLines(BufferedReader r) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = r.readLine()) != null)
+            lines.add(line);
+        return lines;
+    }
+
+    private static List<String> readLinesInto(BufferedReader r) throws IOException {
+        List<String> lines = new ArrayList<>();
+        StringBuilder sb = new StringBuilder("unchanged");
+        int n;
+        while ((n = r.readLine(sb)) >= 0) {
+            assertEquals(9 + n, sb.length());
+            lines.add(sb.substring(9));
+            sb.setLength(9);
+        }
+        assertEquals("unchanged", sb.toString());
+        return lines;
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(7).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * An output stream that discards its input.
+     */
+    private static final class NullStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    /**
+     * An output stream that keeps its input and counts flushes.
+     */
+    private static final class CountingStream extends OutputStream {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int flushes;
+
+        @Override
+        public void write(int b) {
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package tests.java.io;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+import tests.base.ForkedJvm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Serialization round trips through the generic field reflectors and, in a
+ * JVM started with sun.io.serialization.generatedFieldReflectors, through
+ * the generated ones: every primitive type, object and array fields, nulls,
+ * inherited fields, defaultWriteObject hooks and serialPersistentFields
+ * without a backing field. The serialized bytes must be identical in both
+ * modes.
+ */
+public class FieldReflectorTest extends BaseTest {
+
+    private static final String GENERATED = "sun.io.serialization.generatedFieldReflectors";
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        roundTrips();
+    }
+
+    @Test
+    public void testRoundTripGenerated() throws Exception {
+        String bytes = toHex(serialize(sample()));
+        String output = ForkedJvm.run(FieldReflectorTest.class,
+                Arrays.asList("-D" + GENERATED + "=true"), bytes);
+        log.info(output);
+    }
+
+    /**
+     * Runs the round trips with generated reflectors, and checks that the
+     * sample serializes to the bytes given by the parent JVM.
+     */
+    public static void main(String[] args) throws Exception {
+        if (!Boolean.getBoolean(GENERATED))
+            throw new IllegalStateException(GENERATED + " is not set");
+        roundTrips();
+        for (Class<?> cl : new Class<?>[] {
+                Primitives.class, Holder.class, Base.class, Sub.class, Hooks.class, Phantom.class }) {
+            String name = reflectorClass(cl).getName();
+            assertTrue(cl.getName() + " uses " + name, name.contains("GeneratedFieldReflector"));
+        }
+        // only classes with serializable fields are specialized
+        assertTrue(!reflectorClass(Empty.class).getName().contains("GeneratedFieldReflector"));
+        assertEquals(args[0], toHex(serialize(sample())));
+        System.out.println("generated reflectors passed");
+    }
+
+    private static void roundTrips() throws Exception {
+        Primitives p = new Primitives();
+        p.z = true;
+        p.b = -1;
+        p.c = '\u20ac';
+        p.s = Short.MIN_VALUE;
+        p.i = 0x12345678;
+        p.j = Long.MIN_VALUE + 1;
+        p.f = Float.NaN;
+        p.d = -0.0;
+        p.t = 99;
+        Primitives q = roundTrip(p);
+        assertEquals(p, q);
+        // transient fields are not serialized
+        assertEquals(0, q.t);
+
+        Holder h = sample();
+        Holder k = roundTrip(h);
+        assertEquals(h.str, k.str);
+        assertEquals(h.prim, k.prim);
+        assertArrayEquals(h.ints, k.ints);
+        assertEquals(h.list, k.list);
+        assertSame(TimeUnit.SECONDS, k.unit);
+        assertSame(k, k.self);
+        assertSame(k.prim, k.obj);
+        assertNull(roundTrip(new Holder()).str);
+
+        Sub sub = new Sub();
+        sub.baseInt = 7;
+        sub.baseStr = "base";
+        sub.subLong = 1L << 40;
+        sub.subObj = new int[0][];
+        Sub sub2 = roundTrip(sub);
+        assertEquals(7, sub2.baseInt);
+        assertEquals("base", sub2.baseStr);
+        assertEquals(1L << 40, sub2.subLong);
+        assertEquals(0, ((int[][]) sub2.subObj).length);
+
+        Hooks hooks = new Hooks();
+        hooks.x = 5;
+        hooks.name = "hooks";
+        Hooks hooks2 = roundTrip(hooks);
+        assertEquals(5, hooks2.x);
+        assertEquals("hooks", hooks2.name);
+        assertEquals("extra", hooks2.extra);
+
+        Phantom ph = new Phantom();
+        ph.a = 3;
+        ph.name = "ph";
+        ph.notSerial = 4;
+        Phantom ph2 = roundTrip(ph);
+        assertEquals(3, ph2.a);
+        assertEquals("ph", ph2.name);
+        assertEquals(0, ph2.notSerial);
+        ObjectStreamClass desc = ObjectStreamClass.lookup(Phantom.class);
+        ObjectStreamField ghost = desc.getField("ghost");
+        assertEquals(long.class, ghost.getType());
+
+        assertNotEquals(null, roundTrip(new Empty()));
+
+        // the same class read and written many times reuses one reflector
+        for (int n = 0; n < 1000; n++)
+            assertEquals(p, roundTrip(p));
+    }
+
+    static Holder sample() {
+        Holder h = new Holder();
+        h.str = "string";
+        h.prim = new Primitives();
+        h.prim.i = 42;
+        h.obj = h.prim;
+        h.ints = new int[] { 1, 2, 3 };
+        h.list = new ArrayList<>(Arrays.asList("a", null, "c"));
+        h.unit = TimeUnit.SECONDS;
+        h.self = h;
+        return h;
+    }
+
+    public static class Primitives implements Serializable {
+        private static final long serialVersionUID = 1L;
+        boolean z;
+        byte b;
+        char c;
+        short s;
+        int i;
+        long j;
+        float f;
+        double d;
+        transient int t;
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Primitives))
+                return false;
+            Primitives p = (Primitives) o;
+            return z == p.z && b == p.b && c == p.c && s == p.s && i == p.i && j == p.j
+                    && Float.compare(f, p.f) == 0 && Double.compare(d, p.d) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return i;
+        }
+    }
+
+    public static class Holder implements Serializable {
+        private static final long serialVersionUID = 1L;
+        String str;
+        Object obj;
+        int[] ints;
+        Primitives prim;
+        List<String> list;
+        TimeUnit unit;
+        Holder self;
+    }
+
+    public static class Base implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int baseInt;
+        String baseStr;
+    }
+
+    public static class Sub extends Base {
+        private static final long serialVersionUID = 1L;
+        long subLong;
+        Object subObj;
+    }
+
+    public static class Hooks implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int x;
+        String name;
+        transient String extra;
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeUTF("extra");
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            extra = in.readUTF();
+        }
+    }
+
+    /**
+     * A class whose serial form declares a field it does not have, so that
+     * its reflector has a field without an offset.
+     */
+    public static class Phantom implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("a", int.class),
+            new ObjectStreamField("ghost", long.class),
+            new ObjectStreamField("name", String.class)
+        };
+        int a;
+        String name;
+        int notSerial;
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            ObjectOutputStream.PutField fields = out.putFields();
+            fields.put("a", a);
+            fields.put("ghost", 42L);
+            fields.put("name", name);
+            out.writeFields();
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            // ghost is read and skipped by the reflector
+            in.defaultReadObject();
+        }
+    }
+
+    public static class Empty implements Serializable {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Returns the class of the reflector of the local descriptor of cl.
+     */
+    private static Class<?> reflectorClass(Class<?> cl) throws ReflectiveOperationException {
+        ObjectStreamClass desc = ObjectStreamClass.lookup(cl);
+        Field f = ObjectStreamClass.class.getDeclaredField("fieldRefl");
+        f.setAccessible(true);
+        return f.get(desc).getClass();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T obj) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(serialize(obj)))) {
+            return (T) in.readObject();
+        }
+    }
+
+    private static byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String toHex(byte[] b) {
+        StringBuilder sb = new StringBuilder();
+        for (byte x : b)
+            sb.append(String.format("%02x", x));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,360 @@
+package tests.java.io;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ObjectOutputStream and ObjectInputStream message framing: descriptors
+ * sent once while object handles reset per message, frames read a byte at
+ * a time so that headers are split, frames larger than the block data
+ * buffer, truncated frames, and mismatched modes
+ */
+public class MessageFramingTest extends BaseTest {
+
+    public static class Message implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int seq;
+        String text;
+        Payload payload;
+        Payload again;
+    }
+
+    public static class Payload implements Serializable {
+        private static final long serialVersionUID = 1L;
+        byte[] bytes;
+        long[] longs;
+    }
+
+    /**
+     * Writes block data of the given size through a writeObject hook.
+     */
+    public static class Blocks implements Serializable {
+        private static final long serialVersionUID = 1L;
+        transient byte[] data;
+
+        Blocks(int size) {
+            data = new byte[size];
+            for (int i = 0; i < size; i++)
+                data[i] = (byte) (i * 31);
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeInt(data.length);
+            out.write(data);
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            data = new byte[in.readInt()];
+            in.readFully(data);
+        }
+    }
+
+    /**
+     * A class whose writeObject hook tries to switch modes mid-message.
+     */
+    public static class Switcher implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.useMessageFraming(false);
+        }
+    }
+
+    private static Message message(int seq) {
+        Message m = new Message();
+        m.seq = seq;
+        m.text = "message " + seq;
+        m.payload = new Payload();
+        m.payload.bytes = new byte[] { (byte) seq, 1, 2 };
+        m.payload.longs = new long[] { seq, -seq };
+        m.again = m.payload;
+        return m;
+    }
+
+    @Test
+    public void testDescriptorsSentOnce() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<byte[]> frames = writeFrames(bytes, true, 10);
+        byte[] name = Message.class.getName().getBytes(StandardCharsets.UTF_8);
+        assertTrue(indexOf(frames.get(0), name) >= 0);
+        for (int i = 1; i < frames.size(); i++) {
+            assertTrue("frame " + i + " repeats the descriptor", indexOf(frames.get(i), name) < 0);
+            assertEquals(frames.get(1).length, frames.get(i).length);
+        }
+        assertTrue(frames.get(1).length < frames.get(0).length / 2);
+        readFrames(new ByteArrayInputStream(bytes.toByteArray()), true, 10);
+    }
+
+    @Test
+    public void testWithoutFramingDescriptorsResent() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<byte[]> frames = writeFrames(bytes, false, 3);
+        byte[] name = Message.class.getName().getBytes(StandardCharsets.UTF_8);
+        for (byte[] frame : frames)
+            assertTrue(indexOf(frame, name) >= 0);
+        readFrames(new ByteArrayInputStream(bytes.toByteArray()), false, 3);
+    }
+
+    @Test
+    public void testHandlesResetPerMessage() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Message m = message(1);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.useMessageFraming(true);
+            out.writeObject(m);
+            out.reset();
+            out.writeObject(m);
+            out.reset();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            in.useMessageFraming(true);
+            Message first = (Message) in.readObject();
+            Message second = (Message) in.readObject();
+            // shared within a message, not across messages
+            assertSame(first.payload, first.again);
+            assertSame(second.payload, second.again);
+            assertNotSame(first, second);
+            assertNotSame(first.payload, second.payload);
+            assertEquals(1, second.seq);
+        }
+    }
+
+    @Test
+    public void testSplitHeaders() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeFrames(bytes, true, 20);
+        // every read returns one byte, so the stream header, block headers
+        // and each descriptor and handle arrive in pieces
+        readFrames(new TrickleStream(bytes.toByteArray(), 1), true, 20);
+        readFrames(new TrickleStream(bytes.toByteArray(), 3), true, 20);
+    }
+
+    @Test
+    public void testOversizedFrames() throws Exception {
+        char[] chars = new char[70000];
+        Arrays.fill(chars, 'x');
+        String longString = new String(chars);
+        byte[] big = new byte[100000];
+        Arrays.fill(big, (byte) 7);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.useMessageFraming(true);
+            for (int i = 0; i < 3; i++) {
+                // larger than the 1024 byte block data buffer
+                out.writeObject(new Blocks(5000 + i));
+                out.writeObject(longString);
+                Payload p = new Payload();
+                p.bytes = big;
+                out.writeObject(p);
+                out.writeObject(message(i));
+                out.reset();
+            }
+        }
+        for (int chunk : new int[] { bytes.size(), 1000 }) {
+            try (ObjectInputStream in = new ObjectInputStream(
+                    new TrickleStream(bytes.toByteArray(), chunk))) {
+                in.useMessageFraming(true);
+                for (int i = 0; i < 3; i++) {
+                    Blocks b = (Blocks) in.readObject();
+                    assertArrayEquals(new Blocks(5000 + i).data, b.data);
+                    assertEquals(longString, in.readObject());
+                    assertArrayEquals(big, ((Payload) in.readObject()).bytes);
+                    assertEquals(i, ((Message) in.readObject()).seq);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPartialFrame() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<byte[]> frames = writeFrames(bytes, true, 2);
+        byte[] all = bytes.toByteArray();
+        // the whole first frame and half of the second
+        int cut = all.length - frames.get(1).length / 2;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(Arrays.copyOf(all, cut)))) {
+            in.useMessageFraming(true);
+            assertEquals(0, ((Message) in.readObject()).seq);
+            try {
+                in.readObject();
+                fail("EOFException expected");
+            } catch (EOFException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testMismatchedModes() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeFrames(bytes, true, 2);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(0, ((Message) in.readObject()).seq);
+            // the reader dropped the descriptor the second frame refers to
+            try {
+                in.readObject();
+                fail("StreamCorruptedException expected");
+            } catch (StreamCorruptedException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testSwitchWhileActive() throws Exception {
+        try (ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream())) {
+            out.useMessageFraming(true);
+            try {
+                out.writeObject(new Switcher());
+                fail("IllegalStateException expected");
+            } catch (IllegalStateException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testUnresolvedDescriptorRetained() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.useMessageFraming(true);
+            for (int i = 0; i < 3; i++) {
+                out.writeObject(new Payload());
+                out.writeObject(message(i));
+                out.reset();
+            }
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc)
+                        throws IOException, ClassNotFoundException {
+                    if (desc.getName().equals(Payload.class.getName()))
+                        throw new ClassNotFoundException(desc.getName());
+                    return super.resolveClass(desc);
+                }
+            }) {
+            in.useMessageFraming(true);
+            for (int i = 0; i < 3; i++) {
+                // the retained descriptor keeps failing, in later frames too
+                try {
+                    in.readObject();
+                    fail("ClassNotFoundException expected");
+                } catch (ClassNotFoundException expected) {
+                }
+                try {
+                    in.readObject();
+                    fail("ClassNotFoundException expected");
+                } catch (ClassNotFoundException expected) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes count messages, each followed by a reset, and returns the bytes
+     * of each frame, not counting the stream header.
+     */
+    private static List<byte[]> writeFrames(ByteArrayOutputStream bytes, boolean framing, int count)
+            throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.useMessageFraming(framing);
+            for (int i = 0; i < count; i++) {
+                int start = bytes.size();
+                out.writeObject(message(i));
+                out.reset();
+                out.flush();
+                frames.add(Arrays.copyOfRange(bytes.toByteArray(), start, bytes.size()));
+            }
+        }
+        return frames;
+    }
+
+    private static void readFrames(InputStream bytes, boolean framing, int count)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(bytes)) {
+            in.useMessageFraming(framing);
+            for (int i = 0; i < count; i++) {
+                Message m = (Message) in.readObject();
+                assertEquals(i, m.seq);
+                assertEquals("message " + i, m.text);
+                assertArrayEquals(new byte[] { (byte) i, 1, 2 }, m.payload.bytes);
+                assertArrayEquals(new long[] { i, -i }, m.payload.longs);
+                assertSame(m.payload, m.again);
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private static int indexOf(byte[] b, byte[] sub) {
+        outer:
+        for (int i = 0; i + sub.length <= b.length; i++) {
+            for (int j = 0; j < sub.length; j++) {
+                if (b[i + j] != sub[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * An input stream that returns at most chunk bytes per read and reports
+     * nothing available.
+     */
+    private static final class TrickleStream extends InputStream {
+        private final byte[] data;
+        private final int chunk;
+        private int pos;
+
+        TrickleStream(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (pos >= data.length)
+                return -1;
+            int n = Math.min(Math.min(len, chunk), data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package tests.java.lang;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ClassValue caches: the one-entry cache a class starts with and its growth
+ * when a second ClassValue stores a value, values computed once whatever
+ * the number of ClassValues of a class, values removed and computed again,
+ * and lookups of classes with one value against classes with many. Each
+ * class is a copy of the same class file in a loader of its own, so that
+ * no other code has given it a value before.
+ */
+public class ClassValueTest extends BaseTest {
+
+    /**
+     * The class that is defined again in a loader of its own.
+     */
+    public static class Probe {
+    }
+
+    @Test
+    public void testOneEntryCache() throws Exception {
+        Class<?> c = newClass();
+        AtomicInteger computed = new AtomicInteger();
+        ClassValue<String> first = counting("first", computed);
+        assertNull(cache(c));
+
+        assertEquals("first" + c.hashCode(), first.get(c));
+        Object[] cache = cache(c);
+        assertEquals(1, cache.length);
+        assertNotNull(cache[0]);
+        for (int i = 0; i < 10; i++)
+            assertEquals("first" + c.hashCode(), first.get(c));
+        assertSame(cache, cache(c));
+        assertEquals(1, computed.get());
+
+        // a second value replaces the single entry with the usual cache
+        ClassValue<String> second = counting("second", computed);
+        assertEquals("second" + c.hashCode(), second.get(c));
+        assertEquals("second" + c.hashCode(), second.get(c));
+        assertEquals(32, cache(c).length);
+        assertEquals("first" + c.hashCode(), first.get(c));
+        assertEquals(2, computed.get());
+
+        // other classes start with one entry again
+        Class<?> d = newClass();
+        assertNotSame(c, d);
+        assertEquals("second" + d.hashCode(), second.get(d));
+        assertEquals(1, cache(d).length);
+        assertEquals(3, computed.get());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        Class<?> c = newClass();
+        AtomicInteger computed = new AtomicInteger();
+        ClassValue<String> value = counting("v", computed);
+        assertEquals("v" + c.hashCode(), value.get(c));
+        value.remove(c);
+        assertEquals("v" + c.hashCode(), value.get(c));
+        assertEquals(2, computed.get());
+        assertEquals(1, cache(c).length);
+
+        // with two values, removing one leaves the other
+        ClassValue<String> other = counting("o", computed);
+        assertEquals("o" + c.hashCode(), other.get(c));
+        value.remove(c);
+        assertEquals("o" + c.hashCode(), other.get(c));
+        assertEquals("v" + c.hashCode(), value.get(c));
+        assertEquals(4, computed.get());
+    }
+
+    @Test
+    public void testManyValues() throws Exception {
+        Class<?> c = newClass();
+        AtomicInteger computed = new AtomicInteger();
+        List<ClassValue<String>> values = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            values.add(counting("v" + i + "-", computed));
+            // the earlier values survive each resize
+            for (int k = 0; k <= i; k++)
+                assertEquals("v" + k + "-" + c.hashCode(), values.get(k).get(c));
+        }
+        assertEquals(200, computed.get());
+        assertTrue(cache(c).length > 32);
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        // many classes with one value each, and a class with many values
+        int count = 1000;
+        List<Class<?>> classes = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            classes.add(newClass());
+        ClassValue<Integer> single = new ClassValue<Integer>() {
+            @Override
+            protected Integer computeValue(Class<?> type) {
+                return 1;
+            }
+        };
+        Class<?> shared = newClass();
+        List<ClassValue<Integer>> many = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            many.add(new ClassValue<Integer>() {
+                @Override
+                protected Integer computeValue(Class<?> type) {
+                    return 1;
+                }
+            });
+        }
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            long sum = 0;
+            for (int k = 0; k < 1000; k++) {
+                for (Class<?> c : classes)
+                    sum += single.get(c);
+            }
+            long t1 = System.nanoTime();
+            for (int k = 0; k < 5000; k++) {
+                for (ClassValue<Integer> v : many)
+                    sum += v.get(shared);
+            }
+            long t2 = System.nanoTime();
+            assertEquals(1000L * count + 5000L * many.size(), sum);
+            log.info("{} classes with one value {} ns/get, one class with {} values {} ns/get",
+                    count, (t1 - t0) / (1000L * count), many.size(), (t2 - t1) / (5000L * many.size()));
+        }
+    }
+
+    private static ClassValue<String> counting(String prefix, AtomicInteger computed) {
+        return new ClassValue<String>() {
+            @Override
+            protected String computeValue(Class<?> type) {
+                computed.incrementAndGet();
+                return prefix + type.hashCode();
+            }
+        };
+    }
+
+    /**
+     * Returns the fast-path cache of the class's values, or null if it
+     * has none.
+     */
+    private static Object[] cache(Class<?> c) throws ReflectiveOperationException {
+        Field f = Class.class.getDeclaredField("classValueMap");
+        f.setAccessible(true);
+        Object map = f.get(c);
+        if (map == null)
+            return null;
+        Field cache = map.getClass().getDeclaredField("cacheArray");
+        cache.setAccessible(true);
+        return (Object[]) cache.get(map);
+    }
+
+    private static byte[] probeBytes;
+
+    /**
+     * Defines Probe again, in a new loader.
+     */
+    private static Class<?> newClass() throws IOException {
+        if (probeBytes == null) {
+            String name = Probe.class.getName().replace('.', '/') + ".class";
+            try (InputStream in = ClassValueTest.class.getClassLoader().getResourceAsStream(name)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] b = new byte[4096];
+                int n;
+                while ((n = in.read(b)) > 0)
+                    out.write(b, 0, n);
+                probeBytes = out.toByteArray();
+            }
+        }
+        return new ClassLoader(null) {
+            Class<?> define() {
+                return defineClass(Probe.class.getName(), probeBytes, 0, probeBytes.length);
+            }
+        }.define();
+    }
+}
@@ -0,0 +1,399 @@
+package tests.java.lang;
+
+import org.junit.Test;
+import sun.misc.FloatingDecimal;
+import tests.base.BaseTest;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Double.toString and StringBuilder.append(double) through DoubleToDecimal:
+ * round trips, shortest and closest digits checked exactly with BigDecimal,
+ * and the differences from FloatingDecimal; Integer and Long writeTo, and
+ * parseInt and parseLong over a range of a CharSequence
+ */
+public class NumberFormattingTest extends BaseTest {
+
+    private static final double[] SPECIAL = {
+        0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE,
+        Math.nextDown(Double.MIN_NORMAL), 2 * Double.MIN_VALUE, 3 * Double.MIN_VALUE,
+        1.0, 2.0, 0.1, 0.2, 0.3, 1.0 / 3, 2.0 / 3, Math.PI, Math.E,
+        1.0E7, Math.nextDown(1.0E7), 9999999.0, 1.0E-3, Math.nextDown(1.0E-3), 1.0E-4,
+        1.0E22, 1.0E23, 1.0E-5, 5.0E-324, 9.007199254740993E15, 1.7976931348623157E308,
+        2.0E-3, 123456.789, 4.35, 1.0E21,
+    };
+
+    @Test
+    public void testSpecialValues() {
+        for (double v : SPECIAL) {
+            check(v);
+            check(Math.nextUp(v));
+            check(Math.nextDown(v));
+        }
+        assertEquals("NaN", Double.toString(Double.NaN));
+        assertEquals("-Infinity", Double.toString(Double.NEGATIVE_INFINITY));
+        assertEquals("-0.0", Double.toString(-0.0));
+        assertEquals("4.9E-324", Double.toString(Double.MIN_VALUE));
+        // the closest of one or two digits, not 1.0E-323
+        assertEquals("9.9E-324", Double.toString(2 * Double.MIN_VALUE));
+        assertEquals("1.7976931348623157E308", Double.toString(Double.MAX_VALUE));
+        assertEquals("1.0E7", Double.toString(1.0E7));
+        assertEquals("9999999.0", Double.toString(9999999.0));
+        assertEquals("0.001", Double.toString(1.0E-3));
+        assertEquals("1.0E-4", Double.toString(1.0E-4));
+        assertEquals("0.002", Double.toString(2.0E-3));
+        assertEquals("-1.5E300", Double.toString(-1.5E300));
+        // FloatingDecimal prints these with a digit too many
+        assertEquals("1.0E23", Double.toString(1.0E23));
+        assertEquals("5.684341886080802E-14", Double.toString(Math.scalb(1.0, -44)));
+    }
+
+    @Test
+    public void testPowersOfTwo() {
+        // the rounding interval is asymmetric at each power of two
+        for (int e = Double.MIN_EXPONENT - 52; e <= Double.MAX_EXPONENT; e++) {
+            double v = Math.scalb(1.0, e);
+            check(v);
+            check(Math.nextDown(v));
+            check(Math.nextUp(v));
+        }
+    }
+
+    @Test
+    public void testPowersOfTen() {
+        for (int e = -323; e <= 308; e++) {
+            double v = Double.parseDouble("1.0E" + e);
+            check(v);
+            check(Math.nextDown(v));
+            check(Math.nextUp(v));
+        }
+    }
+
+    @Test
+    public void testRandomBits() {
+        Random random = new Random(36);
+        int differs = 0;
+        for (int n = 0; n < 200000; n++) {
+            double v = Double.longBitsToDouble(random.nextLong());
+            if (check(v))
+                differs++;
+        }
+        log.info("{} of 200000 random values differ from FloatingDecimal", differs);
+    }
+
+    @Test
+    public void testRandomShortDecimals() {
+        // values with few digits, where shorter candidates are likely
+        Random random = new Random(37);
+        for (int n = 0; n < 100000; n++) {
+            double v = Double.parseDouble((random.nextInt(100000) + 1) + "E" + (random.nextInt(600) - 300));
+            check(v);
+        }
+    }
+
+    @Test
+    public void testSubnormals() {
+        Random random = new Random(38);
+        for (int n = 0; n < 50000; n++)
+            check(Double.longBitsToDouble(random.nextLong() & ((1L << 52) - 1)));
+        for (long bits = 1; bits < 1000; bits++)
+            check(Double.longBitsToDouble(bits));
+    }
+
+    @Test
+    public void testAppend() {
+        Random random = new Random(39);
+        StringBuilder sb = new StringBuilder("x");
+        StringBuilder expected = new StringBuilder("x");
+        for (int n = 0; n < 10000; n++) {
+            double v = (n < SPECIAL.length) ? SPECIAL[n] : Double.longBitsToDouble(random.nextLong());
+            sb.append(v).append(',');
+            expected.append(Double.toString(v)).append(',');
+            StringBuffer buffer = new StringBuffer();
+            assertEquals(Double.toString(v), buffer.append(v).toString());
+        }
+        assertEquals(expected.toString(), sb.toString());
+        // growth from an empty builder of capacity one
+        assertEquals("-1.0E-100", new StringBuilder(1).append(-1.0E-100).toString());
+    }
+
+    /**
+     * Checks Double.toString(v) against the exact shortest and closest
+     * decimal, and returns whether it differs from FloatingDecimal.
+     */
+    private static boolean check(double v) {
+        String s = Double.toString(v);
+        String fd = FloatingDecimal.toJavaFormatString(v);
+        if (Double.isNaN(v) || Double.isInfinite(v) || v == 0) {
+            assertEquals(fd, s);
+            return false;
+        }
+        assertEquals(s, v, Double.parseDouble(s), 0.0);
+        assertEquals(s, Math.copySign(1.0, v), s.startsWith("-") ? -1.0 : 1.0, 0.0);
+        assertEquals(s, layout(v, s), s);
+
+        BigDecimal value = new BigDecimal(Math.abs(v));
+        BigDecimal decimal = new BigDecimal(unsigned(s)).stripTrailingZeros();
+        int digits = decimal.precision();
+        boolean scientific = s.indexOf('E') >= 0;
+        // in scientific notation Double.toString prints at least two
+        // digits, and takes the closest decimal of one or two digits
+        int shortest = shortestDigits(value, Math.abs(v));
+        if (scientific && shortest == 1)
+            assertTrue(s, digits <= 2);
+        else
+            assertEquals(s, shortest, digits);
+        // no decimal of as many digits on the other side of v is closer
+        int p = Math.max(digits, scientific ? 2 : 1);
+        for (RoundingMode mode : new RoundingMode[] { RoundingMode.FLOOR, RoundingMode.CEILING }) {
+            BigDecimal other = value.round(new MathContext(p, mode));
+            if (Double.parseDouble(other.toString()) == Math.abs(v)) {
+                assertTrue(s + " vs " + other, decimal.subtract(value).abs()
+                        .compareTo(other.subtract(value).abs()) <= 0);
+            }
+        }
+
+        if (s.equals(fd))
+            return false;
+        // differences are where FloatingDecimal prints too many digits or
+        // a farther value
+        BigDecimal fdDecimal = new BigDecimal(unsigned(fd)).stripTrailingZeros();
+        assertTrue(s + " vs " + fd, digits < fdDecimal.precision()
+                || decimal.subtract(value).abs().compareTo(fdDecimal.subtract(value).abs()) < 0);
+        return true;
+    }
+
+    private static String unsigned(String s) {
+        return s.startsWith("-") ? s.substring(1) : s;
+    }
+
+    /**
+     * Returns the fewest significant digits of a decimal that reads back
+     * as d, whose exact value is given.
+     */
+    private static int shortestDigits(BigDecimal value, double d) {
+        for (int p = 1; ; p++) {
+            for (RoundingMode mode : new RoundingMode[] { RoundingMode.FLOOR, RoundingMode.CEILING }) {
+                if (Double.parseDouble(value.round(new MathContext(p, mode)).toString()) == d)
+                    return p;
+            }
+        }
+    }
+
+    /**
+     * Lays out the digits of s in the format specified by Double.toString,
+     * independently of the formatter.
+     */
+    private static String layout(double v, String s) {
+        BigDecimal d = new BigDecimal(unsigned(s)).stripTrailingZeros();
+        String sign = (v < 0) ? "-" : "";
+        double abs = Math.abs(v);
+        if (abs >= 1.0E-3 && abs < 1.0E7) {
+            String plain = d.toPlainString();
+            return sign + (plain.indexOf('.') < 0 ? plain + ".0" : plain);
+        }
+        String digits = d.unscaledValue().toString();
+        int exp = digits.length() - 1 - d.scale();
+        String fraction = (digits.length() == 1) ? s.substring(sign.length() + 2, sign.length() + 3)
+                : digits.substring(1);
+        return sign + digits.charAt(0) + "." + fraction + "E" + exp;
+    }
+
+    @Test
+    public void testIntegerWriteTo() {
+        int[] values = {
+            0, 1, -1, 9, 10, -10, 99, 100, 65535, 65536, -65536, 999999999, 1000000000,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE + 1,
+        };
+        Random random = new Random(40);
+        for (int n = 0; n < values.length + 10000; n++) {
+            int i = (n < values.length) ? values[n] : random.nextInt() >> random.nextInt(32);
+            byte[] expected = Integer.toString(i).getBytes(StandardCharsets.US_ASCII);
+            byte[] dst = new byte[expected.length + 4];
+            Arrays.fill(dst, (byte) '#');
+            assertEquals(2 + expected.length, Integer.writeTo(i, dst, 2));
+            assertEquals("##" + i + "##", new String(dst, StandardCharsets.US_ASCII));
+            // an exact fit at the end
+            byte[] exact = new byte[expected.length];
+            assertEquals(expected.length, Integer.writeTo(i, exact, 0));
+            assertEquals(Integer.toString(i), new String(exact, StandardCharsets.US_ASCII));
+        }
+        for (int i : new int[] { 7, -7, Integer.MIN_VALUE, Integer.MAX_VALUE }) {
+            int size = Integer.toString(i).length();
+            for (int off : new int[] { -1, 1, 10 }) {
+                byte[] dst = new byte[size];
+                try {
+                    Integer.writeTo(i, dst, off);
+                    fail("IndexOutOfBoundsException expected for " + i + " at " + off);
+                } catch (IndexOutOfBoundsException expected) {
+                    // nothing is written
+                    assertTrue(Arrays.equals(new byte[size], dst));
+                }
+            }
+        }
+        try {
+            Integer.writeTo(1, null, 0);
+            fail("NullPointerException expected");
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void testLongWriteTo() {
+        long[] values = {
+            0, 1, -1, 9, 10, -10, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Integer.MAX_VALUE + 1L, Integer.MIN_VALUE - 1L, 999999999999999999L,
+            1000000000000000000L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1,
+        };
+        Random random = new Random(41);
+        for (int n = 0; n < values.length + 10000; n++) {
+            long i = (n < values.length) ? values[n] : random.nextLong() >> random.nextInt(64);
+            byte[] expected = Long.toString(i).getBytes(StandardCharsets.US_ASCII);
+            byte[] dst = new byte[expected.length + 4];
+            Arrays.fill(dst, (byte) '#');
+            assertEquals(2 + expected.length, Long.writeTo(i, dst, 2));
+            assertEquals("##" + i + "##", new String(dst, StandardCharsets.US_ASCII));
+            byte[] exact = new byte[expected.length];
+            assertEquals(expected.length, Long.writeTo(i, exact, 0));
+            assertEquals(Long.toString(i), new String(exact, StandardCharsets.US_ASCII));
+        }
+        for (long i : new long[] { 7, -7, Long.MIN_VALUE, Long.MAX_VALUE }) {
+            int size = Long.toString(i).length();
+            for (int off : new int[] { -1, 1, 30 }) {
+                byte[] dst = new byte[size];
+                try {
+                    Long.writeTo(i, dst, off);
+                    fail("IndexOutOfBoundsException expected for " + i + " at " + off);
+                } catch (IndexOutOfBoundsException expected) {
+                    assertTrue(Arrays.equals(new byte[size], dst));
+                }
+            }
+        }
+    }
+
+    private static final String[] INPUTS = {
+        "0", "-0", "+0", "1", "-1", "+1", "007", "2147483647", "-2147483648", "2147483648",
+        "-2147483649", "9223372036854775807", "-9223372036854775808", "9223372036854775808",
+        "-9223372036854775809", "99999999999999999999", "", "-", "+", "--1", "+-1", "1-",
+        " 1", "1 ", "12a", "zz", "ZZ", "-zz", "7fffffff", "-80000000", "80000000", "ffffffff",
+        "7fffffffffffffff", "-8000000000000000", "1111111111111111111111111111111",
+        "11111111111111111111111111111111", "\u0661\u0662", "\uff11",
+    };
+
+    @Test
+    public void testParseIntRange() {
+        for (String input : INPUTS) {
+            for (int radix : new int[] { 2, 8, 10, 16, 36 }) {
+                // the input inside a larger sequence, and on its own
+                String padded = "x9-" + input + "5z";
+                checkParseInt(input, radix, padded, 3, 3 + input.length());
+                checkParseInt(input, radix, input, 0, input.length());
+                checkParseInt(input, radix, new StringBuilder(padded), 3, 3 + input.length());
+            }
+        }
+        Random random = new Random(42);
+        for (int n = 0; n < 10000; n++) {
+            int radix = Character.MIN_RADIX + random.nextInt(Character.MAX_RADIX - 1);
+            String s = Integer.toString(random.nextInt() >> random.nextInt(32), radix);
+            checkParseInt(s, radix, "++" + s, 2, 2 + s.length());
+        }
+    }
+
+    @Test
+    public void testParseLongRange() {
+        for (String input : INPUTS) {
+            for (int radix : new int[] { 2, 8, 10, 16, 36 }) {
+                String padded = "x9-" + input + "5z";
+                checkParseLong(input, radix, padded, 3, 3 + input.length());
+                checkParseLong(input, radix, input, 0, input.length());
+                checkParseLong(input, radix, new StringBuilder(padded), 3, 3 + input.length());
+            }
+        }
+        Random random = new Random(43);
+        for (int n = 0; n < 10000; n++) {
+            int radix = Character.MIN_RADIX + random.nextInt(Character.MAX_RADIX - 1);
+            String s = Long.toString(random.nextLong() >> random.nextInt(64), radix);
+            checkParseLong(s, radix, "++" + s, 2, 2 + s.length());
+        }
+    }
+
+    @Test
+    public void testParseRangeErrors() {
+        for (int[] range : new int[][] { { -1, 2 }, { 3, 2 }, { 0, 6 } }) {
+            try {
+                Integer.parseInt("12345", range[0], range[1], 10);
+                fail("IndexOutOfBoundsException expected");
+            } catch (IndexOutOfBoundsException expected) {
+            }
+            try {
+                Long.parseLong("12345", range[0], range[1], 10);
+                fail("IndexOutOfBoundsException expected");
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+        for (int radix : new int[] { Character.MIN_RADIX - 1, Character.MAX_RADIX + 1 }) {
+            try {
+                Integer.parseInt("1", 0, 1, radix);
+                fail("NumberFormatException expected");
+            } catch (NumberFormatException expected) {
+            }
+            try {
+                Long.parseLong("1", 0, 1, radix);
+                fail("NumberFormatException expected");
+            } catch (NumberFormatException expected) {
+            }
+        }
+        try {
+            Integer.parseInt(null, 0, 0, 10);
+            fail("NullPointerException expected");
+        } catch (NullPointerException expected) {
+        }
+        try {
+            Long.parseLong(null, 0, 0, 10);
+            fail("NullPointerException expected");
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    private static void checkParseInt(String input, int radix, CharSequence s, int begin, int end) {
+        Object expected;
+        try {
+            expected = Integer.parseInt(input, radix);
+        } catch (NumberFormatException e) {
+            expected = e.getMessage();
+        }
+        Object actual;
+        try {
+            actual = Integer.parseInt(s, begin, end, radix);
+        } catch (NumberFormatException e) {
+            actual = e.getMessage();
+        }
+        assertEquals(input + " radix " + radix, expected, actual);
+    }
+
+    private static void checkParseLong(String input, int radix, CharSequence s, int begin, int end) {
+        Object expected;
+        try {
+            expected = Long.parseLong(input, radix);
+        } catch (NumberFormatException e) {
+            expected = e.getMessage();
+        }
+        Object actual;
+        try {
+            actual = Long.parseLong(s, begin, end, radix);
+        } catch (NumberFormatException e) {
+            actual = e.getMessage();
+        }
+        assertEquals(input + " radix " + radix, expected, actual);
+    }
+}
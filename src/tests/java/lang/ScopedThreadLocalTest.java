@@ -0,0 +1,307 @@
+package tests.java.lang;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * ScopedThreadLocal: values per thread and their initial values, values
+ * bound for the extent of runWith and callWith and restored afterwards,
+ * slots given back by close() and by collection and reused without the
+ * values of their earlier owner, values released by closed variables and
+ * terminated threads, and lookups against ThreadLocal in threads that have
+ * many variables, live and stale.
+ */
+public class ScopedThreadLocalTest extends BaseTest {
+
+    @Test
+    public void testGetSetRemove() throws Exception {
+        AtomicInteger initialized = new AtomicInteger();
+        ScopedThreadLocal<String> local = ScopedThreadLocal.withInitial(
+                () -> "initial" + initialized.incrementAndGet());
+        assertEquals("initial1", local.get());
+        assertEquals("initial1", local.get());
+        local.set("set");
+        assertEquals("set", local.get());
+        local.set(null);
+        assertNull(local.get());
+        local.remove();
+        assertEquals("initial2", local.get());
+
+        // another thread has values of its own
+        AtomicReference<String> seen = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            seen.set(local.get());
+            local.set("other");
+        });
+        t.start();
+        t.join();
+        assertEquals("initial3", seen.get());
+        assertEquals("initial2", local.get());
+
+        // removeAll drops the values of every variable in this thread
+        ScopedThreadLocal<String> second = new ScopedThreadLocal<>();
+        second.set("second");
+        ScopedThreadLocal.removeAll();
+        assertNull(second.get());
+        assertEquals("initial4", local.get());
+        local.close();
+        second.close();
+    }
+
+    @Test
+    public void testRunWithCallWith() throws Exception {
+        AtomicInteger initialized = new AtomicInteger();
+        ScopedThreadLocal<String> local = ScopedThreadLocal.withInitial(
+                () -> "initial" + initialized.incrementAndGet());
+
+        // nothing to restore: the value is absent again afterwards
+        local.runWith("outer", () -> {
+            assertEquals("outer", local.get());
+            // nested, and restored on the way out
+            String r;
+            try {
+                r = local.callWith("inner", () -> local.get() + "!");
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+            assertEquals("inner!", r);
+            assertEquals("outer", local.get());
+            local.set("changed");
+        });
+        assertEquals(0, initialized.get());
+        assertEquals("initial1", local.get());
+
+        // a value set before is restored, also when the operation throws
+        local.set("before");
+        try {
+            local.callWith("during", (Callable<Void>) () -> {
+                throw new java.io.IOException("op");
+            });
+            fail("IOException expected");
+        } catch (java.io.IOException e) {
+            assertEquals("op", e.getMessage());
+        }
+        assertEquals("before", local.get());
+        try {
+            local.runWith("during", () -> {
+                throw new IllegalArgumentException("op");
+            });
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("op", e.getMessage());
+        }
+        assertEquals("before", local.get());
+
+        try {
+            local.runWith("x", null);
+            fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+        }
+        assertEquals("before", local.get());
+
+        // closed by the operation: there is nothing to restore
+        local.runWith("during", local::close);
+        assertClosed(local);
+        try {
+            local.runWith("after", () -> { });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        ScopedThreadLocal<Object> local = new ScopedThreadLocal<>();
+        Object value = new Object();
+        WeakReference<Object> ref = new WeakReference<>(value);
+        local.set(value);
+        value = null;
+
+        // a pooled thread keeps its value after the variable is closed,
+        // until it sets another variable it had no value for
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            WeakReference<Object> pooledRef = pool.submit(() -> {
+                Object pooled = new Object();
+                local.set(pooled);
+                return new WeakReference<>(pooled);
+            }).get();
+
+            int slot = slot(local);
+            local.close();
+            local.close();
+            assertClosed(local);
+            // removing the value of a closed variable has no effect
+            local.remove();
+            awaitCleared(ref);
+
+            // the slot goes to a later variable, which does not see the
+            // value the pooled thread has in it
+            List<ScopedThreadLocal<Object>> created = new ArrayList<>();
+            ScopedThreadLocal<Object> next = withSlot(slot, created, false);
+            assertNull(pool.submit(next::get).get());
+            awaitCleared(pooledRef);
+            closeAll(created);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCollected() throws Exception {
+        List<WeakReference<Object>> refs = new ArrayList<>();
+        int slot = unreachable(refs);
+        // a collected variable gives its slot back, and this thread drops
+        // its value when it sets one it had none for
+        List<ScopedThreadLocal<Object>> created = new ArrayList<>();
+        ScopedThreadLocal<Object> local = withSlot(slot, created, true);
+        assertNull(local.get());
+        Object value = new Object();
+        local.set(value);
+        assertSame(value, local.get());
+        awaitCleared(refs.get(0));
+        closeAll(created);
+    }
+
+    /**
+     * Sets a value of a variable that becomes unreachable, and returns its
+     * slot.
+     */
+    private static int unreachable(List<WeakReference<Object>> refs) throws ReflectiveOperationException {
+        ScopedThreadLocal<Object> local = new ScopedThreadLocal<>();
+        Object value = new Object();
+        refs.add(new WeakReference<>(value));
+        local.set(value);
+        return slot(local);
+    }
+
+    /**
+     * Creates variables until one gets the given slot, which may follow
+     * slots of variables other tests left to be collected, and returns it.
+     */
+    private static ScopedThreadLocal<Object> withSlot(int slot, List<ScopedThreadLocal<Object>> created,
+            boolean collect) throws Exception {
+        for (int i = 0; i < 10000; i++) {
+            if (collect && i % 100 == 0) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            ScopedThreadLocal<Object> local = new ScopedThreadLocal<>();
+            created.add(local);
+            if (slot(local) == slot)
+                return local;
+        }
+        throw new AssertionError("slot " + slot + " not reused");
+    }
+
+    private static void closeAll(List<ScopedThreadLocal<Object>> locals) {
+        for (ScopedThreadLocal<Object> l : locals)
+            l.close();
+    }
+
+    @Test
+    public void testThreadExit() throws Exception {
+        ScopedThreadLocal<Object> local = new ScopedThreadLocal<>();
+        AtomicReference<WeakReference<Object>> ref = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            Object value = new Object();
+            ref.set(new WeakReference<>(value));
+            local.set(value);
+        });
+        t.start();
+        t.join();
+        // the Thread object is still reachable here
+        awaitCleared(ref.get());
+        local.close();
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        int count = 10000;
+        for (int round = 0; round < 3; round++) {
+            // each round in a new thread, whose maps hold the live variables
+            // and as many stale ones
+            Thread t = new Thread(() -> {
+                List<ThreadLocal<Integer>> plain = new ArrayList<>();
+                List<ScopedThreadLocal<Integer>> scoped = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    new ThreadLocal<Integer>().set(i);
+                    ThreadLocal<Integer> p = new ThreadLocal<>();
+                    p.set(i);
+                    plain.add(p);
+                    new ScopedThreadLocal<Integer>().set(i);
+                    ScopedThreadLocal<Integer> s = new ScopedThreadLocal<>();
+                    s.set(i);
+                    scoped.add(s);
+                }
+                System.gc();
+                long plainNanos = time(plain, 100);
+                long scopedNanos = time(scoped, 100);
+                log.info("{} live variables, {} collected: ThreadLocal.get {} ns, ScopedThreadLocal.get {} ns",
+                        count, count, plainNanos / (100L * count), scopedNanos / (100L * count));
+                for (ScopedThreadLocal<Integer> s : scoped)
+                    s.close();
+            });
+            t.start();
+            t.join();
+        }
+    }
+
+    /**
+     * Reads every variable the given number of times, and returns the time
+     * taken.
+     */
+    private static long time(List<? extends ThreadLocal<Integer>> locals, int times) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int k = 0; k < times; k++) {
+            for (ThreadLocal<Integer> l : locals)
+                sum += l.get();
+        }
+        long nanos = System.nanoTime() - start;
+        assertEquals((long) times * locals.size() * (locals.size() - 1) / 2, sum);
+        return nanos;
+    }
+
+    private static void assertClosed(ScopedThreadLocal<?> local) {
+        try {
+            local.get();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+        }
+        try {
+            local.set(null);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    private static void awaitCleared(WeakReference<?> ref) throws InterruptedException {
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+    }
+
+    private static int slot(ScopedThreadLocal<?> local) throws ReflectiveOperationException {
+        Field f = ScopedThreadLocal.class.getDeclaredField("slot");
+        f.setAccessible(true);
+        return f.getInt(local);
+    }
+}
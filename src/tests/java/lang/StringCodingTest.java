@@ -0,0 +1,336 @@
+package tests.java.lang;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * String encoding and decoding through the StringCoding fast paths for
+ * UTF-8, ISO-8859-1 and US-ASCII, and through the array and buffer entry
+ * points, against the charsets' own coders with replacement of malformed
+ * and unmappable input
+ */
+public class StringCodingTest extends BaseTest {
+
+    private static final Charset[] FAST = {
+        StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII
+    };
+
+    // a charset without a fast path, as a control
+    private static final Charset[] ALL = {
+        StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII,
+        StandardCharsets.UTF_16LE
+    };
+
+    private static final String[] STRINGS = {
+        "",
+        "plain ascii",
+        "caf\u00e9 \u00ff",
+        "\u20ac uro \u0100 \u07ff \u0800 \uffff",
+        "pair \ud83d\ude00 end",
+        "unpaired high \ud800 in the middle",
+        "unpaired low \udc00",
+        "trailing high \udbff",
+        "\udc00\ud800 reversed",
+        "\u0000 nul",
+    };
+
+    @Test
+    public void testEncode() throws Exception {
+        for (Charset cs : ALL) {
+            for (String s : STRINGS)
+                checkEncode(cs, s);
+        }
+    }
+
+    @Test
+    public void testEncodeRandom() throws Exception {
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            String s = randomString(random, random.nextInt(100));
+            for (Charset cs : ALL)
+                checkEncode(cs, s);
+        }
+    }
+
+    @Test
+    public void testEncodeLongAsciiRun() throws Exception {
+        // the leading ASCII run is counted in bulk, then the tail per char
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'a');
+        for (int tail : new int[] { 0, 1, 5000, 9999 }) {
+            chars[tail] = '\u00e9';
+            String s = new String(chars);
+            for (Charset cs : FAST)
+                checkEncode(cs, s);
+            chars[tail] = 'a';
+        }
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        byte[][] inputs = {
+            {},
+            bytes("ascii only"),
+            bytes(0x63, 0x61, 0x66, 0xc3, 0xa9),
+            // every single byte value
+            range(0, 256),
+            // truncated two, three and four byte sequences
+            bytes(0xc3), bytes(0xe2, 0x82), bytes(0xf0, 0x9f, 0x98),
+            bytes(0x61, 0xe2, 0x82, 0x61),
+            // overlong encodings
+            bytes(0xc0, 0xaf), bytes(0xe0, 0x80, 0xaf), bytes(0xf0, 0x80, 0x80, 0xaf),
+            // encoded surrogates
+            bytes(0xed, 0xa0, 0x80), bytes(0xed, 0xbf, 0xbf),
+            // beyond U+10FFFF, five and six byte forms
+            bytes(0xf4, 0x90, 0x80, 0x80), bytes(0xf8, 0x88, 0x80, 0x80, 0x80),
+            bytes(0xfc, 0x84, 0x80, 0x80, 0x80, 0x80),
+            // stray continuation bytes and bytes never valid in UTF-8
+            bytes(0x80, 0xbf, 0x61), bytes(0xfe, 0xff, 0x61),
+            // a valid sequence after an invalid lead
+            bytes(0xc3, 0xc3, 0xa9),
+            bytes(0xf0, 0x9f, 0x98, 0x80),
+        };
+        for (Charset cs : ALL) {
+            for (byte[] b : inputs)
+                checkDecode(cs, b);
+        }
+    }
+
+    @Test
+    public void testDecodeRandom() throws Exception {
+        Random random = new Random(7);
+        for (int n = 0; n < 2000; n++) {
+            byte[] b;
+            if (n % 2 == 0) {
+                b = new byte[random.nextInt(100)];
+                random.nextBytes(b);
+            } else {
+                // mostly well-formed, so that the ASCII prefix check and
+                // the decoder both run
+                b = randomString(random, random.nextInt(100)).getBytes(StandardCharsets.UTF_8);
+                if (b.length > 0 && random.nextBoolean())
+                    b[random.nextInt(b.length)] = (byte) random.nextInt(256);
+            }
+            for (Charset cs : ALL)
+                checkDecode(cs, b);
+        }
+    }
+
+    @Test
+    public void testGetBytesIntoArray() throws Exception {
+        for (Charset cs : ALL) {
+            for (String s : STRINGS) {
+                byte[] expected = reference(cs, s);
+                byte[] dst = new byte[expected.length + 6];
+                Arrays.fill(dst, (byte) 0x55);
+                assertEquals(expected.length, s.getBytes(cs, dst, 3));
+                assertArrayEquals(expected, Arrays.copyOfRange(dst, 3, 3 + expected.length));
+                // bytes outside the written range are untouched
+                assertEquals(0x55, dst[2]);
+                assertEquals(0x55, dst[3 + expected.length]);
+
+                if (expected.length > 0) {
+                    try {
+                        s.getBytes(cs, new byte[expected.length - 1], 0);
+                        fail("IndexOutOfBoundsException expected for " + cs);
+                    } catch (IndexOutOfBoundsException e) {
+                    }
+                }
+            }
+            try {
+                "x".getBytes(cs, new byte[4], 5);
+                fail("IndexOutOfBoundsException expected");
+            } catch (IndexOutOfBoundsException e) {
+            }
+            try {
+                "x".getBytes(cs, new byte[4], -1);
+                fail("IndexOutOfBoundsException expected");
+            } catch (IndexOutOfBoundsException e) {
+            }
+            assertEquals(0, "".getBytes(cs, new byte[0], 0));
+        }
+        try {
+            "x".getBytes(StandardCharsets.UTF_8, (byte[]) null, 0);
+            fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+        }
+    }
+
+    @Test
+    public void testGetBytesIntoBuffer() throws Exception {
+        for (Charset cs : ALL) {
+            for (String s : STRINGS) {
+                byte[] expected = reference(cs, s);
+                for (ByteBuffer dst : new ByteBuffer[] {
+                        ByteBuffer.allocate(expected.length + 8),
+                        ByteBuffer.allocateDirect(expected.length + 8) }) {
+                    dst.position(2);
+                    assertEquals(expected.length, s.getBytes(cs, dst));
+                    assertEquals(2 + expected.length, dst.position());
+                    byte[] actual = new byte[expected.length];
+                    ((ByteBuffer) dst.duplicate().position(2)).get(actual);
+                    assertArrayEquals(expected, actual);
+
+                    if (expected.length > 0) {
+                        ByteBuffer small = dst.isDirect()
+                                ? ByteBuffer.allocateDirect(expected.length - 1)
+                                : ByteBuffer.allocate(expected.length - 1);
+                        try {
+                            s.getBytes(cs, small);
+                            fail("BufferOverflowException expected for " + cs);
+                        } catch (BufferOverflowException e) {
+                            assertEquals(0, small.position());
+                        }
+                    }
+                }
+            }
+            try {
+                "x".getBytes(cs, ByteBuffer.allocate(4).asReadOnlyBuffer());
+                fail("ReadOnlyBufferException expected");
+            } catch (ReadOnlyBufferException e) {
+            }
+        }
+    }
+
+    @Test
+    public void testStringFromBuffer() throws Exception {
+        byte[] b = "pre caf\u00e9 \ud83d\ude00 post".getBytes(StandardCharsets.UTF_8);
+        byte[] bad = bytes(0x61, 0xff, 0xc3, 0xe2, 0x82, 0x62);
+        for (Charset cs : ALL) {
+            for (byte[] input : new byte[][] { b, bad, range(0, 256) }) {
+                String expected = reference(cs, input);
+                ByteBuffer heap = ByteBuffer.wrap(input);
+                assertEquals(expected, new String(heap, cs));
+                assertEquals(heap.limit(), heap.position());
+
+                ByteBuffer direct = ByteBuffer.allocateDirect(input.length);
+                direct.put(input).flip();
+                assertEquals(expected, new String(direct, cs));
+                assertEquals(direct.limit(), direct.position());
+
+                // a slice, so that the backing array has an offset, and a
+                // read-only view
+                byte[] padded = new byte[input.length + 4];
+                System.arraycopy(input, 0, padded, 2, input.length);
+                ByteBuffer slice = ((ByteBuffer) ByteBuffer.wrap(padded).position(2)).slice();
+                slice.limit(input.length);
+                assertEquals(expected, new String(slice.asReadOnlyBuffer(), cs));
+                assertEquals(expected, new String(slice, cs));
+                assertEquals(input.length, slice.position());
+            }
+        }
+        try {
+            new String(ByteBuffer.allocate(1), (Charset) null);
+            fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+        }
+    }
+
+    private static void checkEncode(Charset cs, String s) throws Exception {
+        byte[] expected = reference(cs, s);
+        assertArrayEquals(cs + " " + escape(s), expected, s.getBytes(cs));
+        assertArrayEquals(cs + " " + escape(s), expected, s.getBytes(cs.name()));
+    }
+
+    private static void checkDecode(Charset cs, byte[] b) throws Exception {
+        String expected = reference(cs, b);
+        assertEquals(cs + " " + Arrays.toString(b), expected, new String(b, cs));
+        assertEquals(cs + " " + Arrays.toString(b), expected, new String(b, cs.name()));
+        if (b.length > 2) {
+            // offset and length
+            String sub = reference(cs, Arrays.copyOfRange(b, 1, b.length - 1));
+            assertEquals(sub, new String(b, 1, b.length - 2, cs));
+        }
+    }
+
+    /**
+     * Encodes with the charset's own encoder, replacing malformed and
+     * unmappable input.
+     */
+    private static byte[] reference(Charset cs, String s) throws CharacterCodingException {
+        ByteBuffer bb = cs.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .encode(CharBuffer.wrap(s));
+        byte[] b = new byte[bb.remaining()];
+        bb.get(b);
+        return b;
+    }
+
+    /**
+     * Decodes with the charset's own decoder, replacing malformed and
+     * unmappable input.
+     */
+    private static String reference(Charset cs, byte[] b) throws CharacterCodingException {
+        return cs.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(ByteBuffer.wrap(b)).toString();
+    }
+
+    /**
+     * Returns a string of mostly ASCII, some Latin-1 and BMP characters,
+     * surrogate pairs, and unpaired surrogates.
+     */
+    private static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 5)
+                sb.append((char) random.nextInt(0x80));
+            else if (kind < 7)
+                sb.append((char) (0x80 + random.nextInt(0x80)));
+            else if (kind < 8)
+                sb.append((char) (0x100 + random.nextInt(0xd800 - 0x100)));
+            else if (kind < 9)
+                sb.appendCodePoint(0x10000 + random.nextInt(0x100000));
+            else
+                sb.append((char) (0xd800 + random.nextInt(0x800)));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] b = new byte[values.length];
+        for (int i = 0; i < values.length; i++)
+            b[i] = (byte) values[i];
+        return b;
+    }
+
+    private static byte[] range(int from, int to) {
+        byte[] b = new byte[to - from];
+        for (int i = from; i < to; i++)
+            b[i - from] = (byte) i;
+        return b;
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            if (c < 0x80)
+                sb.append(c);
+            else
+                sb.append(String.format("\\u%04x", (int) c));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,284 @@
+package tests.java.lang.invoke;
+
+import org.junit.Test;
+import sun.invoke.MethodHandleStatisticsMXBean;
+import tests.base.BaseTest;
+import tests.base.ForkedJvm;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The method handle statistics and the properties that tune customization
+ * and species generation: the counters moving as handles are bound, compiled
+ * and customized, the MXBean registered on request, customization carried
+ * down a tree of handles to CUSTOMIZE_DEPTH, and no species class spun for
+ * a binding covered by PREGENERATE_SPECIES. The properties are read once,
+ * so each scenario runs in its own JVM.
+ */
+public class MethodHandleStatisticsTest extends BaseTest {
+
+    private static final String PREFIX = "-Djava.lang.invoke.MethodHandle.";
+
+    private static final String OBJECT_NAME = "java.lang.invoke:type=MethodHandleStatistics";
+
+    @Test
+    public void testCounters() throws Exception {
+        fork("counters");
+    }
+
+    @Test
+    public void testMXBean() throws Exception {
+        fork("mxbean", PREFIX + "MXBEAN=true");
+        fork("nomxbean");
+    }
+
+    @Test
+    public void testCustomizeDepth() throws Exception {
+        // without the counting wrappers that guardWithTest puts around
+        // its branches, which change their forms as they count
+        for (int depth = 0; depth <= 2; depth++) {
+            fork("depth" + depth, PREFIX + "CUSTOMIZE_THRESHOLD=10",
+                    PREFIX + "CUSTOMIZE_DEPTH=" + depth, PREFIX + "DONT_INLINE_THRESHOLD=-1");
+        }
+    }
+
+    @Test
+    public void testPregenerateSpecies() throws Exception {
+        fork("pregenerate", PREFIX + "PREGENERATE_SPECIES=2");
+    }
+
+    private void fork(String scenario, String... options) throws Exception {
+        log.info(ForkedJvm.run(MethodHandleStatisticsTest.class, Arrays.asList(options), scenario));
+    }
+
+    public static void main(String[] args) throws Throwable {
+        switch (args[0]) {
+            case "counters":
+                counters();
+                break;
+            case "mxbean":
+                mxbean();
+                break;
+            case "nomxbean":
+                bindAndCall(0, 0L, 0f, 0d, "");
+                Thread.sleep(500);
+                assertFalse(ManagementFactory.getPlatformMBeanServer()
+                        .isRegistered(new ObjectName(OBJECT_NAME)));
+                break;
+            case "depth0":
+                customizeDepth(0);
+                break;
+            case "depth1":
+                customizeDepth(1);
+                break;
+            case "depth2":
+                customizeDepth(2);
+                break;
+            case "pregenerate":
+                pregenerate();
+                break;
+            default:
+                throw new IllegalArgumentException(args[0]);
+        }
+        System.out.println(args[0] + " passed");
+    }
+
+    private static void counters() throws Throwable {
+        MethodHandleStatisticsMXBean stats = stats();
+        long forms = stats.getLambdaFormCompilationCount();
+        long species = stats.getSpeciesCount();
+        long classes = stats.getSpeciesClassCount();
+
+        // a species no handle has needed before
+        MethodHandle mh = MethodHandles.insertArguments(
+                lookup("sum", long.class, long.class, float.class, double.class), 0, 2L, 3f);
+        assertEquals(105L, (long) mh.invokeExact(100d));
+        assertTrue(stats.getLambdaFormCompilationCount() > forms);
+        assertTrue(stats.getTotalLambdaFormCompilationTime() >= 0);
+        // LJ and LJF
+        assertEquals(species + 2, stats.getSpeciesCount());
+        assertEquals(classes + 2, stats.getSpeciesClassCount());
+
+        // the same species again
+        MethodHandle again = MethodHandles.insertArguments(
+                lookup("sum", long.class, long.class, float.class, double.class), 0, 4L, 5f);
+        assertEquals(9L, (long) again.invokeExact(0d));
+        assertEquals(species + 2, stats.getSpeciesCount());
+        assertEquals(classes + 2, stats.getSpeciesClassCount());
+
+        // invoked through a variable past the default threshold of 127
+        long customizations = stats.getCustomizationCount();
+        MethodHandle hot = MethodHandles.insertArguments(
+                lookup("add", int.class, int.class, int.class), 0, 3);
+        for (int i = 0; i < 200; i++)
+            assertEquals(i + 3, (int) hot.invokeExact(i));
+        assertEquals(customizations + 1, stats.getCustomizationCount());
+        assertSame(hot, customized(hot));
+    }
+
+    private static void mxbean() throws Throwable {
+        // the first counted event initializes the statistics, which
+        // register from a thread of their own
+        bindAndCall(0, 0L, 0f, 0d, "");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        for (int i = 0; i < 100 && !server.isRegistered(name); i++)
+            Thread.sleep(100);
+        assertTrue(server.isRegistered(name));
+
+        MethodHandleStatisticsMXBean proxy =
+                JMX.newMXBeanProxy(server, name, MethodHandleStatisticsMXBean.class);
+        MethodHandleStatisticsMXBean stats = stats();
+        assertEquals(name, proxy.getObjectName());
+        assertTrue(proxy.getLambdaFormCompilationCount() > 0);
+        assertTrue(proxy.getSpeciesCount() > 0);
+        assertEquals(stats.getSpeciesClassCount(), proxy.getSpeciesClassCount());
+        assertEquals(stats.getCustomizationCount(), proxy.getCustomizationCount());
+        assertEquals(stats.getSpeciesClassCount(),
+                ((Number) server.getAttribute(name, "SpeciesClassCount")).longValue());
+    }
+
+    /**
+     * Invokes a tree of three levels past the threshold and checks which
+     * of its handles were customized: the root always, a target and the
+     * handle below it down to the depth.
+     */
+    private static void customizeDepth(int depth) throws Throwable {
+        MethodHandleStatisticsMXBean stats = stats();
+        MethodHandle add = lookup("add", int.class, int.class, int.class);
+        MethodHandle inner = MethodHandles.insertArguments(add, 0, 3);
+        MethodHandle root = MethodHandles.guardWithTest(
+                lookup("isEven", boolean.class, int.class),
+                inner,
+                lookup("negate", int.class, int.class));
+        long customizations = stats.getCustomizationCount();
+        for (int i = 0; i < 100; i++)
+            assertEquals(i % 2 == 0 ? i + 3 : -i, (int) root.invokeExact(i));
+
+        assertSame(root, customized(root));
+        assertEquals(depth >= 1 ? inner : null, customized(inner));
+        assertEquals(depth >= 2 ? add : null, customized(add));
+        // and the root's other targets with the inner handle
+        long expected = 1 + (depth >= 1 ? 3 : 0) + (depth >= 2 ? 1 : 0);
+        assertEquals(expected, stats.getCustomizationCount() - customizations);
+    }
+
+    private static void pregenerate() throws Throwable {
+        MethodHandleStatisticsMXBean stats = stats();
+        // the first species asked for generates all of up to two fields:
+        // five of one field, L being built in, and twenty-five of two
+        MethodHandles.insertArguments(lookup("add", int.class, int.class, int.class), 0, 1);
+        long species = stats.getSpeciesCount();
+        long classes = stats.getSpeciesClassCount();
+        assertTrue("species classes " + classes, classes >= 29);
+
+        // every binding of one value to a direct handle is a species of
+        // two fields
+        bindAndCall(7, 8L, 9f, 10d, "x");
+        assertEquals(species, stats.getSpeciesCount());
+        assertEquals(classes, stats.getSpeciesClassCount());
+
+        // three fields are not pregenerated
+        MethodHandle mh = MethodHandles.insertArguments(
+                lookup("sum", long.class, long.class, float.class, double.class), 0, 2L, 3f);
+        assertEquals(105L, (long) mh.invokeExact(100d));
+        assertEquals(species + 1, stats.getSpeciesCount());
+        assertEquals(classes + 1, stats.getSpeciesClassCount());
+    }
+
+    /**
+     * Binds one value of each basic type to a direct method handle and
+     * invokes the result.
+     */
+    private static void bindAndCall(int i, long j, float f, double d, Object l) throws Throwable {
+        List<MethodHandle> bound = new ArrayList<>();
+        bound.add(MethodHandles.insertArguments(lookup("add", int.class, int.class, int.class), 0, i));
+        bound.add(MethodHandles.insertArguments(lookup("addJ", long.class, long.class, int.class), 0, j));
+        bound.add(MethodHandles.insertArguments(lookup("addF", float.class, float.class, int.class), 0, f));
+        bound.add(MethodHandles.insertArguments(lookup("addD", double.class, double.class, int.class), 0, d));
+        bound.add(MethodHandles.insertArguments(lookup("addL", String.class, Object.class, int.class), 0, l));
+        assertEquals(i + 1, (int) bound.get(0).invokeExact(1));
+        assertEquals(j + 1, (long) bound.get(1).invokeExact(1));
+        assertEquals(f + 1, (float) bound.get(2).invokeExact(1), 0f);
+        assertEquals(d + 1, (double) bound.get(3).invokeExact(1), 0d);
+        assertEquals(l + "1", (String) bound.get(4).invokeExact(1));
+    }
+
+    static int add(int a, int b) {
+        return a + b;
+    }
+
+    static long addJ(long a, int b) {
+        return a + b;
+    }
+
+    static float addF(float a, int b) {
+        return a + b;
+    }
+
+    static double addD(double a, int b) {
+        return a + b;
+    }
+
+    static String addL(Object a, int b) {
+        return String.valueOf(a) + b;
+    }
+
+    static long sum(long a, float b, double c) {
+        return a + (long) b + (long) c;
+    }
+
+    static boolean isEven(int a) {
+        return a % 2 == 0;
+    }
+
+    static int negate(int a) {
+        return -a;
+    }
+
+    private static MethodHandle lookup(String name, Class<?> rtype, Class<?>... ptypes)
+            throws ReflectiveOperationException {
+        return MethodHandles.lookup().findStatic(MethodHandleStatisticsTest.class, name,
+                MethodType.methodType(rtype, ptypes));
+    }
+
+    /**
+     * Returns the counters whether or not they are registered.
+     */
+    private static MethodHandleStatisticsMXBean stats() throws ReflectiveOperationException {
+        Field f = Class.forName("java.lang.invoke.MethodHandleStatistics").getDeclaredField("STATS");
+        f.setAccessible(true);
+        MethodHandleStatisticsMXBean stats = (MethodHandleStatisticsMXBean) f.get(null);
+        assertNotNull(stats);
+        return stats;
+    }
+
+    /**
+     * Returns the handle the form of the given one is customized for, or
+     * null.
+     */
+    private static Object customized(MethodHandle mh) throws ReflectiveOperationException {
+        Field form = MethodHandle.class.getDeclaredField("form");
+        form.setAccessible(true);
+        Object lf = form.get(mh);
+        Field customized = lf.getClass().getDeclaredField("customized");
+        customized.setAccessible(true);
+        return customized.get(lf);
+    }
+}
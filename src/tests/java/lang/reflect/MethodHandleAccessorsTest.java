@@ -0,0 +1,290 @@
+package tests.java.lang.reflect;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import tests.base.BaseTest;
+import tests.base.ForkedJvm;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Method.invoke and Constructor.newInstance through the method handle based
+ * accessors: argument conversion and checking, class initialization errors
+ * and exception wrapping must be those of the default accessors.
+ *
+ * The accessors are enabled by sun.reflect.useMethodHandleAccessors, which is
+ * read on the first reflective invocation once the system class loader
+ * exists, so the tests run here with the default accessors and again in a
+ * JVM started with the property, which must also boot with it.
+ */
+public class MethodHandleAccessorsTest extends BaseTest {
+
+    private static final String PROPERTY = "sun.reflect.useMethodHandleAccessors";
+
+    @Test
+    public void testWithMethodHandleAccessors() throws Exception {
+        if (Boolean.getBoolean(PROPERTY))
+            return;     // already in the forked JVM
+        log.info(ForkedJvm.run(MethodHandleAccessorsTest.class,
+                Arrays.asList("-D" + PROPERTY + "=true")));
+    }
+
+    /**
+     * Runs the tests of this class, and checks that the accessors of the
+     * members they invoke are method handle based.
+     */
+    public static void main(String[] args) throws Exception {
+        if (!Boolean.getBoolean(PROPERTY))
+            throw new IllegalStateException(PROPERTY + " is not set");
+        Result result = JUnitCore.runClasses(MethodHandleAccessorsTest.class);
+        for (Failure f : result.getFailures())
+            System.out.println(f.getTestHeader() + ": " + f.getTrace());
+        assertTrue(result.wasSuccessful());
+
+        Method m = method("concat", String.class, Object.class);
+        assertEquals("x-1", m.invoke(new Target("x"), "-", 1));
+        assertTrue(accessorClass(m, "methodAccessor").endsWith("MethodHandleMethodAccessor"));
+        Constructor<Target> c = Target.class.getConstructor(String.class);
+        assertEquals("y", c.newInstance("y").name());
+        assertTrue(accessorClass(c, "constructorAccessor")
+                .endsWith("MethodHandleConstructorAccessor"));
+
+        // caller-sensitive methods keep the default accessors
+        Method forName = Class.class.getMethod("forName", String.class);
+        assertSame(Target.class, forName.invoke(null, Target.class.getName()));
+        assertFalse(accessorClass(forName, "methodAccessor").contains("MethodHandle"));
+        System.out.println("method handle accessors passed");
+    }
+
+    /**
+     * Returns the name of the class of the accessor that the given member
+     * acquired on its first invocation.
+     */
+    private static String accessorClass(Object member, String field) throws ReflectiveOperationException {
+        Field f = member.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        return f.get(member).getClass().getName();
+    }
+
+    public static class Target {
+        final String name;
+
+        public Target() {
+            this("default");
+        }
+
+        public Target(long n) {
+            this("long " + n);
+        }
+
+        public Target(String name) {
+            if (name.isEmpty())
+                throw new IllegalStateException("empty name");
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public static long widenLong(long x) {
+            return x;
+        }
+
+        public static double widenDouble(double x) {
+            return x;
+        }
+
+        public static int narrowInt(int x) {
+            return x;
+        }
+
+        public static char toChar(char c) {
+            return c;
+        }
+
+        public static boolean not(boolean b) {
+            return !b;
+        }
+
+        public String concat(String a, Object b) {
+            return name + a + b;
+        }
+
+        public static void nothing() { }
+
+        public static void throwChecked() throws IOException {
+            throw new IOException("checked");
+        }
+
+        public static void throwUnchecked() {
+            throw new UnsupportedOperationException("unchecked");
+        }
+
+        public static void throwError() {
+            throw new AssertionError("error");
+        }
+    }
+
+    public static class BadInit {
+        static {
+            if (true)
+                throw new IllegalStateException("static init");
+        }
+
+        public static void m() { }
+    }
+
+    private static Method method(String name, Class<?>... ptypes) throws NoSuchMethodException {
+        return Target.class.getMethod(name, ptypes);
+    }
+
+    @Test
+    public void testPrimitiveWidening() throws Exception {
+        assertEquals(42L, method("widenLong", long.class).invoke(null, 42));
+        assertEquals(42L, method("widenLong", long.class).invoke(null, (byte) 42));
+        assertEquals(97L, method("widenLong", long.class).invoke(null, 'a'));
+        assertEquals(97.0, method("widenDouble", double.class).invoke(null, 'a'));
+        assertEquals(1.5, method("widenDouble", double.class).invoke(null, 1.5f));
+        assertEquals(7, method("narrowInt", int.class).invoke(null, (short) 7));
+        assertEquals('x', method("toChar", char.class).invoke(null, 'x'));
+        assertEquals(false, method("not", boolean.class).invoke(null, true));
+    }
+
+    @Test
+    public void testPrimitiveMismatch() throws Exception {
+        assertIllegalArgument(method("narrowInt", int.class), null, 7L);
+        assertIllegalArgument(method("narrowInt", int.class), null, 7.0);
+        assertIllegalArgument(method("toChar", char.class), null, (byte) 7);
+        assertIllegalArgument(method("toChar", char.class), null, (short) 7);
+        assertIllegalArgument(method("not", boolean.class), null, 1);
+        assertIllegalArgument(method("widenLong", long.class), null, true);
+        assertIllegalArgument(method("widenLong", long.class), null, "42");
+        assertIllegalArgument(method("widenLong", long.class), null, (Object) null);
+    }
+
+    @Test
+    public void testReferenceArguments() throws Exception {
+        Method concat = method("concat", String.class, Object.class);
+        Target t = new Target("t");
+        assertEquals("t-1", concat.invoke(t, "-", 1));
+        assertEquals("tnullnull", concat.invoke(t, null, null));
+        assertIllegalArgument(concat, t, 1, 1);
+        assertIllegalArgument(concat, t, "-");
+        assertIllegalArgument(concat, t, "-", 1, 2);
+        assertIllegalArgument(concat, t, (Object[]) null);
+    }
+
+    @Test
+    public void testReceiver() throws Exception {
+        Method name = method("name");
+        assertEquals("r", name.invoke(new Target("r")));
+        try {
+            name.invoke(null);
+            fail("NullPointerException expected");
+        } catch (NullPointerException expected) {
+        }
+        assertIllegalArgument(name, "not a Target");
+        // the receiver is ignored by static methods
+        assertEquals(3L, method("widenLong", long.class).invoke("ignored", 3));
+    }
+
+    @Test
+    public void testReturnValues() throws Exception {
+        assertNull(method("nothing").invoke(null));
+        assertNull(method("nothing").invoke(null, (Object[]) null));
+        Object r = method("narrowInt", int.class).invoke(null, 5);
+        assertSame(Integer.class, r.getClass());
+    }
+
+    @Test
+    public void testInvocationTargetException() throws Exception {
+        assertCause(method("throwChecked"), IOException.class, "checked");
+        assertCause(method("throwUnchecked"), UnsupportedOperationException.class, "unchecked");
+        assertCause(method("throwError"), AssertionError.class, "error");
+    }
+
+    @Test
+    public void testStaticInitError() throws Exception {
+        Method m = BadInit.class.getMethod("m");
+        try {
+            m.invoke(null);
+            fail("ExceptionInInitializerError expected");
+        } catch (ExceptionInInitializerError expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        try {
+            m.invoke(null);
+            fail("NoClassDefFoundError expected");
+        } catch (NoClassDefFoundError expected) {
+        }
+    }
+
+    @Test
+    public void testConstructor() throws Exception {
+        Constructor<Target> def = Target.class.getConstructor();
+        Constructor<Target> ofLong = Target.class.getConstructor(long.class);
+        Constructor<Target> ofName = Target.class.getConstructor(String.class);
+        assertEquals("default", def.newInstance().name());
+        assertEquals("default", def.newInstance((Object[]) null).name());
+        assertEquals("long 9", ofLong.newInstance(9).name());
+        assertEquals("long 99", ofLong.newInstance('c').name());
+        assertEquals("n", ofName.newInstance("n").name());
+        try {
+            ofLong.newInstance(1.0);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            ofName.newInstance(1);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            ofName.newInstance("");
+            fail("InvocationTargetException expected");
+        } catch (InvocationTargetException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        try {
+            ofName.newInstance((Object) null);
+            fail("InvocationTargetException expected");
+        } catch (InvocationTargetException expected) {
+            assertTrue(expected.getCause() instanceof NullPointerException);
+        }
+    }
+
+    private static void assertIllegalArgument(Method m, Object obj, Object... args) throws Exception {
+        try {
+            m.invoke(obj, args);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertCause(Method m, Class<? extends Throwable> type, String message)
+            throws Exception {
+        try {
+            m.invoke(null);
+            fail("InvocationTargetException expected");
+        } catch (InvocationTargetException expected) {
+            Throwable cause = expected.getCause();
+            assertSame(type, cause.getClass());
+            assertEquals(message, cause.getMessage());
+        }
+    }
+}
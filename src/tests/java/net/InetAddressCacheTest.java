@@ -0,0 +1,328 @@
+package tests.java.net;
+
+import org.junit.Test;
+import sun.net.InetAddressCacheMXBean;
+import sun.net.spi.nameservice.NameService;
+import tests.base.BaseTest;
+import tests.base.ForkedJvm;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * InetAddress cache expiry, negative caching, stale hits, refresh-ahead and
+ * the InetAddressCache MXBean statistics. The cache policy is read once, so
+ * each scenario runs in its own JVM with one second time-to-live values and
+ * a name service that counts its lookups.
+ */
+public class InetAddressCacheTest extends BaseTest {
+
+    private static final List<String> OPTIONS = Arrays.asList(
+            "-Dsun.net.inetaddr.ttl=1",
+            "-Dsun.net.inetaddr.negative.ttl=1",
+            "-Dsun.net.inetaddr.refreshAhead=0",
+            "-Dsun.net.inetaddr.mxbean=true");
+
+    @Test
+    public void testExpiry() throws Exception {
+        fork("expiry");
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        fork("negative");
+    }
+
+    @Test
+    public void testStaleHit() throws Exception {
+        fork("stale", "-Dsun.net.inetaddr.stale.ttl=10");
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        fork("refreshAhead", "-Dsun.net.inetaddr.ttl=2", "-Dsun.net.inetaddr.refreshAhead=60");
+    }
+
+    @Test
+    public void testConcurrentLookupsShared() throws Exception {
+        fork("shared");
+    }
+
+    private void fork(String scenario, String... options) throws Exception {
+        // later options override the defaults
+        List<String> all = new ArrayList<>(OPTIONS);
+        all.addAll(Arrays.asList(options));
+        log.info(ForkedJvm.run(InetAddressCacheTest.class, all, scenario));
+    }
+
+    public static void main(String[] args) throws Exception {
+        TestNameService ns = TestNameService.install();
+        switch (args[0]) {
+            case "expiry":       expiry(ns);       break;
+            case "negative":     negative(ns);     break;
+            case "stale":        stale(ns);        break;
+            case "refreshAhead": refreshAhead(ns); break;
+            case "shared":       shared(ns);       break;
+            default: throw new IllegalArgumentException(args[0]);
+        }
+        System.out.println(args[0] + " passed");
+    }
+
+    private static void expiry(TestNameService ns) throws Exception {
+        ns.put("a.test", 10, 0, 0, 1);
+        assertAddress(10, 0, 0, 1, InetAddress.getByName("a.test"));
+        InetAddressCacheMXBean stats = stats();
+        Snapshot before = new Snapshot(stats);
+        assertEquals(1, ns.lookups.get());
+
+        // hits within the time-to-live, regardless of case
+        ns.put("a.test", 10, 0, 0, 2);
+        assertAddress(10, 0, 0, 1, InetAddress.getByName("a.test"));
+        assertAddress(10, 0, 0, 1, InetAddress.getAllByName("A.Test")[0]);
+        assertEquals(1, ns.lookups.get());
+        assertEquals(2, stats.getHitCount() - before.hits);
+        assertEquals(0, stats.getMissCount() - before.misses);
+
+        // looked up again once expired
+        Thread.sleep(1100);
+        assertAddress(10, 0, 0, 2, InetAddress.getByName("a.test"));
+        assertEquals(2, ns.lookups.get());
+        assertEquals(1, stats.getMissCount() - before.misses);
+        assertEquals(1, stats.getLookupCount() - before.lookups);
+        assertEquals(0, stats.getStaleHitCount());
+        assertTrue(stats.getCacheSize() >= 1);
+    }
+
+    private static void negative(TestNameService ns) throws Exception {
+        InetAddress.getByName("warm.up.test");
+        InetAddressCacheMXBean stats = stats();
+        Snapshot before = new Snapshot(stats);
+
+        assertUnknown("missing.test");
+        assertEquals(1, stats.getFailedLookupCount() - before.failedLookups);
+        int lookups = ns.lookups.get();
+
+        // the failure is cached, even once the name exists
+        ns.put("missing.test", 10, 0, 0, 3);
+        assertUnknown("missing.test");
+        assertUnknown("MISSING.test");
+        try {
+            InetAddress.getAllByNameAsync("missing.test").get();
+            fail("ExecutionException expected");
+        } catch (ExecutionException expected) {
+            assertSame(UnknownHostException.class, expected.getCause().getClass());
+        }
+        assertEquals(lookups, ns.lookups.get());
+        assertEquals(1, stats.getFailedLookupCount() - before.failedLookups);
+
+        // negative entries are never returned stale
+        Thread.sleep(1100);
+        assertAddress(10, 0, 0, 3, InetAddress.getByName("missing.test"));
+        assertEquals(lookups + 1, ns.lookups.get());
+        assertEquals(0, stats.getStaleHitCount());
+    }
+
+    private static void stale(TestNameService ns) throws Exception {
+        ns.put("s.test", 10, 0, 1, 1);
+        assertAddress(10, 0, 1, 1, InetAddress.getByName("s.test"));
+        InetAddressCacheMXBean stats = stats();
+        Snapshot before = new Snapshot(stats);
+
+        // an expired entry is returned while it is refreshed
+        ns.put("s.test", 10, 0, 1, 2);
+        Thread.sleep(1100);
+        assertAddress(10, 0, 1, 1, InetAddress.getByName("s.test"));
+        assertEquals(1, stats.getStaleHitCount() - before.staleHits);
+        assertEquals(1, stats.getRefreshCount() - before.refreshes);
+        awaitAddress("s.test", 10, 0, 1, 2);
+        assertEquals(2, ns.lookups.get());
+
+        // a failed refresh keeps the stale entry
+        ns.remove("s.test");
+        Thread.sleep(1100);
+        assertAddress(10, 0, 1, 2, InetAddress.getByName("s.test"));
+        await(() -> ns.lookups.get() == 3 && stats.getLookupsInProgress() == 0);
+        assertEquals(1, stats.getFailedLookupCount() - before.failedLookups);
+        assertAddress(10, 0, 1, 2, InetAddress.getByName("s.test"));
+    }
+
+    private static void refreshAhead(TestNameService ns) throws Exception {
+        ns.put("r.test", 10, 0, 2, 1);
+        assertAddress(10, 0, 2, 1, InetAddress.getByName("r.test"));
+        InetAddressCacheMXBean stats = stats();
+        Snapshot before = new Snapshot(stats);
+
+        // early hits do not refresh
+        ns.put("r.test", 10, 0, 2, 2);
+        InetAddress.getByName("r.test");
+        InetAddress.getByName("r.test");
+        assertEquals(0, stats.getRefreshCount() - before.refreshes);
+
+        // a repeated hit in the last 60% of the time-to-live refreshes the
+        // entry before it expires
+        Thread.sleep(1000);
+        assertAddress(10, 0, 2, 1, InetAddress.getByName("r.test"));
+        assertEquals(1, stats.getRefreshCount() - before.refreshes);
+        awaitAddress("r.test", 10, 0, 2, 2);
+        assertEquals(2, ns.lookups.get());
+        assertEquals(0, stats.getMissCount() - before.misses);
+    }
+
+    private static void shared(TestNameService ns) throws Exception {
+        InetAddress.getByName("warm.up.test");
+        InetAddressCacheMXBean stats = stats();
+        Snapshot before = new Snapshot(stats);
+
+        // concurrent asynchronous lookups of a name share one query
+        ns.put("slow.test", 10, 0, 3, 1);
+        ns.block = new CountDownLatch(1);
+        CompletableFuture<InetAddress[]> f1 = InetAddress.getAllByNameAsync("slow.test");
+        CompletableFuture<InetAddress[]> f2 = InetAddress.getAllByNameAsync("SLOW.test");
+        await(() -> stats.getLookupsInProgress() == 1);
+        ns.block.countDown();
+        InetAddress[] a1 = f1.get(10, TimeUnit.SECONDS);
+        InetAddress[] a2 = f2.get(10, TimeUnit.SECONDS);
+        assertArrayEquals(a1, a2);
+        // each caller has its own array
+        assertTrue(a1 != a2);
+        assertAddress(10, 0, 3, 1, a1[0]);
+        assertEquals(1, stats.getLookupCount() - before.lookups);
+        assertEquals(0, stats.getLookupsInProgress());
+        assertTrue(stats.getTotalLookupTime() >= 0);
+
+        // and the result is cached
+        assertAddress(10, 0, 3, 1, InetAddress.getAllByNameAsync("slow.test").get()[0]);
+        assertEquals(1, stats.getLookupCount() - before.lookups);
+    }
+
+    /**
+     * Counters at the start of a scenario; the JVM may have looked up names
+     * of its own before.
+     */
+    private static final class Snapshot {
+        final long hits, staleHits, misses, refreshes, lookups, failedLookups;
+
+        Snapshot(InetAddressCacheMXBean stats) {
+            hits = stats.getHitCount();
+            staleHits = stats.getStaleHitCount();
+            misses = stats.getMissCount();
+            refreshes = stats.getRefreshCount();
+            lookups = stats.getLookupCount();
+            failedLookups = stats.getFailedLookupCount();
+        }
+    }
+
+    /**
+     * A name service that answers from a map, counts its lookups, and
+     * optionally blocks them until released.
+     */
+    static final class TestNameService implements NameService {
+        final Map<String, byte[]> names = new ConcurrentHashMap<>();
+        final AtomicInteger lookups = new AtomicInteger();
+        volatile CountDownLatch block;
+
+        @SuppressWarnings("unchecked")
+        static TestNameService install() throws ReflectiveOperationException {
+            TestNameService ns = new TestNameService();
+            Field f = InetAddress.class.getDeclaredField("nameServices");
+            f.setAccessible(true);
+            List<NameService> services = (List<NameService>) f.get(null);
+            services.clear();
+            services.add(ns);
+            return ns;
+        }
+
+        void put(String name, int a, int b, int c, int d) {
+            names.put(name, new byte[] { (byte) a, (byte) b, (byte) c, (byte) d });
+        }
+
+        void remove(String name) {
+            names.remove(name);
+        }
+
+        @Override
+        public InetAddress[] lookupAllHostAddr(String host) throws UnknownHostException {
+            lookups.incrementAndGet();
+            CountDownLatch latch = block;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new UnknownHostException(host);
+                }
+            }
+            if (host.startsWith("warm.up"))
+                return new InetAddress[] { InetAddress.getByAddress(host, new byte[4]) };
+            byte[] addr = names.get(host.toLowerCase());
+            if (addr == null)
+                throw new UnknownHostException(host);
+            return new InetAddress[] { InetAddress.getByAddress(host, addr) };
+        }
+
+        @Override
+        public String getHostByAddr(byte[] addr) throws UnknownHostException {
+            throw new UnknownHostException();
+        }
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    private static void await(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.met()) {
+            if (System.nanoTime() > deadline)
+                fail("condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitAddress(String host, int a, int b, int c, int d) throws Exception {
+        byte[] expected = { (byte) a, (byte) b, (byte) c, (byte) d };
+        await(() -> {
+            try {
+                return Arrays.equals(expected, InetAddress.getByName(host).getAddress());
+            } catch (UnknownHostException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    private static InetAddressCacheMXBean stats() throws Exception {
+        return JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName("java.net:type=InetAddressCache"), InetAddressCacheMXBean.class);
+    }
+
+    private static void assertAddress(int a, int b, int c, int d, InetAddress addr) {
+        assertArrayEquals(new byte[] { (byte) a, (byte) b, (byte) c, (byte) d }, addr.getAddress());
+    }
+
+    private static void assertUnknown(String host) {
+        try {
+            InetAddress.getByName(host);
+            fail("UnknownHostException expected for " + host);
+        } catch (UnknownHostException expected) {
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package tests.java.nio.channels;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReactorServer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * ReactorServer loopback tests: an echo server for length-prefixed frames,
+ * checking echoed content, ordering and close notification, and measuring
+ * round-trip latency and pipelined throughput
+ */
+public class ReactorServerTest extends BaseTest {
+
+    private static final int REACTORS = 2;
+    private static final int FRAME_SIZE = 128;
+    private static final int BATCH = 100;
+
+    private ReactorServer server;
+    // connections accepted and frames received by the handler
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicLong received = new AtomicLong();
+    // the cause passed to Handler.closed for each closed connection
+    private final BlockingQueue<Optional<Throwable>> closed = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = ReactorServer.builder()
+                .reactorThreads(REACTORS)
+                .frameDecoder(() -> ReactorServer.FrameDecoder.lengthPrefixed(4096))
+                .handler(new ReactorServer.Handler() {
+                    @Override
+                    public void connected(ReactorServer.Connection conn) {
+                        accepted.incrementAndGet();
+                    }
+
+                    @Override
+                    public void frameReceived(ReactorServer.Connection conn, ByteBuffer frame) {
+                        received.incrementAndGet();
+                        ByteBuffer echo = ByteBuffer.allocate(4 + frame.remaining());
+                        echo.putInt(frame.remaining()).put(frame).flip();
+                        conn.write(echo);
+                    }
+
+                    @Override
+                    public void closed(ReactorServer.Connection conn, Throwable cause) {
+                        closed.add(Optional.ofNullable(cause));
+                    }
+                })
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testEchoInOrder() throws Exception {
+        try (SocketChannel ch = connect()) {
+            ByteBuffer batch = ByteBuffer.allocate(BATCH * (4 + FRAME_SIZE));
+            for (int seq = 0; seq < BATCH; seq++)
+                batch.put(frame(seq));
+            batch.flip();
+            writeFully(ch, batch);
+            ByteBuffer in = ByteBuffer.allocate(batch.capacity());
+            readFully(ch, in);
+            for (int seq = 0; seq < BATCH; seq++)
+                checkFrame(in, seq * (4 + FRAME_SIZE), seq);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testPeerClose() throws Exception {
+        try (SocketChannel ch = connect()) {
+            roundTrip(ch, 0);
+            assertEquals(1, awaitConnections(1));
+        }
+        Optional<Throwable> cause = closed.poll(5, TimeUnit.SECONDS);
+        assertNotNull("closed not invoked", cause);
+        assertFalse("closed with " + cause, cause.isPresent());
+        assertEquals(0, awaitConnections(0));
+    }
+
+    @Test(timeout = 10000)
+    public void testServerClose() throws Exception {
+        try (SocketChannel ch = connect()) {
+            roundTrip(ch, 0);
+            server.close();
+            assertFalse(server.isOpen());
+            Optional<Throwable> cause = closed.poll(5, TimeUnit.SECONDS);
+            assertNotNull("closed not invoked", cause);
+            assertFalse("closed with " + cause, cause.isPresent());
+            assertEquals(-1, ch.read(ByteBuffer.allocate(1)));
+        }
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        try (SocketChannel ch = connect()) {
+            int rounds = 20000;
+            for (int i = 0; i < rounds / 10; i++)
+                roundTrip(ch, i);
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+                roundTrip(ch, i);
+            long elapsed = System.nanoTime() - start;
+            assertEquals(rounds + rounds / 10, received.get());
+            log.info("round-trip latency: " + (elapsed / rounds / 1000.0) + " us");
+        }
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        // more clients than reactors, so that connections are handed off
+        int clients = 2 * REACTORS + 1;
+        int frames = 50000;
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread[] threads = new Thread[clients];
+        long start = System.nanoTime();
+        for (int t = 0; t < clients; t++) {
+            threads[t] = new Thread(() -> {
+                try (SocketChannel ch = connect()) {
+                    ByteBuffer batch = ByteBuffer.allocate(BATCH * (4 + FRAME_SIZE));
+                    ByteBuffer in = ByteBuffer.allocate(batch.capacity());
+                    for (int i = 0; i < frames; i += BATCH) {
+                        batch.clear();
+                        for (int j = 0; j < BATCH; j++)
+                            batch.put(frame(i + j));
+                        batch.flip();
+                        writeFully(ch, batch);
+                        in.clear();
+                        readFully(ch, in);
+                        for (int j = 0; j < BATCH; j++)
+                            checkFrame(in, j * (4 + FRAME_SIZE), i + j);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        long elapsed = System.nanoTime() - start;
+        if (!failures.isEmpty()) {
+            Throwable first = failures.get(0);
+            for (Throwable e : failures.subList(1, failures.size()))
+                first.addSuppressed(e);
+            throw new AssertionError("client failed", first);
+        }
+        assertEquals(clients, accepted.get());
+        assertEquals((long) clients * frames, received.get());
+        assertEquals(0, awaitConnections(0));
+        double mb = (double) clients * frames * (4 + FRAME_SIZE) * 2 / (1 << 20);
+        log.info("throughput: " + (long) (clients * frames * 1e9 / elapsed)
+                + " frames/s, " + (long) (mb * 1e9 / elapsed) + " MB/s");
+    }
+
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(server.getLocalAddress());
+    }
+
+    /**
+     * Waits for the server's connection count, which is updated by the
+     * reactor threads, to reach the expected value and returns it.
+     */
+    private int awaitConnections(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int count;
+        while ((count = server.connectionCount()) != expected
+                && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        return count;
+    }
+
+    /**
+     * Returns a frame of FRAME_SIZE bytes whose content is derived from seq.
+     */
+    private static ByteBuffer frame(int seq) {
+        ByteBuffer buf = ByteBuffer.allocate(4 + FRAME_SIZE);
+        buf.putInt(FRAME_SIZE);
+        buf.putInt(seq);
+        for (int i = 4; i < FRAME_SIZE; i++)
+            buf.put((byte) (seq + i));
+        buf.flip();
+        return buf;
+    }
+
+    private static void checkFrame(ByteBuffer in, int offset, int seq) {
+        assertEquals("frame length", FRAME_SIZE, in.getInt(offset));
+        assertEquals("frame sequence", seq, in.getInt(offset + 4));
+        for (int i = 4; i < FRAME_SIZE; i++)
+            assertEquals("frame " + seq + " byte " + i, (byte) (seq + i), in.get(offset + 4 + i));
+    }
+
+    private static void roundTrip(SocketChannel ch, int seq) throws IOException {
+        writeFully(ch, frame(seq));
+        ByteBuffer in = ByteBuffer.allocate(4 + FRAME_SIZE);
+        readFully(ch, in);
+        checkFrame(in, 0, seq);
+    }
+
+    private static void writeFully(SocketChannel ch, ByteBuffer out) throws IOException {
+        while (out.hasRemaining())
+            ch.write(out);
+    }
+
+    private static void readFully(SocketChannel ch, ByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            if (ch.read(in) < 0)
+                throw new EOFException("connection closed with " + in.remaining()
+                        + " bytes outstanding");
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package tests.java.util;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Formattable;
+import java.util.FormattableFlags;
+import java.util.Formatter;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingFormatArgumentException;
+import java.util.MissingFormatWidthException;
+import java.util.TimeZone;
+import java.util.UnknownFormatConversionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Formatter.compile and Formatter.Compiled against String.format with the
+ * same locale, format and arguments: the printSimple fast path for %s, %d,
+ * %x, %n and %%, every other specifier through a bound copy, localized
+ * digits, argument indices, missing arguments, Formattable arguments and
+ * Appendable destinations
+ */
+public class FormatterTest extends BaseTest {
+
+    private static final Locale[] LOCALES = {
+        null, Locale.ROOT, Locale.US, Locale.GERMANY, Locale.FRANCE,
+        new Locale("ar", "SA"), new Locale("th", "TH", "TH"),
+        Locale.forLanguageTag("th-TH-u-nu-thai"), new Locale("hi", "IN"),
+    };
+
+    private static final Object[] INTEGERS = {
+        0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE,
+        (short) -1, Short.MIN_VALUE, (byte) -1, Byte.MIN_VALUE, (byte) 127,
+        BigInteger.valueOf(-12345), new BigInteger("123456789012345678901234567890"), null,
+    };
+
+    @Test
+    public void testSimpleSpecifiers() {
+        String[] formats = { "%s", "%d", "%x", "a%sb%dc%xd", "%d%n%x%%", "%%%n" };
+        for (Locale l : LOCALES) {
+            for (String format : formats) {
+                for (Object arg : INTEGERS)
+                    check(l, format, arg, arg, arg);
+            }
+            check(l, "%s", "string");
+            check(l, "%s %s", null, new Object());
+            check(l, "%s", new StringBuilder("builder"));
+            check(l, "%s|%d|%x", 'c', 1.5, "x");
+            check(l, "%d", 1.5);
+            check(l, "%x", "x");
+            check(l, "%s", (Object) new int[0].getClass());
+        }
+    }
+
+    @Test
+    public void testOtherSpecifiers() {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        cal.setTimeInMillis(1234567890123L);
+        Object[][] cases = {
+            { "%5s|%-5s|%.2s|%S", "abc", "abc", "abc", "abc" },
+            { "%,d|%+d|% d|%(d|%08d|%-8d|", 1234567, 1234567, 1234567, -1234567, -42, 42 },
+            { "%,d|%+d|%(d|%08d", Long.MIN_VALUE, 7L, -7L, (short) -7 },
+            { "%#x|%08X|%o|%#o", 255, -1, 8, 8L },
+            { "%x|%X|%,d", new BigInteger("-255"), new BigInteger("255"), new BigInteger("1234567") },
+            { "%f|%.3f|%e|%E|%g|%a", 1234.5678, -0.001, 1.0E10, 1.0E-10, 0.00012345, 1.0 },
+            { "%,.2f|%010.3f|%-10.1f|%+.0f", 1234567.891, -3.14159, 2.5, 2.5 },
+            { "%.3f|%,f", new BigDecimal("123.4567"), new BigDecimal("-1234567.5") },
+            { "%f|%e", Double.NaN, Double.NEGATIVE_INFINITY },
+            { "%c|%C|%c", 'a', 'b', 0x1f600 },
+            { "%b|%B|%b|%b", true, false, null, "x" },
+            { "%h|%H", "hash", 255 },
+            { "%tY-%<tm-%<td %<tH:%<tM:%<tS.%<tL %<tZ", cal },
+            { "%tB %<tA %<tb %<ta %<tp", cal },
+            { "%tF %<tT %<tD %<tr %<tc", cal },
+            { "%tQ %<ts", new Date(1234567890123L) },
+            { "%2$s %1$s %2$s %<s %s %s", "a", "b" },
+            { "%3$d %1$x %s", 10, 20, 30 },
+            { "%10d|%-10x|%10s", 5, 255, "s" },
+        };
+        for (Locale l : LOCALES) {
+            for (Object[] c : cases) {
+                Object[] args = new Object[c.length - 1];
+                System.arraycopy(c, 1, args, 0, args.length);
+                check(l, (String) c[0], args);
+            }
+        }
+    }
+
+    @Test
+    public void testLocalizedDigits() {
+        // the simple %d is skipped when the locale's zero digit is not '0'
+        Locale thai = Locale.forLanguageTag("th-TH-u-nu-thai");
+        String out = Formatter.compile(thai, "%d").format(123);
+        assertEquals(String.format(thai, "%d", 123), out);
+        assertEquals("\u0e51\u0e52\u0e53", out);
+        // %x and %s are never localized
+        assertEquals("7b 123", Formatter.compile(thai, "%x %s").format(123, 123));
+    }
+
+    @Test
+    public void testDefaultLocale() {
+        Locale saved = Locale.getDefault(Locale.Category.FORMAT);
+        Formatter.Compiled compiled;
+        try {
+            Locale.setDefault(Locale.Category.FORMAT, Locale.GERMANY);
+            compiled = Formatter.compile("%.2f %,d");
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, saved);
+        }
+        // the default locale is taken when compiling
+        assertSame(Locale.GERMANY, compiled.locale());
+        assertEquals("1,50 1.234", compiled.format(1.5, 1234));
+        assertEquals(null, Formatter.compile(null, "%s").locale());
+        assertEquals("%.2f %,d", compiled.toString());
+    }
+
+    @Test
+    public void testMissingArguments() {
+        String[][] cases = {
+            { "%s %s" }, { "%s" }, { "%2$s" }, { "%<s" }, { "%s %3$s" }, { "%d %<d %d" },
+        };
+        for (Locale l : LOCALES) {
+            for (String[] c : cases) {
+                check(l, c[0], "a");
+                check(l, c[0]);
+                check(l, c[0], 1);
+            }
+        }
+        try {
+            Formatter.compile("%s %s").format("a");
+            fail("MissingFormatArgumentException expected");
+        } catch (MissingFormatArgumentException e) {
+            assertEquals("%s", e.getFormatSpecifier());
+        }
+        // a null array is like String.format's: every argument is null
+        check(null, "%s %s %2$s", (Object[]) null);
+        check(null, "%<s", (Object[]) null);
+    }
+
+    @Test
+    public void testIllegalFormats() {
+        String[] formats = { "%q", "%-d", "%", "%.2d", "%,x", "%0s", "%5n", "%-%", "%tq" };
+        for (String format : formats) {
+            Class<?> expected = null;
+            try {
+                String.format(format, 1);
+            } catch (IllegalFormatException e) {
+                expected = e.getClass();
+            }
+            try {
+                // checked when compiling, before any argument is seen
+                Formatter.compile(format);
+                fail("IllegalFormatException expected for " + format);
+            } catch (IllegalFormatException e) {
+                if (expected != null)
+                    assertEquals(format, expected, e.getClass());
+            }
+        }
+        try {
+            Formatter.compile("%q");
+            fail("UnknownFormatConversionException expected");
+        } catch (UnknownFormatConversionException expected) {
+        }
+        try {
+            Formatter.compile("%-d");
+            fail("MissingFormatWidthException expected");
+        } catch (MissingFormatWidthException expected) {
+        }
+    }
+
+    /**
+     * Pads its name to the width, and writes the flags and precision it
+     * was given.
+     */
+    private static final class Named implements Formattable {
+        private final String name;
+
+        Named(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision) {
+            String s = name + "/" + precision
+                    + ((flags & FormattableFlags.UPPERCASE) != 0 ? "/U" : "")
+                    + ((flags & FormattableFlags.ALTERNATE) != 0 ? "/#" : "");
+            formatter.format("%" + (width > 0 ? width : "") + "s", s);
+        }
+    }
+
+    /**
+     * An Appendable that fails after the given number of appends.
+     */
+    private static final class FailingAppendable implements Appendable {
+        final StringBuilder sb = new StringBuilder();
+        int remaining;
+
+        FailingAppendable(int remaining) {
+            this.remaining = remaining;
+        }
+
+        private void count() throws IOException {
+            if (remaining-- == 0)
+                throw new IOException("full");
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            count();
+            sb.append(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            count();
+            sb.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            count();
+            sb.append(c);
+            return this;
+        }
+    }
+
+    @Test
+    public void testFormattable() {
+        for (Locale l : LOCALES) {
+            check(l, "%s|%10s|%-10.3S|%#s", new Named("a"), new Named("b"), new Named("c"), new Named("d"));
+        }
+    }
+
+    @Test
+    public void testAppendableDestinations() throws IOException {
+        Formatter.Compiled compiled = Formatter.compile(Locale.US, "%s=%d (%,.1f)%n");
+        StringBuilder sb = new StringBuilder("> ");
+        assertSame(sb, compiled.formatTo(sb, "x", 1, 1234.56));
+        assertEquals("> " + String.format(Locale.US, "%s=%d (%,.1f)%n", "x", 1, 1234.56), sb.toString());
+
+        StringBuffer buffer = new StringBuffer();
+        compiled.formatTo(buffer, "y", 2, 0.5);
+        assertEquals(String.format(Locale.US, "%s=%d (%,.1f)%n", "y", 2, 0.5), buffer.toString());
+
+        // an IOException reaches the caller, after the output before it
+        for (int n = 0; n < 4; n++) {
+            FailingAppendable a = new FailingAppendable(n);
+            try {
+                compiled.formatTo(a, "z", 3, 1.0);
+                fail("IOException expected after " + n + " appends");
+            } catch (IOException expected) {
+                assertEquals("full", expected.getMessage());
+            }
+            String full = String.format(Locale.US, "%s=%d (%,.1f)%n", "z", 3, 1.0);
+            assertEquals(a.sb.toString(), full.substring(0, a.sb.length()));
+        }
+        try {
+            compiled.formatTo((Appendable) null, "z", 3, 1.0);
+            fail("NullPointerException expected");
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        final Formatter.Compiled compiled = Formatter.compile(Locale.US, "%s-%d-%x-%,08.2f-%5s%n");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int id = t;
+                futures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        StringBuilder sb = new StringBuilder();
+                        for (int i = 0; i < 20000; i++) {
+                            sb.setLength(0);
+                            compiled.formatTo(sb, "t" + id, i, i * id, i / 7.0, id);
+                            assertEquals(String.format(Locale.US, "%s-%d-%x-%,08.2f-%5s%n",
+                                    "t" + id, i, i * id, i / 7.0, id), sb.toString());
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> f : futures)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testThroughput() {
+        Formatter.Compiled compiled = Formatter.compile(Locale.US, "id=%d name=%s hex=%x%n");
+        StringBuilder sb = new StringBuilder();
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < 200000; i++)
+                String.format(Locale.US, "id=%d name=%s hex=%x%n", i, "name", i);
+            long t1 = System.nanoTime();
+            for (int i = 0; i < 200000; i++) {
+                sb.setLength(0);
+                compiled.formatTo(sb, i, "name", i);
+            }
+            long t2 = System.nanoTime();
+            log.info("200000 formats: String.format {} ms, compiled {} ms",
+                    (t1 - t0) / 1000000, (t2 - t1) / 1000000);
+        }
+    }
+
+    /**
+     * Checks that the compiled format gives what String.format gives, or
+     * throws the same exception.
+     */
+    private static void check(Locale l, String format, Object... args) {
+        String expected;
+        try {
+            expected = String.format(l, format, args);
+        } catch (IllegalFormatException e) {
+            expected = e.getClass().getName() + ": " + e.getMessage();
+        }
+        String actual;
+        try {
+            actual = Formatter.compile(l, format).format(args);
+        } catch (IllegalFormatException e) {
+            actual = e.getClass().getName() + ": " + e.getMessage();
+        }
+        assertEquals(l + " " + format, expected, actual);
+        // again into a builder with content, through the same instance
+        Formatter.Compiled compiled;
+        try {
+            compiled = Formatter.compile(l, format);
+            StringBuilder sb = new StringBuilder("#");
+            compiled.formatTo(sb, args);
+            assertEquals(l + " " + format, "#" + expected, sb.toString());
+        } catch (IllegalFormatException e) {
+            // reported above
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package tests.java.util.jar;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.CodeSigner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The META-INF data that JarFiles opened on the same file share: the
+ * manifest and signature results found again by a second JarFile, a jar
+ * rewritten with the same size and modification time, entries of a signed
+ * jar changed after its signature results were cached, and entries of a
+ * signed jar read by several threads at once. The jars are signed with
+ * the JDK's keytool and jarsigner.
+ */
+public class JarFileCacheTest extends BaseTest {
+
+    private static final int ENTRIES = 40;
+
+    private static File keystore;
+
+    @BeforeClass
+    public static void createKey() throws Exception {
+        keystore = new File(Files.createTempDirectory("jfc").toFile(), "keys.jks");
+        tool("keytool", "-genkeypair", "-keystore", keystore.getPath(),
+                "-storepass", "changeit", "-keypass", "changeit", "-alias", "signer",
+                "-keyalg", "RSA", "-keysize", "2048", "-validity", "30",
+                "-dname", "CN=JarFileCacheTest");
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        File file = writeJar("1111", "payload");
+        sign(file);
+        try (JarFile first = new JarFile(file);
+             JarFile second = new JarFile(file)) {
+            Manifest man = first.getManifest();
+            assertEquals("1111", man.getMainAttributes().getValue("Build"));
+            readAll(first);
+
+            // the second JarFile finds what the first learnt
+            Manifest copy = second.getManifest();
+            assertSame(metaInfCache(first), metaInfCache(second));
+            assertNotSame(man, copy);
+            assertEquals(man, copy);
+            // each JarFile has a copy of its own
+            copy.getMainAttributes().putValue("Build", "changed");
+            assertEquals("1111", first.getManifest().getMainAttributes().getValue("Build"));
+            try (JarFile third = new JarFile(file)) {
+                assertEquals("1111", third.getManifest().getMainAttributes().getValue("Build"));
+            }
+
+            // and its entries are signed by the same signer
+            for (JarEntry e : Collections.list(second.entries())) {
+                if (e.getName().startsWith("META-INF/"))
+                    continue;
+                assertArrayEquals(e.getName(), content(e.getName(), "payload"), read(second, e));
+                assertSigned(second.getJarEntry(e.getName()));
+            }
+            assertEquals(signer(first.getJarEntry("e0")), signer(second.getJarEntry("e0")));
+        }
+    }
+
+    @Test
+    public void testSameSizeAndTime() throws Exception {
+        File file = writeJar("1111", "payload");
+        long time = file.lastModified();
+        // the cached data outlives the JarFile, which is closed so that
+        // the native zip library does not share its central directory
+        Object stale;
+        try (JarFile old = new JarFile(file)) {
+            assertEquals("1111", old.getManifest().getMainAttributes().getValue("Build"));
+            stale = metaInfCache(old);
+        }
+        try (JarFile again = new JarFile(file)) {
+            again.getManifest();
+            assertSame(stale, metaInfCache(again));
+        }
+
+        // stored entries of the same lengths give a file of the same
+        // size, whose manifest differs only in its CRC
+        long length = file.length();
+        writeJar("2222", "payload", file);
+        assertTrue(file.setLastModified(time));
+        assertEquals(length, file.length());
+        assertEquals(time, file.lastModified());
+        try (JarFile jf = new JarFile(file)) {
+            assertEquals("2222", jf.getManifest().getMainAttributes().getValue("Build"));
+            assertNotSame(stale, metaInfCache(jf));
+        }
+    }
+
+    @Test
+    public void testSignedEntryChanged() throws Exception {
+        File file = writeJar("1111", "payload");
+        sign(file);
+        long time = file.lastModified();
+        try (JarFile first = new JarFile(file)) {
+            readAll(first);
+
+            // an entry whose content is changed in place keeps the size
+            // and the META-INF entries, so the cached signature results
+            // are used, but the entry's digest is still checked
+            replace(file, content("e7", "payload"), content("e7", "PAYLOAD"));
+            assertTrue(file.setLastModified(time));
+            try (JarFile jf = new JarFile(file)) {
+                assertNotNull(jf.getManifest());
+                assertSame(metaInfCache(first), metaInfCache(jf));
+                assertArrayEquals(content("e6", "payload"), read(jf, jf.getJarEntry("e6")));
+                try {
+                    read(jf, jf.getJarEntry("e7"));
+                    fail("SecurityException expected");
+                } catch (SecurityException e) {
+                    log.info("changed entry: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentSignedReads() throws Exception {
+        File file = writeJar("1111", "payload");
+        sign(file);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            // a new JarFile each round, so that the threads race to set
+            // up its verifier, half of the time from cached results
+            for (int round = 0; round < 20; round++) {
+                if (round % 2 == 0)
+                    touch(file);
+                try (JarFile jf = new JarFile(file)) {
+                    CountDownLatch start = new CountDownLatch(1);
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int t = 0; t < 8; t++) {
+                        final int offset = t * 5;
+                        futures.add(pool.submit(() -> {
+                            start.await();
+                            for (int i = 0; i < ENTRIES; i++) {
+                                String name = "e" + ((i + offset) % ENTRIES);
+                                JarEntry e = jf.getJarEntry(name);
+                                assertArrayEquals(name, content(name, "payload"), read(jf, e));
+                                assertSigned(e);
+                            }
+                            return null;
+                        }));
+                    }
+                    start.countDown();
+                    for (Future<?> f : futures)
+                        f.get();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the META-INF data the JarFile shares with others.
+     */
+    private static Object metaInfCache(JarFile jf) throws ReflectiveOperationException {
+        Field f = JarFile.class.getDeclaredField("metaInfCache");
+        f.setAccessible(true);
+        Object mic = f.get(jf);
+        assertNotNull(mic);
+        return mic;
+    }
+
+    private static void assertSigned(JarEntry e) {
+        CodeSigner[] signers = e.getCodeSigners();
+        assertNotNull(e.getName(), signers);
+        assertEquals(e.getName(), 1, signers.length);
+    }
+
+    private static Object signer(JarEntry e) {
+        return e.getCodeSigners()[0].getSignerCertPath();
+    }
+
+    private static void readAll(JarFile jf) throws IOException {
+        for (JarEntry e : Collections.list(jf.entries()))
+            read(jf, e);
+    }
+
+    private static byte[] read(JarFile jf, ZipEntry e) throws IOException {
+        try (InputStream in = jf.getInputStream(e)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] b = new byte[1000];
+            int n;
+            while ((n = in.read(b)) > 0)
+                out.write(b, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] content(String name, String word) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+            sb.append(name).append(' ').append(word).append('\n');
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static File writeJar(String build, String word) throws IOException {
+        File file = File.createTempFile("jfc", ".jar");
+        file.deleteOnExit();
+        writeJar(build, word, file);
+        return file;
+    }
+
+    /**
+     * Writes a jar of stored entries, so that its size depends only on
+     * the lengths of the names and contents.
+     */
+    private static void writeJar(String build, String word, File file) throws IOException {
+        Manifest man = new Manifest();
+        man.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        man.getMainAttributes().putValue("Build", build);
+        ByteArrayOutputStream mb = new ByteArrayOutputStream();
+        man.write(mb);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            put(out, new ZipEntry("META-INF/"), new byte[0]);
+            put(out, new ZipEntry(JarFile.MANIFEST_NAME), mb.toByteArray());
+            for (int i = 0; i < ENTRIES; i++)
+                put(out, new ZipEntry("e" + i), content("e" + i, word));
+        }
+    }
+
+    private static void put(ZipOutputStream out, ZipEntry e, byte[] b) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(b, 0, b.length);
+        e.setMethod(ZipEntry.STORED);
+        e.setSize(b.length);
+        e.setCrc(crc.getValue());
+        e.setTime(0);
+        out.putNextEntry(e);
+        out.write(b);
+        out.closeEntry();
+    }
+
+    /**
+     * Overwrites the only occurrence of the given bytes in the file.
+     */
+    private static void replace(File file, byte[] from, byte[] to) throws IOException {
+        byte[] b = Files.readAllBytes(file.toPath());
+        int at = -1;
+        for (int i = 0; i + from.length <= b.length && at < 0; i++) {
+            if (Arrays.equals(from, Arrays.copyOfRange(b, i, i + from.length)))
+                at = i;
+        }
+        assertTrue(at >= 0);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(at);
+            raf.write(to);
+        }
+    }
+
+    private static void touch(File file) {
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+    }
+
+    private static void sign(File file) throws Exception {
+        tool("jarsigner", "-keystore", keystore.getPath(), "-storepass", "changeit",
+                "-keypass", "changeit", file.getPath(), "signer");
+    }
+
+    /**
+     * Runs a tool of the JDK the test runs on, from bin next to the JRE
+     * or inside it.
+     */
+    private static void tool(String name, String... args) throws Exception {
+        File home = new File(System.getProperty("java.home"));
+        File exe = new File(home, "bin/" + name);
+        if (!exe.exists())
+            exe = new File(home.getParentFile(), "bin/" + name);
+        List<String> command = new ArrayList<>();
+        command.add(exe.getPath());
+        command.addAll(Arrays.asList(args));
+        Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = p.getInputStream()) {
+            byte[] b = new byte[1000];
+            int n;
+            while ((n = in.read(b)) > 0)
+                out.write(b, 0, n);
+        }
+        assertEquals(name + ": " + out, 0, p.waitFor());
+    }
+}
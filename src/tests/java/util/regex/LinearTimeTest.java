@@ -0,0 +1,237 @@
+package tests.java.util.regex;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSet;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Matching with Pattern.LINEAR_TIME against matching by backtracking:
+ * the same matches for fixed and random patterns, loops whose body can
+ * match the empty string, inputs that backtrack catastrophically, patterns
+ * the flag rejects, and pattern sets with and without the flag
+ */
+public class LinearTimeTest extends BaseTest {
+
+    private static final String[] PATTERNS = {
+        "abc", "a*b", "a*?b", "(a|b)*c", "(a|ab)(c|bcd)(d*)", "[a-c]+?c",
+        "(a*)*b", "(a?)*", "(a|)+", "(a*)+?b", "((a)|b)*", "(a*|b*)*c",
+        "(?:a?b?)*c", "(a?){3}a{3}", "x(a*)*y|z", "^(a+)+$", "\\bab\\b",
+        "(?i)AB+", "(?m)^a$", "a{2,4}", "(ab){0,2}a", ".*c", "[^a]*",
+    };
+
+    private static final String[] INPUTS = {
+        "", "a", "b", "c", "ab", "abc", "aab", "aabc", "abcd", "aaa",
+        "abab", "baba", "xaay", "z", "a\na", "AbB", "aaaaaa", "ab ab",
+    };
+
+    @Test
+    public void testSameMatches() {
+        for (String re : PATTERNS) {
+            for (String input : INPUTS)
+                check(re, input);
+        }
+    }
+
+    @Test
+    public void testSameMatchesRandom() {
+        String[] atoms = { "a", "b", ".", "[ab]", "\\b", "^", "$", "()", "(a)", "(a|)", "(b?)" };
+        String[] quantifiers = { "", "", "*", "+", "?", "*?", "{2}", "{1,3}" };
+        Random random = new Random(3);
+        for (int n = 0; n < 3000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int parts = 1 + random.nextInt(4);
+            for (int k = 0; k < parts; k++) {
+                String atom = atoms[random.nextInt(atoms.length)];
+                if (random.nextInt(4) == 0)
+                    atom = "(" + atom + atoms[random.nextInt(atoms.length)] + ")";
+                sb.append(atom).append(quantifiers[random.nextInt(quantifiers.length)]);
+                if (random.nextInt(6) == 0)
+                    sb.append('|');
+            }
+            String re = sb.toString();
+            for (int k = 0; k < 5; k++) {
+                char[] input = new char[random.nextInt(6)];
+                for (int i = 0; i < input.length; i++)
+                    input[i] = "ab ".charAt(random.nextInt(3));
+                checkMatches(re, new String(input));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyIterations() {
+        // the last iteration that matches nothing keeps the group
+        assertGroup("(a?)*", "aa", 1, 2, 2);
+        assertGroup("(a|)+", "aa", 1, 2, 2);
+        assertGroup("(a*)*", "aa", 1, 2, 2);
+        assertGroup("(a*)*b", "aab", 1, 2, 2);
+        assertGroup("(a?)*", "", 1, 0, 0);
+        // a loop is not entered again at the index where an iteration began
+        assertGroup("(a?)*?b", "ab", 1, 0, 1);
+        assertGroup("((a)|b)*", "ab", 2, 0, 1);
+    }
+
+    @Test
+    public void testCatastrophicPatterns() {
+        String[] patterns = { "(a*)*b", "(a|a)*b", "(a|)+b", "(a+a+)+b", "(.*a){12}b" };
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            sb.append('a');
+        sb.append('c');
+        String input = sb.toString();
+        for (String re : patterns) {
+            Pattern p = Pattern.compile(re, Pattern.LINEAR_TIME);
+            long start = System.nanoTime();
+            assertFalse(p.matcher(input).matches());
+            assertFalse(p.matcher(input).find());
+            long millis = (System.nanoTime() - start) / 1000000;
+            log.info("{} on {} chars: {} ms", re, input.length(), millis);
+            assertTrue(re + " took " + millis + " ms", millis < 10000);
+        }
+    }
+
+    @Test
+    public void testRejected() {
+        String[] patterns = {
+            "(a)\\1", "a(?=b)", "a(?!b)", "(?<=a)b", "(?<!a)b", "(?>a*)b",
+            "a*+b", "a++", "a?+", "\\R", "(?:a{1000}){1000}",
+        };
+        for (String re : patterns) {
+            try {
+                Pattern.compile(re, Pattern.LINEAR_TIME);
+                fail("PatternSyntaxException expected for " + re);
+            } catch (PatternSyntaxException e) {
+                assertEquals(re, e.getPattern());
+            }
+            // without the flag they still compile
+            Pattern.compile(re);
+        }
+        try {
+            PatternSet.compile(Pattern.LINEAR_TIME, "a", "(a)\\1");
+            fail("PatternSyntaxException expected");
+        } catch (PatternSyntaxException e) {
+        }
+    }
+
+    @Test
+    public void testPatternSet() {
+        String[] regexes = { "ab+c", "(a*)*d", "x|y", "^q", "z$", "(a)\\1", "b(?=c)" };
+        PatternSet set = PatternSet.compile(regexes);
+        assertEquals(regexes.length, set.size());
+        String[] inputs = { "", "abc", "aad", "xq", "qz", "aa", "bc", "abbbc aa", "zq" };
+        for (String input : inputs) {
+            BitSet expected = new BitSet();
+            for (int i = 0; i < regexes.length; i++) {
+                if (Pattern.compile(regexes[i]).matcher(input).find())
+                    expected.set(i);
+            }
+            assertEquals(input, expected, set.find(input));
+            assertEquals(input, !expected.isEmpty(), set.findAny(input));
+        }
+
+        // patterns that need backtracking are searched for one by one
+        PatternSet fallback = PatternSet.of(Pattern.compile("(a)\\1"), Pattern.compile("b(?=c)"));
+        assertEquals(bits(0), fallback.find("aa"));
+        assertEquals(bits(1), fallback.find("bc"));
+        assertFalse(fallback.findAny("ab"));
+
+        PatternSet linear = PatternSet.compile(Pattern.LINEAR_TIME, "(a*)*b", "(a|)+c");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            sb.append('a');
+        assertEquals(new BitSet(), linear.find(sb));
+        assertEquals(bits(1), linear.find(sb.append('c')));
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet b = new BitSet();
+        for (int i : indices)
+            b.set(i);
+        return b;
+    }
+
+    private static void assertGroup(String re, String input, int group, int start, int end) {
+        Matcher m = Pattern.compile(re, Pattern.LINEAR_TIME).matcher(input);
+        assertTrue(re, m.find());
+        assertEquals(re + " start(" + group + ")", start, m.start(group));
+        assertEquals(re + " end(" + group + ")", end, m.end(group));
+        Matcher b = Pattern.compile(re).matcher(input);
+        assertTrue(b.find());
+        assertEquals(b.start(group), m.start(group));
+        assertEquals(b.end(group), m.end(group));
+    }
+
+    /**
+     * Checks that matches, lookingAt and find give the same results and the
+     * same groups with and without the flag.
+     */
+    private static void check(String re, String input) {
+        Matcher b = Pattern.compile(re).matcher(input);
+        Matcher l = Pattern.compile(re, Pattern.LINEAR_TIME).matcher(input);
+        String where = re + " on '" + input + "'";
+        assertEquals(where, b.matches(), l.matches());
+        if (b.matches())
+            assertGroups(where, b, l);
+        assertEquals(where, b.lookingAt(), l.lookingAt());
+        if (b.lookingAt())
+            assertGroups(where, b, l);
+        b.reset();
+        l.reset();
+        while (true) {
+            boolean found = b.find();
+            assertEquals(where, found, l.find());
+            if (!found)
+                break;
+            assertGroups(where, b, l);
+        }
+    }
+
+    /**
+     * Checks group 0 only, since a group of a random pattern may keep a
+     * value from an attempt that was given up when backtracking.
+     */
+    private static void checkMatches(String re, String input) {
+        Pattern lp;
+        try {
+            lp = Pattern.compile(re, Pattern.LINEAR_TIME);
+        } catch (PatternSyntaxException e) {
+            return;
+        }
+        Matcher b = Pattern.compile(re).matcher(input);
+        Matcher l = lp.matcher(input);
+        String where = re + " on '" + input + "'";
+        assertEquals(where, b.matches(), l.matches());
+        assertEquals(where, b.lookingAt(), l.lookingAt());
+        if (b.lookingAt())
+            assertEquals(where, b.end(), l.end());
+        b.reset();
+        l.reset();
+        while (true) {
+            boolean found = b.find();
+            assertEquals(where, found, l.find());
+            if (!found)
+                break;
+            assertEquals(where, b.start(), l.start());
+            assertEquals(where, b.end(), l.end());
+        }
+    }
+
+    private static void assertGroups(String where, Matcher b, Matcher l) {
+        assertEquals(where, b.groupCount(), l.groupCount());
+        for (int g = 0; g <= b.groupCount(); g++) {
+            assertEquals(where + " start(" + g + ")", b.start(g), l.start(g));
+            assertEquals(where + " end(" + g + ")", b.end(g), l.end(g));
+        }
+    }
+}
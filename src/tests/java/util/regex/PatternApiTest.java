@@ -0,0 +1,230 @@
+package tests.java.util.regex;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pattern.matches(CharSequence, int, int) against a matcher over a region,
+ * splitAsSpliterator against split and splitAsStream, and
+ * Matcher.replaceAll(String, Appendable) against replaceAll(String)
+ */
+public class PatternApiTest extends BaseTest {
+
+    private static final String[] PATTERNS = {
+        "a", "a*", "b+", "", ",", "\\s*,\\s*", "(a)(b)?", "^a", "a$", "\\b",
+        "(?m)^", "x|", "[ab]{2}", "(?<n>a)b",
+    };
+
+    private static final String[] INPUTS = {
+        "", "a", "b", "ab", "aab", "ba", "a,b , c", ",,a,,", "  ,", "abab",
+        "a\nb\na", "xax", "bbb",
+    };
+
+    @Test
+    public void testMatchesRange() {
+        for (String re : PATTERNS) {
+            Pattern p = Pattern.compile(re);
+            for (String input : INPUTS) {
+                for (int start = 0; start <= input.length(); start++) {
+                    for (int end = start; end <= input.length(); end++) {
+                        boolean expected = p.matcher(input).region(start, end).matches();
+                        assertEquals(re + " on '" + input + "' [" + start + "," + end + ")",
+                                expected, p.matches(input, start, end));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesRangeBounds() {
+        Pattern p = Pattern.compile("a*");
+        int[][] bad = { { -1, 1 }, { 0, 4 }, { 2, 1 }, { 4, 4 } };
+        for (int[] range : bad) {
+            try {
+                p.matches("aaa", range[0], range[1]);
+                fail("IndexOutOfBoundsException expected for " + Arrays.toString(range));
+            } catch (IndexOutOfBoundsException e) {
+            }
+        }
+        // a failed call leaves the pattern usable
+        assertTrue(p.matches("aaa", 0, 3));
+        assertTrue(p.matches(new StringBuilder("xaax"), 1, 3));
+        assertFalse(p.matches(new StringBuilder("xaax"), 0, 3));
+    }
+
+    @Test
+    public void testMatchesRangeConcurrent() throws Exception {
+        final Pattern p = Pattern.compile("(\\d+)-(\\d+)");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int seed = t;
+                futures.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int n = 0; n < 20000; n++) {
+                        String input = "x" + random.nextInt(1000) + (random.nextBoolean() ? "-" : "+")
+                                + random.nextInt(1000) + "y";
+                        boolean expected = input.contains("-");
+                        assertEquals(input, expected, p.matches(input, 1, input.length() - 1));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSplitAsSpliterator() {
+        for (String re : PATTERNS) {
+            Pattern p = Pattern.compile(re);
+            for (String input : INPUTS) {
+                List<String> expected = Arrays.asList(p.split(input));
+                if (input.isEmpty()) {
+                    // split gives the input itself, splitAsStream nothing
+                    expected = new ArrayList<>();
+                }
+                assertEquals(re + " on '" + input + "'",
+                        expected, p.splitAsStream(input).collect(Collectors.toList()));
+                assertEquals(re + " on '" + input + "'", expected, spliteratorElements(p, input));
+            }
+        }
+    }
+
+    @Test
+    public void testSplitAsSpliteratorViews() {
+        Pattern p = Pattern.compile(",");
+        StringBuilder input = new StringBuilder("one,two,,three");
+        Spliterator<CharSequence> s = p.splitAsSpliterator(input);
+        assertTrue((s.characteristics() & Spliterator.ORDERED) != 0);
+        assertTrue((s.characteristics() & Spliterator.NONNULL) != 0);
+        List<CharSequence> elements = new ArrayList<>();
+        s.forEachRemaining(elements::add);
+        assertEquals(4, elements.size());
+        CharSequence first = elements.get(0);
+        assertEquals("one", first.toString());
+        assertEquals(3, first.length());
+        assertEquals('n', first.charAt(1));
+        assertEquals("ne", first.subSequence(1, 3).toString());
+        assertEquals("", elements.get(2).toString());
+        assertEquals("three", elements.get(3).toString());
+        if (first instanceof CharBuffer)
+            assertTrue(((CharBuffer) first).isReadOnly());
+
+        // elements are found as they are consumed
+        s = p.splitAsSpliterator("a,b");
+        assertTrue(s.tryAdvance(e -> assertEquals("a", e.toString())));
+        assertTrue(s.tryAdvance(e -> assertEquals("b", e.toString())));
+        assertFalse(s.tryAdvance(e -> fail()));
+        try {
+            p.splitAsSpliterator("a").tryAdvance(null);
+            fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+        }
+    }
+
+    @Test
+    public void testReplaceAllToAppendable() throws IOException {
+        String[] replacements = { "", "-", "[$0]", "$1", "\\$", "<${n}>" };
+        for (String re : PATTERNS) {
+            Pattern p = Pattern.compile(re);
+            for (String input : INPUTS) {
+                for (String replacement : replacements) {
+                    String expected;
+                    try {
+                        expected = p.matcher(input).replaceAll(replacement);
+                    } catch (RuntimeException e) {
+                        // the same exception, whatever was appended
+                        try {
+                            p.matcher(input).replaceAll(replacement, new StringBuilder());
+                            fail(e + " expected for " + re + " with " + replacement);
+                        } catch (RuntimeException e2) {
+                            assertEquals(e.getClass(), e2.getClass());
+                        }
+                        continue;
+                    }
+                    StringBuilder sb = new StringBuilder("prefix:");
+                    Matcher m = p.matcher(input);
+                    m.replaceAll(replacement, sb);
+                    assertEquals(re + " on '" + input + "' with " + replacement,
+                            "prefix:" + expected, sb.toString());
+                    StringWriter w = new StringWriter();
+                    m.replaceAll(replacement, w);
+                    assertEquals(expected, w.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReplaceAllToAppendableResets() throws IOException {
+        Matcher m = Pattern.compile("a").matcher("banana");
+        assertTrue(m.find());
+        assertTrue(m.find());
+        StringBuilder sb = new StringBuilder();
+        m.replaceAll("o", sb);
+        assertEquals("bonono", sb.toString());
+        try {
+            m.replaceAll(null, sb);
+            fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+        }
+        try {
+            m.replaceAll("o", null);
+            fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+        }
+    }
+
+    @Test
+    public void testReplaceAllToFailingAppendable() {
+        Appendable broken = new Appendable() {
+            public Appendable append(CharSequence csq) throws IOException {
+                throw new IOException("broken");
+            }
+            public Appendable append(CharSequence csq, int start, int end) throws IOException {
+                throw new IOException("broken");
+            }
+            public Appendable append(char c) throws IOException {
+                throw new IOException("broken");
+            }
+        };
+        try {
+            Pattern.compile("a").matcher("banana").replaceAll("o", broken);
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+    }
+
+    private static List<String> spliteratorElements(Pattern p, CharSequence input) {
+        List<String> elements = new ArrayList<>();
+        p.splitAsSpliterator(input).forEachRemaining(e -> elements.add(e.toString()));
+        return elements;
+    }
+}
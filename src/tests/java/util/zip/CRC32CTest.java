@@ -0,0 +1,243 @@
+package tests.java.util.zip;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * CRC32C against the standard check value and a bitwise reference, through
+ * every update method, and the default Checksum.update(ByteBuffer), and
+ * the throughput of CRC32C, CRC32 and Adler32 over heap and direct buffers
+ */
+public class CRC32CTest extends BaseTest {
+
+    // CRC-32C of the ASCII bytes "123456789"
+    private static final long CHECK = 0xE3069283L;
+
+    private static final byte[] DIGITS = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void testCheckValue() {
+        CRC32C crc = new CRC32C();
+        crc.update(DIGITS);
+        assertEquals(CHECK, crc.getValue());
+
+        crc.reset();
+        for (byte b : DIGITS)
+            crc.update(b);
+        assertEquals(CHECK, crc.getValue());
+
+        crc.reset();
+        crc.update(DIGITS, 0, 4);
+        crc.update(DIGITS, 4, 5);
+        assertEquals(CHECK, crc.getValue());
+
+        crc.reset();
+        assertEquals(0L, crc.getValue());
+    }
+
+    @Test
+    public void testReference() {
+        // every length around the eight byte stride, at every alignment
+        byte[] data = data(64);
+        for (int off = 0; off < 8; off++) {
+            for (int len = 0; off + len <= data.length; len++) {
+                CRC32C crc = new CRC32C();
+                crc.update(data, off, len);
+                assertEquals("off " + off + " len " + len, reference(data, off, len), crc.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testOffsetLength() {
+        CRC32C crc = new CRC32C();
+        crc.update(DIGITS, 0, 0);
+        crc.update(DIGITS, DIGITS.length, 0);
+        crc.update(new byte[0], 0, 0);
+        assertEquals(0L, crc.getValue());
+
+        assertOutOfBounds(crc, -1, 1);
+        assertOutOfBounds(crc, 0, -1);
+        assertOutOfBounds(crc, 0, DIGITS.length + 1);
+        assertOutOfBounds(crc, DIGITS.length, 1);
+        assertOutOfBounds(crc, 1, Integer.MAX_VALUE);
+        assertOutOfBounds(crc, Integer.MAX_VALUE, 1);
+        // a failed update leaves the checksum unchanged
+        assertEquals(0L, crc.getValue());
+
+        try {
+            crc.update(null, 0, 0);
+            fail("NullPointerException expected");
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void testByteBuffers() {
+        byte[] data = data(1000);
+        long expected = reference(data, 3, 990);
+        ByteBuffer heap = ByteBuffer.wrap(data);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        ByteBuffer[] buffers = {
+            heap, direct, heap.asReadOnlyBuffer(), direct.asReadOnlyBuffer(),
+            // a slice, so that the backing array has a non-zero offset
+            ((ByteBuffer) heap.duplicate().position(1)).slice()
+        };
+        for (ByteBuffer buf : buffers) {
+            int base = data.length - buf.capacity();
+            buf.limit(993 - base).position(3 - base);
+            CRC32C crc = new CRC32C();
+            crc.update(buf);
+            assertEquals(buf.toString(), expected, crc.getValue());
+            assertEquals(buf.limit(), buf.position());
+            assertEquals(993 - base, buf.limit());
+
+            // nothing remaining
+            crc.update(buf);
+            assertEquals(buf.toString(), expected, crc.getValue());
+        }
+    }
+
+    @Test
+    public void testDefaultUpdateByteBuffer() {
+        byte[] data = data(10000);
+        long expected = reference(data, 5, 9990);
+        ByteBuffer heap = ByteBuffer.wrap(data);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        for (ByteBuffer buf : new ByteBuffer[] { heap, direct, heap.asReadOnlyBuffer() }) {
+            buf.limit(9995).position(5);
+            Checksum crc = new ArrayOnly();
+            crc.update(buf);
+            assertEquals(buf.toString(), expected, crc.getValue());
+            assertEquals(9995, buf.position());
+            assertEquals(9995, buf.limit());
+        }
+    }
+
+    @Test
+    public void testLargeBuffers() {
+        // large inputs at odd offsets, so that the eight byte loop runs
+        // long and the head and tail are both non-empty
+        Random random = new Random(7);
+        for (int n = 0; n < 20; n++) {
+            byte[] data = new byte[1 + random.nextInt(1 << 20)];
+            random.nextBytes(data);
+            int off = random.nextInt(Math.min(data.length, 16));
+            int len = data.length - off - random.nextInt(Math.min(data.length - off, 16) + 1);
+            long expected = reference(data, off, len);
+
+            CRC32C crc = new CRC32C();
+            crc.update(data, off, len);
+            assertEquals("len " + len, expected, crc.getValue());
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+            direct.put(data).limit(off + len).position(off);
+            crc.reset();
+            crc.update(direct);
+            assertEquals("direct len " + len, expected, crc.getValue());
+        }
+    }
+
+    @Test
+    public void testThroughput() {
+        int[] sizes = { 64, 4 * 1024, 1024 * 1024 };
+        int total = 64 * 1024 * 1024;
+        Checksum[] checksums = { new CRC32C(), new CRC32(), new Adler32() };
+        for (int size : sizes) {
+            byte[] data = data(size);
+            ByteBuffer heap = ByteBuffer.wrap(data);
+            ByteBuffer direct = ByteBuffer.allocateDirect(size);
+            direct.put(data).flip();
+            for (int round = 0; round < 3; round++) {
+                StringBuilder sb = new StringBuilder();
+                for (Checksum c : checksums) {
+                    long heapNanos = time(c, heap, total / size);
+                    long directNanos = time(c, direct, total / size);
+                    sb.append(String.format(" %s heap %d MB/s direct %d MB/s,", c.getClass().getSimpleName(),
+                            mbPerSecond(total, heapNanos), mbPerSecond(total, directNanos)));
+                }
+                log.info("{} byte buffers:{}", size, sb.substring(0, sb.length() - 1));
+            }
+        }
+    }
+
+    /**
+     * Updates the checksum with the whole buffer the given number of times.
+     */
+    private static long time(Checksum c, ByteBuffer buf, int times) {
+        long start = System.nanoTime();
+        for (int i = 0; i < times; i++) {
+            buf.clear();
+            c.update(buf);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long mbPerSecond(long bytes, long nanos) {
+        return bytes * 1000000000L / Math.max(nanos, 1) / (1024 * 1024);
+    }
+
+    /**
+     * A checksum that implements only the array update, so that the
+     * default update(ByteBuffer) is used.
+     */
+    private static final class ArrayOnly implements Checksum {
+        private final CRC32C crc = new CRC32C();
+
+        public void update(int b) {
+            crc.update(b);
+        }
+
+        public void update(byte[] b, int off, int len) {
+            crc.update(b, off, len);
+        }
+
+        public long getValue() {
+            return crc.getValue();
+        }
+
+        public void reset() {
+            crc.reset();
+        }
+    }
+
+    private static void assertOutOfBounds(CRC32C crc, int off, int len) {
+        try {
+            crc.update(DIGITS, off, len);
+            fail("ArrayIndexOutOfBoundsException expected for off " + off + " len " + len);
+        } catch (ArrayIndexOutOfBoundsException expected) {
+        }
+    }
+
+    /**
+     * Bit at a time CRC-32C, with the reflected Castagnoli polynomial.
+     */
+    private static long reference(byte[] b, int off, int len) {
+        int crc = 0xFFFFFFFF;
+        for (int i = off; i < off + len; i++) {
+            crc ^= b[i] & 0xff;
+            for (int k = 0; k < 8; k++)
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82F63B78 : crc >>> 1;
+        }
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,190 @@
+package tests.java.util.zip;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Deflater and Inflater with ByteBuffer input and output: round trips through
+ * heap and direct buffers larger than the internal staging arrays
+ */
+public class DeflaterTest extends BaseTest {
+
+    private static final int SIZE = 100000;
+
+    @Test
+    public void testDirectInputFinish() throws DataFormatException {
+        byte[] data = data(SIZE);
+        ByteBuffer in = ByteBuffer.allocateDirect(SIZE);
+        in.put(data).flip();
+
+        Deflater def = new Deflater();
+        def.setInput(in);
+        def.finish();
+        ByteBuffer out = ByteBuffer.allocate(SIZE * 2);
+        while (!def.finished())
+            def.deflate(out);
+        out.flip();
+
+        assertEquals(SIZE, def.getBytesRead());
+        assertFalse(in.hasRemaining());
+        assertArrayEquals(data, inflate(out, SIZE));
+        def.end();
+    }
+
+    @Test
+    public void testDirectInputSmallOutput() throws DataFormatException {
+        byte[] data = data(SIZE);
+        ByteBuffer in = ByteBuffer.allocateDirect(SIZE);
+        in.put(data).flip();
+
+        Deflater def = new Deflater();
+        def.setInput(in);
+        def.finish();
+        ByteBuffer out = ByteBuffer.allocate(SIZE * 2);
+        byte[] chunk = new byte[100];
+        while (!def.finished()) {
+            int n = def.deflate(chunk);
+            out.put(chunk, 0, n);
+        }
+        out.flip();
+
+        assertEquals(SIZE, def.getBytesRead());
+        assertArrayEquals(data, inflate(out, SIZE));
+        def.end();
+    }
+
+    @Test
+    public void testDirectInputSyncFlush() throws DataFormatException {
+        byte[] data = data(SIZE);
+        ByteBuffer in = ByteBuffer.allocateDirect(SIZE);
+        in.put(data).flip();
+
+        Deflater def = new Deflater();
+        def.setInput(in);
+        ByteBuffer out = ByteBuffer.allocateDirect(SIZE * 2);
+        int n;
+        do {
+            n = def.deflate(out, Deflater.SYNC_FLUSH);
+        } while (n > 0 && out.hasRemaining());
+        out.flip();
+
+        // everything given so far can be inflated without finishing
+        assertEquals(SIZE, def.getBytesRead());
+        assertTrue(def.needsInput());
+        Inflater inf = new Inflater();
+        inf.setInput(out);
+        ByteBuffer result = ByteBuffer.allocate(SIZE);
+        while (result.hasRemaining() && inf.inflate(result) > 0)
+            ;
+        assertArrayEquals(data, result.array());
+        inf.end();
+        def.end();
+    }
+
+    @Test
+    public void testHeapRoundTrip() throws DataFormatException {
+        byte[] data = data(SIZE);
+        Deflater def = new Deflater();
+        def.setInput(ByteBuffer.wrap(data));
+        def.finish();
+        ByteBuffer out = ByteBuffer.allocateDirect(SIZE * 2);
+        while (!def.finished())
+            def.deflate(out);
+        out.flip();
+        assertEquals(SIZE, def.getBytesRead());
+        assertArrayEquals(data, inflate(out, SIZE));
+        def.end();
+    }
+
+    @Test
+    public void testDirectInflateAcrossStaging() throws DataFormatException {
+        // around and across the 8 KB arrays that stage direct buffers
+        int[] sizes = { 8191, 8192, 8193, 3 * 8192 + 1, SIZE };
+        int[] chunks = { 1000, 8191, 8192, 8193, 20000, Integer.MAX_VALUE };
+        byte[] trailer = { 't', 'r', 'a', 'i', 'l' };
+        Random rnd = new Random(7);
+        for (int size : sizes) {
+            byte[] text = data(size);
+            byte[] noise = new byte[size];
+            rnd.nextBytes(noise);
+            for (byte[] data : new byte[][] { text, noise }) {
+                byte[] compressed = deflate(data);
+                for (int chunk : chunks) {
+                    String where = "size " + size + " chunk " + chunk;
+                    ByteBuffer in = ByteBuffer.allocateDirect(compressed.length + trailer.length);
+                    in.put(compressed).put(trailer).flip();
+                    ByteBuffer out = ByteBuffer.allocateDirect(size);
+                    Inflater inf = new Inflater();
+                    inf.setInput(in);
+                    while (!inf.finished()) {
+                        // a window of at most chunk bytes of the output
+                        out.limit((int) Math.min(out.capacity(), (long) out.position() + chunk));
+                        int n = inf.inflate(out);
+                        assertTrue(where, n > 0 || inf.finished());
+                    }
+                    assertEquals(where, size, out.position());
+                    assertEquals(where, size, inf.getBytesWritten());
+                    assertEquals(where, compressed.length, inf.getBytesRead());
+                    // the input is left just past the compressed data
+                    assertEquals(where, compressed.length, in.position());
+                    assertEquals(where, trailer.length, inf.getRemaining());
+                    inf.end();
+                    out.flip();
+                    byte[] b = new byte[size];
+                    out.get(b);
+                    assertArrayEquals(where, data, b);
+                }
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater def = new Deflater();
+        def.setInput(data);
+        def.finish();
+        byte[] out = new byte[data.length + data.length / 100 + 64];
+        int n = 0;
+        while (!def.finished())
+            n += def.deflate(out, n, out.length - n);
+        def.end();
+        return Arrays.copyOf(out, n);
+    }
+
+    private static byte[] inflate(ByteBuffer compressed, int size)
+            throws DataFormatException {
+        Inflater inf = new Inflater();
+        inf.setInput(compressed);
+        ByteBuffer result = ByteBuffer.allocateDirect(size + 1);
+        while (!inf.finished()) {
+            if (inf.inflate(result) == 0 && (inf.needsInput() || inf.needsDictionary()))
+                break;
+        }
+        assertTrue(inf.finished());
+        inf.end();
+        result.flip();
+        byte[] b = new byte[result.remaining()];
+        result.get(b);
+        return b;
+    }
+
+    private static byte[] data(int size) {
+        // compressible, but not trivially so
+        Random rnd = new Random(42);
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++)
+            b[i] = (byte) ('a' + rnd.nextInt(8));
+        return b;
+    }
+}
@@ -0,0 +1,290 @@
+package tests.java.util.zip;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.GZIPSeekableChannel;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * GZIPSeekableChannel against the uncompressed data: sequential and random
+ * reads into heap and direct buffers, files written with sync flushes,
+ * files of several members with empty members and trailing data, and
+ * indexes saved and loaded again. Every checkpoint must be at a byte
+ * boundary.
+ */
+public class GZIPSeekableChannelTest extends BaseTest {
+
+    private static final int SPAN = 64 * 1024;
+
+    @Test
+    public void testPlain() throws IOException {
+        byte[] data = lines(new Random(1), 40000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        File file = write(bytes.toByteArray());
+        try (GZIPSeekableChannel ch = open(file)) {
+            // the blocks of an unflushed stream seldom end on a byte
+            // boundary, so there may be no checkpoint but the first
+            int n = checkByteAligned(ch.index());
+            log.info("{} bytes, {} checkpoints", data.length, n);
+            checkReads(ch, data, new Random(2));
+        }
+    }
+
+    @Test
+    public void testSyncFlushed() throws IOException {
+        byte[] data = lines(new Random(3), 40000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes, true)) {
+            int lines = 0;
+            for (int i = 0; i < data.length; i++) {
+                out.write(data[i]);
+                if (data[i] == '\n' && ++lines % 10 == 0)
+                    out.flush();
+            }
+        }
+        File file = write(bytes.toByteArray());
+        try (GZIPSeekableChannel ch = open(file)) {
+            // a sync flush ends with an empty stored block, so the next
+            // block starts on a byte boundary and a checkpoint follows
+            // every span closely
+            int n = checkByteAligned(ch.index());
+            log.info("{} bytes, {} checkpoints", data.length, n);
+            assertTrue(n >= data.length / (SPAN + 2048));
+            checkReads(ch, data, new Random(4));
+        }
+    }
+
+    @Test
+    public void testMultiMember() throws IOException {
+        Random random = new Random(5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        int[] lineCounts = { 3000, 0, 1, 20000, 0, 5000 };
+        for (int k = 0; k < lineCounts.length; k++) {
+            byte[] data = lines(random, lineCounts[k]);
+            all.write(data);
+            // members alternately sync flushed
+            GZIPOutputStream out = new GZIPOutputStream(new NoClose(bytes), k % 2 == 0);
+            for (int i = 0; i < data.length; i += 700) {
+                out.write(data, i, Math.min(700, data.length - i));
+                if (k % 2 == 0)
+                    out.flush();
+            }
+            out.close();
+        }
+        // trailing data that is not a gzip member is ignored
+        bytes.write(new byte[] { 0, 1, 2, 3 });
+        byte[] data = all.toByteArray();
+        File file = write(bytes.toByteArray());
+        try (GZIPSeekableChannel ch = open(file)) {
+            int n = checkByteAligned(ch.index());
+            assertTrue(n >= lineCounts.length);
+            checkReads(ch, data, new Random(6));
+        }
+    }
+
+    @Test
+    public void testSavedIndex() throws IOException {
+        byte[] data = lines(new Random(7), 30000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes, true)) {
+            for (int i = 0; i < data.length; i += 1000) {
+                out.write(data, i, Math.min(1000, data.length - i));
+                out.flush();
+            }
+        }
+        File file = write(bytes.toByteArray());
+        GZIPSeekableChannel.Index index;
+        try (SeekableByteChannel in = Files.newByteChannel(file.toPath())) {
+            index = GZIPSeekableChannel.buildIndex(in, SPAN);
+        }
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        index.writeTo(saved);
+        GZIPSeekableChannel.Index loaded =
+            GZIPSeekableChannel.Index.readFrom(new ByteArrayInputStream(saved.toByteArray()));
+        assertEquals(index.checkpoints(), loaded.checkpoints());
+        assertEquals(data.length, loaded.uncompressedSize());
+        assertEquals(file.length(), loaded.compressedSize());
+        try (GZIPSeekableChannel ch = new GZIPSeekableChannel(
+                Files.newByteChannel(file.toPath()), loaded)) {
+            checkReads(ch, data, new Random(8));
+        }
+
+        // an index with a checkpoint within a byte is rejected
+        byte[] b = saved.toByteArray();
+        if (index.checkpoints() > 1) {
+            byte[] bad = b.clone();
+            int at = offsetOfCbits(b, 1);
+            bad[at + 7] |= 3;
+            try {
+                GZIPSeekableChannel.Index.readFrom(new ByteArrayInputStream(bad));
+                fail("ZipException expected");
+            } catch (ZipException e) {
+            }
+        }
+
+        // an index for another file is rejected
+        Files.write(file.toPath(), new byte[] { 0 }, StandardOpenOption.APPEND);
+        try {
+            new GZIPSeekableChannel(Files.newByteChannel(file.toPath()), loaded).close();
+            fail("ZipException expected");
+        } catch (ZipException e) {
+        }
+    }
+
+    private static GZIPSeekableChannel open(File file) throws IOException {
+        return new GZIPSeekableChannel(Files.newByteChannel(file.toPath()), SPAN);
+    }
+
+    /**
+     * Reads the data sequentially in pieces of random size, then from
+     * random positions, into heap and direct buffers.
+     */
+    private static void checkReads(GZIPSeekableChannel ch, byte[] data, Random random) throws IOException {
+        assertEquals(data.length, ch.size());
+        ch.position(0);
+        ByteArrayOutputStream seq = new ByteArrayOutputStream();
+        while (true) {
+            ByteBuffer buf = random.nextBoolean()
+                ? ByteBuffer.allocate(1 + random.nextInt(20000))
+                : ByteBuffer.allocateDirect(1 + random.nextInt(20000));
+            int n = ch.read(buf);
+            if (n < 0)
+                break;
+            assertEquals(n, buf.position());
+            buf.flip();
+            byte[] b = new byte[n];
+            buf.get(b);
+            seq.write(b);
+        }
+        assertArrayEquals(data, seq.toByteArray());
+        assertEquals(data.length, ch.position());
+
+        for (int k = 0; k < 200; k++) {
+            int pos = random.nextInt(data.length + 1);
+            int len = random.nextInt(3 * SPAN);
+            ch.position(pos);
+            ByteBuffer buf = (k % 2 == 0) ? ByteBuffer.allocate(len) : ByteBuffer.allocateDirect(len);
+            while (buf.hasRemaining() && ch.read(buf) > 0)
+                ;
+            buf.flip();
+            byte[] b = new byte[buf.remaining()];
+            buf.get(b);
+            int expected = Math.min(len, data.length - pos);
+            assertEquals("at " + pos, expected, b.length);
+            assertArrayEquals("at " + pos, Arrays.copyOfRange(data, pos, pos + expected), b);
+        }
+        ch.position(data.length + 10);
+        assertEquals(-1, ch.read(ByteBuffer.allocate(10)));
+    }
+
+    /**
+     * Checks through the saved form of the index that every checkpoint is
+     * at a byte boundary, and returns the number of checkpoints.
+     */
+    private static int checkByteAligned(GZIPSeekableChannel.Index index) throws IOException {
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        index.writeTo(saved);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(saved.toByteArray()));
+        in.readInt();
+        in.readInt();
+        in.readLong();
+        in.readLong();
+        in.readLong();
+        int n = in.readInt();
+        assertEquals(index.checkpoints(), n);
+        for (int i = 0; i < n; i++) {
+            in.readLong();
+            long cbit = in.readLong();
+            assertEquals("checkpoint " + i + " at bit " + cbit, 0, cbit % 8);
+            int wlen = in.readInt();
+            if (wlen > 0)
+                in.readFully(new byte[wlen]);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the offset in a saved index of the compressed offset of
+     * checkpoint i.
+     */
+    private static int offsetOfCbits(byte[] saved, int i) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(saved));
+        int off = 4 + 4 + 8 + 8 + 8 + 4;
+        in.skipBytes(off);
+        for (int k = 0; k < i; k++) {
+            in.readLong();
+            in.readLong();
+            int wlen = in.readInt();
+            off += 8 + 8 + 4;
+            if (wlen > 0) {
+                in.skipBytes(wlen);
+                off += wlen;
+            }
+        }
+        return off + 8;
+    }
+
+    /**
+     * Returns text lines of random words, compressible like a log file.
+     */
+    private static byte[] lines(Random random, int count) {
+        String[] words = { "alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta" };
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i).append(' ');
+            int n = 1 + random.nextInt(12);
+            for (int k = 0; k < n; k++)
+                sb.append(words[random.nextInt(words.length)]).append(k < n - 1 ? ' ' : '\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static File write(byte[] b) throws IOException {
+        File file = File.createTempFile("gzsc", ".gz");
+        file.deleteOnExit();
+        Files.write(file.toPath(), b);
+        return file;
+    }
+
+    /**
+     * Keeps the underlying stream open when a member is closed.
+     */
+    private static final class NoClose extends FilterOutputStream {
+        NoClose(OutputStream out) {
+            super(out);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package tests.java.util.zip;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import tests.base.BaseTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * GZIPOutputStream and ZipOutputStream compressing on a pool: round trips
+ * through GZIPInputStream and ZipInputStream for sizes around the 128 KB
+ * block and 32 KB dictionary boundaries, written in uneven pieces, entries
+ * of several compression levels on the same workers, and streams sharing
+ * one pool
+ */
+public class ParallelDeflaterTest extends BaseTest {
+
+    private static final int BLOCK = 128 * 1024;
+    private static final int DICT = 32 * 1024;
+
+    private static final int[] SIZES = {
+        0, 1, DICT - 1, DICT, DICT + 1, BLOCK - 1, BLOCK, BLOCK + 1,
+        BLOCK + DICT, 2 * BLOCK, 3 * BLOCK + 17, 10 * BLOCK - 1,
+    };
+
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws IOException {
+        Random random = new Random(1);
+        for (int size : SIZES) {
+            byte[] data = data(random, size);
+            byte[] gz = gzip(data, random);
+            assertArrayEquals("size " + size, data, gunzip(gz));
+        }
+    }
+
+    @Test
+    public void testGzipCompression() throws IOException {
+        // the blocks are primed with the end of the previous one, so
+        // compression is close to that of a single deflater
+        byte[] data = data(new Random(2), 4 * 1024 * 1024);
+        ByteArrayOutputStream seq = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(seq)) {
+            out.write(data);
+        }
+        byte[] par = gzip(data, new Random(3));
+        log.info("sequential {} bytes, parallel {} bytes", seq.size(), par.length);
+        assertTrue(par.length < seq.size() * 1.01);
+        assertArrayEquals(data, gunzip(par));
+    }
+
+    @Test
+    public void testZipRoundTrip() throws IOException {
+        Random random = new Random(4);
+        List<byte[]> contents = new ArrayList<>();
+        for (int size : SIZES)
+            contents.add(data(random, size));
+        // larger than the 4 MB that a buffered entry may hold, so that it
+        // is compressed in blocks as it is written
+        contents.add(data(random, 5 * 1024 * 1024 + 3));
+        contents.add(data(random, 100));
+
+        int[] levels = { Deflater.DEFAULT_COMPRESSION, 0, 1, 9 };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.setCompressionPool(pool);
+            for (int i = 0; i < contents.size(); i++) {
+                out.setLevel(levels[i % levels.length]);
+                ZipEntry e = new ZipEntry("e" + i);
+                if (i % 5 == 4) {
+                    byte[] d = contents.get(i);
+                    CRC32 crc = new CRC32();
+                    crc.update(d);
+                    e.setMethod(ZipEntry.STORED);
+                    e.setSize(d.length);
+                    e.setCrc(crc.getValue());
+                }
+                out.putNextEntry(e);
+                writeInPieces(out, contents.get(i), random);
+                if (i % 2 == 0)
+                    out.closeEntry();
+            }
+        }
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (int i = 0; i < contents.size(); i++) {
+                ZipEntry e = in.getNextEntry();
+                assertEquals("e" + i, e.getName());
+                assertArrayEquals(e.getName(), contents.get(i), readAll(in));
+            }
+            assertNull(in.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testStreamsSharingPool() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int seed = t;
+                futures.add(writers.submit(() -> {
+                    Random random = new Random(seed);
+                    byte[] data = data(random, 3 * BLOCK + random.nextInt(BLOCK));
+                    assertArrayEquals(data, gunzip(gzip(data, random)));
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get();
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    private static byte[] gzip(byte[] data, Random random) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes, pool)) {
+            writeInPieces(out, data, random);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] gz) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gz))) {
+            return readAll(in);
+        }
+    }
+
+    /**
+     * Writes the data in pieces of random size, some of them single bytes,
+     * so that blocks fill up in the middle of a write.
+     */
+    private static void writeInPieces(OutputStream out, byte[] data, Random random) throws IOException {
+        int off = 0;
+        while (off < data.length) {
+            if (random.nextInt(10) == 0) {
+                out.write(data[off++]);
+                continue;
+            }
+            int n = Math.min(data.length - off, 1 + random.nextInt(70000));
+            out.write(data, off, n);
+            off += n;
+        }
+    }
+
+    /**
+     * Returns compressible data: words from a small vocabulary, with some
+     * random bytes.
+     */
+    private static byte[] data(Random random, int size) {
+        String[] words = { "alpha ", "beta ", "gamma ", "delta\n", "epsilon ", "zeta " };
+        byte[] b = new byte[size];
+        int i = 0;
+        while (i < size) {
+            if (random.nextInt(20) == 0) {
+                b[i++] = (byte) random.nextInt(256);
+                continue;
+            }
+            String w = words[random.nextInt(words.length)];
+            for (int k = 0; k < w.length() && i < size; k++)
+                b[i++] = (byte) w.charAt(k);
+        }
+        return b;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[8192];
+        int n;
+        while ((n = in.read(b)) > 0)
+            out.write(b, 0, n);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,354 @@
+package tests.java.util.zip;
+
+import org.junit.Test;
+import tests.base.BaseTest;
+import tests.base.ForkedJvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ZipFile read natively and, with jdk.util.zip.pureJava, in Java: entries
+ * and their attributes, contents read whole, in pieces and concurrently,
+ * jar manifests, OPEN_DELETE, and closing the file while entry streams are
+ * open. The mode is read once, so each scenario runs in a JVM of its own
+ * for each mode, and must give the same results in both.
+ */
+public class ZipFileTest extends BaseTest {
+
+    private static final String PURE_JAVA = "jdk.util.zip.pureJava";
+
+    @Test
+    public void testEntries() throws Exception {
+        fork("entries");
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        fork("concurrent");
+    }
+
+    @Test
+    public void testOpenDelete() throws Exception {
+        fork("openDelete");
+    }
+
+    @Test
+    public void testCloseWithOpenStreams() throws Exception {
+        fork("closeWithStreams");
+    }
+
+    private void fork(String scenario) throws Exception {
+        for (String pureJava : new String[] { "false", "true" }) {
+            log.info(ForkedJvm.run(ZipFileTest.class,
+                    Arrays.asList("-D" + PURE_JAVA + "=" + pureJava), scenario));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean pureJava = Boolean.getBoolean(PURE_JAVA);
+        File file = File.createTempFile("zft", ".zip");
+        file.deleteOnExit();
+        List<Content> contents = writeZip(file);
+        switch (args[0]) {
+            case "entries":
+                try (ZipFile zf = new ZipFile(file)) {
+                    assertEquals(pureJava, readInJava(zf));
+                    entries(zf, contents);
+                }
+                jar(pureJava);
+                break;
+            case "concurrent":
+                try (ZipFile zf = new ZipFile(file)) {
+                    concurrent(zf, contents);
+                }
+                break;
+            case "openDelete":
+                try (ZipFile zf = new ZipFile(file, ZipFile.OPEN_READ | ZipFile.OPEN_DELETE)) {
+                    // read natively in both modes
+                    assertFalse(readInJava(zf));
+                    assertFalse(file.exists());
+                    entries(zf, contents);
+                }
+                break;
+            case "closeWithStreams":
+                closeWithStreams(file, contents);
+                break;
+            default:
+                throw new IllegalArgumentException(args[0]);
+        }
+        System.out.println(args[0] + (pureJava ? " in Java" : " native") + " passed");
+    }
+
+    /**
+     * An entry written to the test file, with its content.
+     */
+    private static final class Content {
+        final String name;
+        final byte[] data;
+        final int method;
+        final String comment;
+
+        Content(String name, byte[] data, int method, String comment) {
+            this.name = name;
+            this.data = data;
+            this.method = method;
+            this.comment = comment;
+        }
+    }
+
+    private static List<Content> writeZip(File file) throws IOException {
+        Random random = new Random(11);
+        byte[] noise = new byte[200000];
+        random.nextBytes(noise);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            text.append("line ").append(i).append('\n');
+
+        List<Content> contents = new ArrayList<>();
+        contents.add(new Content("dir/", new byte[0], ZipEntry.STORED, null));
+        contents.add(new Content("dir/text.txt", text.toString().getBytes(StandardCharsets.UTF_8),
+                ZipEntry.DEFLATED, "a comment"));
+        contents.add(new Content("dir/noise.bin", noise, ZipEntry.STORED, null));
+        contents.add(new Content("empty", new byte[0], ZipEntry.DEFLATED, null));
+        contents.add(new Content("\u00e9t\u00e9/caf\u00e9.txt", "caf\u00e9".getBytes(StandardCharsets.UTF_8),
+                ZipEntry.DEFLATED, null));
+        contents.add(new Content("small.txt", "small".getBytes(StandardCharsets.UTF_8),
+                ZipEntry.STORED, null));
+
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.setComment("zip comment");
+            for (Content c : contents) {
+                ZipEntry e = new ZipEntry(c.name);
+                e.setMethod(c.method);
+                e.setComment(c.comment);
+                e.setTime(1400000000000L);
+                if (c.method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(c.data);
+                    e.setCrc(crc.getValue());
+                    e.setSize(c.data.length);
+                    e.setCompressedSize(c.data.length);
+                }
+                out.putNextEntry(e);
+                out.write(c.data);
+                out.closeEntry();
+            }
+        }
+        return contents;
+    }
+
+    private static void entries(ZipFile zf, List<Content> contents) throws IOException {
+        assertEquals(contents.size(), zf.size());
+        assertEquals("zip comment", zf.getComment());
+        assertEquals(contents.size(), zf.stream().count());
+
+        Enumeration<? extends ZipEntry> en = zf.entries();
+        for (Content c : contents) {
+            assertTrue(en.hasMoreElements());
+            ZipEntry e = en.nextElement();
+            assertEquals(c.name, e.getName());
+            checkEntry(zf, e, c);
+            checkEntry(zf, zf.getEntry(c.name), c);
+        }
+        assertFalse(en.hasMoreElements());
+
+        // a directory is found without its trailing slash
+        assertEquals("dir/", zf.getEntry("dir").getName());
+        assertTrue(zf.getEntry("dir").isDirectory());
+        assertNull(zf.getEntry("none"));
+        assertNull(zf.getEntry("dir/none"));
+        assertNull(zf.getEntry("DIR/TEXT.TXT"));
+
+        // reads in pieces, with skips, and byte by byte
+        Content text = contents.get(1);
+        try (InputStream in = zf.getInputStream(zf.getEntry(text.name))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] b = new byte[777];
+            assertEquals(100, in.skip(100));
+            out.write(text.data, 0, 100);
+            int n;
+            while ((n = in.read(b, 0, b.length)) > 0)
+                out.write(b, 0, n);
+            assertArrayEquals(text.data, out.toByteArray());
+            assertEquals(-1, in.read());
+        }
+        Content small = contents.get(5);
+        try (InputStream in = zf.getInputStream(zf.getEntry(small.name))) {
+            assertEquals(small.data.length, in.available());
+            for (byte x : small.data)
+                assertEquals(x & 0xff, in.read());
+            assertEquals(-1, in.read());
+            assertEquals(0, in.available());
+        }
+    }
+
+    private static void checkEntry(ZipFile zf, ZipEntry e, Content c) throws IOException {
+        assertNotNull(c.name, e);
+        assertEquals(c.name, e.getName());
+        assertEquals(c.name, c.data.length, e.getSize());
+        assertEquals(c.name, c.method, e.getMethod());
+        assertEquals(c.name, c.comment, e.getComment());
+        assertEquals(c.name, 1400000000000L, e.getTime());
+        CRC32 crc = new CRC32();
+        crc.update(c.data);
+        assertEquals(c.name, crc.getValue(), e.getCrc());
+        if (c.method == ZipEntry.STORED)
+            assertEquals(c.name, c.data.length, e.getCompressedSize());
+        assertArrayEquals(c.name, c.data, read(zf, e));
+    }
+
+    private static void jar(boolean pureJava) throws IOException {
+        File file = File.createTempFile("zft", ".jar");
+        file.deleteOnExit();
+        Manifest man = new Manifest();
+        man.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        man.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "a.Main");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file), man)) {
+            out.putNextEntry(new ZipEntry("META-INF/services/a.Service"));
+            out.write("a.Impl\n".getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new ZipEntry("a/Main.class"));
+            out.write(new byte[] { 1, 2, 3 });
+        }
+        try (JarFile jf = new JarFile(file)) {
+            assertEquals(pureJava, readInJava(jf));
+            assertEquals("a.Main", jf.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS));
+            assertEquals("a.Impl\n", new String(read(jf, jf.getEntry("META-INF/services/a.Service")),
+                    StandardCharsets.UTF_8));
+            assertNull(jf.getJarEntry("a/Main.class").getCertificates());
+        }
+    }
+
+    private static void concurrent(final ZipFile zf, final List<Content> contents) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int seed = t;
+                futures.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int n = 0; n < 200; n++) {
+                        Content c = contents.get(random.nextInt(contents.size()));
+                        ZipEntry e = zf.getEntry(c.name);
+                        assertArrayEquals(c.name, c.data, read(zf, e));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void closeWithStreams(File file, List<Content> contents) throws IOException {
+        ZipFile zf = new ZipFile(file);
+        Content stored = contents.get(2);
+        Content deflated = contents.get(1);
+        InputStream s = zf.getInputStream(zf.getEntry(stored.name));
+        InputStream d = zf.getInputStream(zf.getEntry(deflated.name));
+        byte[] b = new byte[1000];
+        assertEquals(b.length, readFully(s, b));
+        assertEquals(b.length, readFully(d, b));
+        Enumeration<? extends ZipEntry> en = zf.entries();
+        assertNotNull(en.nextElement());
+
+        zf.close();
+        // a stored entry's stream ends, an inflating one is closed
+        assertEquals(-1, s.read(b, 0, b.length));
+        try {
+            d.read(b, 0, b.length);
+            fail("IOException expected");
+        } catch (IOException expected) {
+        }
+        try {
+            zf.getEntry(stored.name);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            en.hasMoreElements();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            zf.getInputStream(new ZipEntry(stored.name));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+        s.close();
+        d.close();
+        zf.close();
+
+        // another ZipFile of the same file is not affected
+        try (ZipFile again = new ZipFile(file)) {
+            assertArrayEquals(stored.data, read(again, again.getEntry(stored.name)));
+        }
+    }
+
+    /**
+     * Tells whether the zip file is read in Java rather than by the
+     * native zip library.
+     */
+    private static boolean readInJava(ZipFile zf) throws IOException {
+        try {
+            Field f = ZipFile.class.getDeclaredField("source");
+            f.setAccessible(true);
+            return f.get(zf) != null;
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] read(ZipFile zf, ZipEntry e) throws IOException {
+        try (InputStream in = zf.getInputStream(e)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] b = new byte[8192];
+            int n;
+            while ((n = in.read(b)) > 0)
+                out.write(b, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] b) throws IOException {
+        int off = 0;
+        while (off < b.length) {
+            int n = in.read(b, off, b.length - off);
+            if (n < 0)
+                break;
+            off += n;
+        }
+        return off;
+    }
+}
@@ -0,0 +1,254 @@
+package tests.sun.misc;
+
+import org.junit.Test;
+import sun.misc.ClassPathIndex;
+import tests.base.BaseTest;
+import tests.base.ForkedJvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * URLClassLoader lookups through the class path index, against the same
+ * lookups through the loader's URLClassPath: resources and their order
+ * across jars and directories, packages defined from a jar manifest, code
+ * sources, an index read back by a later JVM, a rewritten jar, and class
+ * paths the index does not cover. The index is enabled by a system
+ * property read once, so each scenario runs in its own JVM.
+ */
+public class ClassPathIndexTest extends BaseTest {
+
+    private static final String PROPERTY = "sun.misc.ClassPathIndex.file";
+
+    /**
+     * A class that the scenarios load from a jar, in a loader of its own.
+     */
+    public static class Probe {
+        public String hello() {
+            return "hello";
+        }
+    }
+
+    @Test
+    public void testResources() throws Exception {
+        fork("resources", classPath());
+    }
+
+    @Test
+    public void testPackagesAndCodeSources() throws Exception {
+        fork("packages", classPath());
+    }
+
+    @Test
+    public void testIndexReadBack() throws Exception {
+        File dir = classPath();
+        File index = new File(dir, "index");
+        fork("resources", dir);
+        assertTrue(index.isFile());
+        // the second JVM reads the jars from the index, and has nothing
+        // to write back
+        assertTrue(index.setLastModified(0));
+        fork("resources", dir);
+        assertEquals(0, index.lastModified());
+
+        // a rewritten jar is scanned again
+        writeJar(new File(dir, "one.jar"), null, "a/b/r.txt", "one", "n/new.txt", "new");
+        fork("rewritten", dir);
+        assertNotEquals(0, index.lastModified());
+    }
+
+    @Test
+    public void testNotCovered() throws Exception {
+        File dir = classPath();
+        Manifest man = new Manifest();
+        man.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        man.getMainAttributes().put(Attributes.Name.CLASS_PATH, "two.jar");
+        writeJar(new File(dir, "one.jar"), man, "a/b/r.txt", "one", "root.txt", "root");
+        fork("fallback", dir);
+    }
+
+    private void fork(String scenario, File dir) throws Exception {
+        log.info(ForkedJvm.run(ClassPathIndexTest.class,
+                Arrays.asList("-D" + PROPERTY + "=" + new File(dir, "index")),
+                scenario, dir.getPath()));
+    }
+
+    /**
+     * Creates one.jar, a directory dir/ and two.jar, with a resource that
+     * is in all of them, and the Probe class in a jar of its own whose
+     * manifest describes its package.
+     */
+    private static File classPath() throws IOException {
+        File dir = Files.createTempDirectory("cpi").toFile();
+        writeJar(new File(dir, "one.jar"), null, "a/b/r.txt", "one", "root.txt", "root");
+        File d = new File(dir, "dir/a/b");
+        assertTrue(d.mkdirs());
+        Files.write(new File(d, "r.txt").toPath(), "dir".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, "dir/x.txt").toPath(), "x".getBytes(StandardCharsets.UTF_8));
+        writeJar(new File(dir, "two.jar"), null, "a/b/r.txt", "two", "q/z.txt", "z");
+
+        Manifest man = new Manifest();
+        Attributes main = man.getMainAttributes();
+        main.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        main.put(Attributes.Name.SPECIFICATION_TITLE, "probe spec");
+        main.put(Attributes.Name.IMPLEMENTATION_VERSION, "1.2.3");
+        String name = Probe.class.getName().replace('.', '/') + ".class";
+        try (JarOutputStream out = new JarOutputStream(
+                new FileOutputStream(new File(dir, "probe.jar")), man);
+             InputStream in = ClassPathIndexTest.class.getClassLoader().getResourceAsStream(name)) {
+            out.putNextEntry(new JarEntry(name));
+            byte[] b = new byte[4096];
+            int n;
+            while ((n = in.read(b)) > 0)
+                out.write(b, 0, n);
+        }
+        return dir;
+    }
+
+    private static void writeJar(File file, Manifest man, String... namesAndContents) throws IOException {
+        try (JarOutputStream out = (man == null)
+                ? new JarOutputStream(new FileOutputStream(file))
+                : new JarOutputStream(new FileOutputStream(file), man)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                out.putNextEntry(new JarEntry(namesAndContents[i]));
+                out.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args[1]);
+        URL[] urls = {
+            new File(dir, "one.jar").toURI().toURL(),
+            new File(dir, "dir").toURI().toURL(),
+            new File(dir, "missing.jar").toURI().toURL(),
+            new File(dir, "two.jar").toURI().toURL(),
+            new File(dir, "probe.jar").toURI().toURL(),
+        };
+        try (URLClassLoader loader = new URLClassLoader(urls, null)) {
+            ClassPathIndex.Lookup lookup = ClassPathIndex.getLookup(loader);
+            assertNotNull(lookup);
+            switch (args[0]) {
+                case "resources":
+                    resources(loader, urls);
+                    assertTrue(lookup.getLookupCount() > 0);
+                    assertTrue(lookup.getFoundCount() > 0);
+                    // the name with ".." is the only one not covered, and
+                    // is looked up once for one resource and once for all
+                    assertEquals(2, lookup.getFallbackCount());
+                    // fewer entries probed than the class path has for
+                    // each lookup
+                    assertTrue(lookup.getProbeCount() < lookup.getLookupCount() * urls.length);
+                    break;
+                case "packages":
+                    packages(loader, urls);
+                    assertTrue(lookup.getFoundCount() > 0);
+                    break;
+                case "rewritten":
+                    assertEquals("new", read(loader.getResource("n/new.txt")));
+                    assertEquals("one", read(loader.getResource("a/b/r.txt")));
+                    assertNull(loader.getResource("root.txt"));
+                    assertEquals(0, lookup.getFallbackCount());
+                    break;
+                case "fallback":
+                    // the manifest of one.jar extends the class path
+                    assertEquals("one", read(loader.getResource("a/b/r.txt")));
+                    assertEquals("z", read(loader.getResource("q/z.txt")));
+                    assertEquals(0, lookup.getLookupCount());
+                    assertTrue(lookup.getFallbackCount() >= 2);
+                    break;
+                default:
+                    throw new IllegalArgumentException(args[0]);
+            }
+        }
+        System.out.println(args[0] + " passed");
+    }
+
+    private static void resources(URLClassLoader loader, URL[] urls) throws Exception {
+        // the same lookups through a loader that does not use the index
+        try (URLClassLoader plain = new URLClassLoader(urls, null, null)) {
+            String[] names = {
+                "a/b/r.txt", "root.txt", "x.txt", "q/z.txt", "a/b/", "a/b", "a/",
+                "missing", "q/none", "a/b/none.txt", "a/../root.txt",
+                Probe.class.getName().replace('.', '/') + ".class",
+            };
+            for (String name : names) {
+                assertEquals(name, String.valueOf(plain.getResource(name)),
+                        String.valueOf(loader.getResource(name)));
+                assertEquals(name, Collections.list(plain.getResources(name)),
+                        Collections.list(loader.getResources(name)));
+            }
+        }
+        // class path order
+        assertEquals("one", read(loader.getResource("a/b/r.txt")));
+        List<String> all = new ArrayList<>();
+        for (URL url : Collections.list(loader.getResources("a/b/r.txt")))
+            all.add(read(url));
+        assertEquals(Arrays.asList("one", "dir", "two"), all);
+        try (InputStream in = loader.getResourceAsStream("q/z.txt")) {
+            assertEquals("z", new String(readAll(in), StandardCharsets.UTF_8));
+        }
+        assertEquals("x", read(loader.getResource("x.txt")));
+    }
+
+    private static void packages(URLClassLoader loader, URL[] urls) throws Exception {
+        Class<?> c = loader.loadClass(Probe.class.getName());
+        assertSame(loader, c.getClassLoader());
+        assertNotSame(Probe.class, c);
+        assertEquals("hello", c.getMethod("hello").invoke(c.newInstance()));
+
+        // defined from the manifest of the jar the class came from
+        Package p = c.getPackage();
+        assertNotNull(p);
+        assertEquals(Probe.class.getPackage().getName(), p.getName());
+        assertEquals("probe spec", p.getSpecificationTitle());
+        assertEquals("1.2.3", p.getImplementationVersion());
+        assertFalse(p.isSealed());
+
+        URL location = c.getProtectionDomain().getCodeSource().getLocation();
+        assertEquals(urls[4], location);
+        // the class file itself is found through the index too
+        URL classFile = loader.getResource(Probe.class.getName().replace('.', '/') + ".class");
+        assertEquals("jar:" + urls[4] + "!/" + Probe.class.getName().replace('.', '/') + ".class",
+                classFile.toString());
+    }
+
+    private static String read(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            return new String(readAll(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[4096];
+        int n;
+        while ((n = in.read(b)) > 0)
+            out.write(b, 0, n);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,248 @@
+package tests.sun.net.www.http.pool;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sun.net.www.http.pool.HttpConnectionPool;
+import sun.net.www.http.pool.PooledHttpHandler;
+import tests.base.BaseTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PooledHttpHandler against a loopback HttpServer: connection reuse, idle
+ * eviction, and proxy selection through the default ProxySelector
+ */
+public class PooledHttpHandlerTest extends BaseTest {
+
+    private HttpServer origin;
+    private HttpServer proxy;
+    // request URIs seen by the proxy
+    private final List<String> proxied = new CopyOnWriteArrayList<>();
+    private HttpConnectionPool pool;
+    private PooledHttpHandler handler;
+    private ProxySelector defaultSelector;
+
+    @Before
+    public void setUp() throws IOException {
+        origin = server(exchange -> reply(exchange, "origin " + exchange.getRequestURI()));
+        proxy = server(exchange -> {
+            proxied.add(exchange.getRequestURI().toString());
+            reply(exchange, "proxy " + exchange.getRequestURI());
+        });
+        pool = new HttpConnectionPool(4, 200, TimeUnit.MILLISECONDS, 1);
+        handler = new PooledHttpHandler(pool);
+        defaultSelector = ProxySelector.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        ProxySelector.setDefault(defaultSelector);
+        pool.close();
+        origin.stop(0);
+        proxy.stop(0);
+    }
+
+    @Test
+    public void testReuse() throws IOException {
+        ProxySelector.setDefault(new FixedSelector(Proxy.NO_PROXY));
+        for (int i = 0; i < 5; i++)
+            assertEquals("origin /r" + i, get(originUrl("/r" + i)));
+        assertEquals(1, pool.getConnectionsCreated());
+        assertEquals(4, pool.getConnectionsReused());
+        assertEquals(1, pool.getRouteCount());
+        assertEquals(1, pool.getIdleConnections());
+        assertEquals(1, pool.getOpenConnections());
+    }
+
+    @Test
+    public void testConnectionNotReusedUntilBodyRead() throws IOException {
+        ProxySelector.setDefault(new FixedSelector(Proxy.NO_PROXY));
+        HttpURLConnection first = open(originUrl("/a"));
+        InputStream in = first.getInputStream();
+        // the first connection is busy, so a second one is opened
+        assertEquals("origin /b", get(originUrl("/b")));
+        assertEquals(2, pool.getConnectionsCreated());
+        assertEquals("origin /a", read(in));
+        assertEquals(2, pool.getIdleConnections());
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        ProxySelector.setDefault(new FixedSelector(Proxy.NO_PROXY));
+        assertEquals("origin /", get(originUrl("/")));
+        assertEquals(1, pool.getIdleConnections());
+        // the evictor runs at least once a second
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getConnectionsEvicted() == 0 && System.nanoTime() < deadline)
+            Thread.sleep(50);
+        assertEquals(1, pool.getConnectionsEvicted());
+        assertEquals(0, pool.getIdleConnections());
+        assertEquals(0, pool.getOpenConnections());
+
+        // a later request opens a new connection
+        assertEquals("origin /", get(originUrl("/")));
+        assertEquals(2, pool.getConnectionsCreated());
+        assertEquals(0, pool.getConnectionsReused());
+    }
+
+    @Test
+    public void testCloseIdleConnections() throws IOException {
+        ProxySelector.setDefault(new FixedSelector(Proxy.NO_PROXY));
+        get(originUrl("/"));
+        pool.closeIdleConnections();
+        assertEquals(0, pool.getOpenConnections());
+        get(originUrl("/"));
+        assertEquals(2, pool.getConnectionsCreated());
+    }
+
+    @Test
+    public void testProxySelectedPerUrl() throws IOException {
+        FixedSelector selector = new FixedSelector(
+                new Proxy(Proxy.Type.HTTP, proxy.getAddress()));
+        ProxySelector.setDefault(selector);
+        URL url = new URL(null, "http://origin.invalid:8080/x?q=1", handler);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        assertEquals("proxy http://origin.invalid:8080/x?q=1", read(conn.getInputStream()));
+        assertTrue(conn.usingProxy());
+        assertEquals(Collections.singletonList(URI.create("http://origin.invalid:8080/x?q=1")),
+                selector.selected);
+        assertEquals(Collections.singletonList("http://origin.invalid:8080/x?q=1"), proxied);
+
+        // proxied and direct connections are pooled apart
+        ProxySelector.setDefault(new FixedSelector(Proxy.NO_PROXY));
+        HttpURLConnection direct = open(originUrl("/y"));
+        assertEquals("origin /y", read(direct.getInputStream()));
+        assertFalse(direct.usingProxy());
+        assertEquals(2, pool.getRouteCount());
+        assertEquals(2, pool.getConnectionsCreated());
+    }
+
+    @Test
+    public void testExplicitProxyBypassesSelector() throws IOException {
+        FixedSelector selector = new FixedSelector(
+                new Proxy(Proxy.Type.HTTP, proxy.getAddress()));
+        ProxySelector.setDefault(selector);
+        HttpURLConnection conn = (HttpURLConnection) originUrl("/z").openConnection(Proxy.NO_PROXY);
+        assertEquals("origin /z", read(conn.getInputStream()));
+        assertFalse(conn.usingProxy());
+        assertTrue(selector.selected.isEmpty());
+    }
+
+    @Test
+    public void testUnreachableProxyReported() throws IOException {
+        SocketAddress dead;
+        try (ServerSocket ss = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            dead = ss.getLocalSocketAddress();
+        }
+        FixedSelector selector = new FixedSelector(
+                new Proxy(Proxy.Type.HTTP, dead), Proxy.NO_PROXY);
+        ProxySelector.setDefault(selector);
+        HttpURLConnection conn = open(originUrl("/f"));
+        assertEquals("origin /f", read(conn.getInputStream()));
+        assertFalse(conn.usingProxy());
+        assertEquals(Collections.singletonList(dead), selector.failed);
+    }
+
+    /**
+     * A ProxySelector that returns the given proxies and records its calls.
+     */
+    private static final class FixedSelector extends ProxySelector {
+        final List<Proxy> proxies;
+        final List<URI> selected = new CopyOnWriteArrayList<>();
+        final List<SocketAddress> failed = new CopyOnWriteArrayList<>();
+
+        FixedSelector(Proxy... proxies) {
+            this.proxies = Arrays.asList(proxies);
+        }
+
+        @Override
+        public List<Proxy> select(URI uri) {
+            // sockets themselves ask for socket:// URIs
+            if (uri.getScheme().equals("socket"))
+                return Collections.singletonList(Proxy.NO_PROXY);
+            selected.add(uri);
+            return proxies;
+        }
+
+        @Override
+        public void connectFailed(URI uri, SocketAddress sa, IOException e) {
+            failed.add(sa);
+        }
+    }
+
+    private interface Responder {
+        void respond(HttpExchange exchange) throws IOException;
+    }
+
+    private static HttpServer server(Responder responder) throws IOException {
+        HttpServer server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                responder.respond(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void reply(HttpExchange exchange, String body) throws IOException {
+        byte[] b = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, b.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(b);
+        }
+    }
+
+    private URL originUrl(String path) throws IOException {
+        InetSocketAddress sa = origin.getAddress();
+        return new URL(null, "http://" + sa.getHostString() + ":" + sa.getPort() + path, handler);
+    }
+
+    private static HttpURLConnection open(URL url) throws IOException {
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static String get(URL url) throws IOException {
+        HttpURLConnection conn = open(url);
+        assertEquals(200, conn.getResponseCode());
+        return read(conn.getInputStream());
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[1024];
+        int n;
+        while ((n = in.read(b)) > 0)
+            out.write(b, 0, n);
+        in.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}